@@ -3,10 +3,14 @@ package org.jbei.ice;
 import org.jbei.ice.lib.account.AccountController;
 import org.jbei.ice.lib.common.logging.Logger;
 import org.jbei.ice.lib.config.ConfigurationSettings;
+import org.jbei.ice.lib.entry.sequence.RotationHashBackfillTask;
+import org.jbei.ice.lib.entry.sequence.SequencePackingTask;
 import org.jbei.ice.lib.entry.sequence.annotation.AutoAnnotationBlastDbBuildTask;
 import org.jbei.ice.lib.executor.IceExecutorService;
 import org.jbei.ice.lib.group.GroupController;
+import org.jbei.ice.lib.search.blast.BlastUpdateScheduler;
 import org.jbei.ice.lib.search.blast.RebuildBlastIndexTask;
+import org.jbei.ice.lib.search.blast.RebuildSequenceKmerIndexTask;
 
 /**
  * Responsible for initializing the ICE application
@@ -40,6 +44,18 @@ public class ApplicationInitialize {
             RebuildBlastIndexTask task = new RebuildBlastIndexTask();
             IceExecutorService.getInstance().runTask(task);
 
+            // apply sequence changes left pending from the last run and any new ones
+            BlastUpdateScheduler.getInstance().start();
+
+            // hashes for finding identical circular sequences (sequences created before they were introduced)
+            IceExecutorService.getInstance().runTask(new RotationHashBackfillTask());
+
+            // compact storage for sequences saved before it was introduced
+            IceExecutorService.getInstance().runTask(new SequencePackingTask());
+
+            // in memory index for exact sequence searches
+            IceExecutorService.getInstance().runTask(new RebuildSequenceKmerIndexTask());
+
             AutoAnnotationBlastDbBuildTask autoAnnotationBlastDbBuildTask = new AutoAnnotationBlastDbBuildTask();
             IceExecutorService.getInstance().runTask(autoAnnotationBlastDbBuildTask);
         } catch (Exception e) {
@@ -9,6 +9,7 @@ import org.jbei.ice.lib.dto.ConfigurationKey;
 import org.jbei.ice.lib.dto.bulkupload.EditMode;
 import org.jbei.ice.lib.dto.entry.EntryFieldLabel;
 import org.jbei.ice.lib.dto.entry.PartData;
+import org.jbei.ice.lib.dto.entry.SequenceInfo;
 import org.jbei.ice.lib.dto.entry.Visibility;
 import org.jbei.ice.lib.dto.sample.PartSample;
 import org.jbei.ice.lib.email.EmailFactory;
@@ -49,6 +50,7 @@ public class BulkUploadEntries {
     private final BulkUploadAuthorization authorization;
     private final String userId;
     private final BulkUpload upload;
+    private final List<String> duplicateSequences = new ArrayList<>();
 
     public BulkUploadEntries(String userId, long uploadId) {
         dao = DAOFactory.getBulkUploadDAO();
@@ -410,12 +412,26 @@ public class BulkUploadEntries {
         return true;
     }
 
+    /**
+     * @return messages for the sequences saved by {@link #createEntries(List, HashMap)} that are identical to the
+     * sequences of existing entries
+     */
+    List<String> getDuplicateSequences() {
+        return duplicateSequences;
+    }
+
     private void saveSequence(PartData data, Entry entry, HashMap<String, InputStream> files) throws IOException {
         // check main entry
         if (!StringUtils.isEmpty(data.getSequenceFileName())) {
             String sequenceName = data.getSequenceFileName();
             PartSequence partSequence = new PartSequence(entry.getOwnerEmail(), entry.getRecordId());
-            partSequence.parseSequenceFile(files.get(sequenceName), sequenceName, false);
+            SequenceInfo info = partSequence.parseSequenceFile(files.get(sequenceName), sequenceName, false);
+
+            // flag sequences that are identical to those of existing entries
+            if (info != null && info.getDuplicates() != null && !info.getDuplicates().isEmpty()) {
+                duplicateSequences.add("Sequence \"" + sequenceName + "\" for " + entry.getPartNumber()
+                        + " is identical to the sequence of " + info.getDuplicates().size() + " existing entries");
+            }
         }
 
         // check linked
@@ -20,6 +20,7 @@ import org.jbei.ice.storage.ModelToInfoFactory;
 import org.jbei.ice.storage.hibernate.dao.BulkUploadDAO;
 import org.jbei.ice.storage.hibernate.dao.EntryDAO;
 import org.jbei.ice.storage.hibernate.dao.SequenceDAO;
+import org.jbei.ice.storage.hibernate.search.AutoCompleteSearch;
 import org.jbei.ice.storage.model.*;
 
 import java.io.ByteArrayInputStream;
@@ -602,12 +603,13 @@ public class BulkUploads {
      * in the parameter. Two entry types are compatible if they can be associated with specific entries (as descendants)
      * in a hierarchical relationship
      *
-     * @param type  type of entry the part numbers must be compatible with
-     * @param token part number token to match
-     * @param limit maximum number of matches to return
+     * @param userId unique identifier for user performing the lookup. Only readable entries are matched
+     * @param type   type of entry the part numbers must be compatible with
+     * @param token  part number token to match
+     * @param limit  maximum number of matches to return
      * @return list of part numbers that can be linked to the type of entry
      */
-    public ArrayList<String> getMatchingPartNumbersForLinks(EntryType type, String token, int limit) {
+    public ArrayList<String> getMatchingPartNumbersForLinks(String userId, EntryType type, String token, int limit) {
         ArrayList<String> dataList = new ArrayList<>();
         if (token == null)
             return dataList;
@@ -619,6 +621,8 @@ public class BulkUploads {
             compatibleTypes.add(EntryType.PLASMID.getName());
 
         token = token.replaceAll("'", "");
-        return new ArrayList<>(DAOFactory.getEntryDAO().getMatchingEntryPartNumbers(token, limit, compatibleTypes));
+        AutoCompleteSearch search = new AutoCompleteSearch();
+        return new ArrayList<>(search.getMatchingValues(userId, AutoCompleteField.PART_NUMBER, token, limit,
+                compatibleTypes));
     }
 }
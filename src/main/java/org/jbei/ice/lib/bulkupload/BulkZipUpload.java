@@ -136,6 +136,8 @@ public class BulkZipUpload extends BulkCSVUpload {
             }
 
             processedBulkUpload.setUploadId(uploadId);
+            if (!creator.getDuplicateSequences().isEmpty())
+                processedBulkUpload.setUserMessage(String.join("\n", creator.getDuplicateSequences()));
             return processedBulkUpload;
         } catch (IOException e) {
             Logger.error(e);
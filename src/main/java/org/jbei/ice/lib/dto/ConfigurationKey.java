@@ -26,6 +26,22 @@ public enum ConfigurationKey implements IDataTransferModel {
     PART_NUMBER_DELIMITER("_"),
 
     BLAST_INSTALL_DIR(""),
+    // seconds without sequence changes before pending changes are applied to the blast database
+    BLAST_UPDATE_QUIET_PERIOD("10"),
+    // maximum number of entries returned for a blast search
+    BLAST_MAX_HITS("1000"),
+    // blast processes that may run at the same time, searches that may wait to run and seconds a search may take
+    BLAST_MAX_CONCURRENT_SEARCHES("2"),
+    BLAST_MAX_QUEUED_SEARCHES("20"),
+    BLAST_SEARCH_TIMEOUT("300"),
+    // megabytes of search results cached, split equally between the sequence and feature blast databases
+    BLAST_RESULT_CACHE_SIZE("32"),
+
+    // lucene index rebuild config
+    LUCENE_INDEXER_THREADS("4"),
+    LUCENE_INDEXER_BATCH_SIZE("50"),
+    LUCENE_INDEXER_ID_FETCH_SIZE("500"),
+    LUCENE_INDEXER_CACHE_MODE("IGNORE"),
 
     ADD_TO_CART_DEFAULT_SET_TO_LOCAL("YES"),
     NEW_REGISTRATION_ALLOWED("NO"),
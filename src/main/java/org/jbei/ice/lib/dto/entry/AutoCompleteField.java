@@ -11,5 +11,7 @@ public enum AutoCompleteField {
     PROMOTERS,
     REPLICATES_IN,
     ORIGIN_OF_REPLICATION,
-    PART_NUMBER
+    PART_NUMBER,
+    NAME,
+    ALIAS
 }
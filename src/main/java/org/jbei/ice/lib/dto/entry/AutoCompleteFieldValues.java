@@ -1,10 +1,8 @@
 package org.jbei.ice.lib.dto.entry;
 
-import org.jbei.ice.storage.DAOFactory;
-import org.jbei.ice.storage.hibernate.dao.EntryDAO;
+import org.jbei.ice.storage.hibernate.search.AutoCompleteSearch;
 
 import java.util.ArrayList;
-import java.util.HashSet;
 import java.util.List;
 
 /**
@@ -14,21 +12,24 @@ import java.util.List;
  */
 public class AutoCompleteFieldValues {
 
+    private final String userId;
     private final AutoCompleteField autoCompleteField;
-    private final EntryDAO entryDAO;
 
     /**
      * Each instance of this object is tied to a specified field
      *
-     * @param field user specified field
+     * @param userId unique identifier for user performing the lookup. Only values of entries
+     *               the user can read are returned
+     * @param field  user specified field
      */
-    public AutoCompleteFieldValues(String field) {
+    public AutoCompleteFieldValues(String userId, String field) {
+        this.userId = userId;
         this.autoCompleteField = AutoCompleteField.valueOf(field);
-        this.entryDAO = DAOFactory.getEntryDAO();
     }
 
     /**
-     * Retrieves list of values that match the user specified token up to the specified limit
+     * Retrieves list of values that contain the user specified token up to the specified limit (see
+     * {@link AutoCompleteSearch#getMatchingValues}). Values are looked up in the search index and not the database
      *
      * @param token token to match values against
      * @param limit maximum number of matching values to return
@@ -39,35 +40,6 @@ public class AutoCompleteFieldValues {
             return new ArrayList<>();
 
         token = token.replaceAll("'", "");
-        List<String> results;
-        switch (this.autoCompleteField) {
-            case SELECTION_MARKERS:
-                results = DAOFactory.getSelectionMarkerDAO().getMatchingSelectionMarkers(token, limit);
-                break;
-
-            case ORIGIN_OF_REPLICATION:
-            case PROMOTERS:
-            case REPLICATES_IN:
-                results = entryDAO.getMatchingPlasmidField(this.autoCompleteField, token, limit);
-                break;
-
-            case PART_NUMBER:
-                results = entryDAO.getMatchingEntryPartNumbers(token, limit, null);
-                break;
-
-            default:
-                return new ArrayList<>();
-        }
-
-        // process to remove commas
-        HashSet<String> individualResults = new HashSet<>();
-        for (String result : results) {
-            for (String split : result.split(",")) {
-                if (!split.toLowerCase().contains(token.toLowerCase()))
-                    continue;
-                individualResults.add(split.trim());
-            }
-        }
-        return new ArrayList<>(individualResults);
+        return new AutoCompleteSearch().getMatchingValues(userId, autoCompleteField, token, limit, null);
     }
 }
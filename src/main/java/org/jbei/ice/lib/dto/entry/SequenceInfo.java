@@ -4,6 +4,9 @@ import org.jbei.ice.lib.dto.DNASequence;
 import org.jbei.ice.lib.entry.sequence.SequenceFormat;
 import org.jbei.ice.storage.IDataTransferModel;
 
+import java.util.ArrayList;
+import java.util.List;
+
 /**
  * Data transfer object for sequence
  *
@@ -16,6 +19,7 @@ public class SequenceInfo implements IDataTransferModel {
     private DNASequence sequence;
     private long entryId;
     private SequenceFormat format;
+    private List<Long> duplicates = new ArrayList<>();
 
     public String getFilename() {
         return filename;
@@ -56,4 +60,15 @@ public class SequenceInfo implements IDataTransferModel {
     public void setFormat(SequenceFormat format) {
         this.format = format;
     }
+
+    /**
+     * @return ids of other entries with a sequence identical to this one
+     */
+    public List<Long> getDuplicates() {
+        return duplicates;
+    }
+
+    public void setDuplicates(List<Long> duplicates) {
+        this.duplicates = duplicates;
+    }
 }
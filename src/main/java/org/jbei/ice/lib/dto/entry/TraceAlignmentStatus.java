@@ -0,0 +1,67 @@
+package org.jbei.ice.lib.dto.entry;
+
+import org.jbei.ice.lib.executor.TaskStatus;
+import org.jbei.ice.storage.IDataTransferModel;
+
+/**
+ * Progress of the background rebuild of the trace sequence alignments for an entry
+ */
+public class TraceAlignmentStatus implements IDataTransferModel {
+
+    private long entryId;
+    private TaskStatus status;
+    private int total;
+    private int completed;
+    private int failed;
+
+    public TraceAlignmentStatus() {
+    }
+
+    public TraceAlignmentStatus(long entryId, TaskStatus status, int total, int completed, int failed) {
+        this.entryId = entryId;
+        this.status = status;
+        this.total = total;
+        this.completed = completed;
+        this.failed = failed;
+    }
+
+    public long getEntryId() {
+        return entryId;
+    }
+
+    public void setEntryId(long entryId) {
+        this.entryId = entryId;
+    }
+
+    public TaskStatus getStatus() {
+        return status;
+    }
+
+    public void setStatus(TaskStatus status) {
+        this.status = status;
+    }
+
+    public int getTotal() {
+        return total;
+    }
+
+    public void setTotal(int total) {
+        this.total = total;
+    }
+
+    public int getCompleted() {
+        return completed;
+    }
+
+    public void setCompleted(int completed) {
+        this.completed = completed;
+    }
+
+    public int getFailed() {
+        return failed;
+    }
+
+    public void setFailed(int failed) {
+        this.failed = failed;
+    }
+}
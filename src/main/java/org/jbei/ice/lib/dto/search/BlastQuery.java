@@ -3,7 +3,8 @@ package org.jbei.ice.lib.dto.search;
 import org.jbei.ice.storage.IDataTransferModel;
 
 /**
- * Blast query object. Program type defaults to blastn
+ * Blast query object. Program type defaults to blastn. The query sequence is linear unless it is marked as circular,
+ * in which case stored circular sequences that are rotations of it are also identical matches
  *
  * @author Hector Plahar
  */
@@ -13,6 +14,7 @@ public class BlastQuery implements IDataTransferModel {
 
     private BlastProgram blastProgram;
     private String sequence;
+    private boolean circular;
 
     // required no arg constructor
     public BlastQuery() {
@@ -34,4 +36,12 @@ public class BlastQuery implements IDataTransferModel {
     public void setSequence(String sequence) {
         this.sequence = sequence;
     }
+
+    public boolean isCircular() {
+        return circular;
+    }
+
+    public void setCircular(boolean circular) {
+        this.circular = circular;
+    }
 }
@@ -97,6 +97,7 @@ public class SearchQuery implements IDataTransferModel {
         private boolean hasSequence;
         private boolean hasAttachment;
         private boolean hasSample;
+        private String cursor;
 
         public Parameters() {
             start = 0;
@@ -160,5 +161,17 @@ public class SearchQuery implements IDataTransferModel {
         public void setRetrieveCount(int retrieveCount) {
             this.retrieveCount = retrieveCount;
         }
+
+        /**
+         * @return cursor returned with the previous page of results. When set, the next page is retrieved
+         * after the cursor position and <code>start</code> is ignored
+         */
+        public String getCursor() {
+            return cursor;
+        }
+
+        public void setCursor(String cursor) {
+            this.cursor = cursor;
+        }
     }
 }
@@ -5,6 +5,7 @@ import org.jbei.ice.storage.IDataTransferModel;
 
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
 
@@ -21,6 +22,8 @@ public class SearchResults implements IDataTransferModel {
     private long resultCount;
     private LinkedList<SearchResult> results;
     private SearchQuery query;
+    private String cursor;
+    private HashMap<String, HashMap<String, Long>> facets;
 
     public SearchResults() {
         results = new LinkedList<>();
@@ -57,6 +60,29 @@ public class SearchResults implements IDataTransferModel {
         this.query = query;
     }
 
+    /**
+     * @return opaque cursor for retrieving the page following these results, or null if there are no more results
+     */
+    public String getCursor() {
+        return cursor;
+    }
+
+    public void setCursor(String cursor) {
+        this.cursor = cursor;
+    }
+
+    /**
+     * @return hit counts for each value of the facet fields (e.g. <code>recordType</code>, <code>status</code>,
+     * <code>bioSafetyLevel</code>, <code>hasSequence</code>), keyed by field. Null if facets were not computed
+     */
+    public HashMap<String, HashMap<String, Long>> getFacets() {
+        return facets;
+    }
+
+    public void setFacets(HashMap<String, HashMap<String, Long>> facets) {
+        this.facets = facets;
+    }
+
     public static void sort(ColumnField sortField, LinkedList<SearchResult> results) {
         Comparator<SearchResult> comparator;
         switch (sortField) {
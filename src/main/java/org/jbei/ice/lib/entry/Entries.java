@@ -9,8 +9,6 @@ import org.jbei.ice.lib.dto.entry.*;
 import org.jbei.ice.lib.dto.folder.FolderAuthorization;
 import org.jbei.ice.lib.dto.folder.FolderType;
 import org.jbei.ice.lib.dto.search.SearchQuery;
-import org.jbei.ice.lib.dto.search.SearchResult;
-import org.jbei.ice.lib.dto.search.SearchResults;
 import org.jbei.ice.lib.entry.sequence.PartSequence;
 import org.jbei.ice.lib.executor.IceExecutorService;
 import org.jbei.ice.lib.folder.collection.CollectionEntries;
@@ -290,11 +288,10 @@ public class Entries extends HasEntry {
 
     private List<Long> getSearchResults(SearchQuery searchQuery) {
         SearchIndexes searchIndexes = new SearchIndexes();
-        SearchResults searchResults = searchIndexes.runSearch(userId, searchQuery);
-        // todo : inefficient: have search return ids only
+        Iterator<Long> iterator = searchIndexes.iterateSearchResults(userId, searchQuery);
         List<Long> results = new LinkedList<>();
-        for (SearchResult result : searchResults.getResults()) {
-            results.add(result.getEntryInfo().getId());
+        while (iterator.hasNext()) {
+            results.add(iterator.next());
         }
         return results;
     }
@@ -11,6 +11,7 @@ import org.jbei.ice.lib.dto.entry.PartData;
 import org.jbei.ice.lib.entry.sequence.InputStreamWrapper;
 import org.jbei.ice.lib.entry.sequence.PartSequence;
 import org.jbei.ice.lib.entry.sequence.SequenceFormat;
+import org.jbei.ice.lib.entry.sequence.SequenceOutput;
 import org.jbei.ice.lib.group.GroupController;
 import org.jbei.ice.lib.utils.Utils;
 import org.jbei.ice.storage.DAOFactory;
@@ -196,10 +197,7 @@ public class EntriesAsCSV {
 
         switch (SequenceFormat.fromString(format)) {
             case ORIGINAL:
-                Sequence sequence = sequenceDAO.getByEntry(entry);
-                if (sequence == null)
-                    return "";
-                return sequence.getFileName();
+                return sequenceDAO.getSequenceFilename(entry);
 
             case GENBANK:
             default:
@@ -220,15 +218,15 @@ public class EntriesAsCSV {
             File tmpZip = File.createTempFile("zip-", ".zip", tmpPath.toFile());
 
             // out
-            FileOutputStream fos = new FileOutputStream(tmpZip);
+            OutputStream fos = new BufferedOutputStream(new FileOutputStream(tmpZip));
             ZipOutputStream zos = new ZipOutputStream(fos);
 
             // get sequence formats
             for (long entryId : sequenceSet) {
                 for (String format : formats) {
-                    InputStreamWrapper wrapper = new PartSequence(userId, Long.toString(entryId))
-                            .toFile(SequenceFormat.fromString(format), true, false);
-                    putZipEntry(wrapper, zos);
+                    SequenceOutput output = new PartSequence(userId, Long.toString(entryId))
+                            .toStream(SequenceFormat.fromString(format), true, false);
+                    putZipEntry(output, zos);
                 }
             }
 
@@ -259,6 +257,17 @@ public class EntriesAsCSV {
         }
     }
 
+    // sequence is written directly to the zip file
+    private void putZipEntry(SequenceOutput output, ZipOutputStream zos) {
+        try {
+            zos.putNextEntry(new ZipEntry(output.getName()));
+            output.write(zos);
+            zos.closeEntry();
+        } catch (Exception e) {
+            Logger.error(e);
+        }
+    }
+
     private EntryFieldLabel[] getEntryFields() {
         Set<String> recordTypes = new HashSet<>(dao.getRecordTypes(entries));
         List<EntryFieldLabel> fields = EntryFields.getCommonFields();
@@ -292,14 +301,22 @@ public class EntriesAsCSV {
         return fields.toArray(new EntryFieldLabel[0]);
     }
 
-    public ByteArrayOutputStream customize(EntrySelection selection, SequenceFormat format, boolean onePerFolder)
-            throws IOException {
+    /**
+     * Writes a zip file containing the sequences, in the specified format, and a csv file of the selected entries
+     *
+     * @param selection    selection indicating source of entries
+     * @param format       format of the sequences
+     * @param onePerFolder whether to place each sequence in a folder named after the entry's part number
+     * @param outputStream stream to write the zip file to. It is closed once the zip file has been written
+     * @throws IOException on exception writing the zip file
+     */
+    public void customize(EntrySelection selection, SequenceFormat format, boolean onePerFolder,
+                          OutputStream outputStream) throws IOException {
         Entries retriever = new Entries(this.userId);
         this.entries = retriever.getEntriesFromSelectionContext(selection);
-        ByteArrayOutputStream baos = new ByteArrayOutputStream();
 //        EntryAuthorization entryAuthorization = new EntryAuthorization();
 
-        try (ZipOutputStream zos = new ZipOutputStream(baos)) {
+        try (ZipOutputStream zos = new ZipOutputStream(outputStream)) {
             for (long entryId : this.entries) {
                 // get the entry
                 Entry entry = DAOFactory.getEntryDAO().get(entryId);
@@ -313,16 +330,14 @@ public class EntriesAsCSV {
                 }
 
                 // get the sequence
-                InputStreamWrapper wrapper = new PartSequence(userId, Long.toString(entryId)).toFile(format, onePerFolder, false);
-                if (wrapper == null) {
+                SequenceOutput output = new PartSequence(userId, Long.toString(entryId)).toStream(format, onePerFolder, false);
+                if (output == null) {
                     Logger.error("ERROR : no sequence " + entryId);
                     continue;
                 }
                 if (onePerFolder)
-                    wrapper.setName(entry.getPartNumber() + File.separatorChar + wrapper.getName());
-                else
-                    wrapper.setName(wrapper.getName());
-                putZipEntry(wrapper, zos);
+                    output.setName(entry.getPartNumber() + File.separatorChar + output.getName());
+                putZipEntry(output, zos);
             }
             this.includeSequences = false;
             writeList(selection.getFields().toArray(new EntryFieldLabel[0]));
@@ -332,7 +347,6 @@ public class EntriesAsCSV {
             InputStreamWrapper wrapper = new InputStreamWrapper(fis, "entries.csv");
             putZipEntry(wrapper, zos);
         }
-        return baos;
     }
 
     public Path getFilePath() {
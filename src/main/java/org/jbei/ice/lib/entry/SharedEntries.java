@@ -9,7 +9,6 @@ import org.jbei.ice.storage.hibernate.dao.EntryDAO;
 import org.jbei.ice.storage.model.Account;
 import org.jbei.ice.storage.model.Group;
 
-import java.util.ArrayList;
 import java.util.List;
 import java.util.Set;
 
@@ -46,11 +45,6 @@ public class SharedEntries {
         accountGroups.remove(publicGroup);
         List<Long> entries = this.entryDAO.sharedWithUserEntries(account, accountGroups, field, asc, start, limit, filter);
 
-        ArrayList<PartData> data = new ArrayList<>();
-        for (Long id : entries) {
-            PartData info = ModelToInfoFactory.createTableView(id, fields);
-            data.add(info);
-        }
-        return data;
+        return ModelToInfoFactory.createTableViews(entries, fields);
     }
 }
@@ -9,7 +9,6 @@ import org.jbei.ice.storage.hibernate.dao.EntryDAO;
 import org.jbei.ice.storage.model.Account;
 import org.jbei.ice.storage.model.Group;
 
-import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
@@ -51,13 +50,7 @@ public class VisibleEntries {
             resultIds = dao.retrieveVisibleEntries(account, accountGroups, field, asc, start, limit, filter);
         }
 
-        ArrayList<PartData> data = new ArrayList<>();
-        for (Long id : resultIds) {
-            PartData info = ModelToInfoFactory.createTableView(id, fields);
-            data.add(info);
-        }
-
-        return data;
+        return ModelToInfoFactory.createTableViews(resultIds, fields);
     }
 
     /**
@@ -9,7 +9,7 @@ import org.jbei.ice.lib.entry.sequence.SequenceFormat;
 import org.jbei.ice.lib.executor.Task;
 import org.jbei.ice.lib.utils.Utils;
 
-import java.io.ByteArrayOutputStream;
+import java.io.BufferedOutputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
@@ -54,9 +54,8 @@ public class CustomExportTask extends Task {
 
         EntriesAsCSV entriesAsCSV = new EntriesAsCSV(userId);
         try {
-            ByteArrayOutputStream byteArrayOutputStream = entriesAsCSV.customize(selection, format, this.onePerFolder);
-            try (OutputStream outputStream = new FileOutputStream(exportPath.toString())) {
-                byteArrayOutputStream.writeTo(outputStream);
+            try (OutputStream outputStream = new BufferedOutputStream(new FileOutputStream(exportPath.toString()))) {
+                entriesAsCSV.customize(selection, format, this.onePerFolder, outputStream);
             }
         } catch (IOException e) {
             Logger.error(e);
@@ -0,0 +1,115 @@
+package org.jbei.ice.lib.entry.sequence;
+
+import org.jbei.ice.lib.dto.entry.EntryType;
+import org.jbei.ice.lib.entry.EntryAuthorization;
+import org.jbei.ice.lib.utils.SequenceUtils;
+import org.jbei.ice.storage.DAOFactory;
+import org.jbei.ice.storage.hibernate.dao.SequenceDAO;
+import org.jbei.ice.storage.model.Entry;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Finds the entries whose sequence is identical to a query sequence using the indexed sequence hashes instead of
+ * running blast. Linear sequences are identical if they match on either strand. Circular sequences are also
+ * identical if one is a rotation of the other (on either strand); only plasmids not marked as linear are circular.
+ */
+public class IdenticalSequences {
+
+    private final SequenceDAO dao;
+
+    public IdenticalSequences() {
+        this.dao = DAOFactory.getSequenceDAO();
+    }
+
+    /**
+     * Finds the visible entries with a sequence identical to the query
+     *
+     * @param sequence query sequence. Either the raw sequence or in fasta format
+     * @param circular whether the query sequence is circular
+     * @return ids of the entries, in ascending order
+     */
+    public List<Long> find(String sequence, boolean circular) {
+        String normalized = normalize(sequence);
+        if (normalized.isEmpty())
+            return new ArrayList<>();
+
+        String hash = SequenceUtils.calculateSequenceHash(normalized);
+        String rotationHash = circular ? SequenceUtils.calculateRotationHash(normalized) : null;
+
+        List<Long> entryIds = new ArrayList<>();
+        List<Long> rotations = new ArrayList<>();
+        for (Object[] result : dao.getIdenticalSequenceEntries(hash, rotationHash)) {
+            long entryId = (Long) result[0];
+            if (hash.equals(result[1]) || hash.equals(result[2]))
+                entryIds.add(entryId);
+            else if (EntryType.PLASMID.getName().equalsIgnoreCase((String) result[3]))
+                rotations.add(entryId);
+        }
+
+        if (rotations.isEmpty())
+            return entryIds;
+
+        // rotations only match circular sequences
+        rotations.removeAll(DAOFactory.getEntryDAO().getLinearPlasmidIds(rotations));
+        entryIds.addAll(rotations);
+        Collections.sort(entryIds);
+        return entryIds;
+    }
+
+    /**
+     * Finds the entries that the user can read with a sequence identical to the query
+     *
+     * @param userId   unique identifier for user making request
+     * @param sequence query sequence. Either the raw sequence or in fasta format
+     * @param circular whether the query sequence is circular
+     * @return ids of the entries, in ascending order
+     */
+    public List<Long> findReadable(String userId, String sequence, boolean circular) {
+        List<Long> readable = new ArrayList<>();
+        List<Long> entryIds = find(sequence, circular);
+        if (entryIds.isEmpty())
+            return readable;
+
+        EntryAuthorization authorization = new EntryAuthorization();
+        for (Entry entry : DAOFactory.getEntryDAO().getEntriesByIdSet(entryIds)) {
+            if (authorization.canRead(userId, entry))
+                readable.add(entry.getId());
+        }
+        Collections.sort(readable);
+        return readable;
+    }
+
+    /**
+     * Normalizes a query sequence in the same way as stored sequences by removing any fasta header lines and
+     * whitespace and converting to lower case
+     *
+     * @param sequence query sequence
+     * @return normalized sequence
+     */
+    public static String normalize(String sequence) {
+        if (sequence == null)
+            return "";
+
+        StringBuilder builder = new StringBuilder(sequence.length());
+        boolean header = false;
+        boolean lineStart = true;
+        for (int i = 0; i < sequence.length(); i += 1) {
+            char c = sequence.charAt(i);
+            if (c == '\n' || c == '\r') {
+                header = false;
+                lineStart = true;
+                continue;
+            }
+
+            if (lineStart && c == '>')
+                header = true;
+            lineStart = false;
+            if (!header && !Character.isWhitespace(c))
+                builder.append(Character.toLowerCase(c));
+        }
+        return builder.toString();
+    }
+}
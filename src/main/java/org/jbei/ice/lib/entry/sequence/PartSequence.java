@@ -1,10 +1,10 @@
 package org.jbei.ice.lib.entry.sequence;
 
 import org.apache.commons.io.IOUtils;
-import org.apache.commons.io.LineIterator;
+import org.apache.commons.io.input.TeeInputStream;
+import org.apache.commons.io.output.NullOutputStream;
 import org.apache.commons.lang3.StringUtils;
 import org.jbei.ice.lib.common.logging.Logger;
-import org.jbei.ice.lib.config.ConfigurationSettings;
 import org.jbei.ice.lib.dto.ConfigurationKey;
 import org.jbei.ice.lib.dto.FeaturedDNASequence;
 import org.jbei.ice.lib.dto.entry.EntryType;
@@ -15,32 +15,23 @@ import org.jbei.ice.lib.entry.Entries;
 import org.jbei.ice.lib.entry.EntryAuthorization;
 import org.jbei.ice.lib.entry.HasEntry;
 import org.jbei.ice.lib.entry.sequence.analysis.TraceSequences;
-import org.jbei.ice.lib.entry.sequence.composers.formatters.*;
-import org.jbei.ice.lib.executor.IceExecutorService;
-import org.jbei.ice.lib.parsers.AbstractParser;
 import org.jbei.ice.lib.parsers.GeneralParser;
 import org.jbei.ice.lib.parsers.InvalidFormatParserException;
 import org.jbei.ice.lib.parsers.PlainParser;
 import org.jbei.ice.lib.parsers.fasta.FastaParser;
-import org.jbei.ice.lib.parsers.genbank.GenBankParser;
+import org.jbei.ice.lib.parsers.genbank.StreamingGenBankParser;
 import org.jbei.ice.lib.parsers.sbol.SBOLParser;
 import org.jbei.ice.lib.search.blast.Action;
-import org.jbei.ice.lib.search.blast.RebuildBlastIndexTask;
+import org.jbei.ice.lib.search.blast.BlastUpdateScheduler;
+import org.jbei.ice.lib.search.blast.SequenceKmerIndex;
 import org.jbei.ice.storage.DAOFactory;
 import org.jbei.ice.storage.hibernate.dao.FeatureDAO;
 import org.jbei.ice.storage.hibernate.dao.SequenceDAO;
 import org.jbei.ice.storage.hibernate.dao.SequenceFeatureDAO;
 import org.jbei.ice.storage.model.*;
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
-import java.io.IOException;
-import java.io.InputStream;
+import java.io.*;
 import java.nio.charset.StandardCharsets;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.Paths;
-import java.nio.file.StandardCopyOption;
 import java.util.*;
 
 import static org.jbei.ice.lib.entry.sequence.SequenceFormat.SBOL2;
@@ -52,6 +43,8 @@ import static org.jbei.ice.lib.entry.sequence.SequenceFormat.SBOL2;
  */
 public class PartSequence {
 
+    private static final int FORMAT_DETECTION_BYTES = 8192;
+
     private final Entry entry;
     private final String userId;
     private final SequenceDAO sequenceDAO;
@@ -122,7 +115,9 @@ public class PartSequence {
     }
 
     /**
-     * Parses a sequence in a file and associates it with the current entry
+     * Parses a sequence in a file and associates it with the current entry. The file is parsed as it is read from
+     * the stream (the format is detected from the first line) and, except for SBOL, the original bytes are copied
+     * to a {@link SequenceFile} at the same time
      *
      * @param inputStream      input stream of bytes representing the file
      * @param fileName         name of file being parsed
@@ -133,60 +128,38 @@ public class PartSequence {
      */
     public SequenceInfo parseSequenceFile(InputStream inputStream, String fileName, boolean extractHierarchy)
             throws IOException {
-        AbstractParser parser;
-
-        // write sequence file to disk (tmp)
-        String tmpDir = new ConfigurationSettings().getPropertyValue(ConfigurationKey.TEMPORARY_DIRECTORY);
-        if (StringUtils.isEmpty(tmpDir))
-            throw new IllegalArgumentException("Cannot parse sequence without valid tmp directory");
-
-        Path tmpPath = Paths.get(tmpDir);
-        if (!Files.isDirectory(tmpPath) || !Files.isWritable(tmpPath))
-            throw new IllegalArgumentException("Cannot write to tmp directory: " + tmpPath.toString());
-
-        Path sequencePath = Paths.get(tmpPath.toString(), UUID.randomUUID().toString() + "-" + fileName);
-        Files.copy(inputStream, sequencePath, StandardCopyOption.REPLACE_EXISTING);
-
         // detect sequence
-        SequenceFormat format;
-
-        try (InputStream fileInputStream = Files.newInputStream(sequencePath);
-             LineIterator iterator = IOUtils.lineIterator(fileInputStream, StandardCharsets.UTF_8)) {
-            if (!iterator.hasNext())
-                throw new IOException("Cannot read stream for " + fileName);
+        BufferedInputStream stream = new BufferedInputStream(inputStream, FORMAT_DETECTION_BYTES);
+        String firstLine = readFirstLine(stream);
+        if (firstLine == null)
+            throw new IOException("Cannot read stream for " + fileName);
 
-            String firstLine = iterator.next();
-            format = SequenceUtil.detectFormat(firstLine);
-        }
+        SequenceFormat format = SequenceUtil.detectFormat(firstLine);
 
         // special handling for sbol format
-        try {
-            if (format == SBOL2) {
+        if (format == SBOL2) {
+            try {
                 SBOLParser sbolParser = new SBOLParser(this.userId, Long.toString(this.entry.getId()), extractHierarchy);
-                return sbolParser.parseToEntry(Files.newInputStream(sequencePath), fileName);
+                return sbolParser.parseToEntry(stream, fileName);
+            } catch (InvalidFormatParserException ifpe) {
+                Logger.error(ifpe);
+                return null;
             }
+        }
 
-            switch (format) {
-                case GENBANK:
-                    parser = new GenBankParser();
-                    break;
-
-                case FASTA:
-                    parser = new FastaParser();
-                    break;
+        // parse while keeping a copy of the original
+        SequenceFile sequenceFile = new SequenceFile();
+        boolean success = false;
+        try {
+            FeaturedDNASequence dnaSequence;
+            try (InputStream teeInputStream = new TeeInputStream(stream, sequenceFile.getOutputStream(), true);
+                 Reader reader = new InputStreamReader(teeInputStream, StandardCharsets.UTF_8)) {
+                dnaSequence = parse(format, reader);
 
-                default:
-                case PLAIN:
-                    parser = new PlainParser();
-                    break;
+                // copy anything the parser did not read
+                IOUtils.copy(teeInputStream, NullOutputStream.NULL_OUTPUT_STREAM);
             }
 
-            LineIterator iterator = IOUtils.lineIterator(Files.newInputStream(sequencePath), StandardCharsets.UTF_8);
-            SequenceFile sequenceFile = new SequenceFile();
-            String entryType = this.entry.getRecordType();
-
-            // special handling for SBOL (todo: clean this up in future release)
-            FeaturedDNASequence dnaSequence = parser.parse(iterator, entryType);
             Sequence sequence = SequenceUtil.dnaSequenceToSequence(dnaSequence);
             if (sequence == null)
                 throw new IOException("Could not create sequence object");
@@ -195,18 +168,65 @@ public class PartSequence {
             sequence.setFileName(fileName);
             sequence.setFormat(format);
             sequence = saveSequenceObject(sequence);
+            success = true;
 
             SequenceInfo info = sequence.toDataTransferObject();
             info.setSequence(dnaSequence);
+            info.setDuplicates(getDuplicates(sequence.getSequence()));
             return info;
         } catch (InvalidFormatParserException ifpe) {
             Logger.error(ifpe);
             return null;
         } finally {
-            Files.deleteIfExists(sequencePath);
+            if (!success)
+                sequenceFile.delete();
+        }
+    }
+
+    private FeaturedDNASequence parse(SequenceFormat format, Reader reader)
+            throws IOException, InvalidFormatParserException {
+        String entryType = this.entry.getRecordType();
+        switch (format) {
+            case GENBANK:
+                return new StreamingGenBankParser().parse(reader);
+
+            case FASTA:
+                return new FastaParser().parse(IOUtils.lineIterator(reader), entryType);
+
+            default:
+            case PLAIN:
+                return new PlainParser().parse(IOUtils.lineIterator(reader), entryType);
         }
     }
 
+    /**
+     * Reads the first line from at most the first {@link #FORMAT_DETECTION_BYTES} bytes of the stream, which is
+     * reset so that the bytes can be read again
+     *
+     * @return first line or null if the stream is empty
+     */
+    private static String readFirstLine(BufferedInputStream stream) throws IOException {
+        stream.mark(FORMAT_DETECTION_BYTES);
+        byte[] buffer = new byte[FORMAT_DETECTION_BYTES];
+        int length = IOUtils.read(stream, buffer);
+        stream.reset();
+        if (length == 0)
+            return null;
+
+        int end = 0;
+        while (end < length && buffer[end] != '\n' && buffer[end] != '\r')
+            end += 1;
+        return new String(buffer, 0, end, StandardCharsets.UTF_8);
+    }
+
+    // ids of the other entries (that the user can read) with a sequence identical to this entry's
+    private List<Long> getDuplicates(String sequenceString) {
+        List<Long> duplicates = new IdenticalSequences().findReadable(userId, sequenceString,
+                SequenceKmerIndex.isCircular(entry));
+        duplicates.remove(Long.valueOf(entry.getId()));
+        return duplicates;
+    }
+
     // creates a new sequence and associates it with entry
     public void save(FeaturedDNASequence dnaSequence) {
         entryAuthorization.expectWrite(userId, entry);
@@ -252,13 +272,15 @@ public class PartSequence {
             }
         }
 
+        SequenceKmerIndex.getInstance().update(this.entry.getId(), sequence.getSequence(),
+                SequenceKmerIndex.isCircular(this.entry));
         scheduleBlastIndexRebuildTask(Action.CREATE, sequence.getEntry().getPartNumber());
         return sequence;
     }
 
+    // changes are coalesced and applied to the blast database in batches, once committed
     private void scheduleBlastIndexRebuildTask(Action action, String partId) {
-        RebuildBlastIndexTask task = new RebuildBlastIndexTask(action, partId);
-        IceExecutorService.getInstance().runTask(task);
+        BlastUpdateScheduler.getInstance().scheduleOnCommit(action, partId);
     }
 
     /**
@@ -295,7 +317,7 @@ public class PartSequence {
             existing.setSequenceFeatures(new HashSet<>(sequenceFeatureDAO.getEntrySequenceFeatures(this.entry)));
 
             // 1. check sequence string to see if it has changed
-            checkSequenceString(history, existing, sequence);
+            boolean sequenceChanged = checkSequenceString(history, existing, sequence);
 
             // 2. check features
             checkForNewFeatures(existing, sequence);
@@ -306,11 +328,13 @@ public class PartSequence {
             // 4. check if any existing features are updated
             checkForUpdatedFeatures(existing, sequence);
 
-            // rebuild the trace sequence alignments // todo : this might not be needed for all updates
-            rebuildTraceAlignments();
+            // rebuild the trace sequence alignments (in the background) only if the bases have changed
+            if (sequenceChanged)
+                rebuildTraceAlignments();
 
             // rebuild blast
             scheduleBlastIndexRebuildTask(Action.UPDATE, this.entry.getPartNumber());
+            RenderedSequenceCache.getInstance().invalidateOnCommit(this.entry.getId());
         } else {
             save(updatedSequence);
         }
@@ -325,7 +349,9 @@ public class PartSequence {
         sequence.setEntry(null);
         sequence.setSequenceFeatures(null);
         sequenceDAO.delete(sequence);
+        SequenceKmerIndex.getInstance().remove(this.entry.getId());
         scheduleBlastIndexRebuildTask(Action.DELETE, this.entry.getPartNumber());
+        RenderedSequenceCache.getInstance().invalidateOnCommit(this.entry.getId());
     }
 
     // features in existing which are not part of new sequence passed and therefore need to be deleted
@@ -369,13 +395,17 @@ public class PartSequence {
         sequenceFeatureDAO.delete(sequenceFeature);
     }
 
-    private void checkSequenceString(SequenceVersionHistory history, Sequence existing, Sequence sequence) {
-        if (!existing.getFwdHash().equals(sequence.getFwdHash()) || !existing.getRevHash().equals(sequence.getRevHash())) {
-            existing.setSequence(sequence.getSequence()); // hashes are updated in here (probably not a good method name)
-            existing.setSequenceFeatures(null);
-            sequenceDAO.update(existing);
-            history.add(sequence.getSequence());
-        }
+    private boolean checkSequenceString(SequenceVersionHistory history, Sequence existing, Sequence sequence) {
+        if (existing.getFwdHash().equals(sequence.getFwdHash()) && existing.getRevHash().equals(sequence.getRevHash()))
+            return false;
+
+        existing.setSequence(sequence.getSequence()); // hashes are updated in here (probably not a good method name)
+        existing.setSequenceFeatures(null);
+        sequenceDAO.update(existing);
+        SequenceKmerIndex.getInstance().update(this.entry.getId(), existing.getSequence(),
+                SequenceKmerIndex.isCircular(this.entry));
+        history.add(sequence.getSequence());
+        return true;
     }
 
     // create new feature for the existing sequence
@@ -502,92 +532,67 @@ public class PartSequence {
      * @return wrapper around the outputstream for the converted format and name
      */
     public InputStreamWrapper toFile(SequenceFormat format, boolean useFileName, boolean useOriginalIfAvailable) {
-        entryAuthorization.expectRead(userId, entry);
-        Sequence sequence = sequenceDAO.getByEntry(entry);
-        if (sequence == null)
+        SequenceOutput output = toStream(format, useFileName, useOriginalIfAvailable);
+        if (output == null)
             return null;
 
-        // if requested format is the same as the original format (if original exist) then get the original instead
-        if (useOriginalIfAvailable && sequence.getFormat() == format && DAOFactory.getSequenceDAO().hasOriginalSequence(entry.getId()))
-            format = SequenceFormat.ORIGINAL;
-
-        String name;
-        String sequenceString;
-
+        ByteArrayOutputStream byteStream = new ByteArrayOutputStream();
         try {
-            switch (format) {
-                case ORIGINAL:
-                    sequenceString = sequence.getSequenceUser();
-                    if (!useFileName) {
-                        name = entry.getPartNumber() + ".gb";
-                    } else {
-                        name = sequence.getFileName();
-                    }
-
-                    if (StringUtils.isEmpty(name))
-                        name = entry.getPartNumber() + ".gb";
-
-                    try {
-                        SequenceFile sequenceFile = new SequenceFile(sequenceString);
-                        return new InputStreamWrapper(sequenceFile.getStream(), name);
-                    } catch (Exception e) {
-                        Logger.error(e.getMessage());
-                        break;
-                    }
-
-                case GENBANK:
-                default:
-                    GenbankFormatter genbankFormatter = new GenbankFormatter(entry.getName());
-                    genbankFormatter.setCircular((entry instanceof Plasmid) ? ((Plasmid) entry).getCircular() : false);
-                    sequenceString = compose(sequence, genbankFormatter);
-                    name = entry.getPartNumber() + ".gb";
-                    break;
-
-                case FASTA:
-                    FastaFormatter formatter = new FastaFormatter();
-                    sequenceString = compose(sequence, formatter);
-                    name = entry.getPartNumber() + ".fa";
-                    break;
-
-                case SBOL1:
-                    sequenceString = compose(sequence, new SBOLFormatter());
-                    name = entry.getPartNumber() + ".xml";
-                    break;
-
-                case SBOL2:
-                    sequenceString = compose(sequence, new SBOL2Formatter());
-                    name = entry.getPartNumber() + ".xml";
-                    break;
-
-                case GFF3:
-                    sequenceString = compose(sequence, new GFF3Formatter());
-                    name = entry.getPartNumber() + ".gff3";
-                    break;
-            }
+            output.write(byteStream);
         } catch (Exception e) {
-            Logger.error("Failed to generate " + format.name() + " file for download!", e);
+            Logger.error("Failed to generate " + output.getFormat().name() + " file for download!", e);
             return null;
         }
-
-        ByteArrayInputStream stream = new ByteArrayInputStream(sequenceString.getBytes());
-        return new InputStreamWrapper(stream, name);
+        return new InputStreamWrapper(byteStream.toByteArray(), output.getName());
     }
 
     /**
-     * Generate a formatted text of a given {@link IFormatter} from the given {@link Sequence}.
+     * Retrieves the sequence in the specified format for writing directly to a stream (e.g. a download response
+     * or zip file) without generating it in memory first. See {@link #toFile(SequenceFormat, boolean, boolean)}
      *
-     * @param sequence  sequence
-     * @param formatter formatter
-     * @return Text of a formatted sequence.
+     * @param format                 specified format for sequence conversion
+     * @param useFileName            whether to use the original filename of the sequence if the original uploaded sequence is
+     *                               available
+     * @param useOriginalIfAvailable whether to use specified format if is it the same as the uploaded format
+     * @return output for the converted format and name, or null if the entry does not have a sequence
      */
-    protected String compose(Sequence sequence, IFormatter formatter) {
-        ByteArrayOutputStream byteStream = new ByteArrayOutputStream();
-        try {
-            formatter.format(sequence, byteStream);
-        } catch (IOException e) {
-            Logger.error(e);
+    public SequenceOutput toStream(SequenceFormat format, boolean useFileName, boolean useOriginalIfAvailable) {
+        entryAuthorization.expectRead(userId, entry);
+        if (!sequenceDAO.hasSequence(entry.getId()))
+            return null;
+
+        // if requested format is the same as the original format (if original exist) then get the original instead
+        if (useOriginalIfAvailable && sequenceDAO.getSequenceFormat(entry.getId()).orElse(null) == format
+                && sequenceDAO.hasOriginalSequence(entry.getId()))
+            format = SequenceFormat.ORIGINAL;
+
+        String name;
+        switch (format) {
+            case ORIGINAL:
+                name = useFileName ? sequenceDAO.getSequenceFilename(entry) : null;
+                if (StringUtils.isEmpty(name))
+                    name = entry.getPartNumber() + ".gb";
+                break;
+
+            case GENBANK:
+            default:
+                name = entry.getPartNumber() + ".gb";
+                break;
+
+            case FASTA:
+                name = entry.getPartNumber() + ".fa";
+                break;
+
+            case SBOL1:
+            case SBOL2:
+                name = entry.getPartNumber() + ".xml";
+                break;
+
+            case GFF3:
+                name = entry.getPartNumber() + ".gff3";
+                break;
         }
-        return byteStream.toString();
+        return new SequenceOutput(entry, format, name);
     }
 
     private void rebuildTraceAlignments() {
@@ -8,12 +8,12 @@ import org.jbei.ice.lib.dto.DNASequence;
 import org.jbei.ice.lib.dto.common.Results;
 import org.jbei.ice.lib.dto.entry.TraceSequenceAnalysis;
 import org.jbei.ice.lib.entry.EntryAuthorization;
+import org.jbei.ice.lib.entry.sequence.analysis.TraceAligner;
 import org.jbei.ice.lib.parsers.ABIParser;
 import org.jbei.ice.lib.parsers.GeneralParser;
 import org.jbei.ice.lib.parsers.InvalidFormatParserException;
 import org.jbei.ice.lib.parsers.bl2seq.Bl2SeqResult;
 import org.jbei.ice.lib.search.blast.BlastException;
-import org.jbei.ice.lib.search.blast.BlastPlus;
 import org.jbei.ice.lib.utils.Utils;
 import org.jbei.ice.storage.DAOFactory;
 import org.jbei.ice.storage.hibernate.dao.TraceSequenceDAO;
@@ -254,7 +254,7 @@ public class PartTraceSequences {
 
     /**
      * Calculate sequence alignment between the given {@link TraceSequence} and {@link Sequence}
-     * using bl2seq, and save the result into the database.
+     * using the {@link TraceAligner} (which falls back to bl2seq), and save the result into the database.
      *
      * @param traceSequence traceSequence
      * @param sequence      sequence
@@ -276,12 +276,9 @@ public class PartTraceSequences {
         int entrySequenceLength = entrySequenceString.length();
         boolean isCircular = (sequence.getEntry() instanceof Plasmid) && ((Plasmid) sequence.getEntry()).getCircular();
 
-        if (isCircular) {
-            entrySequenceString += entrySequenceString;
-        }
-
         try {
-            List<Bl2SeqResult> bl2seqAlignmentResults = new BlastPlus().runBlast2Seq(entrySequenceString, traceSequenceString);
+            List<Bl2SeqResult> bl2seqAlignmentResults = new TraceAligner().align(entrySequenceString,
+                    traceSequenceString, isCircular);
 
             if (bl2seqAlignmentResults.size() > 0) {
                 int maxAlignedSequenceLength = -1;
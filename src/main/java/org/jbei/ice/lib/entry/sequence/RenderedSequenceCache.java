@@ -0,0 +1,315 @@
+package org.jbei.ice.lib.entry.sequence;
+
+import org.hibernate.Transaction;
+import org.jbei.ice.lib.common.logging.Logger;
+import org.jbei.ice.lib.dto.ConfigurationKey;
+import org.jbei.ice.lib.utils.Utils;
+import org.jbei.ice.storage.hibernate.HibernateUtil;
+
+import javax.transaction.Status;
+import javax.transaction.Synchronization;
+
+import java.io.BufferedOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.*;
+import java.util.stream.Stream;
+
+/**
+ * Disk cache of rendered sequences (e.g. GenBank or SBOL files generated from the stored sequence), so that
+ * sequences that are downloaded repeatedly are only formatted once.
+ * <p>
+ * Renderings are stored in a directory per entry and named after the format and the version of the sequence they
+ * were rendered from (see {@link SequenceOutput}), so a rendering is not used once the sequence or its features
+ * change. The directory for an entry is also removed by {@link #invalidateOnCommit(long)} once an update or
+ * deletion of the entry's sequence is committed. The total size of the cache is bounded; the least recently used
+ * renderings are removed first.
+ * Cached renderings are transferred to the output stream with {@link FileChannel#transferTo(long, long,
+ * WritableByteChannel)} so files are not copied through the heap
+ */
+public class RenderedSequenceCache {
+
+    static final long MAX_SIZE = 512L * 1024 * 1024;
+    private static final String CACHE_DIR = "rendered_sequences";
+    private static final String TMP_PREFIX = ".tmp-";
+
+    private static RenderedSequenceCache instance;
+
+    private final Path directory;
+    private final long maxSize;
+    private final LinkedHashMap<Path, Long> files = new LinkedHashMap<>(16, 0.75f, true);   // access order
+    private long size;
+    private boolean loaded;
+
+    RenderedSequenceCache(Path directory, long maxSize) {
+        this.directory = directory;
+        this.maxSize = maxSize;
+    }
+
+    public static synchronized RenderedSequenceCache getInstance() {
+        if (instance == null) {
+            Path directory = Paths.get(Utils.getConfigValue(ConfigurationKey.DATA_DIRECTORY), CACHE_DIR);
+            instance = new RenderedSequenceCache(directory, MAX_SIZE);
+        }
+        return instance;
+    }
+
+    /**
+     * Writes a rendering of an entry's sequence to the output stream, rendering and caching it first if it is not
+     * already cached. If the rendering cannot be cached, it is written to the output stream directly
+     *
+     * @param entryId      unique identifier for entry
+     * @param format       format of the rendering
+     * @param version      version of the sequence being rendered
+     * @param renderer     renders the sequence if it is not cached
+     * @param outputStream stream to write the rendering to. It is not closed
+     * @throws IOException on exception rendering the sequence or writing to the output stream
+     */
+    public void write(long entryId, SequenceFormat format, String version, Renderer renderer,
+                      OutputStream outputStream) throws IOException {
+        Path path = getPath(entryId, format, version);
+        if (get(path)) {
+            FileChannel channel = null;
+            try {
+                channel = FileChannel.open(path, StandardOpenOption.READ);
+            } catch (NoSuchFileException e) {
+                // removed since it was looked up
+                remove(path);
+            }
+
+            if (channel != null) {
+                // recorded so the least recently used order is kept across restarts
+                try {
+                    Files.setLastModifiedTime(path, FileTime.fromMillis(System.currentTimeMillis()));
+                } catch (IOException e) {
+                    Logger.error("Could not update cached sequence " + path, e);
+                }
+
+                try (FileChannel open = channel) {
+                    transfer(open, outputStream);
+                }
+                return;
+            }
+        }
+
+        try {
+            put(path, renderer);
+        } catch (RenderException e) {
+            throw e.getCause();
+        } catch (IOException e) {
+            Logger.error("Could not cache " + format + " sequence for entry " + entryId, e);
+            renderer.render(outputStream);
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            transfer(channel, outputStream);
+        }
+    }
+
+    /**
+     * Removes all cached renderings of an entry's sequence once the current transaction commits (or immediately
+     * if there is no active transaction). Renderings cached before the commit from the previous contents of the
+     * sequence are therefore not kept
+     *
+     * @param entryId unique identifier for entry
+     */
+    public void invalidateOnCommit(long entryId) {
+        Transaction transaction = HibernateUtil.getSessionFactory().getCurrentSession().getTransaction();
+        if (!transaction.isActive()) {
+            invalidate(entryId);
+            return;
+        }
+
+        transaction.registerSynchronization(new Synchronization() {
+            @Override
+            public void beforeCompletion() {
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                if (status == Status.STATUS_COMMITTED)
+                    invalidate(entryId);
+            }
+        });
+    }
+
+    /**
+     * Removes all cached renderings of an entry's sequence
+     *
+     * @param entryId unique identifier for entry
+     */
+    public void invalidate(long entryId) {
+        Path entryDirectory = directory.resolve(Long.toString(entryId));
+        synchronized (files) {
+            files.entrySet().removeIf(file -> {
+                if (!file.getKey().startsWith(entryDirectory))
+                    return false;
+                size -= file.getValue();
+                return true;
+            });
+        }
+
+        if (!Files.exists(entryDirectory))
+            return;
+
+        try (Stream<Path> stream = Files.list(entryDirectory)) {
+            stream.forEach(this::delete);
+            Files.deleteIfExists(entryDirectory);
+        } catch (IOException e) {
+            Logger.error("Could not remove cached sequences for entry " + entryId, e);
+        }
+    }
+
+    /**
+     * @return total size in bytes of the cached renderings
+     */
+    public long size() {
+        synchronized (files) {
+            load();
+            return size;
+        }
+    }
+
+    Path getPath(long entryId, SequenceFormat format, String version) {
+        return directory.resolve(Long.toString(entryId)).resolve(format.name().toLowerCase() + "-" + version);
+    }
+
+    // whether the rendering is cached; marks it as most recently used if it is
+    private boolean get(Path path) {
+        synchronized (files) {
+            load();
+            return files.get(path) != null;
+        }
+    }
+
+    // renders to a temporary file that is moved into place once complete, so partial renderings are never served
+    private void put(Path path, Renderer renderer) throws IOException {
+        Files.createDirectories(path.getParent());
+        Path tmp = Files.createTempFile(path.getParent(), TMP_PREFIX, null);
+        try {
+            try (OutputStream outputStream = new BufferedOutputStream(Files.newOutputStream(tmp))) {
+                try {
+                    renderer.render(outputStream);
+                } catch (IOException e) {
+                    throw new RenderException(e);
+                }
+            }
+            Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+
+        long fileSize = Files.size(path);
+        List<Path> evicted = new ArrayList<>();
+        synchronized (files) {
+            load();
+            Long previous = files.put(path, fileSize);
+            size += fileSize - (previous == null ? 0 : previous);
+
+            // least recently used first, keeping the rendering just added
+            Iterator<Map.Entry<Path, Long>> iterator = files.entrySet().iterator();
+            while (size > maxSize && iterator.hasNext()) {
+                Map.Entry<Path, Long> file = iterator.next();
+                if (file.getKey().equals(path))
+                    continue;
+                size -= file.getValue();
+                evicted.add(file.getKey());
+                iterator.remove();
+            }
+        }
+        evicted.forEach(this::delete);
+    }
+
+    private void remove(Path path) {
+        synchronized (files) {
+            Long fileSize = files.remove(path);
+            if (fileSize != null)
+                size -= fileSize;
+        }
+    }
+
+    private void delete(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            Logger.error("Could not remove cached sequence " + path, e);
+        }
+    }
+
+    // reads renderings cached by a previous run, least recently modified first. Must hold lock on files
+    private void load() {
+        if (loaded)
+            return;
+        loaded = true;
+        if (!Files.exists(directory))
+            return;
+
+        List<Path> paths = new ArrayList<>();
+        Map<Path, BasicFileAttributes> attributes = new HashMap<>();
+        try (Stream<Path> stream = Files.walk(directory, 2)) {
+            stream.forEach(path -> {
+                try {
+                    BasicFileAttributes attribute = Files.readAttributes(path, BasicFileAttributes.class);
+                    if (!attribute.isRegularFile())
+                        return;
+                    if (path.getFileName().toString().startsWith(TMP_PREFIX)) {
+                        delete(path);
+                        return;
+                    }
+                    paths.add(path);
+                    attributes.put(path, attribute);
+                } catch (IOException e) {
+                    Logger.error(e);
+                }
+            });
+        } catch (IOException | UncheckedIOException e) {
+            Logger.error("Could not read cached sequences", e);
+            return;
+        }
+
+        paths.sort(Comparator.comparing(path -> attributes.get(path).lastModifiedTime()));
+        for (Path path : paths) {
+            long fileSize = attributes.get(path).size();
+            files.put(path, fileSize);
+            size += fileSize;
+        }
+    }
+
+    private static void transfer(FileChannel channel, OutputStream outputStream) throws IOException {
+        outputStream.flush();
+        // file to file transfers can be done by the operating system. the target channel is not closed
+        WritableByteChannel target = outputStream instanceof FileOutputStream
+                ? ((FileOutputStream) outputStream).getChannel() : Channels.newChannel(outputStream);
+        long position = 0;
+        long fileSize = channel.size();
+        while (position < fileSize)
+            position += channel.transferTo(position, fileSize - position, target);
+    }
+
+    /**
+     * Renders a sequence when it is not cached
+     */
+    public interface Renderer {
+        void render(OutputStream outputStream) throws IOException;
+    }
+
+    // distinguishes exceptions rendering the sequence from exceptions caching it
+    private static class RenderException extends IOException {
+        RenderException(IOException cause) {
+            super(cause);
+        }
+
+        @Override
+        public synchronized IOException getCause() {
+            return (IOException) super.getCause();
+        }
+    }
+}
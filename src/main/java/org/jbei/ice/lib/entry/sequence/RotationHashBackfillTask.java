@@ -0,0 +1,46 @@
+package org.jbei.ice.lib.entry.sequence;
+
+import org.apache.commons.lang3.StringUtils;
+import org.jbei.ice.lib.common.logging.Logger;
+import org.jbei.ice.lib.executor.Task;
+import org.jbei.ice.lib.utils.SequenceUtils;
+import org.jbei.ice.storage.DAOFactory;
+import org.jbei.ice.storage.hibernate.HibernateUtil;
+import org.jbei.ice.storage.hibernate.dao.SequenceDAO;
+
+import java.util.List;
+
+/**
+ * Task to set the rotation hash (see {@link SequenceUtils#calculateRotationHash(String)}) of sequences that were
+ * created before the hash was introduced. Sequences are processed in batches, each in its own transaction, so
+ * an interrupted run resumes where it stopped the next time it is run
+ */
+public class RotationHashBackfillTask extends Task {
+
+    private static final int BATCH_SIZE = 200;
+
+    @Override
+    public void execute() {
+        SequenceDAO dao = DAOFactory.getSequenceDAO();
+        long lastId = 0;
+        int count = 0;
+
+        List<Object[]> batch;
+        do {
+            batch = dao.getSequencesWithoutRotationHash(lastId, BATCH_SIZE);
+            for (Object[] result : batch) {
+                lastId = (Long) result[0];
+                String sequence = (String) result[1];
+                String hash = StringUtils.isEmpty(sequence) ? "" : SequenceUtils.calculateRotationHash(sequence);
+                dao.setRotationHash(lastId, hash);
+            }
+            count += batch.size();
+
+            HibernateUtil.commitTransaction();
+            HibernateUtil.beginTransaction();
+        } while (batch.size() == BATCH_SIZE);
+
+        if (count > 0)
+            Logger.info("Set rotation hash for " + count + " sequences");
+    }
+}
@@ -1,20 +1,24 @@
 package org.jbei.ice.lib.entry.sequence;
 
-import org.apache.commons.io.FileUtils;
 import org.jbei.ice.lib.dto.ConfigurationKey;
 import org.jbei.ice.lib.utils.Utils;
 
+import java.io.BufferedInputStream;
 import java.io.FileInputStream;
-import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.util.UUID;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
 
 /**
- * Represents a locally stored sequence file
+ * Represents a locally stored sequence file. Contents are stored gzip compressed; files written before
+ * compression was introduced are read as is
  *
  * @author Hector Plahar
  */
@@ -44,8 +48,23 @@ public class SequenceFile {
             throw new IOException("Invalid sequence file path. Might be using sequence string instead");
     }
 
-    public InputStream getStream() throws FileNotFoundException {
-        return new FileInputStream(path.toFile());
+    // (uncompressed) contents of the sequence file
+    public InputStream getStream() throws IOException {
+        BufferedInputStream stream = new BufferedInputStream(new FileInputStream(path.toFile()));
+        stream.mark(2);
+        int magic = stream.read() | (stream.read() << 8);
+        stream.reset();
+        if (magic == GZIPInputStream.GZIP_MAGIC)
+            return new GZIPInputStream(stream);
+        return stream;
+    }
+
+    // output stream for (over)writing the contents of the sequence file
+    public OutputStream getOutputStream() throws IOException {
+        if (deleted)
+            throw new IOException("File has been deleted");
+
+        return new GZIPOutputStream(Files.newOutputStream(path));
     }
 
     // write a new line in the sequence file
@@ -56,8 +75,12 @@ public class SequenceFile {
         if (deleted)
             throw new IOException("File has been deleted");
 
+        // appended as a separate gzip member
         line += System.lineSeparator();
-        FileUtils.writeByteArrayToFile(path.toFile(), line.getBytes(), true);
+        try (OutputStream outputStream = new GZIPOutputStream(Files.newOutputStream(path,
+                StandardOpenOption.APPEND))) {
+            outputStream.write(line.getBytes());
+        }
     }
 
     public void delete() throws IOException {
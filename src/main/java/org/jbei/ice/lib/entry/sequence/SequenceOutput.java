@@ -0,0 +1,132 @@
+package org.jbei.ice.lib.entry.sequence;
+
+import org.apache.commons.io.IOUtils;
+import org.jbei.ice.lib.common.logging.Logger;
+import org.jbei.ice.lib.entry.sequence.composers.formatters.*;
+import org.jbei.ice.storage.DAOFactory;
+import org.jbei.ice.storage.hibernate.dao.SequenceDAO;
+import org.jbei.ice.storage.model.Entry;
+import org.jbei.ice.storage.model.Plasmid;
+import org.jbei.ice.storage.model.Sequence;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Sequence of an entry in a download format, written directly to an output stream (e.g. the response
+ * or a zip entry) when requested instead of being generated in memory first.
+ * <p>
+ * The sequence is retrieved when written, so this can be used after the transaction the output was created in
+ * has been committed (as long as one is active when writing), and evicted afterwards so that writing the
+ * sequences of several entries in the same session uses a constant amount of memory
+ */
+public class SequenceOutput {
+
+    private final Entry entry;
+    private final SequenceFormat format;
+    private String name;
+
+    SequenceOutput(Entry entry, SequenceFormat format, String name) {
+        this.entry = entry;
+        this.format = format;
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public SequenceFormat getFormat() {
+        return format;
+    }
+
+    /**
+     * Writes the sequence in this output's format. Renderings of the sequence are cached, see
+     * {@link RenderedSequenceCache}. The stream is flushed but not closed.
+     * <p>
+     * When the sequence is rendered it is evicted from the session afterwards, which also detaches this output's
+     * entry; callers that use the entry after writing should not rely on its lazy associations
+     *
+     * @param outputStream stream to write to
+     * @throws IOException on exception writing to the stream or formatting the sequence
+     */
+    public void write(OutputStream outputStream) throws IOException {
+        if (format == SequenceFormat.ORIGINAL) {
+            render(outputStream);
+        } else {
+            String version = DAOFactory.getSequenceDAO().getSequenceVersion(entry).orElseThrow(
+                    () -> new IOException("No sequence available for entry " + entry.getId()));
+            RenderedSequenceCache.getInstance().write(entry.getId(), format, getVersion(version), this::render,
+                    outputStream);
+        }
+        outputStream.flush();
+    }
+
+    // a rendering depends on the bases, the features and the entry (e.g. name and circularity)
+    private String getVersion(String sequenceVersion) {
+        return sequenceVersion + "-" + entry.getModificationTime().getTime();
+    }
+
+    private void render(OutputStream outputStream) throws IOException {
+        SequenceDAO sequenceDAO = DAOFactory.getSequenceDAO();
+        Sequence sequence = sequenceDAO.getByEntry(entry);
+        if (sequence == null)
+            throw new IOException("No sequence available for entry " + entry.getId());
+
+        try {
+            switch (format) {
+                case ORIGINAL:
+                    writeOriginal(sequence.getSequenceUser(), outputStream);
+                    break;
+
+                case GENBANK:
+                default:
+                    GenbankFormatter genbankFormatter = new GenbankFormatter(entry.getName());
+                    genbankFormatter.setCircular((entry instanceof Plasmid) ? ((Plasmid) entry).getCircular() : false);
+                    genbankFormatter.format(sequence, outputStream);
+                    break;
+
+                case FASTA:
+                    new FastaFormatter().format(sequence, outputStream);
+                    break;
+
+                case SBOL1:
+                    new SBOLFormatter().format(sequence, outputStream);
+                    break;
+
+                case SBOL2:
+                    new SBOL2Formatter().format(sequence, outputStream);
+                    break;
+
+                case GFF3:
+                    new GFF3Formatter().format(sequence, outputStream);
+                    break;
+            }
+        } finally {
+            sequenceDAO.evict(sequence);
+        }
+    }
+
+    // original sequence is either the name of a sequence file or (for older entries) the text of the file
+    private void writeOriginal(String sequenceUser, OutputStream outputStream) throws IOException {
+        SequenceFile sequenceFile;
+        try {
+            sequenceFile = new SequenceFile(sequenceUser);
+        } catch (Exception e) {
+            Logger.error(e.getMessage());
+            if (sequenceUser != null)
+                outputStream.write(sequenceUser.getBytes(StandardCharsets.UTF_8));
+            return;
+        }
+
+        try (InputStream inputStream = sequenceFile.getStream()) {
+            IOUtils.copy(inputStream, outputStream);
+        }
+    }
+}
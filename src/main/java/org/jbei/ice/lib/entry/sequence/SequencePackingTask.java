@@ -0,0 +1,44 @@
+package org.jbei.ice.lib.entry.sequence;
+
+import org.jbei.ice.lib.common.logging.Logger;
+import org.jbei.ice.lib.executor.Task;
+import org.jbei.ice.storage.DAOFactory;
+import org.jbei.ice.storage.hibernate.HibernateUtil;
+import org.jbei.ice.storage.hibernate.dao.SequenceDAO;
+import org.jbei.ice.storage.model.Sequence;
+
+import java.util.List;
+
+/**
+ * Task to pack (see {@link Sequence#pack()}) the sequences and original sequences that were saved as text
+ * before packing was introduced. Sequences are processed in batches, each in its own transaction, so
+ * an interrupted run resumes where it stopped the next time it is run. Only the packed columns are written (see
+ * {@link SequenceDAO#pack(long, String, String, String)}), so sequences edited while the task runs are left as is
+ */
+public class SequencePackingTask extends Task {
+
+    private static final int BATCH_SIZE = 50;
+
+    @Override
+    public void execute() {
+        SequenceDAO dao = DAOFactory.getSequenceDAO();
+        long lastId = 0;
+        int count = 0;
+
+        List<Object[]> batch;
+        do {
+            batch = dao.getUnpackedSequences(lastId, BATCH_SIZE);
+            for (Object[] sequence : batch) {
+                lastId = (Long) sequence[0];
+                if (dao.pack(lastId, (String) sequence[1], (String) sequence[2], (String) sequence[3]) > 0)
+                    count += 1;
+            }
+
+            HibernateUtil.commitTransaction();
+            HibernateUtil.beginTransaction();
+        } while (batch.size() == BATCH_SIZE);
+
+        if (count > 0)
+            Logger.info("Packed " + count + " sequences");
+    }
+}
@@ -20,6 +20,7 @@ public class SequenceUtil {
     private static Sequence createSequenceModel(String sequenceString) {
         String fwdHash = "";
         String revHash = "";
+        String rotationHash = "";
 
         if (!StringUtils.isEmpty(sequenceString)) {
             fwdHash = SequenceUtils.calculateSequenceHash(sequenceString);
@@ -28,9 +29,12 @@ public class SequenceUtil {
             } catch (UtilityException e) {
                 revHash = "";
             }
+            rotationHash = SequenceUtils.calculateRotationHash(sequenceString);
         }
 
-        return new Sequence(sequenceString, "", fwdHash, revHash, null);
+        Sequence sequence = new Sequence(sequenceString, "", fwdHash, revHash, null);
+        sequence.setRotationHash(rotationHash);
+        return sequence;
     }
 
     static SequenceFeature dnaFeatureToSequenceFeature(Sequence sequence, DNAFeature dnaFeature) {
@@ -174,10 +178,11 @@ public class SequenceUtil {
             return sequence;
         }
 
-        if (StringUtils.isEmpty(sequence.getSequence()))
+        // length is available without decoding the sequence
+        int length = sequence.getLength();
+        if (length == 0)
             return sequence;
 
-        int length = sequence.getSequence().length();
         boolean wholeSequence;
         for (SequenceFeature sequenceFeature : sequence.getSequenceFeatures()) {
             wholeSequence = false;
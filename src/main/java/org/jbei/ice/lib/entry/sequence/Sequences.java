@@ -8,6 +8,7 @@ import org.jbei.ice.lib.account.TokenHash;
 import org.jbei.ice.lib.common.logging.Logger;
 import org.jbei.ice.lib.dto.ConfigurationKey;
 import org.jbei.ice.lib.dto.FeaturedDNASequence;
+import org.jbei.ice.lib.dto.entry.PartData;
 import org.jbei.ice.lib.dto.entry.SequenceInfo;
 import org.jbei.ice.lib.dto.web.RegistryPartner;
 import org.jbei.ice.lib.entry.EntryAuthorization;
@@ -15,6 +16,7 @@ import org.jbei.ice.lib.entry.HasEntry;
 import org.jbei.ice.lib.parsers.GeneralParser;
 import org.jbei.ice.lib.parsers.InvalidFormatParserException;
 import org.jbei.ice.storage.DAOFactory;
+import org.jbei.ice.storage.ModelToInfoFactory;
 import org.jbei.ice.storage.hibernate.dao.SequenceDAO;
 import org.jbei.ice.storage.model.*;
 
@@ -155,6 +157,20 @@ public class Sequences {
         }
     }
 
+    /**
+     * Finds the entries that the user can read whose sequence is identical to the specified sequence, using the
+     * sequence hashes instead of running blast
+     *
+     * @param sequence query sequence, either raw or in fasta format
+     * @param circular whether the query sequence is circular, in which case circular sequences that are
+     *                 rotations of the query are also identical
+     * @return list of entries with identical sequences
+     */
+    public List<PartData> findIdentical(String sequence, boolean circular) {
+        List<Long> entryIds = new IdenticalSequences().findReadable(userId, sequence, circular);
+        return ModelToInfoFactory.createTableViews(entryIds, null);
+    }
+
     /**
      * Bulk update sequences based on uploaded zip file
      * containing sequences, where the sequence name is the (unique) part number of the entry.
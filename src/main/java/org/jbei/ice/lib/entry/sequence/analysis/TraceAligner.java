@@ -0,0 +1,435 @@
+package org.jbei.ice.lib.entry.sequence.analysis;
+
+import org.jbei.ice.lib.parsers.bl2seq.Bl2SeqResult;
+import org.jbei.ice.lib.search.blast.BlastException;
+import org.jbei.ice.lib.search.blast.BlastPlus;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Aligns (sanger) trace sequences to the sequence of an entry in process, without running blast.
+ * <p>
+ * The diagonal of the alignment (offset of the trace on the reference) is found on each strand by counting
+ * the k-mers shared by the trace and reference on each diagonal. The trace is then aligned with a local
+ * (Smith-Waterman) alignment with affine gap costs, restricted to a band around that diagonal. Circular
+ * references are handled by wrapping reference positions around the origin instead of doubling the reference.
+ * <p>
+ * Results are in the same form as bl2seq with the reference as the query and the trace as the subject. Positions
+ * in a circular reference that are past the origin continue past the end of the reference, as they would for a
+ * doubled reference. Blast is used if no alignment is found in process (e.g. traces that are mostly
+ * repeats or that differ too much from the reference)
+ */
+public class TraceAligner {
+
+    private static final int K = 11;
+    private static final int MAX_OCCURRENCES = 8;
+    private static final int MIN_VOTES = 3;
+    private static final int BAND = 48;
+    private static final int MIN_SCORE = 40;
+
+    // same costs as blastn
+    private static final int MATCH = 2;
+    private static final int MISMATCH = -3;
+    private static final int AMBIGUOUS = -1;
+    private static final int GAP_OPEN = 5;
+    private static final int GAP_EXTEND = 2;
+
+    private static final int NEGATIVE = Integer.MIN_VALUE / 2;
+    private static final byte UNKNOWN = 4;
+
+    // traceback flags
+    private static final byte FROM_DIAGONAL = 1;
+    private static final byte FROM_TRACE_GAP = 2;
+    private static final byte FROM_REFERENCE_GAP = 3;
+    private static final byte SOURCE_MASK = 3;
+    private static final byte EXTENDS_TRACE_GAP = 4;
+    private static final byte EXTENDS_REFERENCE_GAP = 8;
+
+    /**
+     * Aligns a trace to a reference sequence in process, using blast if no alignment is found
+     *
+     * @param reference reference (entry) sequence
+     * @param trace     trace sequence
+     * @param circular  whether the reference sequence is circular
+     * @return alignments of the trace to the reference
+     * @throws BlastException on exception running blast
+     */
+    public List<Bl2SeqResult> align(String reference, String trace, boolean circular) throws BlastException {
+        Bl2SeqResult result = alignInProcess(reference, trace, circular);
+        if (result != null)
+            return Collections.singletonList(result);
+
+        String query = circular ? reference + reference : reference;
+        return new BlastPlus().runBlast2Seq(query, trace);
+    }
+
+    /**
+     * Aligns a trace to a reference sequence
+     *
+     * @param reference reference (entry) sequence
+     * @param trace     trace sequence
+     * @param circular  whether the reference sequence is circular
+     * @return best alignment of the trace on either strand of the reference, or null if one cannot be found
+     */
+    public Bl2SeqResult alignInProcess(String reference, String trace, boolean circular) {
+        if (reference == null || trace == null)
+            return null;
+
+        byte[] ref = encode(reference.trim());
+        byte[] forward = encode(trace.trim());
+        if (ref.length < K || forward.length < K)
+            return null;
+
+        byte[] reverse = reverseComplement(forward);
+        KmerTable table = new KmerTable(ref, circular);
+
+        Alignment best = null;
+        for (byte[] strand : new byte[][]{forward, reverse}) {
+            long diagonal = table.findDiagonal(strand);
+            if (diagonal == Long.MIN_VALUE)
+                continue;
+
+            Alignment alignment = alignBanded(ref, strand, (int) diagonal, circular);
+            if (alignment != null && (best == null || alignment.score > best.score)) {
+                alignment.reverse = strand == reverse;
+                best = alignment;
+            }
+        }
+
+        if (best == null || best.score < MIN_SCORE)
+            return null;
+
+        int length = forward.length;
+        int subjectStart = best.reverse ? length - best.traceStart : best.traceStart + 1;
+        int subjectEnd = best.reverse ? length - best.traceEnd : best.traceEnd + 1;
+        return new Bl2SeqResult(best.score, best.referenceStart + 1, best.referenceEnd + 1, best.referenceAlignment,
+                subjectStart, subjectEnd, best.traceAlignment, best.reverse ? 1 : 0);
+    }
+
+    // local alignment with affine gaps of the trace to the reference, within BAND of the diagonal
+    private static Alignment alignBanded(byte[] ref, byte[] trace, int diagonal, boolean circular) {
+        int width = 2 * BAND + 1;
+        int[] previousH = new int[width + 1];
+        int[] previousF = new int[width + 1];
+        int[] h = new int[width + 1];
+        int[] f = new int[width + 1];
+        byte[] traceback = new byte[trace.length * width];
+        Arrays.fill(previousF, NEGATIVE);
+
+        int bestScore = 0;
+        int bestRow = -1;
+        int bestColumn = -1;
+        int gapOpen = GAP_OPEN + GAP_EXTEND;
+
+        for (int j = 0; j < trace.length; j += 1) {
+            int e = NEGATIVE;
+            int left = 0;
+            h[width] = 0;
+            f[width] = NEGATIVE;
+
+            for (int b = 0; b < width; b += 1) {
+                int position = diagonal + j + b - BAND;
+                int index = circular ? Math.floorMod(position, ref.length) : position;
+                if (index < 0 || index >= ref.length) {
+                    h[b] = 0;
+                    f[b] = NEGATIVE;
+                    e = NEGATIVE;
+                    left = 0;
+                    traceback[j * width + b] = 0;
+                    continue;
+                }
+
+                byte flags = 0;
+
+                // gap in the trace (reference advances)
+                int open = left - gapOpen;
+                int extend = e - GAP_EXTEND;
+                if (extend > open) {
+                    e = extend;
+                    flags |= EXTENDS_TRACE_GAP;
+                } else {
+                    e = open;
+                }
+
+                // gap in the reference (trace advances)
+                open = previousH[b + 1] - gapOpen;
+                extend = previousF[b + 1] - GAP_EXTEND;
+                if (extend > open) {
+                    f[b] = extend;
+                    flags |= EXTENDS_REFERENCE_GAP;
+                } else {
+                    f[b] = open;
+                }
+
+                int score = (j == 0 ? 0 : previousH[b]) + score(ref[index], trace[j]);
+                byte source = FROM_DIAGONAL;
+                if (e > score) {
+                    score = e;
+                    source = FROM_TRACE_GAP;
+                }
+                if (f[b] > score) {
+                    score = f[b];
+                    source = FROM_REFERENCE_GAP;
+                }
+                if (score <= 0) {
+                    score = 0;
+                    source = 0;
+                }
+
+                h[b] = score;
+                left = score;
+                traceback[j * width + b] = (byte) (flags | source);
+                if (score > bestScore) {
+                    bestScore = score;
+                    bestRow = j;
+                    bestColumn = b;
+                }
+            }
+
+            int[] swap = previousH;
+            previousH = h;
+            h = swap;
+            swap = previousF;
+            previousF = f;
+            f = swap;
+        }
+
+        if (bestRow < 0)
+            return null;
+
+        return traceBack(ref, trace, traceback, width, diagonal, circular, bestRow, bestColumn, bestScore);
+    }
+
+    private static Alignment traceBack(byte[] ref, byte[] trace, byte[] traceback, int width, int diagonal,
+                                       boolean circular, int row, int column, int score) {
+        StringBuilder referenceAlignment = new StringBuilder();
+        StringBuilder traceAlignment = new StringBuilder();
+        int referenceEnd = diagonal + row + column - BAND;
+        int traceEnd = row;
+        int referenceStart = referenceEnd;
+        int traceStart = traceEnd;
+
+        byte state = FROM_DIAGONAL;
+        while (row >= 0 && column >= 0 && column < width) {
+            int position = diagonal + row + column - BAND;
+            int index = circular ? Math.floorMod(position, ref.length) : position;
+            if (index < 0 || index >= ref.length)
+                break;
+
+            byte flags = traceback[row * width + column];
+            byte base = ref[index];
+
+            if (state == FROM_DIAGONAL) {
+                state = (byte) (flags & SOURCE_MASK);
+                if (state == 0)
+                    break;
+                if (state != FROM_DIAGONAL)
+                    continue;
+
+                referenceAlignment.append(decode(base));
+                traceAlignment.append(decode(trace[row]));
+                referenceStart = position;
+                traceStart = row;
+                row -= 1;
+            } else if (state == FROM_TRACE_GAP) {
+                referenceAlignment.append(decode(base));
+                traceAlignment.append('-');
+                referenceStart = position;
+                state = (flags & EXTENDS_TRACE_GAP) != 0 ? FROM_TRACE_GAP : FROM_DIAGONAL;
+                column -= 1;
+            } else {
+                referenceAlignment.append('-');
+                traceAlignment.append(decode(trace[row]));
+                traceStart = row;
+                state = (flags & EXTENDS_REFERENCE_GAP) != 0 ? FROM_REFERENCE_GAP : FROM_DIAGONAL;
+                row -= 1;
+                column += 1;
+            }
+        }
+
+        Alignment alignment = new Alignment();
+        alignment.score = score;
+        alignment.traceStart = traceStart;
+        alignment.traceEnd = traceEnd;
+
+        // start of a circular alignment is within the reference; the end may continue past the origin
+        int shift = circular ? Math.floorMod(referenceStart, ref.length) - referenceStart : 0;
+        alignment.referenceStart = referenceStart + shift;
+        alignment.referenceEnd = referenceEnd + shift;
+        alignment.referenceAlignment = referenceAlignment.reverse().toString();
+        alignment.traceAlignment = traceAlignment.reverse().toString();
+        return alignment;
+    }
+
+    private static int score(byte a, byte b) {
+        if (a == UNKNOWN || b == UNKNOWN)
+            return AMBIGUOUS;
+        return a == b ? MATCH : MISMATCH;
+    }
+
+    private static byte[] encode(String sequence) {
+        byte[] encoded = new byte[sequence.length()];
+        for (int i = 0; i < encoded.length; i += 1) {
+            switch (sequence.charAt(i)) {
+                case 'a':
+                case 'A':
+                    encoded[i] = 0;
+                    break;
+                case 'c':
+                case 'C':
+                    encoded[i] = 1;
+                    break;
+                case 'g':
+                case 'G':
+                    encoded[i] = 2;
+                    break;
+                case 't':
+                case 'T':
+                case 'u':
+                case 'U':
+                    encoded[i] = 3;
+                    break;
+                default:
+                    encoded[i] = UNKNOWN;
+            }
+        }
+        return encoded;
+    }
+
+    private static char decode(byte base) {
+        return base == UNKNOWN ? 'n' : "acgt".charAt(base);
+    }
+
+    private static byte[] reverseComplement(byte[] sequence) {
+        byte[] reverse = new byte[sequence.length];
+        for (int i = 0; i < sequence.length; i += 1) {
+            byte base = sequence[sequence.length - 1 - i];
+            reverse[i] = base == UNKNOWN ? UNKNOWN : (byte) (3 - base);
+        }
+        return reverse;
+    }
+
+    /**
+     * Positions of the k-mers in the reference (wrapping around the origin of circular references), in a hash
+     * table with chaining
+     */
+    private static class KmerTable {
+
+        private static final int MASK = (1 << (2 * K)) - 1;
+
+        private final int length;
+        private final boolean circular;
+        private final int[] codes;
+        private final int[] heads;
+        private final int[] next;
+        private final int bucketMask;
+
+        KmerTable(byte[] ref, boolean circular) {
+            this.length = ref.length;
+            this.circular = circular;
+            int count = circular ? ref.length : ref.length - K + 1;
+            this.codes = new int[count];
+            this.next = new int[count];
+            int buckets = Integer.highestOneBit(Math.max(count, 1) * 2 - 1) << 1;
+            this.heads = new int[buckets];
+            this.bucketMask = buckets - 1;
+            Arrays.fill(heads, -1);
+
+            int code = 0;
+            int valid = 0;
+            int end = count + K - 1;
+            for (int i = 0; i < end; i += 1) {
+                byte base = ref[i % ref.length];
+                if (base == UNKNOWN) {
+                    valid = 0;
+                    code = 0;
+                } else {
+                    code = ((code << 2) | base) & MASK;
+                    valid += 1;
+                }
+
+                if (i < K - 1)
+                    continue;
+
+                int position = i - K + 1;
+                codes[position] = valid >= K ? code : -1;
+                if (codes[position] < 0)
+                    continue;
+
+                int bucket = hash(code) & bucketMask;
+                next[position] = heads[bucket];
+                heads[bucket] = position;
+            }
+        }
+
+        /**
+         * @return diagonal (reference position - trace position) with the most shared k-mers, or
+         * <code>Long.MIN_VALUE</code> if there are not enough shared k-mers
+         */
+        long findDiagonal(byte[] trace) {
+            int offset = circular ? 0 : trace.length;
+            int[] votes = new int[circular ? length : length + trace.length];
+            int bestVotes = 0;
+            int bestDiagonal = 0;
+
+            int code = 0;
+            int valid = 0;
+            int[] occurrences = new int[MAX_OCCURRENCES];
+            for (int j = 0; j < trace.length; j += 1) {
+                byte base = trace[j];
+                if (base == UNKNOWN) {
+                    valid = 0;
+                    code = 0;
+                    continue;
+                }
+
+                code = ((code << 2) | base) & MASK;
+                valid += 1;
+                if (valid < K)
+                    continue;
+
+                // skip repeated k-mers
+                int count = 0;
+                for (int position = heads[hash(code) & bucketMask]; position != -1; position = next[position]) {
+                    if (codes[position] != code)
+                        continue;
+                    if (count == MAX_OCCURRENCES) {
+                        count = 0;
+                        break;
+                    }
+                    occurrences[count++] = position;
+                }
+
+                int start = j - K + 1;
+                for (int i = 0; i < count; i += 1) {
+                    int diagonal = circular ? Math.floorMod(occurrences[i] - start, length) : occurrences[i] - start;
+                    int index = diagonal + offset;
+                    votes[index] += 1;
+                    if (votes[index] > bestVotes) {
+                        bestVotes = votes[index];
+                        bestDiagonal = diagonal;
+                    }
+                }
+            }
+
+            return bestVotes < MIN_VOTES ? Long.MIN_VALUE : bestDiagonal;
+        }
+
+        private static int hash(int code) {
+            return code * 0x9E3779B1 >>> 7;
+        }
+    }
+
+    private static class Alignment {
+        int score;
+        int referenceStart;
+        int referenceEnd;
+        int traceStart;
+        int traceEnd;
+        String referenceAlignment;
+        String traceAlignment;
+        boolean reverse;
+    }
+}
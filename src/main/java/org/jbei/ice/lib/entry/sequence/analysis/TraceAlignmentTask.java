@@ -0,0 +1,179 @@
+package org.jbei.ice.lib.entry.sequence.analysis;
+
+import org.jbei.ice.lib.common.logging.Logger;
+import org.jbei.ice.lib.dto.entry.TraceAlignmentStatus;
+import org.jbei.ice.lib.executor.Task;
+import org.jbei.ice.lib.executor.TaskStatus;
+import org.jbei.ice.lib.parsers.bl2seq.Bl2SeqResult;
+import org.jbei.ice.storage.DAOFactory;
+import org.jbei.ice.storage.hibernate.HibernateUtil;
+import org.jbei.ice.storage.hibernate.dao.TraceSequenceDAO;
+import org.jbei.ice.storage.model.TraceSequence;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Task for rebuilding the alignments of (some of) the trace sequences of an entry against the entry's sequence.
+ * The alignments are computed in parallel on a pool shared by all tasks and bounded by the number of processors,
+ * and each alignment is saved and committed as it completes, so progress is visible and an alignment that cannot be
+ * saved does not roll back the others.
+ * <p>
+ * The sequence and traces are captured when the task is created so it does not depend on the transaction
+ * that scheduled it. A task is superseded (and stops saving alignments) when another task is created for the
+ * same entry. Alignments that are not saved are rebuilt when the traces are next retrieved since their
+ * stored sequence hash will not match the entry's sequence.
+ */
+public class TraceAlignmentTask extends Task {
+
+    private static final int MAX_TRACKED_ENTRIES = 100;
+    private static final Map<Long, TraceAlignmentTask> TASKS = new LinkedHashMap<Long, TraceAlignmentTask>() {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, TraceAlignmentTask> eldest) {
+            return size() > MAX_TRACKED_ENTRIES;
+        }
+    };
+    private static ExecutorService pool;
+
+    private final long entryId;
+    private final String sequence;
+    private final String sequenceHash;
+    private final boolean circular;
+    private final Map<Long, String> traces;
+    private final AtomicInteger completed = new AtomicInteger();
+    private final AtomicInteger failed = new AtomicInteger();
+
+    /**
+     * @param entryId      unique identifier for entry whose traces are to be aligned
+     * @param sequence     entry sequence
+     * @param sequenceHash hash of the entry sequence
+     * @param circular     whether the entry sequence is circular
+     * @param traces       unique identifiers of the traces to align mapped to the trace sequences
+     */
+    public TraceAlignmentTask(long entryId, String sequence, String sequenceHash, boolean circular,
+                              Map<Long, String> traces) {
+        this.entryId = entryId;
+        this.sequence = sequence;
+        this.sequenceHash = sequenceHash;
+        this.circular = circular;
+        this.traces = new LinkedHashMap<>(traces);
+
+        synchronized (TASKS) {
+            TASKS.remove(entryId);
+            TASKS.put(entryId, this);
+        }
+    }
+
+    /**
+     * Retrieves the progress of the most recent alignment task for an entry
+     *
+     * @param entryId unique identifier for entry
+     * @return status of the task. If there is no (recent) task for the entry then the status is completed with
+     * no traces
+     */
+    public static TraceAlignmentStatus getStatus(long entryId) {
+        TraceAlignmentTask task;
+        synchronized (TASKS) {
+            task = TASKS.get(entryId);
+        }
+
+        if (task == null)
+            return new TraceAlignmentStatus(entryId, TaskStatus.COMPLETED, 0, 0, 0);
+        return new TraceAlignmentStatus(entryId, task.getStatus(), task.traces.size(), task.completed.get(),
+                task.failed.get());
+    }
+
+    /**
+     * @param entryId      unique identifier for entry
+     * @param sequenceHash hash of the entry's current sequence
+     * @return true if the most recent alignment task for the entry is aligning against the specified sequence
+     * and has not finished yet
+     */
+    public static boolean isActive(long entryId, String sequenceHash) {
+        TraceAlignmentTask task;
+        synchronized (TASKS) {
+            task = TASKS.get(entryId);
+        }
+
+        if (task == null || !task.sequenceHash.equals(sequenceHash))
+            return false;
+        TaskStatus status = task.getStatus();
+        return status != TaskStatus.COMPLETED && status != TaskStatus.EXCEPTION;
+    }
+
+    @Override
+    public void execute() {
+        Logger.info("Aligning " + traces.size() + " trace(s) for entry " + entryId);
+        Map<Long, Future<Bl2SeqResult>> results = new LinkedHashMap<>();
+        for (Map.Entry<Long, String> trace : traces.entrySet()) {
+            results.put(trace.getKey(), getPool().submit(() -> TraceSequences.align(sequence, trace.getValue(),
+                    circular)));
+        }
+
+        TraceSequenceDAO dao = DAOFactory.getTraceSequenceDAO();
+        TraceSequences traceSequences = new TraceSequences();
+        try {
+            for (Map.Entry<Long, Future<Bl2SeqResult>> result : results.entrySet()) {
+                if (isSuperseded()) {
+                    Logger.info("Alignment of traces for entry " + entryId + " superseded");
+                    return;
+                }
+
+                try {
+                    Bl2SeqResult alignment = result.getValue().get();
+                    TraceSequence traceSequence = dao.get(result.getKey());
+                    if (traceSequence != null)
+                        traceSequences.saveAlignment(traceSequence, alignment, sequence.length(), circular,
+                                sequenceHash);
+                    HibernateUtil.commitTransaction();
+                    completed.incrementAndGet();
+                } catch (ExecutionException e) {
+                    Logger.error("Could not align trace " + result.getKey(), e.getCause());
+                    failed.incrementAndGet();
+                } catch (RuntimeException e) {
+                    Logger.error("Could not save alignment of trace " + result.getKey(), e);
+                    HibernateUtil.rollbackTransaction();
+                    failed.incrementAndGet();
+                } finally {
+                    HibernateUtil.beginTransaction();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            for (Future<Bl2SeqResult> result : results.values())
+                result.cancel(true);
+        }
+    }
+
+    private boolean isSuperseded() {
+        synchronized (TASKS) {
+            TraceAlignmentTask latest = TASKS.get(entryId);
+            return latest != null && latest != this;
+        }
+    }
+
+    /**
+     * Stops the pool the alignments are computed on. Alignments in progress are interrupted
+     */
+    public static synchronized void shutdown() {
+        if (pool == null)
+            return;
+        pool.shutdownNow();
+        pool = null;
+    }
+
+    private static synchronized ExecutorService getPool() {
+        if (pool == null) {
+            int threads = Math.max(1, Runtime.getRuntime().availableProcessors());
+            pool = Executors.newFixedThreadPool(threads, r -> {
+                Thread thread = new Thread(r, "trace-alignment");
+                thread.setDaemon(true);
+                thread.setPriority(Thread.MIN_PRIORITY);
+                return thread;
+            });
+        }
+        return pool;
+    }
+}
@@ -2,10 +2,11 @@ package org.jbei.ice.lib.entry.sequence.analysis;
 
 import org.jbei.ice.lib.common.logging.Logger;
 import org.jbei.ice.lib.dto.ConfigurationKey;
+import org.jbei.ice.lib.dto.entry.TraceAlignmentStatus;
 import org.jbei.ice.lib.entry.EntryAuthorization;
+import org.jbei.ice.lib.executor.IceExecutorService;
 import org.jbei.ice.lib.parsers.bl2seq.Bl2SeqResult;
 import org.jbei.ice.lib.search.blast.BlastException;
-import org.jbei.ice.lib.search.blast.BlastPlus;
 import org.jbei.ice.lib.utils.Utils;
 import org.jbei.ice.storage.DAOFactory;
 import org.jbei.ice.storage.hibernate.dao.ShotgunSequenceDAO;
@@ -15,10 +16,7 @@ import org.jbei.ice.storage.model.*;
 import java.io.*;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.util.ArrayList;
-import java.util.Date;
-import java.util.List;
-import java.util.Optional;
+import java.util.*;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipInputStream;
 
@@ -103,7 +101,10 @@ public class TraceSequences {
     }
 
     /**
-     * Retrieve the {@link TraceSequence} associated with the given {@link Entry} entry.
+     * Retrieve the {@link TraceSequence} associated with the given {@link Entry} entry. Alignments that are
+     * missing or out of date are not rebuilt here but in the background (see {@link #rebuildAllAlignments(Entry)}),
+     * so the traces are returned with their current alignments; the progress of the rebuild can be retrieved using
+     * {@link #getAlignmentStatus(String, long)}
      *
      * @param entry entry object
      * @return Retrieved TraceSequence
@@ -112,32 +113,17 @@ public class TraceSequences {
         if (entry == null)
             return null;
 
-        List<TraceSequence> traces;
         Sequence sequence = DAOFactory.getSequenceDAO().getByEntry(entry);
-
-        if (sequence == null) { // it will remove invalid alignments
-            rebuildAllAlignments(entry);
-
-            traces = dao.getByEntry(entry, 0, Integer.MAX_VALUE);
-        } else {
-            traces = dao.getByEntry(entry, 0, Integer.MAX_VALUE);
-
-            boolean wasUpdated = false;
-            for (TraceSequence traceSequence : traces) {
-                if (traceSequence.getTraceSequenceAlignment() == null
-                        || traceSequence.getTraceSequenceAlignment().getSequenceHash() == null
-                        || traceSequence.getTraceSequenceAlignment().getSequenceHash().isEmpty()
-                        || !traceSequence.getTraceSequenceAlignment().getSequenceHash().equals(sequence.getFwdHash())) {
-                    buildOrRebuildAlignment(traceSequence, sequence);
-                    wasUpdated = true;
-                }
-            }
-
-            if (wasUpdated) { // fetch again because alignment has been updated
-                traces = dao.getByEntry(entry, 0, Integer.MAX_VALUE);
+        List<TraceSequence> traces = dao.getByEntry(entry, 0, Integer.MAX_VALUE);
+        if (sequence == null)
+            return traces;
+
+        for (TraceSequence traceSequence : traces) {
+            if (!isAligned(traceSequence, sequence)) {
+                rebuildAllAlignments(entry);
+                break;
             }
         }
-
         return traces;
     }
 
@@ -159,7 +145,7 @@ public class TraceSequences {
 
     /**
      * Calculate sequence alignment between the given {@link TraceSequence} and {@link Sequence}
-     * using bl2seq, and save the result into the database.
+     * using the {@link TraceAligner} (which falls back to bl2seq), and save the result into the database.
      *
      * @param traceSequence traceSequence
      * @param sequence      sequence
@@ -175,93 +161,115 @@ public class TraceSequences {
         }
 
         // actually build alignment
-        String traceSequenceString = traceSequence.getSequence();
         String entrySequenceString = sequence.getSequence();
+        boolean isCircular = isCircular(sequence.getEntry());
 
-        int entrySequenceLength = entrySequenceString.length();
-        boolean isCircular = (sequence.getEntry().getRecordType().equalsIgnoreCase("plasmid")) && ((Plasmid) sequence.getEntry()).getCircular();
-
-        if (isCircular) {
-            entrySequenceString += entrySequenceString;
+        try {
+            Bl2SeqResult result = align(entrySequenceString, traceSequence.getSequence(), isCircular);
+            saveAlignment(traceSequence, result, entrySequenceString.length(), isCircular, sequence.getFwdHash());
+        } catch (BlastException e) {
+            Logger.error(e);
         }
+    }
 
-        try {
-            List<Bl2SeqResult> bl2seqAlignmentResults = new BlastPlus().runBlast2Seq(entrySequenceString, traceSequenceString);
+    /**
+     * Aligns a trace against a reference sequence. Does not access the database so it can be called from any thread.
+     *
+     * @param reference reference (entry) sequence
+     * @param trace     trace sequence
+     * @param circular  whether the reference sequence is circular
+     * @return longest alignment of the trace against the reference or null if the trace does not align
+     * @throws BlastException on exception aligning
+     */
+    static Bl2SeqResult align(String reference, String trace, boolean circular) throws BlastException {
+        List<Bl2SeqResult> bl2seqAlignmentResults = new TraceAligner().align(reference, trace, circular);
+        int maxAlignedSequenceLength = -1;
+        Bl2SeqResult maxBl2SeqResult = null;
 
-            if (bl2seqAlignmentResults.size() > 0) {
-                int maxAlignedSequenceLength = -1;
-                Bl2SeqResult maxBl2SeqResult = null;
+        for (Bl2SeqResult bl2seqResult : bl2seqAlignmentResults) {
+            int querySequenceLength = bl2seqResult.getQuerySequence().length();
 
-                for (Bl2SeqResult bl2seqResult : bl2seqAlignmentResults) {
-                    int querySequenceLength = bl2seqResult.getQuerySequence().length();
+            if (maxAlignedSequenceLength < querySequenceLength) {
+                maxAlignedSequenceLength = querySequenceLength;
+                maxBl2SeqResult = bl2seqResult;
+            }
+        }
+        return maxBl2SeqResult;
+    }
 
-                    if (maxAlignedSequenceLength < querySequenceLength) {
-                        maxAlignedSequenceLength = querySequenceLength;
-                        maxBl2SeqResult = bl2seqResult;
-                    }
-                }
+    /**
+     * Saves an alignment (computed using {@link #align(String, String, boolean)}) for a trace sequence
+     *
+     * @param traceSequence   trace sequence that was aligned
+     * @param result          alignment. Nothing is saved if null
+     * @param referenceLength length of the reference sequence
+     * @param isCircular      whether the reference sequence is circular
+     * @param sequenceHash    hash of the reference sequence, used to determine when the alignment is out of date
+     */
+    void saveAlignment(TraceSequence traceSequence, Bl2SeqResult result, int referenceLength, boolean isCircular,
+                       String sequenceHash) {
+        if (result == null)
+            return;
 
-                int strand = maxBl2SeqResult.getOrientation() == 0 ? 1 : -1;
-                TraceSequenceAlignment traceSequenceAlignment = traceSequence.getTraceSequenceAlignment();
-                int queryStart = maxBl2SeqResult.getQueryStart();
-                int queryEnd = maxBl2SeqResult.getQueryEnd();
-                int subjectStart = maxBl2SeqResult.getSubjectStart();
-                int subjectEnd = maxBl2SeqResult.getSubjectEnd();
-
-                if (isCircular) {
-                    if (queryStart > entrySequenceLength - 1) {
-                        queryStart = queryStart - entrySequenceLength;
-                    }
-
-                    if (queryEnd > entrySequenceLength - 1) {
-                        queryEnd = queryEnd - entrySequenceLength;
-                    }
-
-                    if (subjectEnd > entrySequenceLength - 1) {
-                        subjectEnd = subjectEnd - entrySequenceLength;
-                    }
-
-                    if (subjectStart > entrySequenceLength - 1) {
-                        subjectStart = subjectStart - entrySequenceLength;
-                    }
-                }
+        int strand = result.getOrientation() == 0 ? 1 : -1;
+        TraceSequenceAlignment traceSequenceAlignment = traceSequence.getTraceSequenceAlignment();
+        int queryStart = result.getQueryStart();
+        int queryEnd = result.getQueryEnd();
+        int subjectStart = result.getSubjectStart();
+        int subjectEnd = result.getSubjectEnd();
 
-                if (traceSequenceAlignment == null) {
-                    traceSequenceAlignment = new TraceSequenceAlignment(traceSequence,
-                            maxBl2SeqResult.getScore(), strand,
-                            queryStart, queryEnd,
-                            subjectStart, subjectEnd,
-                            maxBl2SeqResult.getQuerySequence(),
-                            maxBl2SeqResult.getSubjectSequence(),
-                            sequence.getFwdHash(),
-                            new Date());
-
-                    traceSequence.setTraceSequenceAlignment(traceSequenceAlignment);
-                } else {
-                    traceSequenceAlignment.setModificationTime(new Date());
-                    traceSequenceAlignment.setScore(maxBl2SeqResult.getScore());
-                    traceSequenceAlignment.setStrand(strand);
-                    traceSequenceAlignment.setQueryStart(queryStart);
-                    traceSequenceAlignment.setQueryEnd(queryEnd);
-                    traceSequenceAlignment.setSubjectStart(subjectStart);
-                    traceSequenceAlignment.setSubjectEnd(subjectEnd);
-                    traceSequenceAlignment.setQueryAlignment(maxBl2SeqResult.getQuerySequence());
-                    traceSequenceAlignment.setSubjectAlignment(maxBl2SeqResult.getSubjectSequence());
-                    traceSequenceAlignment.setSequenceHash(sequence.getFwdHash());
-                }
+        if (isCircular) {
+            if (queryStart > referenceLength - 1) {
+                queryStart = queryStart - referenceLength;
+            }
 
-                dao.save(traceSequence);
+            if (queryEnd > referenceLength - 1) {
+                queryEnd = queryEnd - referenceLength;
             }
-        } catch (BlastException e) {
-            Logger.error(e);
+
+            if (subjectEnd > referenceLength - 1) {
+                subjectEnd = subjectEnd - referenceLength;
+            }
+
+            if (subjectStart > referenceLength - 1) {
+                subjectStart = subjectStart - referenceLength;
+            }
+        }
+
+        if (traceSequenceAlignment == null) {
+            traceSequenceAlignment = new TraceSequenceAlignment(traceSequence,
+                    result.getScore(), strand,
+                    queryStart, queryEnd,
+                    subjectStart, subjectEnd,
+                    result.getQuerySequence(),
+                    result.getSubjectSequence(),
+                    sequenceHash,
+                    new Date());
+
+            traceSequence.setTraceSequenceAlignment(traceSequenceAlignment);
+        } else {
+            traceSequenceAlignment.setModificationTime(new Date());
+            traceSequenceAlignment.setScore(result.getScore());
+            traceSequenceAlignment.setStrand(strand);
+            traceSequenceAlignment.setQueryStart(queryStart);
+            traceSequenceAlignment.setQueryEnd(queryEnd);
+            traceSequenceAlignment.setSubjectStart(subjectStart);
+            traceSequenceAlignment.setSubjectEnd(subjectEnd);
+            traceSequenceAlignment.setQueryAlignment(result.getQuerySequence());
+            traceSequenceAlignment.setSubjectAlignment(result.getSubjectSequence());
+            traceSequenceAlignment.setSequenceHash(sequenceHash);
         }
+
+        dao.save(traceSequence);
     }
 
     /**
-     * Calculate sequence alignments between the sequence associated with an {@link Entry} entry
-     * with all the {@link TraceSequence}s associated with that entry.
+     * Rebuilds (in the background) the alignments between the sequence associated with an {@link Entry} entry
+     * and the {@link TraceSequence}s associated with that entry. Only alignments that are missing or were
+     * computed against a different sequence (the stored sequence hash differs from the current one) are rebuilt,
+     * so updates that leave the sequence unchanged (e.g. features only) do not cause any work.
      * <p/>
-     * Calls buildOrReplaceAlignment on each TraceSequence.
+     * Progress can be retrieved using {@link #getAlignmentStatus(String, long)}
      *
      * @param entry entry object
      */
@@ -274,10 +282,50 @@ public class TraceSequences {
             return;
         }
 
-        List<TraceSequence> traceSequences = getTraceSequences(entry);
-        for (TraceSequence traceSequence : traceSequences) {
-            buildOrRebuildAlignment(traceSequence, sequence);
+        Map<Long, String> traces = new LinkedHashMap<>();
+        for (TraceSequence traceSequence : dao.getByEntry(entry, 0, Integer.MAX_VALUE)) {
+            if (!isAligned(traceSequence, sequence))
+                traces.put(traceSequence.getId(), traceSequence.getSequence());
         }
+
+        // already being rebuilt against this sequence
+        if (traces.isEmpty() || TraceAlignmentTask.isActive(entry.getId(), sequence.getFwdHash()))
+            return;
+
+        TraceAlignmentTask task = new TraceAlignmentTask(entry.getId(), sequence.getSequence(),
+                sequence.getFwdHash(), isCircular(entry), traces);
+        IceExecutorService.getInstance().runTask(task);
+    }
+
+    /**
+     * Retrieves the progress of the background rebuild of the trace alignments for an entry
+     *
+     * @param userId  unique identifier for user making request
+     * @param entryId unique identifier for entry
+     * @return status of the rebuild
+     */
+    public TraceAlignmentStatus getAlignmentStatus(String userId, long entryId) {
+        Entry entry = DAOFactory.getEntryDAO().get(entryId);
+        if (entry == null)
+            return null;
+
+        authorization.expectRead(userId, entry);
+        return TraceAlignmentTask.getStatus(entryId);
+    }
+
+    /**
+     * @param traceSequence trace sequence
+     * @param sequence      current sequence of the entry the trace is associated with
+     * @return true if the trace has an alignment computed against the current sequence
+     */
+    static boolean isAligned(TraceSequence traceSequence, Sequence sequence) {
+        TraceSequenceAlignment alignment = traceSequence.getTraceSequenceAlignment();
+        return alignment != null && alignment.getSequenceHash() != null && !alignment.getSequenceHash().isEmpty()
+                && alignment.getSequenceHash().equals(sequence.getFwdHash());
+    }
+
+    private static boolean isCircular(Entry entry) {
+        return entry.getRecordType().equalsIgnoreCase("plasmid") && Boolean.TRUE.equals(((Plasmid) entry).getCircular());
     }
 
     public boolean deleteTraceSequence(String userId, long entryId, long traceId) {
@@ -3,8 +3,11 @@ package org.jbei.ice.lib.entry.sequence.composers.formatters;
 import org.jbei.ice.storage.model.Entry;
 import org.jbei.ice.storage.model.Sequence;
 
+import java.io.BufferedWriter;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
 
 /**
  * Formatter for creating a FASTA formatted output.
@@ -14,25 +17,27 @@ import java.io.OutputStream;
  */
 public class FastaFormatter extends AbstractFormatter {
 
+    private static final int LINE_WIDTH = 80;
+
     @Override
     public void format(Sequence sequence, OutputStream outputStream) throws IOException {
         if (sequence == null)
             throw new IllegalArgumentException("Cannot write null sequence");
 
-        StringBuilder builder = new StringBuilder();
         Entry entry = sequence.getEntry();
         if (entry == null)
             throw new IOException("Cannot retrieve entry for sequence");
 
-        builder.append(">")
-                .append(entry.getPartNumber())
-                .append(System.lineSeparator());
-        for (int i = 1; i <= sequence.getSequence().length(); i += 1) {
-            builder.append(sequence.getSequence().charAt(i - 1));
-            if (i % 80 == 0)
-                builder.append(System.lineSeparator());
+        // written line by line directly to the stream
+        Writer writer = new BufferedWriter(new OutputStreamWriter(outputStream));
+        writer.write(">" + entry.getPartNumber() + System.lineSeparator());
+        String bases = sequence.getSequence();
+        for (int i = 0; i < bases.length(); i += LINE_WIDTH) {
+            int end = Math.min(i + LINE_WIDTH, bases.length());
+            writer.write(bases, i, end - i);
+            if (end - i == LINE_WIDTH)
+                writer.write(System.lineSeparator());
         }
-
-        outputStream.write(builder.toString().getBytes());
+        writer.flush();
     }
 }
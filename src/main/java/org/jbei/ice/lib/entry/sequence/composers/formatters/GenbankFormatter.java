@@ -1,5 +1,6 @@
 package org.jbei.ice.lib.entry.sequence.composers.formatters;
 
+import org.apache.commons.lang3.StringUtils;
 import org.biojava.bio.seq.DNATools;
 import org.biojava.bio.seq.Feature;
 import org.biojava.bio.symbol.Location;
@@ -15,19 +16,40 @@ import org.jbei.ice.storage.model.Sequence;
 import org.jbei.ice.storage.model.SequenceFeature;
 import org.jbei.ice.storage.model.SequenceFeatureAttribute;
 
+import java.io.BufferedWriter;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
 import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.regex.Pattern;
 
 /**
  * Formatter for the Genbank file format.
+ * <p>
+ * Sequences are written directly to the output stream, producing the same output as BioJava's genbank writer
+ * without building the BioJava sequence object graph (which holds an object reference per base). Sequences with
+ * symbols that are not plain (IUPAC) DNA are written using BioJava.
  *
  * @author Zinovii Dmytriv, Timothy Ham
  */
 public class GenbankFormatter extends AbstractFormatter {
+
+    private static final int LINE_WIDTH = 80;
+    private static final String NEWLINE = System.lineSeparator();
+    private static final String DNA_SYMBOLS = "acgtnrykmswbdhv-";
+
+    // qualifiers whose values are not quoted
+    private static final Set<String> NOT_QUOTED = new HashSet<>(Arrays.asList("anticodon", "citation", "codon",
+            "codon_start", "compare", "cons_splice", "direction", "estimated_length", "label", "mod_base", "number",
+            "rpt_type", "rpt_unit_range", "transl_except", "transl_table"));
     private final String name;
     private final String accessionNumber;
     private int version = 1;
@@ -97,10 +119,52 @@ public class GenbankFormatter extends AbstractFormatter {
 
     @Override
     public void format(Sequence sequence, OutputStream outputStream) throws IOException {
-        if (sequence == null || outputStream == null || sequence.getSequence().isEmpty()) {
+        if (sequence == null || outputStream == null || sequence.getLength() == 0) {
             return;
         }
 
+        String bases = sequence.getSequence();
+        if (name == null || accessionNumber == null || !StringUtils.containsOnly(bases, DNA_SYMBOLS)) {
+            formatRichSequence(sequence, outputStream);
+            return;
+        }
+
+        Writer writer = new BufferedWriter(new OutputStreamWriter(outputStream));
+        writeHeader(writer, bases.length());
+
+        writer.write("FEATURES             Location/Qualifiers" + NEWLINE);
+        if (sequence.getSequenceFeatures() != null) {
+            for (SequenceFeature sequenceFeature : sequence.getSequenceFeatures()) {
+                if (sequenceFeature.getFeature() == null) {
+                    Logger.warn("In sequence with id: " + sequence.getId()
+                            + "; SequenceFeature object has no feature assigned to it.");
+                    continue;
+                }
+                writeFeature(writer, sequenceFeature);
+            }
+        }
+
+        writer.write("ORIGIN" + NEWLINE);
+        for (int i = 0; i < bases.length(); i += 60) {
+            writer.write(StringUtils.leftPad(Integer.toString(i + 1), 9));
+            for (int j = i; j < Math.min(i + 60, bases.length()); j += 10) {
+                writer.write(' ');
+                writer.write(bases, j, Math.min(10, bases.length() - j));
+            }
+            writer.write('\n');
+        }
+        writer.write("//" + NEWLINE);
+        writer.flush();
+    }
+
+    /**
+     * Formats the sequence using BioJava.
+     *
+     * @param sequence     sequence to format
+     * @param outputStream stream to write to
+     * @throws IOException on exception creating the BioJava sequence or writing it
+     */
+    void formatRichSequence(Sequence sequence, OutputStream outputStream) throws IOException {
         SimpleRichSequence simpleRichSequence;
         try {
             simpleRichSequence = new SimpleRichSequence(
@@ -168,6 +232,141 @@ public class GenbankFormatter extends AbstractFormatter {
         RichSequence.IOTools.writeGenbank(outputStream, simpleRichSequence, getNamespace());
     }
 
+    private void writeHeader(Writer writer, int length) throws IOException {
+        String locusDivision = division == null || division.length() > 3 ? "" : division;
+        String locus = StringUtils.rightPad(normalizeLocusName(name), 16) + " "
+                + StringUtils.leftPad(Integer.toString(length), 11) + " bp    "
+                + StringUtils.rightPad("DNA", 6) + "  "
+                + StringUtils.rightPad(circular ? "circular" : "linear", 8) + " "
+                + StringUtils.rightPad(locusDivision, 3) + " ";
+        writeKeyValueLine(writer, "LOCUS", locus, 12, LINE_WIDTH, "\\s+");
+        if (description != null && !description.isEmpty())
+            writeKeyValueLine(writer, "DEFINITION", description, 12, LINE_WIDTH, "\\s+");
+        writeKeyValueLine(writer, "ACCESSION", accessionNumber, 12, LINE_WIDTH, "\\s+");
+        String versionLine = accessionNumber + "." + version;
+        if (identifier != null && !identifier.isEmpty())
+            versionLine += "  GI:" + identifier;
+        writeKeyValueLine(writer, "VERSION", versionLine, 12, LINE_WIDTH, "\\s+");
+        writeKeyValueLine(writer, "KEYWORDS", ".", 12, LINE_WIDTH - 1, "\\s+");
+    }
+
+    private void writeFeature(Writer writer, SequenceFeature sequenceFeature) throws IOException {
+        Set<AnnotationLocation> locations = sequenceFeature.getAnnotationLocations();
+        if (locations == null || locations.size() == 0)
+            return;
+
+        // locations, sorted by start and end (or by end and start on the negative strand)
+        Strand strand = getStrand(sequenceFeature);
+        String location;
+        if (locations.size() == 1) {
+            location = getLocation(sequenceFeature.getUniqueGenbankStart(), sequenceFeature.getUniqueEnd());
+        } else {
+            List<AnnotationLocation> members = new ArrayList<>(locations);
+            if (strand == Strand.NEGATIVE_STRAND) {
+                members.sort(Comparator.comparingInt(AnnotationLocation::getEnd)
+                        .thenComparingInt(AnnotationLocation::getGenbankStart));
+            } else {
+                members.sort(Comparator.comparingInt(AnnotationLocation::getGenbankStart)
+                        .thenComparingInt(AnnotationLocation::getEnd));
+            }
+            StringBuilder builder = new StringBuilder("join(");
+            for (AnnotationLocation member : members) {
+                if (builder.length() > 5)
+                    builder.append(',');
+                builder.append(getLocation(member.getGenbankStart(), member.getEnd()));
+            }
+            location = builder.append(')').toString();
+        }
+        if (strand == Strand.NEGATIVE_STRAND)
+            location = "complement(" + location + ")";
+        writeKeyValueLine(writer, "     " + getFeatureType(sequenceFeature), location, 21, LINE_WIDTH - 1, ",");
+
+        // qualifiers, label first
+        if (sequenceFeature.getName() != null && !sequenceFeature.getName().isEmpty())
+            writeQualifier(writer, "label", normalizeFeatureValue(sequenceFeature.getName()));
+
+        for (SequenceFeatureAttribute attribute : sequenceFeature.getSequenceFeatureAttributes()) {
+            String key = attribute.getKey();
+            if (key == null || key.isEmpty() || key.toLowerCase().equals("label"))
+                continue;
+            writeQualifier(writer, key, normalizeFeatureValue(attribute.getValue()));
+        }
+    }
+
+    private void writeQualifier(Writer writer, String key, String value) throws IOException {
+        if (value.isEmpty())
+            writeKeyValueLine(writer, "", "/" + key, 21, LINE_WIDTH, "\\s+");
+        else if (NOT_QUOTED.contains(key))
+            writeKeyValueLine(writer, "", "/" + key + "=" + value, 21, LINE_WIDTH, "\\s+");
+        else if (key.equals("translation"))
+            writeKeyValueLine(writer, "", "/" + key + "=\"" + value + "\"", 21, LINE_WIDTH - 1, "\\s+");
+        else
+            writeKeyValueLine(writer, "", "/" + key + "=\"" + value + "\"", 21, LINE_WIDTH, "\\s+");
+    }
+
+    private String getLocation(int start, int end) {
+        return start == end ? Integer.toString(start) : start + ".." + end;
+    }
+
+    /**
+     * Writes the key padded to the indent followed by the value, word wrapped (at the separator) to the width,
+     * with continuation lines indented
+     */
+    private void writeKeyValueLine(Writer writer, String key, String value, int indent, int width, String separator)
+            throws IOException {
+        List<String> lines = wordWrap(value, Pattern.compile(separator), width - indent);
+        if (lines.isEmpty()) {
+            writer.write(StringUtils.rightPad(key, indent) + NEWLINE);
+            return;
+        }
+
+        writer.write(StringUtils.rightPad(key, indent) + lines.get(0) + NEWLINE);
+        String continuation = StringUtils.repeat(' ', indent);
+        for (int i = 1; i < lines.size(); i += 1)
+            writer.write(continuation + lines.get(i) + NEWLINE);
+    }
+
+    // wraps a line after the last separator within the width, or at the width if there is no separator
+    private List<String> wordWrap(String value, Pattern separator, int width) {
+        List<String> lines = new ArrayList<>();
+        int start = 0;
+        while (start < value.length()) {
+            int end = start + width;
+            int newLine = value.indexOf('\n', start);
+            if (newLine >= start && newLine < end)
+                end = newLine;
+
+            if (end >= value.length()) {
+                end = value.length();
+            } else {
+                while (end >= start) {
+                    if (separator.matcher(String.valueOf(value.charAt(end))).matches()) {
+                        end += 1;
+                        break;
+                    }
+                    end -= 1;
+                }
+                if (end <= start)
+                    end = start + width;
+            }
+
+            String line = newLine == end - 1 ? value.substring(start, end - 1) : value.substring(start, end);
+            lines.add(trimTrailingBlanks(line));
+            start = end;
+        }
+        return lines;
+    }
+
+    private String trimTrailingBlanks(String line) {
+        if (line.isEmpty() || line.charAt(line.length() - 1) != ' ')
+            return line;
+
+        int length = line.length();
+        while (length > 0 && line.charAt(length - 1) <= ' ')
+            length -= 1;
+        return line.substring(0, length);
+    }
+
     /**
      * Get the strand of the {@link SequenceFeature} feature.
      *
@@ -378,10 +378,7 @@ public class FolderContents {
 
         // retrieve folder contents
         List<Long> results = folderDAO.retrieveFolderContents(folderId, pageParameters, visibleOnly);
-        for (Long entryId : results) {
-            PartData info = ModelToInfoFactory.createTableView(entryId, fields);
-            details.getEntries().add(info);
-        }
+        details.getEntries().addAll(ModelToInfoFactory.createTableViews(results, fields));
         return details;
     }
 
@@ -487,8 +484,7 @@ public class FolderContents {
 
         // retrieve folder contents
         List<Long> results = folderDAO.retrieveFolderContents(folderId, pageParameters, true);
-        for (Long entryId : results) {
-            PartData info = ModelToInfoFactory.createTableView(entryId, fields);
+        for (PartData info : ModelToInfoFactory.createTableViews(results, fields)) {
             info.setCanEdit(canEdit);
             details.getEntries().add(info);
         }
@@ -119,15 +119,26 @@ public class FolderController {
         FolderDetails details = new FolderDetails();
         details.setCount(visibleCount);
 
-        for (Long id : results) {
-            try {
-                PartData info = ModelToInfoFactory.createTableView(id, fields);
-                info.setPublicRead(true);
-                details.getEntries().add(info);
-            } catch (Exception e) {
-                Logger.error(e);
+        List<PartData> views;
+        try {
+            views = ModelToInfoFactory.createTableViews(results, fields);
+        } catch (Exception e) {
+            // convert individually so that one malformed entry does not empty the page
+            Logger.error(e);
+            views = new ArrayList<>();
+            for (Long id : results) {
+                try {
+                    views.add(ModelToInfoFactory.createTableView(id, fields));
+                } catch (Exception ex) {
+                    Logger.error(ex);
+                }
             }
         }
+
+        for (PartData info : views) {
+            info.setPublicRead(true);
+            details.getEntries().add(info);
+        }
         return details;
     }
 
@@ -218,10 +218,7 @@ public class CollectionEntries {
                                                      int offset, int limit, String user, String filter, List<String> fields) {
         List<Long> entries = entryDAO.getByVisibility(user, visibility, field, asc, offset, limit, filter);
         Results<PartData> results = new Results<>();
-        for (Long id : entries) {
-            PartData info = ModelToInfoFactory.createTableView(id, fields);
-            results.getData().add(info);
-        }
+        results.getData().addAll(ModelToInfoFactory.createTableViews(entries, fields));
 
         results.setResultCount(entryDAO.getByVisibilityCount(user, visibility, filter));
         return results;
@@ -6,7 +6,7 @@ import org.jbei.ice.lib.dto.FeaturedDNASequence;
 import org.jbei.ice.lib.entry.sequence.SequenceFormat;
 import org.jbei.ice.lib.entry.sequence.SequenceUtil;
 import org.jbei.ice.lib.parsers.fasta.FastaParser;
-import org.jbei.ice.lib.parsers.genbank.GenBankParser;
+import org.jbei.ice.lib.parsers.genbank.StreamingGenBankParser;
 
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
@@ -32,7 +32,7 @@ public class GeneralParser {
                     break;
 
                 case GENBANK:
-                    parser = new GenBankParser();
+                    parser = new StreamingGenBankParser();
                     break;
 
                 case FASTA:
@@ -7,7 +7,8 @@ import org.jbei.ice.lib.parsers.AbstractParser;
 import java.util.Iterator;
 
 /**
- * Parser for a GenBank file
+ * Parser for a GenBank file. Kept as the reference implementation for {@link StreamingGenBankParser}, which
+ * produces the same result with far fewer allocations and is used for parsing uploads
  *
  * @author Hector Plahar
  */
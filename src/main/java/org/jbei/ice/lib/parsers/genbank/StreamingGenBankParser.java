@@ -0,0 +1,620 @@
+package org.jbei.ice.lib.parsers.genbank;
+
+import org.jbei.ice.lib.common.logging.Logger;
+import org.jbei.ice.lib.dto.DNAFeature;
+import org.jbei.ice.lib.dto.DNAFeatureLocation;
+import org.jbei.ice.lib.dto.DNAFeatureNote;
+import org.jbei.ice.lib.dto.FeaturedDNASequence;
+import org.jbei.ice.lib.parsers.AbstractParser;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Single pass parser for a GenBank file that produces the same {@link FeaturedDNASequence} as {@link GenBankParser}
+ * without splitting lines using regular expressions. Lines are tokenized in place in a reusable character buffer,
+ * the bases in the <code>ORIGIN</code> section are appended directly to a buffer pre-sized using the length in the
+ * <code>LOCUS</code> line and feature locations and qualifiers are scanned character by character, so the only
+ * objects created are those that make up the result.
+ * <p>
+ * An instance is not thread safe but can be reused for multiple files
+ */
+public class StreamingGenBankParser extends AbstractParser {
+
+    private static final int READ_BUFFER_SIZE = 8192;
+    private static final int MIN_SEQUENCE_CAPACITY = 1024;
+    private static final int MAX_SEQUENCE_PRESIZE = 1 << 27;
+    private static final GenbankTag[] TAGS = GenbankTag.values();
+
+    private static final String LABEL_QUALIFIER = "label";
+    private static final String[] QUALIFIERS = {"apeinfo_label", "note", "gene", "organism", "name"};
+
+    private enum Section {NONE, LOCUS, ACCESSION, FEATURES, ORIGIN}
+
+    private final StringBuilder scratch = new StringBuilder();
+    private final StringBuilder noteValue = new StringBuilder();
+    private char[] line = new char[256];
+    private char[] bases = new char[MIN_SEQUENCE_CAPACITY];
+
+    private FeaturedDNASequence sequence;
+    private Section section;
+    private int baseCount;
+    private int expectedLength;
+    private DNAFeature currentFeature;
+    private DNAFeatureNote currentNote;
+    private boolean noteValuePending;
+
+    @Override
+    public FeaturedDNASequence parse(Iterator<String> iterator, String... entryType) {
+        start();
+        while (iterator.hasNext()) {
+            String next = iterator.next();
+            int length = next.length();
+            ensureLineCapacity(length);
+            next.getChars(0, length, line, 0);
+            processLine(length);
+        }
+        return finish();
+    }
+
+    /**
+     * Parses a GenBank file read directly from a reader (without creating a string for each line). Lines are
+     * terminated by any of <code>\n</code>, <code>\r</code> or <code>\r\n</code>
+     *
+     * @param reader reader for GenBank file. Not closed by this method
+     * @return parsed sequence
+     * @throws IOException on exception reading
+     */
+    public FeaturedDNASequence parse(Reader reader) throws IOException {
+        start();
+        char[] buffer = new char[READ_BUFFER_SIZE];
+        int length = 0;
+        boolean skipLineFeed = false;
+        int read;
+
+        while ((read = reader.read(buffer)) != -1) {
+            for (int i = 0; i < read; i += 1) {
+                char c = buffer[i];
+                if (skipLineFeed) {
+                    skipLineFeed = false;
+                    if (c == '\n')
+                        continue;
+                }
+
+                if (c == '\n' || c == '\r') {
+                    processLine(length);
+                    length = 0;
+                    skipLineFeed = (c == '\r');
+                    continue;
+                }
+
+                ensureLineCapacity(length + 1);
+                line[length++] = c;
+            }
+        }
+
+        if (length > 0)
+            processLine(length);
+        return finish();
+    }
+
+    private void start() {
+        sequence = new FeaturedDNASequence();
+        section = Section.NONE;
+        baseCount = 0;
+        expectedLength = 0;
+        currentFeature = null;
+        currentNote = null;
+        noteValuePending = false;
+    }
+
+    private FeaturedDNASequence finish() {
+        flushNoteValue();
+        FeaturedDNASequence result = sequence;
+        sequence = null;
+        currentFeature = null;
+        currentNote = null;
+        return result;
+    }
+
+    private void processLine(int length) {
+        GenbankTag tag = getTag(length);
+        if (tag != null)
+            startSection(tag);
+
+        switch (section) {
+            case LOCUS:
+                processLocus(length);
+                break;
+
+            case ACCESSION:
+                processAccession(length);
+                break;
+
+            case FEATURES:
+                processFeature(length);
+                break;
+
+            case ORIGIN:
+                processOrigin(length);
+                break;
+
+            default:
+                break;
+        }
+    }
+
+    /**
+     * @return the tag that the first word of the line (if it starts at the beginning of the line) is or null
+     */
+    private GenbankTag getTag(int length) {
+        if (length == 0 || isSpace(line[0]))
+            return null;
+
+        int end = 0;
+        while (end < length && !isSpace(line[end]))
+            end += 1;
+
+        for (GenbankTag tag : TAGS) {
+            String name = tag.name();
+            if (name.length() != end)
+                continue;
+
+            int i = 0;
+            while (i < end && Character.toUpperCase(line[i]) == name.charAt(i))
+                i += 1;
+            if (i == end)
+                return tag;
+        }
+        return null;
+    }
+
+    private void startSection(GenbankTag tag) {
+        flushNoteValue();
+        switch (tag) {
+            case LOCUS:
+                section = Section.LOCUS;
+                break;
+
+            case ACCESSION:
+                section = Section.ACCESSION;
+                break;
+
+            case FEATURES:
+                section = Section.FEATURES;
+                currentFeature = null;
+                currentNote = null;
+                break;
+
+            case ORIGIN:
+                section = Section.ORIGIN;
+                baseCount = 0;
+                ensureBaseCapacity(Math.max(MIN_SEQUENCE_CAPACITY, Math.min(expectedLength, MAX_SEQUENCE_PRESIZE)));
+                break;
+
+            default:
+                section = Section.NONE;
+                break;
+        }
+    }
+
+    // LOCUS name length bp ... [linear|circular]
+    private void processLocus(int length) {
+        int end = trimEnd(0, length);
+        int i = trimStart(0, end);
+        boolean circular = false;
+        int bpIndex = -1;
+        int nameStart = 0, nameEnd = 0, lengthStart = 0, lengthEnd = 0;
+
+        for (int index = 0; i < end; index += 1) {
+            int tokenStart = i;
+            while (i < end && !isSpace(line[i]))
+                i += 1;
+
+            if (equals(tokenStart, i, "circular") || equals(tokenStart, i, "CIRCULAR"))
+                circular = true;
+            if (bpIndex == -1 && equals(tokenStart, i, "bp"))
+                bpIndex = index;
+            if (index == 1) {
+                nameStart = tokenStart;
+                nameEnd = i;
+            } else if (index == 2) {
+                lengthStart = tokenStart;
+                lengthEnd = i;
+            }
+
+            while (i < end && isSpace(line[i]))
+                i += 1;
+        }
+
+        sequence.setIsCircular(circular);
+        if (bpIndex == 3) {
+            sequence.setName(new String(line, nameStart, nameEnd - nameStart));
+            if (isDigits(lengthStart, lengthEnd) && lengthEnd - lengthStart < 10)
+                expectedLength = parseInt(lengthStart, lengthEnd);
+        } else {
+            sequence.setName("undefined");
+        }
+    }
+
+    // identifier is the rest of the line after the first word, with runs of spaces collapsed
+    private void processAccession(int length) {
+        int i = 0;
+        while (i < length && line[i] != ' ')
+            i += 1;
+        while (i < length && line[i] == ' ')
+            i += 1;
+
+        scratch.setLength(0);
+        for (; i < length; i += 1) {
+            char c = line[i];
+            if (c != ' ' || line[i - 1] != ' ')
+                scratch.append(c);
+        }
+        sequence.setIdentifier(scratch.toString().trim());
+    }
+
+    private void processOrigin(int length) {
+        if (indexOf(0, length, "ORIGIN") != -1)
+            return;
+
+        int end = trimEnd(0, length);
+        int i = trimStart(0, end);
+        if (end - i == 2 && line[i] == '/' && line[i + 1] == '/')
+            sequence.setSequence(new String(bases, 0, baseCount));
+
+        // sometimes sequence block is un-numbered
+        int firstTokenEnd = i;
+        while (firstTokenEnd < end && !isSpace(line[firstTokenEnd]))
+            firstTokenEnd += 1;
+        if (isDigits(i, firstTokenEnd))
+            i = firstTokenEnd;
+
+        ensureBaseCapacity(baseCount + end - i);
+        for (; i < end; i += 1) {
+            char c = line[i];
+            if (isSpace(c))
+                continue;
+
+            if (c >= 'A' && c <= 'Z')
+                c = (char) (c + ('a' - 'A'));
+            else if (c >= 128)
+                c = Character.toLowerCase(c);
+            bases[baseCount++] = c;
+        }
+    }
+
+    private void processFeature(int length) {
+        int end = trimEnd(0, length);
+        int start = trimStart(0, end);
+
+        if (startsWith(start, end, "FEATURES"))
+            return;
+
+        // check if we are starting a new qualifier line e.g. /note="abc"
+        if (start < end && line[start] == '/' && indexOf(start, end, '=') != -1) {
+            processQualifier(start, end);
+            return;
+        }
+
+        if (detectFeatureStart(start, end))
+            return;
+
+        // continuation of multi-line qualifier
+        if (currentNote == null) {
+            Logger.error("Don't know what to do with line " + new String(line, start, end - start));
+            return;
+        }
+
+        if (!noteValuePending) {
+            noteValue.setLength(0);
+            noteValue.append(currentNote.getValue());
+            noteValuePending = true;
+        }
+        appendUnescaped(noteValue, start, end);
+    }
+
+    /**
+     * Expecting a format as follows:
+     * <code>
+     * type   startBP..stopBP
+     * </code>
+     *
+     * @return true if a feature start conforming to above was detected, false otherwise
+     */
+    private boolean detectFeatureStart(int start, int end) {
+        if (indexOf(start, end, "..") == -1)
+            return false;
+
+        if (line[end - 1] == '"' && line[start] != '"')
+            return false;
+
+        int typeEnd = start;
+        while (typeEnd < end && !isSpace(line[typeEnd]))
+            typeEnd += 1;
+        if (typeEnd == end)
+            return false;
+
+        int locationStart = typeEnd;
+        while (isSpace(line[locationStart]))
+            locationStart += 1;
+        int locationEnd = locationStart;
+        while (locationEnd < end && !isSpace(line[locationEnd]))
+            locationEnd += 1;
+
+        boolean reversedLocations = startsWith(locationStart, locationEnd, "complement(join");
+        boolean complement = false;
+        if (startsWith(locationStart, locationEnd, "complement")) {
+            complement = true;
+            locationStart = Math.min(locationStart + 11, locationEnd);
+            locationEnd = Math.max(locationEnd - 1, locationStart);
+            locationEnd = trimEnd(locationStart, locationEnd);
+            locationStart = trimStart(locationStart, locationEnd);
+        }
+
+        flushNoteValue();
+        currentFeature = new DNAFeature();
+        sequence.getFeatures().add(currentFeature);
+        parseLocations(locationStart, locationEnd);
+        if (reversedLocations)
+            Collections.reverse(currentFeature.getLocations());
+
+        currentFeature.setType(new String(line, start, typeEnd - start));
+        currentFeature.setStrand(complement ? -1 : 1);
+        return true;
+    }
+
+    // start..end[,start..end] optionally in join(); single base locations are start..start
+    private void parseLocations(int start, int end) {
+        if (startsWith(start, end, "join")) {
+            start = Math.min(start + 5, end);
+            end = Math.max(end - 1, start);
+            end = trimEnd(start, end);
+            start = trimStart(start, end);
+        }
+
+        int chunkStart = start;
+        while (chunkStart < end) {
+            int chunkEnd = chunkStart;
+            while (chunkEnd < end && line[chunkEnd] != ',')
+                chunkEnd += 1;
+            parseLocation(chunkStart, chunkEnd);
+            chunkStart = chunkEnd + 1;
+        }
+    }
+
+    /**
+     * Uses the first run of digits followed by <code>..</code>, optionally <code>&lt;</code> or <code>&gt;</code>
+     * and another run of digits as the location. If there is none then the first run of digits is used as both the
+     * start and end
+     */
+    private void parseLocation(int start, int end) {
+        int firstDigits = -1;
+        int firstDigitsEnd = -1;
+        int i = start;
+        while (i < end) {
+            if (!isDigit(line[i])) {
+                i += 1;
+                continue;
+            }
+
+            int digitsStart = i;
+            while (i < end && isDigit(line[i]))
+                i += 1;
+            if (firstDigits == -1) {
+                firstDigits = digitsStart;
+                firstDigitsEnd = i;
+            }
+
+            if (i + 1 >= end || line[i] != '.' || line[i + 1] != '.')
+                continue;
+
+            int stopStart = i + 2;
+            while (stopStart < end && (line[stopStart] == '<' || line[stopStart] == '>'))
+                stopStart += 1;
+            int stopEnd = stopStart;
+            while (stopEnd < end && isDigit(line[stopEnd]))
+                stopEnd += 1;
+
+            if (stopEnd > stopStart) {
+                currentFeature.getLocations().add(new DNAFeatureLocation(parseInt(digitsStart, i),
+                        parseInt(stopStart, stopEnd)));
+                return;
+            }
+        }
+
+        if (firstDigits != -1) {
+            int position = parseInt(firstDigits, firstDigitsEnd);
+            currentFeature.getLocations().add(new DNAFeatureLocation(position, position));
+        }
+    }
+
+    /**
+     * e.g. qualifier
+     * <code>
+     * /label = SEC13 or
+     * /locus_tag="PAS_cacsr"
+     * </code>
+     * The value ends at the next <code>=</code> if there is one
+     */
+    private void processQualifier(int start, int end) {
+        flushNoteValue();
+
+        int equals = indexOf(start, end, '=');
+        int valueEnd = equals + 1;
+        while (valueEnd < end && line[valueEnd] == '=')
+            valueEnd += 1;
+        if (valueEnd == end)
+            return;
+
+        valueEnd = indexOf(equals + 1, end, '=');
+        if (valueEnd == -1)
+            valueEnd = end;
+
+        int nameEnd = trimEnd(start, equals);
+        String name = new String(line, start + 1, nameEnd - start - 1);
+        if ("source".equalsIgnoreCase(name) || currentFeature == null)
+            return;
+
+        // starting a new note
+        currentNote = new DNAFeatureNote();
+        currentFeature.getNotes().add(currentNote);
+        currentNote.setName(name);
+
+        valueEnd = trimEnd(equals + 1, valueEnd);
+        int valueStart = trimStart(equals + 1, valueEnd);
+        if (valueStart < valueEnd && line[valueStart] == '"') {
+            valueStart += 1;
+            currentNote.setQuoted(true);
+        }
+
+        if (valueStart < valueEnd && line[valueEnd - 1] == '"')
+            valueEnd -= 1;
+
+        scratch.setLength(0);
+        appendUnescaped(scratch, valueStart, valueEnd);
+        currentNote.setValue(scratch.toString());
+        determineFeatureName();
+    }
+
+    /**
+     * Tries to determine the feature name, from a list of possible qualifier keywords that might
+     * contain it.
+     */
+    private void determineFeatureName() {
+        List<DNAFeatureNote> notes = currentFeature.getNotes();
+        String newLabel = null;
+        DNAFeatureNote label = getFirstNote(notes, LABEL_QUALIFIER);
+
+        if (label == null) {
+            for (String qualifier : QUALIFIERS) {
+                DNAFeatureNote note = getFirstNote(notes, qualifier);
+                if (note != null)
+                    newLabel = note.getValue();
+            }
+            if (newLabel == null)
+                newLabel = currentFeature.getType();
+        } else {
+            newLabel = label.getValue();
+        }
+
+        currentFeature.setName(newLabel);
+    }
+
+    private DNAFeatureNote getFirstNote(List<DNAFeatureNote> notes, String name) {
+        for (DNAFeatureNote note : notes) {
+            if (note.getName().equals(name))
+                return note;
+        }
+        return null;
+    }
+
+    private void flushNoteValue() {
+        if (!noteValuePending)
+            return;
+
+        currentNote.setValue(noteValue.toString());
+        noteValuePending = false;
+    }
+
+    // replaces backslashes with spaces and "" with "
+    private void appendUnescaped(StringBuilder builder, int start, int end) {
+        for (int i = start; i < end; i += 1) {
+            char c = line[i];
+            if (c == '\\') {
+                builder.append(' ');
+            } else {
+                builder.append(c);
+                if (c == '"' && i + 1 < end && line[i + 1] == '"')
+                    i += 1;
+            }
+        }
+    }
+
+    private void ensureLineCapacity(int length) {
+        if (length > line.length) {
+            char[] larger = new char[Math.max(length, line.length * 2)];
+            System.arraycopy(line, 0, larger, 0, line.length);
+            line = larger;
+        }
+    }
+
+    private void ensureBaseCapacity(int length) {
+        if (length > bases.length) {
+            char[] larger = new char[Math.max(length, bases.length + (bases.length >> 1))];
+            System.arraycopy(bases, 0, larger, 0, baseCount);
+            bases = larger;
+        }
+    }
+
+    private int trimStart(int start, int end) {
+        while (start < end && line[start] <= ' ')
+            start += 1;
+        return start;
+    }
+
+    private int trimEnd(int start, int end) {
+        while (end > start && line[end - 1] <= ' ')
+            end -= 1;
+        return end;
+    }
+
+    private boolean startsWith(int start, int end, String prefix) {
+        int length = prefix.length();
+        if (end - start < length)
+            return false;
+
+        for (int i = 0; i < length; i += 1) {
+            if (line[start + i] != prefix.charAt(i))
+                return false;
+        }
+        return true;
+    }
+
+    private boolean equals(int start, int end, String value) {
+        return end - start == value.length() && startsWith(start, end, value);
+    }
+
+    private int indexOf(int start, int end, char c) {
+        for (int i = start; i < end; i += 1) {
+            if (line[i] == c)
+                return i;
+        }
+        return -1;
+    }
+
+    private int indexOf(int start, int end, String value) {
+        for (int i = start; i <= end - value.length(); i += 1) {
+            if (startsWith(i, end, value))
+                return i;
+        }
+        return -1;
+    }
+
+    private boolean isDigits(int start, int end) {
+        for (int i = start; i < end; i += 1) {
+            if (!isDigit(line[i]))
+                return false;
+        }
+        return true;
+    }
+
+    private int parseInt(int start, int end) {
+        int value = 0;
+        for (int i = start; i < end; i += 1)
+            value = value * 10 + (line[i] - '0');
+        return value;
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    // same characters as \s in a regular expression
+    private static boolean isSpace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+    }
+}
@@ -15,7 +15,7 @@ import org.jbei.ice.lib.entry.sequence.SequenceFormat;
 import org.jbei.ice.lib.entry.sequence.SequenceUtil;
 import org.jbei.ice.lib.parsers.AbstractParser;
 import org.jbei.ice.lib.parsers.InvalidFormatParserException;
-import org.jbei.ice.lib.parsers.genbank.GenBankParser;
+import org.jbei.ice.lib.parsers.genbank.StreamingGenBankParser;
 import org.jbei.ice.storage.DAOFactory;
 import org.jbei.ice.storage.ModelToInfoFactory;
 import org.jbei.ice.storage.model.Entry;
@@ -128,7 +128,7 @@ public class SBOLParser extends AbstractParser {
             out.reset();
             SBOLWriter.write(sbolDocument, out, "GENBANK");
             if (out.size() > 0) {
-                GenBankParser parser = new GenBankParser();
+                StreamingGenBankParser parser = new StreamingGenBankParser();
                 dnaSequence = parser.parse(IOUtils.lineIterator(new ByteArrayInputStream(out.toByteArray()), Charset.defaultCharset()));
                 sequence = SequenceUtil.dnaSequenceToSequence(dnaSequence);
             }
@@ -9,6 +9,11 @@ public class IndexBuildStatus implements IDataTransferModel {
 
     private final long done;
     private final long total;
+    private long entitiesLoaded;
+    private long documentsBuilt;
+    private long elapsedSeconds;
+    private double documentsPerSecond;
+    private long etaSeconds = -1;
 
     public IndexBuildStatus(long done, long total) {
         this.done = done;
@@ -22,4 +27,47 @@ public class IndexBuildStatus implements IDataTransferModel {
     public long getTotal() {
         return this.total;
     }
+
+    public long getEntitiesLoaded() {
+        return entitiesLoaded;
+    }
+
+    public void setEntitiesLoaded(long entitiesLoaded) {
+        this.entitiesLoaded = entitiesLoaded;
+    }
+
+    public long getDocumentsBuilt() {
+        return documentsBuilt;
+    }
+
+    public void setDocumentsBuilt(long documentsBuilt) {
+        this.documentsBuilt = documentsBuilt;
+    }
+
+    public long getElapsedSeconds() {
+        return elapsedSeconds;
+    }
+
+    public void setElapsedSeconds(long elapsedSeconds) {
+        this.elapsedSeconds = elapsedSeconds;
+    }
+
+    public double getDocumentsPerSecond() {
+        return documentsPerSecond;
+    }
+
+    public void setDocumentsPerSecond(double documentsPerSecond) {
+        this.documentsPerSecond = documentsPerSecond;
+    }
+
+    /**
+     * @return estimated number of seconds remaining or -1 if it cannot be estimated
+     */
+    public long getEtaSeconds() {
+        return etaSeconds;
+    }
+
+    public void setEtaSeconds(long etaSeconds) {
+        this.etaSeconds = etaSeconds;
+    }
 }
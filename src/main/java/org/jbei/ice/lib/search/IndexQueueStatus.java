@@ -0,0 +1,66 @@
+package org.jbei.ice.lib.search;
+
+import org.jbei.ice.storage.IDataTransferModel;
+
+/**
+ * Metrics for the queues of index changes waiting to be applied asynchronously
+ */
+public class IndexQueueStatus implements IDataTransferModel {
+
+    private int queueDepth;
+    private int pending;
+    private long processedChangeSets;
+    private long processedWorks;
+    private long batches;
+    private long lastBatchMillis;
+    private long failedWorks;
+
+    public void add(int queueDepth, int pending, long processedChangeSets, long processedWorks, long batches,
+                    long lastBatchMillis, long failedWorks) {
+        this.queueDepth += queueDepth;
+        this.pending += pending;
+        this.processedChangeSets += processedChangeSets;
+        this.processedWorks += processedWorks;
+        this.batches += batches;
+        this.lastBatchMillis = Math.max(this.lastBatchMillis, lastBatchMillis);
+        this.failedWorks += failedWorks;
+    }
+
+    /**
+     * @return number of transaction change sets waiting in the queues
+     */
+    public int getQueueDepth() {
+        return queueDepth;
+    }
+
+    /**
+     * @return number of change sets that are queued or being applied
+     */
+    public int getPending() {
+        return pending;
+    }
+
+    public long getProcessedChangeSets() {
+        return processedChangeSets;
+    }
+
+    public long getProcessedWorks() {
+        return processedWorks;
+    }
+
+    public long getBatches() {
+        return batches;
+    }
+
+    public long getLastBatchMillis() {
+        return lastBatchMillis;
+    }
+
+    /**
+     * @return number of index changes that could not be applied since startup. If not 0, the lucene index should
+     * be rebuilt
+     */
+    public long getFailedWorks() {
+        return failedWorks;
+    }
+}
@@ -1,17 +1,30 @@
 package org.jbei.ice.lib.search;
 
 import org.hibernate.search.batchindexing.MassIndexerProgressMonitor;
+import org.jbei.ice.lib.common.logging.Logger;
 
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
 
 /**
+ * Tracks the progress of a lucene index rebuild. Counts are reset when a rebuild is started and when it
+ * completes, so a total of 0 indicates that no rebuild is in progress
+ *
  * @author Hector Plahar
  */
 public class IndexerProgressMonitor implements MassIndexerProgressMonitor {
 
+    private static final long LOG_INTERVAL = TimeUnit.SECONDS.toNanos(30);
+
     private static IndexerProgressMonitor INSTANCE = new IndexerProgressMonitor();
     private final AtomicLong documentsDoneCounter = new AtomicLong();
     private final AtomicLong totalCounter = new AtomicLong();
+    private final AtomicLong entitiesLoadedCounter = new AtomicLong();
+    private final AtomicLong documentsBuiltCounter = new AtomicLong();
+    private final AtomicBoolean running = new AtomicBoolean();
+    private volatile long startTime;
+    private volatile long lastLogTime;
 
     private IndexerProgressMonitor() {
     }
@@ -20,11 +33,27 @@ public class IndexerProgressMonitor implements MassIndexerProgressMonitor {
         return INSTANCE;
     }
 
+    /**
+     * Resets the counters for a new rebuild
+     *
+     * @return false if a rebuild is already in progress
+     */
+    public boolean indexingStarted() {
+        if (!running.compareAndSet(false, true))
+            return false;
+
+        reset();
+        startTime = System.nanoTime();
+        lastLogTime = startTime;
+        return true;
+    }
+
     @Override
     /**
      * {@inheritDoc}
      */
     public void documentsBuilt(int number) {
+        documentsBuiltCounter.addAndGet(number);
     }
 
     @Override
@@ -32,7 +61,7 @@ public class IndexerProgressMonitor implements MassIndexerProgressMonitor {
      * {@inheritDoc}
      */
     public void entitiesLoaded(int size) {
-        // ignore
+        entitiesLoadedCounter.addAndGet(size);
     }
 
     @Override
@@ -48,8 +77,11 @@ public class IndexerProgressMonitor implements MassIndexerProgressMonitor {
      * {@inheritDoc}
      */
     public void indexingCompleted() {
-        documentsDoneCounter.set(0l);
-        totalCounter.set(0l);
+        IndexBuildStatus status = getStatus();
+        Logger.info("Lucene rebuild indexed " + status.getDone() + " documents in " + status.getElapsedSeconds()
+                + "s");
+        reset();
+        running.set(false);
     }
 
     @Override
@@ -58,13 +90,45 @@ public class IndexerProgressMonitor implements MassIndexerProgressMonitor {
      */
     public void documentsAdded(long increment) {
         documentsDoneCounter.getAndAdd(increment);
+
+        long now = System.nanoTime();
+        long last = lastLogTime;
+        if (now - last >= LOG_INTERVAL && running.get()) {
+            lastLogTime = now;
+            IndexBuildStatus status = getStatus();
+            Logger.info("Lucene rebuild: " + status.getDone() + "/" + status.getTotal() + " documents ("
+                    + Math.round(status.getDocumentsPerSecond()) + "/s, eta " + status.getEtaSeconds() + "s)");
+        }
     }
 
     public void indexingInterrupted() {
-
+        reset();
+        running.set(false);
     }
 
     public IndexBuildStatus getStatus() {
-        return new IndexBuildStatus(documentsDoneCounter.get(), totalCounter.get());
+        long done = documentsDoneCounter.get();
+        long total = totalCounter.get();
+        IndexBuildStatus status = new IndexBuildStatus(done, total);
+        status.setEntitiesLoaded(entitiesLoadedCounter.get());
+        status.setDocumentsBuilt(documentsBuiltCounter.get());
+        if (!running.get() || total == 0)
+            return status;
+
+        long elapsed = System.nanoTime() - startTime;
+        status.setElapsedSeconds(TimeUnit.NANOSECONDS.toSeconds(elapsed));
+        if (done > 0 && elapsed > 0) {
+            double rate = done * (double) TimeUnit.SECONDS.toNanos(1) / elapsed;
+            status.setDocumentsPerSecond(rate);
+            status.setEtaSeconds(Math.round(Math.max(0, total - done) / rate));
+        }
+        return status;
+    }
+
+    private void reset() {
+        documentsDoneCounter.set(0L);
+        totalCounter.set(0L);
+        entitiesLoadedCounter.set(0L);
+        documentsBuiltCounter.set(0L);
     }
 }
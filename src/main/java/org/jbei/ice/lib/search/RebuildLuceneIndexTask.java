@@ -1,15 +1,19 @@
 package org.jbei.ice.lib.search;
 
+import org.hibernate.CacheMode;
 import org.hibernate.Session;
 import org.hibernate.search.FullTextSession;
 import org.hibernate.search.MassIndexer;
 import org.hibernate.search.Search;
 import org.jbei.ice.lib.common.logging.Logger;
+import org.jbei.ice.lib.dto.ConfigurationKey;
 import org.jbei.ice.lib.executor.Task;
+import org.jbei.ice.lib.utils.Utils;
 import org.jbei.ice.storage.hibernate.HibernateUtil;
 
 /**
- * Task to rebuild lucene index
+ * Task to rebuild lucene index. The number of loader threads, the batch size for loading entities, the id fetch
+ * size and the cache mode are read from the <code>LUCENE_INDEXER_*</code> configuration values
  *
  * @author Hector Plahar
  */
@@ -17,19 +21,69 @@ public class RebuildLuceneIndexTask extends Task {
 
     @Override
     public void execute() {
-        Logger.info("Rebuilding lucene index in background");
-        Session session = HibernateUtil.newSession();
-        FullTextSession fullTextSession = Search.getFullTextSession(session);
-        MassIndexer indexer = fullTextSession.createIndexer();
-        indexer.idFetchSize(20);
-        indexer.progressMonitor(IndexerProgressMonitor.getInstance());
-
+        IndexerProgressMonitor monitor = IndexerProgressMonitor.getInstance();
+        boolean started = false;
+        boolean completed = false;
+        FullTextSession fullTextSession = null;
         try {
+            started = monitor.indexingStarted();
+            if (!started) {
+                Logger.warn("Lucene index rebuild already in progress");
+                return;
+            }
+
+            int threads = getIntValue(ConfigurationKey.LUCENE_INDEXER_THREADS);
+            int batchSize = getIntValue(ConfigurationKey.LUCENE_INDEXER_BATCH_SIZE);
+            int idFetchSize = getIntValue(ConfigurationKey.LUCENE_INDEXER_ID_FETCH_SIZE);
+            CacheMode cacheMode = getCacheMode();
+            Logger.info("Rebuilding lucene index in background (threads: " + threads + ", batch size: " + batchSize
+                    + ", id fetch size: " + idFetchSize + ", cache mode: " + cacheMode + ")");
+
+            Session session = HibernateUtil.newSession();
+            fullTextSession = Search.getFullTextSession(session);
+            MassIndexer indexer = fullTextSession.createIndexer()
+                    .threadsToLoadObjects(threads)
+                    .batchSizeToLoadObjects(batchSize)
+                    .idFetchSize(idFetchSize)
+                    .cacheMode(cacheMode)
+                    .progressMonitor(monitor);
+
             indexer.startAndWait();
+            completed = true;
+            Logger.info("Lucene rebuild complete");
         } catch (InterruptedException e) {
-            Thread.interrupted();
+            Thread.currentThread().interrupt();
+            Logger.warn("Lucene rebuild interrupted");
+        } catch (RuntimeException e) {
+            Logger.error("Lucene rebuild failed", e);
+        } finally {
+            if (fullTextSession != null)
+                fullTextSession.close();
+            // the monitor clears the flag once indexing completes
+            if (started && !completed)
+                monitor.indexingInterrupted();
+        }
+    }
+
+    private int getIntValue(ConfigurationKey key) {
+        String value = Utils.getConfigValue(key);
+        try {
+            int intValue = Integer.parseInt(value.trim());
+            if (intValue > 0)
+                return intValue;
+        } catch (NumberFormatException e) {
+            Logger.warn("Invalid value \"" + value + "\" for " + key);
+        }
+        return Integer.parseInt(key.getDefaultValue());
+    }
+
+    private CacheMode getCacheMode() {
+        String value = Utils.getConfigValue(ConfigurationKey.LUCENE_INDEXER_CACHE_MODE);
+        try {
+            return CacheMode.valueOf(value.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            Logger.warn("Invalid lucene indexer cache mode \"" + value + "\"");
+            return CacheMode.IGNORE;
         }
-        fullTextSession.close();
-        Logger.info("Lucene rebuild complete");
     }
 }
@@ -7,11 +7,15 @@ import org.jbei.ice.lib.common.logging.Logger;
 import org.jbei.ice.lib.dto.search.*;
 import org.jbei.ice.lib.executor.IceExecutorService;
 import org.jbei.ice.lib.search.blast.BlastException;
+import org.jbei.ice.lib.search.blast.BlastExecutionStatus;
+import org.jbei.ice.lib.search.blast.BlastExecutor;
 import org.jbei.ice.lib.search.blast.BlastPlus;
+import org.jbei.ice.lib.search.blast.FeaturesBlastDatabase;
 import org.jbei.ice.lib.search.blast.StandardBlastDatabase;
+import org.jbei.ice.storage.hibernate.search.AsyncIndexingBackend;
 import org.jbei.ice.storage.hibernate.search.HibernateSearch;
 
-import java.util.HashMap;
+import java.util.*;
 
 /**
  * Controller for running searches on the ice platform
@@ -20,6 +24,8 @@ import java.util.HashMap;
  */
 public class SearchIndexes {
 
+    private static final int ITERATOR_BATCH_SIZE = 1000;
+
     /**
      * Executes search using parameters specified in the query.
      *
@@ -27,23 +33,18 @@ public class SearchIndexes {
      *               registries
      * @param query  wrapper around search query
      * @return wrapper around the list of search results
+     * @throws org.jbei.ice.storage.hibernate.search.InvalidCursorException if the query cursor is invalid
      */
     public SearchResults runSearch(String userId, SearchQuery query) {
         String queryString = query.getQueryString();
-        HashMap<String, SearchResult> blastResults = null;
+        HashMap<String, SearchResult> blastResults;
 
         // check if there is a blast result and run first
-        if (query.hasBlastQuery()) {
-            if (query.getBlastQuery().getBlastProgram() == null)
-                query.getBlastQuery().setBlastProgram(BlastProgram.BLAST_N);
-
-            try {
-                StandardBlastDatabase blastDatabase = StandardBlastDatabase.getInstance();
-                blastResults = blastDatabase.runBlast(query.getBlastQuery());
-            } catch (BlastException e) {
-                Logger.error("Exception running blast " + e.getMessage());
-                return null;
-            }
+        try {
+            blastResults = runBlast(query);
+        } catch (BlastException e) {
+            Logger.error("Exception running blast " + e.getMessage());
+            return null;
         }
 
         // if no other search query or filter and there are blast results (not null) then return the blast results
@@ -53,7 +54,8 @@ public class SearchIndexes {
 
             int start = query.getParameters().getStart();
             int count = query.getParameters().getRetrieveCount();
-            return HibernateSearch.getInstance().filterBlastResults(userId, start, count, query, blastResults);
+            return HibernateSearch.getInstance().filterBlastResults(userId, start, count,
+                    StandardBlastDatabase.getMaxHits(), query, blastResults);
         }
 
         // text query (may also include blast)
@@ -68,6 +70,56 @@ public class SearchIndexes {
         }
     }
 
+    /**
+     * Iterates over the ids of all entries matching the search query, ignoring the paging parameters.
+     * Intended for bulk operations on search results such as exports and adding to folders. Hits are retrieved
+     * in batches as the iterator is consumed so it must be consumed within the current transaction
+     *
+     * @param userId unique user identifier making the request
+     * @param query  wrapper around search query
+     * @return iterator over ids of all matching entries, in search result order
+     */
+    public Iterator<Long> iterateSearchResults(String userId, SearchQuery query) {
+        HashMap<String, SearchResult> blastResults;
+        try {
+            blastResults = runBlast(query);
+        } catch (BlastException e) {
+            Logger.error("Exception running blast " + e.getMessage());
+            return Collections.emptyIterator();
+        }
+
+        HibernateSearch hibernateSearch = HibernateSearch.getInstance();
+        String queryString = query.getQueryString();
+        if (StringUtils.isEmpty(queryString) && blastResults != null && !query.hasFilter()) {
+            if (blastResults.isEmpty())
+                return Collections.emptyIterator();
+
+            // filtering removes the results the user cannot read
+            hibernateSearch.filterBlastResults(userId, 0, 0, StandardBlastDatabase.getMaxHits(), query,
+                    blastResults);
+            List<Long> ids = new ArrayList<>(blastResults.size());
+            for (String id : blastResults.keySet()) {
+                ids.add(Long.decode(id));
+            }
+            return ids.iterator();
+        }
+
+        HashMap<String, QueryType> terms = parseQueryString(queryString);
+        return hibernateSearch.iterateEntryIds(userId, terms, query, blastResults, ITERATOR_BATCH_SIZE);
+    }
+
+    // runs the blast query (if any). returns null if there is no blast query
+    private HashMap<String, SearchResult> runBlast(SearchQuery query) throws BlastException {
+        if (!query.hasBlastQuery())
+            return null;
+
+        if (query.getBlastQuery().getBlastProgram() == null)
+            query.getBlastQuery().setBlastProgram(BlastProgram.BLAST_N);
+
+        StandardBlastDatabase blastDatabase = StandardBlastDatabase.getInstance();
+        return blastDatabase.runBlast(query.getBlastQuery());
+    }
+
     /**
      * Rebuilds the search indices. Admin privileges required
      *
@@ -113,6 +165,37 @@ public class SearchIndexes {
         }
     }
 
+    /**
+     * Retrieves metrics for the queue of index changes waiting to be applied to the lucene indexes.
+     * Admin privileges required
+     *
+     * @param userId unique identifier for user making request
+     * @return queue status
+     * @throws PermissionException if requesting user does not have administrative privileges
+     */
+    public IndexQueueStatus getIndexQueueStatus(String userId) {
+        if (!new AccountController().isAdministrator(userId))
+            throw new PermissionException("Administrative privileges required to perform this action");
+        return AsyncIndexingBackend.getStatus();
+    }
+
+    /**
+     * Retrieves metrics for the execution of blast searches and the caches of their results. Admin privileges
+     * required
+     *
+     * @param userId unique identifier for user making request
+     * @return blast execution status
+     * @throws PermissionException if requesting user does not have administrative privileges
+     */
+    public BlastExecutionStatus getBlastExecutionStatus(String userId) {
+        if (!new AccountController().isAdministrator(userId))
+            throw new PermissionException("Administrative privileges required to perform this action");
+        BlastExecutionStatus status = BlastExecutor.getInstance().getStatus();
+        StandardBlastDatabase.getInstance().addCacheStatistics(status);
+        FeaturesBlastDatabase.addCacheStatistics(status);
+        return status;
+    }
+
     /**
      * Parses the query string checking for terms and phrases. A quote is used to indicate
      * the boundaries of a phrase
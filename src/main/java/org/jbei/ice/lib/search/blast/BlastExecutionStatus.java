@@ -0,0 +1,160 @@
+package org.jbei.ice.lib.search.blast;
+
+import org.jbei.ice.storage.IDataTransferModel;
+
+/**
+ * Metrics for the execution of blast searches
+ */
+public class BlastExecutionStatus implements IDataTransferModel {
+
+    private int maxConcurrent;
+    private int maxQueued;
+    private int threadsPerSearch;
+    private int running;
+    private int queued;
+    private long completed;
+    private long rejected;
+    private long timedOut;
+    private long failed;
+    private long averageMillis;
+    private long maxMillis;
+    private long averageWaitMillis;
+    private int cachedResults;
+    private long cacheHits;
+    private long cacheMisses;
+
+    public void addCache(int cachedResults, long cacheHits, long cacheMisses) {
+        this.cachedResults += cachedResults;
+        this.cacheHits += cacheHits;
+        this.cacheMisses += cacheMisses;
+    }
+
+    public int getMaxConcurrent() {
+        return maxConcurrent;
+    }
+
+    public void setMaxConcurrent(int maxConcurrent) {
+        this.maxConcurrent = maxConcurrent;
+    }
+
+    public int getMaxQueued() {
+        return maxQueued;
+    }
+
+    public void setMaxQueued(int maxQueued) {
+        this.maxQueued = maxQueued;
+    }
+
+    public int getThreadsPerSearch() {
+        return threadsPerSearch;
+    }
+
+    public void setThreadsPerSearch(int threadsPerSearch) {
+        this.threadsPerSearch = threadsPerSearch;
+    }
+
+    /**
+     * @return number of blast processes running
+     */
+    public int getRunning() {
+        return running;
+    }
+
+    public void setRunning(int running) {
+        this.running = running;
+    }
+
+    /**
+     * @return number of searches waiting for a slot
+     */
+    public int getQueued() {
+        return queued;
+    }
+
+    public void setQueued(int queued) {
+        this.queued = queued;
+    }
+
+    public long getCompleted() {
+        return completed;
+    }
+
+    public void setCompleted(long completed) {
+        this.completed = completed;
+    }
+
+    /**
+     * @return number of searches rejected because too many were waiting
+     */
+    public long getRejected() {
+        return rejected;
+    }
+
+    public void setRejected(long rejected) {
+        this.rejected = rejected;
+    }
+
+    /**
+     * @return number of searches that did not complete (or start) before their deadline
+     */
+    public long getTimedOut() {
+        return timedOut;
+    }
+
+    public void setTimedOut(long timedOut) {
+        this.timedOut = timedOut;
+    }
+
+    public long getFailed() {
+        return failed;
+    }
+
+    public void setFailed(long failed) {
+        this.failed = failed;
+    }
+
+    /**
+     * @return average run time of completed searches, in milliseconds
+     */
+    public long getAverageMillis() {
+        return averageMillis;
+    }
+
+    public void setAverageMillis(long averageMillis) {
+        this.averageMillis = averageMillis;
+    }
+
+    public long getMaxMillis() {
+        return maxMillis;
+    }
+
+    public void setMaxMillis(long maxMillis) {
+        this.maxMillis = maxMillis;
+    }
+
+    /**
+     * @return average time searches waited for a slot, in milliseconds
+     */
+    public long getAverageWaitMillis() {
+        return averageWaitMillis;
+    }
+
+    public void setAverageWaitMillis(long averageWaitMillis) {
+        this.averageWaitMillis = averageWaitMillis;
+    }
+
+    /**
+     * @return number of search results in the result caches
+     */
+    public int getCachedResults() {
+        return cachedResults;
+    }
+
+    public long getCacheHits() {
+        return cacheHits;
+    }
+
+    public long getCacheMisses() {
+        return cacheMisses;
+    }
+}
@@ -0,0 +1,235 @@
+package org.jbei.ice.lib.search.blast;
+
+import org.jbei.ice.lib.dto.ConfigurationKey;
+import org.jbei.ice.lib.utils.Utils;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Limits the number of blast processes that run at the same time. A search waits (in order of arrival) for one
+ * of the <code>BLAST_MAX_CONCURRENT_SEARCHES</code> slots and is rejected if <code>BLAST_MAX_QUEUED_SEARCHES</code>
+ * searches are already waiting. Each search has a deadline of <code>BLAST_SEARCH_TIMEOUT</code> seconds from when
+ * it arrives, after which its process is killed, and is allocated an equal share of the available cores as blast
+ * threads. Other blast processes (e.g. <code>makeblastdb</code>) also run in a slot, see {@link #acquireForTask()}.
+ * <p>
+ * The settings are read again each time the executor is retrieved with {@link #getInstance()}, so changes apply
+ * to subsequent searches without a restart. Also keeps the metrics reported by {@link #getStatus()}
+ */
+public class BlastExecutor {
+
+    private static BlastExecutor INSTANCE;
+
+    private final Slots slots;
+    private final int processors;
+    private volatile int maxConcurrent;
+    private volatile int maxQueued;
+    private volatile long timeoutMillis;
+    private volatile int threadsPerSearch;
+
+    private final AtomicInteger running = new AtomicInteger();
+    private final AtomicInteger queued = new AtomicInteger();
+    private final AtomicLong completed = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong timedOut = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong totalMillis = new AtomicLong();
+    private final AtomicLong maxMillis = new AtomicLong();
+    private final AtomicLong totalWaitMillis = new AtomicLong();
+
+    BlastExecutor(int maxConcurrent, int maxQueued, long timeoutMillis, int processors) {
+        this.processors = processors;
+        this.maxConcurrent = Math.max(1, maxConcurrent);
+        this.slots = new Slots(this.maxConcurrent);
+        configure(maxConcurrent, maxQueued, timeoutMillis);
+    }
+
+    /**
+     * @return executor, configured with the current settings
+     */
+    public static synchronized BlastExecutor getInstance() {
+        int maxConcurrent = getIntValue(ConfigurationKey.BLAST_MAX_CONCURRENT_SEARCHES);
+        int maxQueued = getIntValue(ConfigurationKey.BLAST_MAX_QUEUED_SEARCHES);
+        long timeout = TimeUnit.SECONDS.toMillis(getIntValue(ConfigurationKey.BLAST_SEARCH_TIMEOUT));
+        if (INSTANCE == null)
+            INSTANCE = new BlastExecutor(maxConcurrent, maxQueued, timeout, Runtime.getRuntime().availableProcessors());
+        else
+            INSTANCE.configure(maxConcurrent, maxQueued, timeout);
+        return INSTANCE;
+    }
+
+    /**
+     * Changes the settings. Processes already running are not affected; if the number of slots is reduced, new
+     * processes wait until enough running ones have completed
+     *
+     * @param maxConcurrent maximum number of blast processes that may run at the same time
+     * @param maxQueued     maximum number of searches that may wait for a slot
+     * @param timeoutMillis time a search may take, including waiting for a slot
+     */
+    synchronized void configure(int maxConcurrent, int maxQueued, long timeoutMillis) {
+        maxConcurrent = Math.max(1, maxConcurrent);
+        if (maxConcurrent > this.maxConcurrent)
+            slots.release(maxConcurrent - this.maxConcurrent);
+        else if (maxConcurrent < this.maxConcurrent)
+            slots.reducePermits(this.maxConcurrent - maxConcurrent);
+        this.maxConcurrent = maxConcurrent;
+        this.maxQueued = Math.max(0, maxQueued);
+        this.timeoutMillis = timeoutMillis;
+        this.threadsPerSearch = Math.max(1, processors / maxConcurrent);
+    }
+
+    /**
+     * Waits for a slot to run a blast process
+     *
+     * @return permit for the slot, which must be released once the process has completed
+     * @throws BlastException if too many searches are waiting, or a slot does not become available before the
+     *                        deadline of the search
+     */
+    Permit acquire() throws BlastException {
+        long start = System.currentTimeMillis();
+        if (!slots.tryAcquire()) {
+            if (queued.incrementAndGet() > maxQueued) {
+                queued.decrementAndGet();
+                rejected.incrementAndGet();
+                throw new BlastException("Too many blast searches in progress. Please try again later");
+            }
+
+            try {
+                if (!slots.tryAcquire(timeoutMillis, TimeUnit.MILLISECONDS)) {
+                    timedOut.incrementAndGet();
+                    throw new BlastException(new ProgramTookTooLongException("Timed out waiting to run blast"));
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new BlastException(e);
+            } finally {
+                queued.decrementAndGet();
+            }
+        }
+
+        running.incrementAndGet();
+        totalWaitMillis.addAndGet(System.currentTimeMillis() - start);
+        return new Permit(start + timeoutMillis, true);
+    }
+
+    /**
+     * Waits for a slot to run a blast process that is not a search (e.g. formatting a database), which is not
+     * subject to the queue limit or the search timeout and is not included in the search metrics
+     *
+     * @return permit for the slot, which must be released once the process has completed
+     * @throws BlastException if interrupted while waiting
+     */
+    Permit acquireForTask() throws BlastException {
+        try {
+            slots.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new BlastException(e);
+        }
+        return new Permit(Long.MAX_VALUE, false);
+    }
+
+    /**
+     * @return number of threads each blast process should use
+     */
+    int getThreadsPerSearch() {
+        return threadsPerSearch;
+    }
+
+    /**
+     * @return current metrics
+     */
+    public BlastExecutionStatus getStatus() {
+        BlastExecutionStatus status = new BlastExecutionStatus();
+        status.setMaxConcurrent(maxConcurrent);
+        status.setMaxQueued(maxQueued);
+        status.setThreadsPerSearch(threadsPerSearch);
+        status.setRunning(running.get());
+        status.setQueued(queued.get());
+        long count = completed.get();
+        status.setCompleted(count);
+        status.setRejected(rejected.get());
+        status.setTimedOut(timedOut.get());
+        status.setFailed(failed.get());
+        status.setMaxMillis(maxMillis.get());
+        if (count > 0)
+            status.setAverageMillis(totalMillis.get() / count);
+        long started = count + timedOut.get() + failed.get() + running.get();
+        if (started > 0)
+            status.setAverageWaitMillis(totalWaitMillis.get() / started);
+        return status;
+    }
+
+    /**
+     * Slot for running a blast process. The outcome of the search is recorded when the permit is released
+     */
+    class Permit {
+
+        private final long deadline;
+        private final boolean search;
+        private final long start = System.currentTimeMillis();
+        private boolean success;
+        private boolean expired;
+
+        private Permit(long deadline, boolean search) {
+            this.deadline = deadline;
+            this.search = search;
+        }
+
+        /**
+         * @return time (in milliseconds since the epoch) by which the search must complete
+         */
+        long getDeadline() {
+            return deadline;
+        }
+
+        void completed() {
+            success = true;
+        }
+
+        void timedOut() {
+            expired = true;
+        }
+
+        void release() {
+            slots.release();
+            if (!search)
+                return;
+
+            long millis = System.currentTimeMillis() - start;
+            if (success) {
+                completed.incrementAndGet();
+                totalMillis.addAndGet(millis);
+                maxMillis.accumulateAndGet(millis, Math::max);
+            } else if (expired) {
+                timedOut.incrementAndGet();
+            } else {
+                failed.incrementAndGet();
+            }
+            running.decrementAndGet();
+        }
+    }
+
+    // semaphore whose number of permits can be reduced when the maximum number of processes is lowered
+    private static class Slots extends Semaphore {
+
+        Slots(int permits) {
+            super(permits, true);
+        }
+
+        @Override
+        protected void reducePermits(int reduction) {
+            super.reducePermits(reduction);
+        }
+    }
+
+    private static int getIntValue(ConfigurationKey key) {
+        try {
+            return Integer.parseInt(Utils.getConfigValue(key).trim());
+        } catch (NumberFormatException e) {
+            return Integer.parseInt(key.getDefaultValue());
+        }
+    }
+}
@@ -3,24 +3,21 @@ package org.jbei.ice.lib.search.blast;
 import org.apache.commons.io.FileUtils;
 import org.jbei.ice.lib.common.logging.Logger;
 
-import java.io.File;
-import java.io.FileOutputStream;
-import java.io.IOException;
+import java.io.*;
 import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.*;
-import java.util.stream.Stream;
 
 /**
- * Fasta file containing all sequences used to create the blast database
- *
- * @author Hector Plahar
+ * Fasta file containing all sequences used to create the blast database. Records are written, and copied when a
+ * record is deleted, through a single buffered stream rather than by reopening the file for each line
  */
 public class BlastFastaFile {
 
     private final static String FILE_NAME = "BlastFastaFile";
     private static final String LOCK_FILE_NAME = "write.lock";
+    private static final int BUFFER_SIZE = 64 * 1024;
     private final Path filePath;
-    private boolean exclude;
     private FileLock lock;
 
     /**
@@ -31,7 +28,6 @@ public class BlastFastaFile {
             throw new IllegalArgumentException("Cannot create fasta file in " + dir + " because it is not a directory");
 
         this.filePath = Paths.get(dir.toString(), FILE_NAME);
-        this.exclude = false;
     }
 
     public Path getFilePath() {
@@ -101,7 +97,15 @@ public class BlastFastaFile {
             if (lock == null)
                 return false;
 
-            Files.write(this.filePath, iterable, StandardOpenOption.APPEND);
+            try (Writer writer = new BufferedWriter(new OutputStreamWriter(Files.newOutputStream(this.filePath,
+                    StandardOpenOption.APPEND), StandardCharsets.UTF_8), BUFFER_SIZE)) {
+                for (String value : iterable) {
+                    if (value == null)
+                        continue;
+                    writer.write(value);
+                    writer.write("\n");
+                }
+            }
             return true;
         } catch (IOException e) {
             Logger.error(e);
@@ -111,6 +115,12 @@ public class BlastFastaFile {
         }
     }
 
+    /**
+     * Removes the records for a part by copying the other records to a new file, which then replaces this one
+     *
+     * @param partNumber part number of the records to remove (the fourth field of the fasta header)
+     * @throws IOException on exception copying the records
+     */
     public void delete(String partNumber) throws IOException {
         File lockFile = createLock();
         if (lockFile == null)
@@ -118,31 +128,25 @@ public class BlastFastaFile {
 
         try {
             Path tmpFile = Paths.get(filePath.getParent().toString(), FILE_NAME + ".tmp");
-            Files.deleteIfExists(tmpFile);
-            Files.createFile(tmpFile);
-            if (!Files.exists(tmpFile))
-                throw new IOException(tmpFile + " could not be created");
-
-            Stream<String> lines = Files.lines(this.filePath);
-
-            lines.forEach(line -> {
-
-                if (line.startsWith(">")) {
-                    String[] split = line.split(",");
-                    if (split.length != 4)
-                        return;
-
-                    exclude = split[3].trim().equalsIgnoreCase(partNumber.trim());
-                }
-
-                if (exclude) return;
-
-                try {
-                    Files.write(tmpFile, (line + "\n").getBytes(), StandardOpenOption.APPEND);
-                } catch (IOException e) {
-                    Logger.error(e);
+            boolean exclude = false;
+            try (BufferedReader reader = Files.newBufferedReader(this.filePath, StandardCharsets.UTF_8);
+                 Writer writer = new BufferedWriter(new OutputStreamWriter(Files.newOutputStream(tmpFile),
+                         StandardCharsets.UTF_8), BUFFER_SIZE)) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    if (line.startsWith(">")) {
+                        String[] split = line.split(",");
+                        if (split.length == 4)
+                            exclude = split[3].trim().equalsIgnoreCase(partNumber.trim());
+                    }
+
+                    if (exclude)
+                        continue;
+
+                    writer.write(line);
+                    writer.write("\n");
                 }
-            });
+            }
             Files.move(tmpFile, filePath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
         } finally {
             releaseLock(lockFile);
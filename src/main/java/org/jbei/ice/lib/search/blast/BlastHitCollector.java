@@ -0,0 +1,129 @@
+package org.jbei.ice.lib.search.blast;
+
+import com.opencsv.CSVParser;
+import org.jbei.ice.lib.common.logging.Logger;
+import org.jbei.ice.lib.dto.entry.EntryType;
+import org.jbei.ice.lib.dto.entry.PartData;
+import org.jbei.ice.lib.dto.search.SearchResult;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.function.Predicate;
+
+/**
+ * Collects the hits of a blast search against the standard blast database, one line of blast output at a time.
+ * Only the first (best) hit for each entry is kept and hits for sequences that have since been updated or deleted
+ * are ignored. The number of hits is not limited here since hits are shared by all users; the maximum number of
+ * hits is applied once the hits the user cannot read have been filtered out.
+ * <p>
+ * Each line is expected to be the subject title followed by
+ * <code>qstart qend sstart send sstrand evalue bitscore score length nident</code>. The subject title (fasta
+ * header) fields are <code>id, recordType, name, partNumber, volume</code> where the name may itself contain the
+ * delimiter, and the volume is absent for databases formatted before the database was sharded
+ */
+class BlastHitCollector implements Predicate<String> {
+
+    static final String VOLUME_PREFIX = "v";
+    // number of fields (following the subject title) in the blast output
+    private static final int OUTPUT_FIELDS = 10;
+    private static final String DELIMITER = ",";
+
+    private final CSVParser parser = new CSVParser();
+    private final LinkedHashMap<String, SearchResult> results = new LinkedHashMap<>();
+    private final BlastShards shards;
+    private final int queryLength;
+
+    BlastHitCollector(BlastShards shards, int queryLength) {
+        this.shards = shards;
+        this.queryLength = queryLength;
+    }
+
+    /**
+     * Processes a line of blast output
+     *
+     * @param line blast output for a single hit
+     * @return true, to continue processing output
+     */
+    @Override
+    public boolean test(String line) {
+        String[] fields;
+        try {
+            fields = parser.parseLine(line);
+        } catch (Exception e) {
+            Logger.error("Could not parse blast output: " + line, e);
+            return true;
+        }
+
+        if (fields.length <= OUTPUT_FIELDS + 2)
+            return true;
+
+        // entry id is the first field; check for an existing (better) hit before parsing the rest
+        String idString = fields[0].trim();
+        if (results.containsKey(idString))
+            return true;
+
+        SearchResult info = parseBlastOutputLine(fields);
+        if (info == null)
+            return true;
+
+        // ignore hits for sequences that have since been updated or deleted
+        if (!shards.isCurrent(info.getEntryInfo().getId(), getVolume(fields)))
+            return true;
+
+        info.setQueryLength(queryLength);
+        results.put(idString, info);
+        return true;
+    }
+
+    /**
+     * @return entry id to hit, in the order output by blast
+     */
+    LinkedHashMap<String, SearchResult> getResults() {
+        return results;
+    }
+
+    /**
+     * Parses a blast output that represents a single hit
+     *
+     * @param line blast output fields for hit
+     * @return object wrapper around details of the hit
+     */
+    private static SearchResult parseBlastOutputLine(String[] line) {
+        try {
+            int titleFields = line.length - OUTPUT_FIELDS;
+            int nameEnd = getVolume(line) >= 0 ? titleFields - 2 : titleFields - 1;
+
+            // extract part information
+            PartData view = new PartData(EntryType.nameToType(line[1]));
+            view.setId(Long.decode(line[0].trim()));
+            view.setName(String.join(DELIMITER, Arrays.copyOfRange(line, 2, nameEnd)));
+            view.setPartId(line[nameEnd]);
+
+            //search result object
+            SearchResult searchResult = new SearchResult();
+            searchResult.setEntryInfo(view);
+            searchResult.seteValue(line[titleFields + 5]);
+            searchResult.setScore(Float.parseFloat(line[titleFields + 7].trim()));
+            searchResult.setAlignment(line[titleFields + 9]);
+            searchResult.setQueryLength(Integer.parseInt(line[titleFields + 8].trim()));
+            searchResult.setNident(Integer.parseInt(line[titleFields + 9].trim()));
+            return searchResult;
+        } catch (Exception e) {
+            Logger.error(e);
+            return null;
+        }
+    }
+
+    // volume number from the subject title of a hit, or -1 if the title does not have one
+    private static int getVolume(String[] line) {
+        int index = line.length - OUTPUT_FIELDS - 1;
+        if (index < 4 || !line[index].startsWith(VOLUME_PREFIX))
+            return -1;
+
+        try {
+            return Integer.parseInt(line[index].substring(VOLUME_PREFIX.length()));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+}
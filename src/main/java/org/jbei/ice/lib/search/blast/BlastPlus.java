@@ -13,6 +13,7 @@ import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Enables (command line) interaction with BLAST+
@@ -31,16 +32,20 @@ public class BlastPlus {
      * Run the bl2seq program on multiple subjects.
      * <p>
      * This method requires disk space write temporary files. It tries to clean up after itself.
+     * Blast runs in a slot of the {@link BlastExecutor} and is killed if it does not complete by the deadline
      *
      * @param query   reference sequence.
      * @param subject query sequence.
      * @return List of output string from bl2seq program.
-     * @throws BlastException on exception running blast 2 seq
+     * @throws BlastException on exception running blast 2 seq, if too many searches are in progress or if blast
+     *                        does not complete by the deadline
      */
     public List<Bl2SeqResult> runBlast2Seq(String query, String subject) throws BlastException {
+        List<Path> files = new ArrayList<>();
         try {
-            Path queryFilePath = Files.write(Files.createTempFile("query-", ".seq"), query.getBytes());
-            Path subjectFilePath = Files.write(Files.createTempFile("subject-", ".seq"), subject.getBytes());
+            Path queryFilePath = Files.write(createTempFile(files, "query-", ".seq"), query.getBytes());
+            Path subjectFilePath = Files.write(createTempFile(files, "subject-", ".seq"), subject.getBytes());
+            Path outputFilePath = createTempFile(files, "bl2seq-", ".out");
 
             String blastN = Utils.getConfigValue(ConfigurationKey.BLAST_INSTALL_DIR) + File.separator
                     + BlastProgram.BLAST_N.getName();
@@ -50,12 +55,32 @@ public class BlastPlus {
                     "-outfmt", "10 score qstart qend qseq sstart send sseq sstrand"
             };
 
-            Process process = Runtime.getRuntime().exec(command);
-            BufferedReader input = new BufferedReader(new InputStreamReader(process.getInputStream()));
-            String line;
+            // output is written to a file so the process can be waited on with a deadline
+            BlastExecutor.Permit permit = BlastExecutor.getInstance().acquire();
+            Process process = null;
+            try {
+                process = new ProcessBuilder(command)
+                        .redirectOutput(outputFilePath.toFile())
+                        .redirectError(createTempFile(files, "bl2seq-", ".err").toFile())
+                        .start();
+                if (!process.waitFor(Math.max(1, permit.getDeadline() - System.currentTimeMillis()),
+                        TimeUnit.MILLISECONDS)) {
+                    permit.timedOut();
+                    throw new BlastException(new ProgramTookTooLongException("bl2seq did not complete before the "
+                            + "deadline"));
+                }
+                permit.completed();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new BlastException(e);
+            } finally {
+                if (process != null && process.isAlive())
+                    process.destroyForcibly();
+                permit.release();
+            }
 
             List<Bl2SeqResult> results = new ArrayList<>();
-            while ((line = input.readLine()) != null) {
+            for (String line : Files.readAllLines(outputFilePath)) {
                 String[] data = line.split(",");
                 if (data.length != 8) {
                     Logger.error("Invalid bl2seq result line obtained. skipping");
@@ -72,19 +97,40 @@ public class BlastPlus {
                         data[6], orientation);
                 results.add(result);
             }
-
-            input.close();
-            Files.deleteIfExists(subjectFilePath);
-            Files.deleteIfExists(queryFilePath);
             return results;
         } catch (IOException e) {
             throw new BlastException(e);
+        } finally {
+            for (Path file : files) {
+                try {
+                    Files.deleteIfExists(file);
+                } catch (IOException e) {
+                    Logger.error(e);
+                }
+            }
         }
     }
 
+    private static Path createTempFile(List<Path> files, String prefix, String suffix) throws IOException {
+        Path path = Files.createTempFile(prefix, suffix);
+        files.add(path);
+        return path;
+    }
+
     public void formatBlastDb(BlastFastaFile fastaFile, String dbName) throws BlastException {
+        formatBlastDb(fastaFile.getFilePath(), dbName);
+    }
+
+    /**
+     * Formats the sequences in a fasta file into a blast database (volume). The database files are created in the
+     * directory containing the fasta file
+     *
+     * @param filePath path to fasta file
+     * @param dbName   name of the database
+     * @throws BlastException on exception running makeblastdb
+     */
+    public void formatBlastDb(Path filePath, String dbName) throws BlastException {
         ArrayList<String> commands = new ArrayList<>();
-        Path filePath = fastaFile.getFilePath();
         String makeBlastDbCmd = getBlastInstallDirectory().toAbsolutePath().toString() + File.separator + "makeblastdb";
         commands.add(makeBlastDbCmd);
         commands.add("-dbtype nucl");
@@ -101,6 +147,8 @@ public class BlastPlus {
 
         Runtime runTime = Runtime.getRuntime();
 
+        // counts towards the blast processes that may run at the same time
+        BlastExecutor.Permit permit = BlastExecutor.getInstance().acquireForTask();
         try {
             Process process = runTime.exec(commandString, new String[0], filePath.getParent().toFile());
             InputStream blastOutputStream = process.getInputStream();
@@ -123,6 +171,8 @@ public class BlastPlus {
             throw new BlastException("Could not run makeblastdb [BlastDBPath is " + getBlastInstallDirectory().toString() + "]", e);
         } catch (IOException e) {
             throw new BlastException(e);
+        } finally {
+            permit.release();
         }
     }
 
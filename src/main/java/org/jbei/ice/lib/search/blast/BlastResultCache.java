@@ -0,0 +1,107 @@
+package org.jbei.ice.lib.search.blast;
+
+import org.jbei.ice.lib.dto.search.BlastProgram;
+import org.jbei.ice.lib.dto.search.BlastQuery;
+import org.jbei.ice.lib.utils.SequenceUtils;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.ToLongFunction;
+
+/**
+ * Least recently used cache of blast search results, bounded by the (estimated) size of the results. Results are
+ * keyed on the hash of the query sequence, the blast program and options and the generation of the database, so
+ * results for an earlier generation are never returned once the database changes and are eventually evicted.
+ * <p>
+ * Cached results are shared so callers must copy them before they are modified
+ *
+ * @param <V> type of cached results
+ */
+class BlastResultCache<V> {
+
+    private final long maxSize;
+    private final ToLongFunction<V> sizer;
+    private final LinkedHashMap<String, CachedValue<V>> cache = new LinkedHashMap<>(16, 0.75f, true);
+    private long size;
+    private long hits;
+    private long misses;
+
+    /**
+     * @param maxSize maximum total size of the cached results, in bytes
+     * @param sizer   estimates the size (in bytes) of a result
+     */
+    BlastResultCache(long maxSize, ToLongFunction<V> sizer) {
+        this.maxSize = maxSize;
+        this.sizer = sizer;
+    }
+
+    /**
+     * Creates the key for the results of a blast query
+     *
+     * @param query      blast query
+     * @param generation generation of the database searched
+     * @param options    blast command line options that affect the results
+     * @return cache key
+     */
+    static String getKey(BlastQuery query, Object generation, String... options) {
+        BlastProgram program = query.getBlastProgram() == null ? BlastProgram.BLAST_N : query.getBlastProgram();
+        String sequence = query.getSequence() == null ? "" : query.getSequence();
+        return SequenceUtils.calculateSequenceHash(sequence) + "|" + program.name() + "|"
+                + String.join(" ", options) + "|" + generation;
+    }
+
+    synchronized V get(String key) {
+        CachedValue<V> cached = cache.get(key);
+        if (cached == null) {
+            misses += 1;
+            return null;
+        }
+
+        hits += 1;
+        return cached.value;
+    }
+
+    synchronized void put(String key, V value) {
+        long valueSize = sizer.applyAsLong(value) + key.length() * 2;
+        if (valueSize > maxSize)
+            return;
+
+        CachedValue<V> previous = cache.put(key, new CachedValue<>(value, valueSize));
+        if (previous != null)
+            size -= previous.size;
+        size += valueSize;
+
+        Iterator<Map.Entry<String, CachedValue<V>>> iterator = cache.entrySet().iterator();
+        while (size > maxSize && iterator.hasNext()) {
+            size -= iterator.next().getValue().size;
+            iterator.remove();
+        }
+    }
+
+    synchronized int getCount() {
+        return cache.size();
+    }
+
+    synchronized long getSize() {
+        return size;
+    }
+
+    synchronized long getHits() {
+        return hits;
+    }
+
+    synchronized long getMisses() {
+        return misses;
+    }
+
+    private static class CachedValue<V> {
+        private final V value;
+        private final long size;
+
+        CachedValue(V value, long size) {
+            this.value = value;
+            this.size = size;
+        }
+    }
+}
@@ -10,6 +10,11 @@ import java.io.*;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
 
 public class BlastSearch {
 
@@ -30,11 +35,36 @@ public class BlastSearch {
      *
      * @param query   wrapper around blast query including options such as blast type
      * @param options command line options for blast
-     * @return results of the query run. An empty string is returned if the specified blast database does not exist
-     * in the ice data directory
+     * @return results of the query run. An empty string is returned if the specified blast database (or alias
+     * database) does not exist in the ice data directory
      * @throws BlastException on exception running blast on the command line
      */
     public String run(BlastQuery query, String... options) throws BlastException {
+        StringBuilder builder = new StringBuilder();
+        boolean success = run(query, line -> {
+            builder.append(line).append("\n");
+            return true;
+        }, options);
+        return success ? builder.toString() : null;
+    }
+
+    /**
+     * Runs a blast query in the specified database folder using the specified options, passing each line of the
+     * output to the handler as it is read instead of buffering the whole output. Blast is stopped once the handler
+     * returns <code>false</code>.
+     * <p>
+     * The handler is called on a separate thread; the lines have all been handled when this method returns.
+     * Blast runs in a slot of the {@link BlastExecutor} and is killed if it does not complete by the deadline
+     *
+     * @param query       wrapper around blast query including options such as blast type
+     * @param lineHandler handler for each line of blast output. Returns false if no more lines are needed
+     * @param options     command line options for blast
+     * @return true if blast completed (or was stopped by the handler) or the blast database does not exist,
+     * false if blast exited with an error
+     * @throws BlastException on exception running blast on the command line, if too many searches are in progress
+     *                        or if blast does not complete by the deadline
+     */
+    public boolean run(BlastQuery query, Predicate<String> lineHandler, String... options) throws BlastException {
         if (query.getBlastProgram() == null)
             query.setBlastProgram(BlastProgram.BLAST_N);
 
@@ -42,45 +72,82 @@ public class BlastSearch {
             Path commandPath = Paths.get(Utils.getConfigValue(ConfigurationKey.BLAST_INSTALL_DIR),
                     query.getBlastProgram().getName());
             String blastDb = Paths.get(this.indexPath.toString(), this.dbName).toString();
-            if (!Files.exists(Paths.get(blastDb + ".nsq"))) {
-                return "";
+            if (!Files.exists(Paths.get(blastDb + ".nal")) && !Files.exists(Paths.get(blastDb + ".nsq"))) {
+                return true;
             }
 
-            String[] blastCommand = new String[3 + options.length];
-            blastCommand[0] = commandPath.toString();
-            blastCommand[1] = "-db";
-            blastCommand[2] = blastDb;
-            if (options.length > 0)
-                System.arraycopy(options, 0, blastCommand, 3, options.length);
-
-            Process process = Runtime.getRuntime().exec(blastCommand);
-            ProcessResultReader reader = new ProcessResultReader(process.getInputStream());
-            reader.start();
-            BufferedWriter programInputWriter = new BufferedWriter(new OutputStreamWriter(process.getOutputStream()));
-
-            programInputWriter.write(query.getSequence());
-            programInputWriter.flush();
-            programInputWriter.close();
-            process.getOutputStream().close();
-
-            // TODO this should go into the thread itself & have future wait on it
-            final int exitValue = process.waitFor();
-            switch (exitValue) {
-                case 0:
-                    return reader.toString();
-
-                case 1:
-                    Logger.error("Error in query sequence(s) or BLAST options");
-                    break;
-
-                case 2:
-                    Logger.error("Error in BLAST database");
-                    break;
-
-                default:
-                    Logger.error("Unknown exit value " + exitValue);
+            // blast processes are limited and each gets a share of the cores
+            BlastExecutor executor = BlastExecutor.getInstance();
+            BlastExecutor.Permit permit = executor.acquire();
+            Process process = null;
+            try {
+                List<String> blastCommand = new ArrayList<>();
+                blastCommand.add(commandPath.toString());
+                blastCommand.add("-db");
+                blastCommand.add(blastDb);
+                blastCommand.addAll(Arrays.asList(options));
+                if (!blastCommand.contains("-num_threads")) {
+                    blastCommand.add("-num_threads");
+                    blastCommand.add(Integer.toString(executor.getThreadsPerSearch()));
+                }
+
+                process = Runtime.getRuntime().exec(blastCommand.toArray(new String[0]));
+                ProcessResultReader reader = new ProcessResultReader(process.getInputStream(), lineHandler);
+                reader.start();
+                BufferedWriter programInputWriter = new BufferedWriter(new OutputStreamWriter(process.getOutputStream()));
+
+                programInputWriter.write(query.getSequence());
+                programInputWriter.flush();
+                programInputWriter.close();
+                process.getOutputStream().close();
+
+                reader.join(Math.max(1, permit.getDeadline() - System.currentTimeMillis()));
+                if (reader.isAlive()) {
+                    permit.timedOut();
+                    throw new ProgramTookTooLongException("Blast did not complete before the deadline");
+                }
+
+                if (reader.error != null)
+                    throw reader.error;
+
+                // remaining output is not needed
+                if (reader.stopped) {
+                    permit.completed();
+                    return true;
+                }
+
+                if (!process.waitFor(Math.max(1, permit.getDeadline() - System.currentTimeMillis()),
+                        TimeUnit.MILLISECONDS)) {
+                    permit.timedOut();
+                    throw new ProgramTookTooLongException("Blast did not complete before the deadline");
+                }
+
+                final int exitValue = process.exitValue();
+                switch (exitValue) {
+                    case 0:
+                        permit.completed();
+                        return true;
+
+                    case 1:
+                        Logger.error("Error in query sequence(s) or BLAST options");
+                        break;
+
+                    case 2:
+                        Logger.error("Error in BLAST database");
+                        break;
+
+                    default:
+                        Logger.error("Unknown exit value " + exitValue);
+                }
+                return false;
+            } finally {
+                // kills the process if it timed out, was stopped or the request thread was interrupted
+                if (process != null && process.isAlive())
+                    process.destroyForcibly();
+                permit.release();
             }
-            return null;
+        } catch (BlastException e) {
+            throw e;
         } catch (Exception e) {
             Logger.error(e);
             throw new BlastException(e);
@@ -89,15 +156,17 @@ public class BlastSearch {
 
 
     /**
-     * Thread that reads the result of a command line process execution
+     * Thread that reads the result of a command line process execution and passes each line to a handler
      */
     static class ProcessResultReader extends Thread {
         final InputStream inputStream;
-        final StringBuilder sb;
+        final Predicate<String> lineHandler;
+        volatile boolean stopped;
+        volatile Exception error;
 
-        ProcessResultReader(final InputStream is) {
+        ProcessResultReader(final InputStream is, final Predicate<String> lineHandler) {
             this.inputStream = is;
-            this.sb = new StringBuilder();
+            this.lineHandler = lineHandler;
         }
 
         public void run() {
@@ -105,17 +174,15 @@ public class BlastSearch {
                 final BufferedReader br = new BufferedReader(inputStreamReader);
                 String line;
                 while ((line = br.readLine()) != null) {
-                    this.sb.append(line).append("\n");
+                    if (!lineHandler.test(line)) {
+                        stopped = true;
+                        return;
+                    }
                 }
-            } catch (final IOException ioe) {
-                Logger.error(ioe.getMessage());
-                throw new RuntimeException(ioe);
+            } catch (final IOException | RuntimeException e) {
+                Logger.error(e.getMessage());
+                error = e;
             }
         }
-
-        @Override
-        public String toString() {
-            return this.sb.toString();
-        }
     }
 }
@@ -0,0 +1,266 @@
+package org.jbei.ice.lib.search.blast;
+
+import org.jbei.ice.lib.common.logging.Logger;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+
+/**
+ * Volume layout of a sharded blast database.
+ * <p>
+ * The database consists of a base volume, built from all sequences by a compaction, and small delta volumes
+ * that each hold sequences added or updated since then. Every volume has a number (allocated from the same
+ * counter) that is included in the fasta header of its records. When a sequence is added to a delta volume or
+ * deleted, a tombstone for the entry records the volume that holds its current sequence (or that it was deleted),
+ * and hits for the entry from any other volume are ignored. An alias database, with the name of the database,
+ * lists the volumes so that they are searched together.
+ * <p>
+ * The layout is persisted in a properties file in the database directory
+ */
+class BlastShards {
+
+    static final String STATE_FILE_NAME = "shards.properties";
+    private static final int MAX_DELTA_VOLUMES = 16;
+    private static final int MAX_TOMBSTONES = 5000;
+
+    private final Path directory;
+    private final String dbName;
+    private final TreeSet<Integer> deltas = new TreeSet<>();
+    private final HashMap<Long, Tombstone> tombstones = new HashMap<>();
+    private String base;
+    private int nextVolume = 1;
+    private long generation;
+
+    BlastShards(Path directory, String dbName) {
+        this.directory = directory;
+        this.dbName = dbName;
+        load();
+    }
+
+    /**
+     * @return true if there is a blast database (base or delta volumes) to search
+     */
+    synchronized boolean exists() {
+        return (base != null || !deltas.isEmpty()) && Files.exists(getAliasPath());
+    }
+
+    /**
+     * @return number that changes each time the searchable contents of the database change (a delta volume is
+     * added, a sequence is deleted or a compaction completes)
+     */
+    synchronized long getGeneration() {
+        return generation;
+    }
+
+    /**
+     * Allocates the number for a new volume (or deletion)
+     */
+    synchronized int nextVolume() {
+        int volume = nextVolume++;
+        save();
+        return volume;
+    }
+
+    synchronized String getBase() {
+        return base;
+    }
+
+    synchronized List<Integer> getDeltas() {
+        return new ArrayList<>(deltas);
+    }
+
+    String getBaseName(int volume) {
+        return dbName + "_base_" + volume;
+    }
+
+    String getDeltaName(int volume) {
+        return dbName + "_" + volume;
+    }
+
+    /**
+     * Records a new delta volume holding the current sequences of the specified entries
+     *
+     * @param volume   volume number
+     * @param entryIds unique identifiers of the entries whose sequences are in the volume
+     */
+    synchronized void addDelta(int volume, Collection<Long> entryIds) {
+        deltas.add(volume);
+        for (Long entryId : entryIds) {
+            tombstones.put(entryId, new Tombstone(volume, false));
+        }
+        generation += 1;
+        save();
+        writeAlias();
+    }
+
+    /**
+     * Records the deletion of the sequence of the specified entry. Hits for the entry are ignored until it is
+     * added again
+     *
+     * @param entryId unique identifier for entry
+     */
+    synchronized void delete(long entryId) {
+        tombstones.put(entryId, new Tombstone(nextVolume++, true));
+        generation += 1;
+        save();
+    }
+
+    /**
+     * Records the completion of a compaction that built a new base volume from all sequences. Delta volumes and
+     * tombstones created before the compaction started are dropped since the new base contains their changes
+     *
+     * @param volume number allocated for the new base volume when the compaction started
+     * @return names of the volumes that are no longer part of the database
+     */
+    synchronized List<String> compacted(int volume) {
+        List<String> obsolete = new ArrayList<>();
+        if (base != null)
+            obsolete.add(base);
+        base = getBaseName(volume);
+
+        Iterator<Integer> iterator = deltas.iterator();
+        while (iterator.hasNext()) {
+            int delta = iterator.next();
+            if (delta < volume) {
+                obsolete.add(getDeltaName(delta));
+                iterator.remove();
+            }
+        }
+
+        tombstones.values().removeIf(tombstone -> tombstone.volume < volume);
+        generation += 1;
+        save();
+        writeAlias();
+        return obsolete;
+    }
+
+    /**
+     * Checks if a hit for an entry's sequence from the specified volume is for the current sequence
+     *
+     * @param entryId unique identifier for entry
+     * @param volume  volume number of the hit. Negative if unknown
+     * @return true if the hit should be kept
+     */
+    synchronized boolean isCurrent(long entryId, int volume) {
+        Tombstone tombstone = tombstones.get(entryId);
+        if (tombstone == null)
+            return true;
+        return !tombstone.deleted && tombstone.volume == volume;
+    }
+
+    /**
+     * @return true if there are enough delta volumes or tombstones that the database should be compacted
+     */
+    synchronized boolean needsCompaction() {
+        return deltas.size() >= MAX_DELTA_VOLUMES || tombstones.size() >= MAX_TOMBSTONES;
+    }
+
+    Path getAliasPath() {
+        return Paths.get(directory.toString(), dbName + ".nal");
+    }
+
+    // writes the alias database that lists the volumes
+    private void writeAlias() {
+        StringBuilder list = new StringBuilder();
+        if (base != null)
+            list.append(base);
+        for (int delta : deltas) {
+            if (list.length() > 0)
+                list.append(' ');
+            list.append(getDeltaName(delta));
+        }
+
+        String alias = "#\n# Alias file created by ICE\n#\nTITLE " + dbName + "\nDBLIST " + list + "\n";
+        Path tmpFile = Paths.get(directory.toString(), dbName + ".nal.tmp");
+        try {
+            Files.write(tmpFile, alias.getBytes(StandardCharsets.UTF_8));
+            Files.move(tmpFile, getAliasPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            Logger.error("Could not write blast alias database", e);
+        }
+    }
+
+    private void load() {
+        Path path = Paths.get(directory.toString(), STATE_FILE_NAME);
+        if (!Files.exists(path))
+            return;
+
+        Properties properties = new Properties();
+        try (Reader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            properties.load(reader);
+        } catch (IOException e) {
+            Logger.error("Could not read blast shards from " + path, e);
+            return;
+        }
+
+        base = properties.getProperty("base");
+        nextVolume = Integer.parseInt(properties.getProperty("next", "1"));
+        String deltaList = properties.getProperty("deltas", "");
+        for (String delta : deltaList.split(",")) {
+            if (!delta.trim().isEmpty())
+                deltas.add(Integer.parseInt(delta.trim()));
+        }
+
+        for (String name : properties.stringPropertyNames()) {
+            if (!name.startsWith("tombstone."))
+                continue;
+
+            long entryId = Long.parseLong(name.substring("tombstone.".length()));
+            String value = properties.getProperty(name);
+            boolean deleted = value.startsWith("d");
+            int volume = Integer.parseInt(deleted ? value.substring(1) : value);
+            tombstones.put(entryId, new Tombstone(volume, deleted));
+        }
+    }
+
+    private void save() {
+        Properties properties = new Properties();
+        if (base != null)
+            properties.setProperty("base", base);
+        properties.setProperty("next", Integer.toString(nextVolume));
+        StringBuilder deltaList = new StringBuilder();
+        for (int delta : deltas) {
+            if (deltaList.length() > 0)
+                deltaList.append(',');
+            deltaList.append(delta);
+        }
+        properties.setProperty("deltas", deltaList.toString());
+        for (Map.Entry<Long, Tombstone> entry : tombstones.entrySet()) {
+            Tombstone tombstone = entry.getValue();
+            properties.setProperty("tombstone." + entry.getKey(),
+                    (tombstone.deleted ? "d" : "") + tombstone.volume);
+        }
+
+        Path path = Paths.get(directory.toString(), STATE_FILE_NAME);
+        Path tmpFile = Paths.get(directory.toString(), STATE_FILE_NAME + ".tmp");
+        try (Writer writer = Files.newBufferedWriter(tmpFile, StandardCharsets.UTF_8)) {
+            properties.store(writer, "ICE blast database volumes");
+        } catch (IOException e) {
+            Logger.error("Could not write blast shards to " + path, e);
+            return;
+        }
+
+        try {
+            Files.move(tmpFile, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            Logger.error("Could not write blast shards to " + path, e);
+        }
+    }
+
+    private static class Tombstone {
+        private final int volume;
+        private final boolean deleted;
+
+        Tombstone(int volume, boolean deleted) {
+            this.volume = volume;
+            this.deleted = deleted;
+        }
+    }
+}
@@ -0,0 +1,363 @@
+package org.jbei.ice.lib.search.blast;
+
+import org.hibernate.Transaction;
+import org.jbei.ice.lib.common.logging.Logger;
+import org.jbei.ice.lib.dto.ConfigurationKey;
+import org.jbei.ice.lib.utils.Utils;
+import org.jbei.ice.storage.hibernate.HibernateUtil;
+
+import javax.transaction.Status;
+import javax.transaction.Synchronization;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Collects sequence changes for the blast database and applies them as a single batch once no changes have been
+ * made for a quiet period (or the oldest pending change has waited for the maximum delay, so that a continuous
+ * import is still applied). Changes to the same part are coalesced, the latest action winning.
+ * <p>
+ * Once the scheduler is started, pending changes are appended to a journal file in the blast database directory
+ * so they survive a restart, and a batch that cannot be applied (e.g. blast is not installed) is retried later, so
+ * changes are never dropped. Changes made before the scheduler is started are only collected, and journaled when
+ * it starts. The journal is compacted to the pending changes when it grows, and the pending changes are replaced by
+ * a single rebuild of the database if there are more than {@link #MAX_PENDING} of them
+ */
+public class BlastUpdateScheduler {
+
+    static final String JOURNAL_FILE_NAME = "pending-updates.txt";
+    static final int MAX_PENDING = 10000;
+    // pending "change" that rebuilds the database
+    static final String REBUILD = "*";
+
+    // maximum delay in multiples of the quiet period
+    private static final int MAX_DELAY_PERIODS = 6;
+    private static final long MAX_RETRY_DELAY = TimeUnit.MINUTES.toMillis(10);
+
+    private static BlastUpdateScheduler INSTANCE;
+
+    private final LinkedHashMap<String, Change> pending = new LinkedHashMap<>();
+    private final Path journal;
+    private final long quietPeriod;
+    private final long maxDelay;
+    private final ChangeApplier applier;
+    private ScheduledExecutorService executor;
+    private ScheduledFuture<?> flush;
+    private boolean loaded;
+    private int journalLines;
+    private long firstChangeTime;
+    private long lastChangeTime;
+    private long retryDelay;
+    private long retryTime;
+
+    BlastUpdateScheduler(Path journal, long quietPeriod, ChangeApplier applier) {
+        this.journal = journal;
+        this.quietPeriod = quietPeriod;
+        this.maxDelay = quietPeriod * MAX_DELAY_PERIODS;
+        this.applier = applier;
+    }
+
+    public static synchronized BlastUpdateScheduler getInstance() {
+        if (INSTANCE == null) {
+            Path journal = Paths.get(Utils.getConfigValue(ConfigurationKey.DATA_DIRECTORY), "blast",
+                    JOURNAL_FILE_NAME);
+            long quietPeriod;
+            try {
+                quietPeriod = Long.parseLong(Utils.getConfigValue(ConfigurationKey.BLAST_UPDATE_QUIET_PERIOD).trim());
+            } catch (NumberFormatException e) {
+                quietPeriod = Long.parseLong(ConfigurationKey.BLAST_UPDATE_QUIET_PERIOD.getDefaultValue());
+            }
+            INSTANCE = new BlastUpdateScheduler(journal, TimeUnit.SECONDS.toMillis(Math.max(1, quietPeriod)),
+                    BlastUpdateScheduler::applyToDatabase);
+        }
+        return INSTANCE;
+    }
+
+    /**
+     * Starts applying pending changes, including any left over from a previous run
+     */
+    public synchronized void start() {
+        if (executor != null)
+            return;
+
+        load();
+        executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "blast-update-scheduler");
+            thread.setDaemon(true);
+            return thread;
+        });
+        writeJournal();
+
+        if (!pending.isEmpty()) {
+            Logger.info("Applying " + pending.size() + " pending blast database change(s)");
+            firstChangeTime = lastChangeTime = System.currentTimeMillis();
+            scheduleFlush(quietPeriod);
+        }
+    }
+
+    /**
+     * Stops applying changes. Changes not yet applied remain in the journal
+     */
+    public synchronized void stop() {
+        if (executor == null)
+            return;
+
+        executor.shutdownNow();
+        executor = null;
+        flush = null;
+    }
+
+    /**
+     * Records a sequence change made in the current transaction to be applied to the blast database once the
+     * transaction commits, so changes that are rolled back are not applied. The change is recorded immediately if
+     * there is no active transaction
+     *
+     * @param action CREATE, UPDATE or DELETE
+     * @param partId part number (or identifier) of entry whose sequence changed
+     */
+    public void scheduleOnCommit(Action action, String partId) {
+        Transaction transaction = HibernateUtil.getSessionFactory().getCurrentSession().getTransaction();
+        if (!transaction.isActive()) {
+            schedule(action, partId);
+            return;
+        }
+
+        transaction.registerSynchronization(new Synchronization() {
+            @Override
+            public void beforeCompletion() {
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                if (status == Status.STATUS_COMMITTED)
+                    schedule(action, partId);
+            }
+        });
+    }
+
+    /**
+     * Records a sequence change to be applied to the blast database
+     *
+     * @param action CREATE, UPDATE or DELETE
+     * @param partId part number (or identifier) of entry whose sequence changed
+     */
+    public synchronized void schedule(Action action, String partId) {
+        if (partId == null)
+            return;
+
+        load();
+        pending.remove(partId);
+        pending.put(partId, new Change(action));
+        if (pending.size() > MAX_PENDING) {
+            Logger.warn(pending.size() + " pending blast database changes. The database will be rebuilt instead");
+            pending.clear();
+            pending.put(REBUILD, new Change(Action.FORCE_BUILD));
+            writeJournal();
+        } else {
+            appendJournal(partId, action);
+        }
+
+        long now = System.currentTimeMillis();
+        if (firstChangeTime == 0)
+            firstChangeTime = now;
+        lastChangeTime = now;
+        scheduleFlush(quietPeriod);
+    }
+
+    /**
+     * @return number of changes waiting to be applied
+     */
+    public synchronized int getPendingCount() {
+        load();
+        return pending.size();
+    }
+
+    private void scheduleFlush(long delay) {
+        if (executor == null || flush != null)
+            return;
+
+        // an earlier flush that is not yet due reschedules itself
+        flush = executor.schedule(this::flush, delay, TimeUnit.MILLISECONDS);
+    }
+
+    private void flush() {
+        LinkedHashMap<String, Change> batch;
+        synchronized (this) {
+            flush = null;
+            if (pending.isEmpty()) {
+                firstChangeTime = 0;
+                return;
+            }
+
+            long due = Math.max(Math.min(lastChangeTime + quietPeriod, firstChangeTime + maxDelay), retryTime);
+            long wait = due - System.currentTimeMillis();
+            if (wait > 0) {
+                scheduleFlush(wait);
+                return;
+            }
+            batch = new LinkedHashMap<>(pending);
+        }
+
+        LinkedHashMap<String, Action> changes = new LinkedHashMap<>();
+        for (Map.Entry<String, Change> entry : batch.entrySet()) {
+            changes.put(entry.getKey(), entry.getValue().action);
+        }
+
+        boolean applied;
+        try {
+            Logger.info("Applying " + changes.size() + " change(s) to blast database");
+            applier.apply(changes);
+            applied = true;
+        } catch (Exception e) {
+            Logger.error("Could not apply " + changes.size() + " change(s) to blast database. Will retry", e);
+            applied = false;
+        }
+
+        synchronized (this) {
+            if (applied) {
+                // keep changes that were made again while the batch was being applied
+                for (Map.Entry<String, Change> entry : batch.entrySet()) {
+                    pending.remove(entry.getKey(), entry.getValue());
+                }
+                writeJournal();
+                retryDelay = 0;
+                retryTime = 0;
+                firstChangeTime = pending.isEmpty() ? 0 : System.currentTimeMillis();
+            } else {
+                retryDelay = retryDelay == 0 ? quietPeriod : Math.min(retryDelay * 2, MAX_RETRY_DELAY);
+                retryTime = System.currentTimeMillis() + retryDelay;
+                // changes keep being appended while failing
+                if (journalLines > pending.size())
+                    writeJournal();
+            }
+
+            if (!pending.isEmpty())
+                scheduleFlush(applied ? quietPeriod : retryDelay);
+        }
+    }
+
+    // applies a batch of changes to the standard blast database in a transaction
+    private static void applyToDatabase(Map<String, Action> changes) throws BlastException {
+        try {
+            HibernateUtil.beginTransaction();
+            StandardBlastDatabase database = StandardBlastDatabase.getInstance();
+            if (changes.containsKey(REBUILD)) {
+                changes = new LinkedHashMap<>(changes);
+                changes.remove(REBUILD);
+                database.compact();
+            }
+            if (!changes.isEmpty())
+                database.applyChanges(changes);
+            HibernateUtil.commitTransaction();
+        } catch (BlastException | RuntimeException e) {
+            HibernateUtil.rollbackTransaction();
+            throw e;
+        }
+    }
+
+    // reads the changes recorded in the journal. The journal has one line (part id and action) per change
+    private void load() {
+        if (loaded)
+            return;
+
+        loaded = true;
+        if (!Files.exists(journal))
+            return;
+
+        LinkedHashMap<String, Change> journaled = new LinkedHashMap<>();
+        try (BufferedReader reader = Files.newBufferedReader(journal, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                int index = line.lastIndexOf('\t');
+                if (index <= 0)
+                    continue;
+
+                try {
+                    Action action = Action.valueOf(line.substring(index + 1).trim());
+                    String partId = line.substring(0, index);
+                    journaled.remove(partId);
+                    journaled.put(partId, new Change(action));
+                } catch (IllegalArgumentException e) {
+                    Logger.error("Invalid blast update journal entry: " + line);
+                }
+            }
+        } catch (IOException e) {
+            Logger.error("Could not read blast update journal " + journal, e);
+            return;
+        }
+
+        // changes made before the journal was loaded are more recent
+        journaled.keySet().removeAll(pending.keySet());
+        journaled.putAll(pending);
+        pending.clear();
+        pending.putAll(journaled);
+    }
+
+    // appends a change to the journal, or compacts it if it has grown to more than twice the pending changes
+    private void appendJournal(String partId, Action action) {
+        if (executor == null)
+            return;
+
+        if (journalLines >= 2 * pending.size()) {
+            writeJournal();
+            return;
+        }
+
+        try {
+            Files.createDirectories(journal.getParent());
+            Files.write(journal, (partId + "\t" + action.name() + "\n").getBytes(StandardCharsets.UTF_8),
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+            journalLines += 1;
+        } catch (IOException e) {
+            Logger.error("Could not write blast update journal " + journal, e);
+        }
+    }
+
+    // replaces the journal with the pending changes. Changes are not journaled until the scheduler is started
+    private void writeJournal() {
+        if (executor == null)
+            return;
+
+        Path tmpFile = Paths.get(journal.toString() + ".tmp");
+        try {
+            Files.createDirectories(journal.getParent());
+            try (Writer writer = Files.newBufferedWriter(tmpFile, StandardCharsets.UTF_8)) {
+                for (Map.Entry<String, Change> entry : pending.entrySet()) {
+                    writer.write(entry.getKey() + "\t" + entry.getValue().action.name() + "\n");
+                }
+            }
+            Files.move(tmpFile, journal, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            journalLines = pending.size();
+        } catch (IOException e) {
+            Logger.error("Could not write blast update journal " + journal, e);
+        }
+    }
+
+    /**
+     * Applies a batch of changes (part id to action) to the blast database
+     */
+    interface ChangeApplier {
+        void apply(Map<String, Action> changes) throws Exception;
+    }
+
+    // identity is used to detect a part changed again while its previous change was being applied
+    private static class Change {
+        private final Action action;
+
+        Change(Action action) {
+            this.action = action;
+        }
+    }
+}
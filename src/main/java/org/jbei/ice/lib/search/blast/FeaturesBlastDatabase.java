@@ -14,18 +14,21 @@ import org.jbei.ice.lib.dto.search.BlastQuery;
 import org.jbei.ice.storage.DAOFactory;
 import org.jbei.ice.storage.hibernate.dao.FeatureDAO;
 import org.jbei.ice.storage.hibernate.dao.SequenceFeatureDAO;
-import org.jbei.ice.storage.model.Feature;
-import org.jbei.ice.storage.model.SequenceFeature;
 
 import java.io.IOException;
 import java.io.StringReader;
-import java.util.ArrayList;
-import java.util.HashSet;
-import java.util.Iterator;
-import java.util.List;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
 
 public class FeaturesBlastDatabase extends BlastDatabase {
 
+    // shared by instances; results are keyed on the modification time of the formatted database and rebuild count
+    private static BlastResultCache<List<DNAFeature>> cache;
+    private static final AtomicLong rebuilds = new AtomicLong();
+
     private BlastPlus blastPlus;
     private BlastFastaFile blastFastaFile;
 
@@ -43,12 +46,80 @@ public class FeaturesBlastDatabase extends BlastDatabase {
      * @throws BlastException on null result or exception processing the result
      */
     public List<DNAFeature> runBlast(BlastQuery query) throws BlastException {   // todo add e-value
+        String[] options = {"-perc_identity", "100", "-outfmt", "10 stitle qstart qend sstart send sstrand"};
+        BlastResultCache<List<DNAFeature>> resultCache = getCache();
+        String cacheKey = BlastResultCache.getKey(query, getGeneration(), options);
+        List<DNAFeature> cached = resultCache.get(cacheKey);
+        if (cached != null)
+            return copyFeatures(cached);
+
         BlastSearch blastSearch = new BlastSearch(this.indexPath, this.dbName);
-        String result = blastSearch.run(query, "-perc_identity", "100",
-                "-outfmt", "10 stitle qstart qend sstart send sstrand");
+        String result = blastSearch.run(query, options);
         if (result == null)
             throw new BlastException("Exception running blast");
-        return processBlastOutput(result);
+        List<DNAFeature> features = processBlastOutput(result);
+        if (features == null)
+            return null;
+
+        resultCache.put(cacheKey, features);
+        return copyFeatures(features);
+    }
+
+    /**
+     * Adds the statistics for the cache of search results to the status
+     *
+     * @param status blast execution status
+     */
+    public static void addCacheStatistics(BlastExecutionStatus status) {
+        BlastResultCache<List<DNAFeature>> resultCache = getCache();
+        status.addCache(resultCache.getCount(), resultCache.getHits(), resultCache.getMisses());
+    }
+
+    private static synchronized BlastResultCache<List<DNAFeature>> getCache() {
+        if (cache == null)
+            cache = new BlastResultCache<>(StandardBlastDatabase.getCacheSize(), FeaturesBlastDatabase::getFeaturesSize);
+        return cache;
+    }
+
+    // changes when the database is formatted
+    private String getGeneration() {
+        long modified = 0;
+        try {
+            Path alias = Paths.get(indexPath.toString(), dbName + ".nal");
+            Path sequences = Paths.get(indexPath.toString(), dbName + ".nsq");
+            Path path = Files.exists(alias) ? alias : sequences;
+            if (Files.exists(path))
+                modified = Files.getLastModifiedTime(path).toMillis();
+        } catch (IOException e) {
+            Logger.error(e);
+        }
+        return modified + ":" + rebuilds.get();
+    }
+
+    // copies (cached) features since callers modify them
+    private static List<DNAFeature> copyFeatures(List<DNAFeature> features) {
+        List<DNAFeature> copy = new ArrayList<>(features.size());
+        for (DNAFeature feature : features) {
+            DNAFeature featureCopy = new DNAFeature();
+            featureCopy.setId(feature.getId());
+            featureCopy.setName(feature.getName());
+            featureCopy.setType(feature.getType());
+            featureCopy.setStrand(feature.getStrand());
+            for (DNAFeatureLocation location : feature.getLocations()) {
+                featureCopy.getLocations().add(new DNAFeatureLocation(location.getGenbankStart(), location.getEnd()));
+            }
+            copy.add(featureCopy);
+        }
+        return copy;
+    }
+
+    // estimated memory used by features, in bytes
+    private static long getFeaturesSize(List<DNAFeature> features) {
+        long size = 64;
+        for (DNAFeature feature : features) {
+            size += 256 + 2 * (StringUtils.length(feature.getName()) + StringUtils.length(feature.getType()));
+        }
+        return size;
     }
 
     /**
@@ -123,63 +194,78 @@ public class FeaturesBlastDatabase extends BlastDatabase {
      */
     public void rebuild() throws BlastException {
         Iterable<String> iterable = AllFeaturesStream::new;
-        blastFastaFile.write(iterable);
+        blastFastaFile.createNew();
+        if (!blastFastaFile.write(iterable))
+            throw new BlastException("Could not write features fasta file");
         blastPlus.formatBlastDb(blastFastaFile, this.dbName); // todo
+        rebuilds.incrementAndGet();
     }
 
+    /**
+     * Streams the fasta records of all features, retrieving them in chunks ordered by id (keyset paging) along with
+     * the strands they are annotated on (one aggregate query per chunk). Only the fields needed for the records are
+     * retrieved, so no feature objects are loaded into the session
+     */
     private static class AllFeaturesStream implements Iterator<String> {
 
-        private long available;
-        private int currentOffset;
+        private static final int CHUNK_SIZE = 500;
+
+        private final FeatureDAO featureDAO;
+        private final SequenceFeatureDAO sequenceFeatureDAO;
+        private Iterator<Object[]> chunk = Collections.emptyIterator();
+        private final Map<Long, Object[]> strands = new HashMap<>();
+        private long lastId;
+        private boolean lastChunk;
         private String nextValue;
-        private FeatureDAO featureDAO;
-        private SequenceFeatureDAO sequenceFeatureDAO;
 
         public AllFeaturesStream() {
             featureDAO = DAOFactory.getFeatureDAO();
             sequenceFeatureDAO = DAOFactory.getSequenceFeatureDAO();
-            available = featureDAO.getFeatureCount(null);
         }
 
         @Override
         public boolean hasNext() {
-            while (currentOffset < available) {
-                List<Feature> features = featureDAO.getFeatures(currentOffset++, 1, null);
-                Feature feature = features.get(0);
-                String featureName = feature.getName();
+            while (true) {
+                if (!chunk.hasNext()) {
+                    if (lastChunk)
+                        return false;
+                    nextChunk();
+                    continue;
+                }
+
+                Object[] result = chunk.next();
+                long id = (Long) result[0];
+                lastId = id;
+                String featureName = (String) result[1];
                 if (featureName == null || featureName.trim().isEmpty())
                     continue;
 
-                if (feature.getCuration() != null && feature.getCuration().isExclude())
+                if (Boolean.TRUE.equals(result[4]))
                     continue;
 
                 boolean hasNegativeStrand = false;
                 boolean hasPositiveStrand = false;
 
-                List<SequenceFeature> sequenceFeatures = sequenceFeatureDAO.getByFeature(feature);
-                if (sequenceFeatures == null || sequenceFeatures.isEmpty()) {
+                Object[] strandRange = strands.get(id);
+                if (strandRange == null) {
                     hasPositiveStrand = true;
                 } else {
-                    for (SequenceFeature sequenceFeature : sequenceFeatures) {
-                        if (sequenceFeature.getStrand() == 1) {
-                            hasPositiveStrand = true;
-                        } else if (sequenceFeature.getStrand() == -1) {
-                            hasNegativeStrand = true;
-                        }
-                    }
+                    hasNegativeStrand = ((Number) strandRange[1]).intValue() == -1;
+                    hasPositiveStrand = ((Number) strandRange[2]).intValue() == 1;
                 }
 
-                String sequenceString = feature.getSequence().trim();
+                String sequenceString = result[3] == null ? "" : ((String) result[3]).trim();
                 if (StringUtils.isEmpty(sequenceString))
                     continue;
 
+                String genbankType = (String) result[2];
                 String line = "";
 
                 if (hasNegativeStrand) {
                     try {
                         SymbolList symbolList = DNATools.createDNA(sequenceString);
                         symbolList = DNATools.reverseComplement(symbolList);
-                        line = getSequenceString(feature, symbolList.seqString(), -1);
+                        line = getSequenceString(id, featureName, genbankType, symbolList.seqString(), -1);
                     } catch (IllegalSymbolException | IllegalAlphabetException e) {
                         Logger.warn(e.getMessage());
                         continue;
@@ -187,7 +273,7 @@ public class FeaturesBlastDatabase extends BlastDatabase {
                 }
 
                 if (hasPositiveStrand) {
-                    line += getSequenceString(feature, sequenceString, 1);
+                    line += getSequenceString(id, featureName, genbankType, sequenceString, 1);
                 }
 
                 if (!StringUtils.isEmpty(line)) {
@@ -195,14 +281,30 @@ public class FeaturesBlastDatabase extends BlastDatabase {
                     return true;
                 }
             }
-            return false;
         }
 
-        private String getSequenceString(Feature feature, String seq, int strand) {
+        // retrieves the next chunk of features and the strands they are annotated on
+        private void nextChunk() {
+            List<Object[]> results = featureDAO.getBlastFeatures(lastId, CHUNK_SIZE);
+            lastChunk = results.size() < CHUNK_SIZE;
+            chunk = results.iterator();
+
+            List<Long> ids = new ArrayList<>(results.size());
+            for (Object[] result : results) {
+                ids.add((Long) result[0]);
+            }
+
+            strands.clear();
+            for (Object[] strandRange : sequenceFeatureDAO.getFeatureStrands(ids)) {
+                strands.put((Long) strandRange[0], strandRange);
+            }
+        }
+
+        private String getSequenceString(long id, String name, String genbankType, String seq, int strand) {
             String idString = ">"
-                    + feature.getId() + DELIMITER
-                    + feature.getName() + DELIMITER
-                    + feature.getGenbankType() + DELIMITER
+                    + id + DELIMITER
+                    + name + DELIMITER
+                    + genbankType + DELIMITER
                     + strand;
             idString += "\n";
             idString += (seq + "\n");
@@ -29,19 +29,21 @@ public class RebuildBlastIndexTask extends Task {
      * Executes one of the following requested actions:
      * <p>
      * <code>CHECK</code>: check if database exists and if not rebuilds it <br>
-     * <code>CREATE</code>: add a new sequence to the blast database<br>
-     * <code>DELETE</code>: delete a sequence from the blast database<br>
-     * <code>UPDATE</code>: update the blast database by removing and adding a sequence<br>
-     * code>FORCE_REBUILD</code>: blow away existing blast database and create a new one from scratch
+     * <code>CREATE</code>: add a new sequence to the blast database (as a delta volume)<br>
+     * <code>DELETE</code>: delete a sequence from the blast database (as a tombstone)<br>
+     * <code>UPDATE</code>: update the blast database by adding a delta volume that replaces a sequence<br>
+     * code>FORCE_REBUILD</code>: compact the blast database into a new base volume built from scratch
      * <p>
-     * The blast database uses a lock file to prevent multiple concurrent actions that modify if
+     * The blast fasta file uses a lock file to prevent multiple concurrent rebuilds
      */
     @Override
     public void execute() {
         Logger.info("Running blast task with action: " + action.name());
         try {
             StandardBlastDatabase standardBlastDatabase = StandardBlastDatabase.getInstance();
-            if (standardBlastDatabase.isLocked()) { // todo : wait / notify
+            // sequence changes go to delta volumes and do not need the (base) fasta file
+            boolean rebuild = this.action == Action.CHECK || this.action == Action.FORCE_BUILD;
+            if (rebuild && standardBlastDatabase.isLocked()) { // todo : wait / notify
                 Logger.info("Aborting run. Blast database is locked");
                 return;
             }
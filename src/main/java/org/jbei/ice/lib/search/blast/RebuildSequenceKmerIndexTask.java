@@ -0,0 +1,20 @@
+package org.jbei.ice.lib.search.blast;
+
+import org.jbei.ice.lib.common.logging.Logger;
+import org.jbei.ice.lib.executor.Task;
+
+/**
+ * Task to build the in memory {@link SequenceKmerIndex} from the sequences in the database
+ */
+public class RebuildSequenceKmerIndexTask extends Task {
+
+    @Override
+    public void execute() {
+        Logger.info("Building sequence k-mer index");
+        try {
+            SequenceKmerIndex.getInstance().build();
+        } catch (Exception e) {
+            Logger.error(e);
+        }
+    }
+}
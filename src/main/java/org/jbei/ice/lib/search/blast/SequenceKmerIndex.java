@@ -0,0 +1,488 @@
+package org.jbei.ice.lib.search.blast;
+
+import org.hibernate.Hibernate;
+import org.jbei.ice.lib.common.logging.Logger;
+import org.jbei.ice.lib.dto.entry.EntryType;
+import org.jbei.ice.lib.dto.search.SearchResult;
+import org.jbei.ice.storage.DAOFactory;
+import org.jbei.ice.storage.ModelToInfoFactory;
+import org.jbei.ice.storage.hibernate.dao.EntryDAO;
+import org.jbei.ice.storage.hibernate.dao.SequenceDAO;
+import org.jbei.ice.storage.model.Entry;
+import org.jbei.ice.storage.model.Plasmid;
+
+import java.util.*;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In memory k-mer index over the entry sequences for answering exact (sub)sequence queries, such as checking
+ * which entries contain a primer, without running blast. Both strands are matched, as are matches that span the
+ * origin of circular sequences.
+ * <p>
+ * Each sequence is indexed by its canonical k-mer minimizers: the smallest (by hash) canonical k-mer in every
+ * window of {@link #WINDOW} consecutive k-mers. A sequence that contains a query of at least
+ * {@link #MIN_QUERY_LENGTH} bases (or its reverse complement) has every minimizer of the query, so the candidates
+ * are the entries whose postings contain all the query minimizers. Candidates are then verified against the
+ * stored sequences.
+ * <p>
+ * The index is built by {@link #build()} and kept up to date by {@link #update(long, String, boolean)} and
+ * {@link #remove(long)} as sequences are saved, updated and deleted
+ */
+public class SequenceKmerIndex {
+
+    static final int K = 10;
+    static final int WINDOW = 8;
+    public static final int MIN_QUERY_LENGTH = K + WINDOW - 1;
+    private static final int MASK = (1 << (2 * K)) - 1;
+    private static final int HASH_MULTIPLIER = 0x9E3779B1;   // odd, so hashing is a bijection on k-mers
+    private static final int BATCH_SIZE = 500;
+
+    private static final SequenceKmerIndex INSTANCE = new SequenceKmerIndex();
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final HashMap<Long, Integer> entryDocuments = new HashMap<>();
+    private final BitSet deletedDocuments = new BitSet();
+    private int[][] postings;       // minimizer hash -> ascending document ids
+    private int[] postingSizes;
+    private long[] documentEntryIds;
+    private int documentCount;
+    private int deletedCount;       // deleted documents still referenced by postings
+    private Set<Long> modifiedDuringBuild;
+    private volatile boolean ready;
+
+    private SequenceKmerIndex() {
+        clear();
+    }
+
+    public static SequenceKmerIndex getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * @return true if the index has been built and can be used to answer queries
+     */
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * @return number of sequences in the index
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return entryDocuments.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * (Re)builds the index from all the sequences in the database. Sequences are read in batches (ordered by entry
+     * id) and changes made while the index is being built are retained. Does nothing if a build is in progress
+     */
+    public void build() {
+        lock.writeLock().lock();
+        try {
+            if (modifiedDuringBuild != null)
+                return;
+            modifiedDuringBuild = new HashSet<>();
+            ready = false;
+            clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        long start = System.currentTimeMillis();
+        SequenceDAO sequenceDAO = DAOFactory.getSequenceDAO();
+        EntryDAO entryDAO = DAOFactory.getEntryDAO();
+        try {
+            long lastId = 0;
+            List<Object[]> batch;
+            do {
+                batch = sequenceDAO.getSequenceStrings(lastId, BATCH_SIZE);
+                Set<Long> linear = getLinearPlasmids(entryDAO, batch);
+                for (Object[] row : batch) {
+                    long entryId = (Long) row[0];
+                    lastId = entryId;
+                    String sequence = (String) row[1];
+                    if (sequence == null || sequence.isEmpty())
+                        continue;
+
+                    boolean circular = isCircular((String) row[2], linear.contains(entryId));
+                    int[] minimizers = minimizers(sequence, circular);
+                    lock.writeLock().lock();
+                    try {
+                        if (!modifiedDuringBuild.contains(entryId))
+                            addDocument(entryId, minimizers);
+                    } finally {
+                        lock.writeLock().unlock();
+                    }
+                }
+            } while (batch.size() == BATCH_SIZE);
+
+            ready = true;
+            Logger.info("Built sequence k-mer index with " + size() + " sequences in "
+                    + (System.currentTimeMillis() - start) + "ms");
+        } finally {
+            lock.writeLock().lock();
+            try {
+                modifiedDuringBuild = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+
+    /**
+     * Adds or replaces the indexed sequence for an entry
+     *
+     * @param entryId  unique identifier for entry
+     * @param sequence sequence string. If empty, the entry is removed from the index
+     * @param circular whether the sequence is circular
+     */
+    public void update(long entryId, String sequence, boolean circular) {
+        int[] minimizers = sequence == null || sequence.isEmpty() ? null : minimizers(sequence, circular);
+        lock.writeLock().lock();
+        try {
+            if (modifiedDuringBuild != null)
+                modifiedDuringBuild.add(entryId);
+            removeDocument(entryId);
+            if (minimizers != null)
+                addDocument(entryId, minimizers);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Removes the sequence for an entry from the index
+     *
+     * @param entryId unique identifier for entry
+     */
+    public void remove(long entryId) {
+        lock.writeLock().lock();
+        try {
+            if (modifiedDuringBuild != null)
+                modifiedDuringBuild.add(entryId);
+            removeDocument(entryId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Retrieves the entries whose sequence contains the query sequence on either strand
+     *
+     * @param query query sequence
+     * @return ids of the matching entries, with entries whose sequence is closest in length to the query first.
+     * Null if the query cannot be answered using the index (index not built, query shorter than
+     * {@link #MIN_QUERY_LENGTH} or containing ambiguous bases)
+     */
+    public List<Long> findContaining(String query) {
+        List<Match> matches = findMatches(query);
+        if (matches == null)
+            return null;
+
+        List<Long> entryIds = new ArrayList<>(matches.size());
+        for (Match match : matches) {
+            entryIds.add(match.entryId);
+        }
+        return entryIds;
+    }
+
+    /**
+     * Runs an exact match search for the query sequence, returning results in the same form as a blast search
+     *
+     * @param query query sequence
+     * @return map of entry id to search result for all entries whose sequence contains the query (shortest
+     * sequences first), or null if the query cannot be answered using the index. The results are not limited
+     * here so that the maximum number of hits is applied after the results are filtered by permissions
+     */
+    public LinkedHashMap<String, SearchResult> search(String query) {
+        List<Match> matches = findMatches(query);
+        if (matches == null)
+            return null;
+
+        List<Long> ids = new ArrayList<>(matches.size());
+        for (Match match : matches) {
+            ids.add(match.entryId);
+        }
+
+        HashMap<Long, Entry> entries = new HashMap<>();
+        for (int i = 0; i < ids.size(); i += BATCH_SIZE) {
+            for (Entry entry : DAOFactory.getEntryDAO().getEntriesByIdSet(ids.subList(i,
+                    Math.min(ids.size(), i + BATCH_SIZE)))) {
+                entries.put(entry.getId(), entry);
+            }
+        }
+
+        int queryLength = query.trim().length();
+        LinkedHashMap<String, SearchResult> results = new LinkedHashMap<>();
+        for (Match match : matches) {
+            Entry entry = entries.get(match.entryId);
+            if (entry == null)
+                continue;
+
+            SearchResult searchResult = ModelToInfoFactory.createExactMatchResult(entry, queryLength);
+            results.put(Long.toString(entry.getId()), searchResult);
+        }
+        return results;
+    }
+
+    /**
+     * @param entry entry
+     * @return true if the entry's sequence should be treated as circular (plasmids not marked as linear)
+     */
+    public static boolean isCircular(Entry entry) {
+        Object unproxied = Hibernate.unproxy(entry);
+        return unproxied instanceof Plasmid && !Boolean.FALSE.equals(((Plasmid) unproxied).getCircular());
+    }
+
+    private List<Match> findMatches(String query) {
+        if (!ready || query == null)
+            return null;
+
+        String normalized = query.trim().toLowerCase().replace('u', 't');
+        if (normalized.length() < MIN_QUERY_LENGTH)
+            return null;
+        for (int i = 0; i < normalized.length(); i += 1) {
+            if (encode(normalized.charAt(i)) < 0)
+                return null;
+        }
+
+        List<Long> candidates = getCandidates(minimizers(normalized, false));
+        String reverseComplement = reverseComplement(normalized);
+        List<Match> matches = new ArrayList<>();
+        EntryDAO entryDAO = DAOFactory.getEntryDAO();
+        SequenceDAO sequenceDAO = DAOFactory.getSequenceDAO();
+        for (int i = 0; i < candidates.size(); i += BATCH_SIZE) {
+            List<Long> ids = candidates.subList(i, Math.min(candidates.size(), i + BATCH_SIZE));
+            List<Object[]> rows = sequenceDAO.getSequenceStrings(ids);
+            Set<Long> linear = getLinearPlasmids(entryDAO, rows);
+            for (Object[] row : rows) {
+                String sequence = (String) row[1];
+                if (sequence == null || sequence.isEmpty())
+                    continue;
+
+                long entryId = (Long) row[0];
+                String text = sequence.toLowerCase().replace('u', 't');
+                if (isCircular((String) row[2], linear.contains(entryId)))
+                    text += text.substring(0, Math.min(text.length(), normalized.length() - 1));
+                if (text.contains(normalized) || text.contains(reverseComplement))
+                    matches.add(new Match(entryId, sequence.length()));
+            }
+        }
+
+        matches.sort((m1, m2) -> m1.length != m2.length ? Integer.compare(m1.length, m2.length)
+                : Long.compare(m1.entryId, m2.entryId));
+        return matches;
+    }
+
+    // entries whose postings contain all the specified minimizers
+    private List<Long> getCandidates(int[] minimizers) {
+        List<Long> candidates = new ArrayList<>();
+        if (minimizers.length == 0)
+            return candidates;
+
+        lock.readLock().lock();
+        try {
+            Integer[] order = new Integer[minimizers.length];
+            for (int i = 0; i < minimizers.length; i += 1) {
+                if (postingSizes[minimizers[i]] == 0)
+                    return candidates;
+                order[i] = minimizers[i];
+            }
+            Arrays.sort(order, Comparator.comparingInt(minimizer -> postingSizes[minimizer]));
+
+            int[] smallest = postings[order[0]];
+            for (int i = 0; i < postingSizes[order[0]]; i += 1) {
+                int document = smallest[i];
+                if (deletedDocuments.get(document))
+                    continue;
+
+                boolean all = true;
+                for (int j = 1; j < order.length && all; j += 1) {
+                    all = Arrays.binarySearch(postings[order[j]], 0, postingSizes[order[j]], document) >= 0;
+                }
+                if (all)
+                    candidates.add(documentEntryIds[document]);
+            }
+            return candidates;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void addDocument(long entryId, int[] minimizers) {
+        int document = documentCount++;
+        if (document == documentEntryIds.length)
+            documentEntryIds = Arrays.copyOf(documentEntryIds, document * 2);
+        documentEntryIds[document] = entryId;
+        entryDocuments.put(entryId, document);
+
+        for (int minimizer : minimizers) {
+            int[] list = postings[minimizer];
+            int size = postingSizes[minimizer];
+            if (list == null) {
+                list = new int[4];
+                postings[minimizer] = list;
+            } else if (size == list.length) {
+                list = Arrays.copyOf(list, size + (size >> 1));
+                postings[minimizer] = list;
+            }
+            list[size] = document;
+            postingSizes[minimizer] = size + 1;
+        }
+    }
+
+    private void removeDocument(long entryId) {
+        Integer document = entryDocuments.remove(entryId);
+        if (document == null)
+            return;
+
+        deletedDocuments.set(document);
+        deletedCount += 1;
+        if (deletedCount > 1024 && deletedCount > entryDocuments.size() / 4)
+            compact();
+    }
+
+    // drops deleted documents from the postings
+    private void compact() {
+        for (int minimizer = 0; minimizer < postings.length; minimizer += 1) {
+            int[] list = postings[minimizer];
+            if (list == null)
+                continue;
+
+            int size = 0;
+            for (int i = 0; i < postingSizes[minimizer]; i += 1) {
+                if (!deletedDocuments.get(list[i]))
+                    list[size++] = list[i];
+            }
+            postingSizes[minimizer] = size;
+            postings[minimizer] = size == 0 ? null : Arrays.copyOf(list, size);
+        }
+        deletedCount = 0;
+    }
+
+    private void clear() {
+        postings = new int[MASK + 1][];
+        postingSizes = new int[MASK + 1];
+        documentEntryIds = new long[1024];
+        documentCount = 0;
+        deletedCount = 0;
+        deletedDocuments.clear();
+        entryDocuments.clear();
+    }
+
+    private static Set<Long> getLinearPlasmids(EntryDAO entryDAO, List<Object[]> rows) {
+        List<Long> plasmids = new ArrayList<>();
+        for (Object[] row : rows) {
+            if (EntryType.PLASMID.getName().equalsIgnoreCase((String) row[2]))
+                plasmids.add((Long) row[0]);
+        }
+        return new HashSet<>(entryDAO.getLinearPlasmidIds(plasmids));
+    }
+
+    private static boolean isCircular(String recordType, boolean linearPlasmid) {
+        return EntryType.PLASMID.getName().equalsIgnoreCase(recordType) && !linearPlasmid;
+    }
+
+    /**
+     * Computes the distinct (hashed) canonical minimizers of a sequence. For circular sequences the windows that
+     * span the origin are included
+     *
+     * @param sequence sequence
+     * @param circular whether the sequence is circular
+     * @return sorted minimizer hashes
+     */
+    static int[] minimizers(String sequence, boolean circular) {
+        int length = sequence.length();
+        int extension = circular ? Math.min(length, K + WINDOW - 2) : 0;
+        int[] window = new int[WINDOW];
+        int[] result = new int[16];
+        int count = 0;
+        int forward = 0;
+        int reverse = 0;
+        int bases = 0;
+        int kmers = 0;
+        int previous = -1;
+
+        for (int i = 0; i < length + extension; i += 1) {
+            int code = encode(sequence.charAt(i < length ? i : i - length));
+            if (code < 0) {
+                bases = 0;
+                kmers = 0;
+                continue;
+            }
+
+            forward = ((forward << 2) | code) & MASK;
+            reverse = (reverse >>> 2) | ((3 - code) << (2 * (K - 1)));
+            if (++bases < K)
+                continue;
+
+            window[kmers % WINDOW] = (Math.min(forward, reverse) * HASH_MULTIPLIER) & MASK;
+            if (++kmers < WINDOW)
+                continue;
+
+            int minimum = window[0];
+            for (int j = 1; j < WINDOW; j += 1) {
+                minimum = Math.min(minimum, window[j]);
+            }
+            if (minimum != previous) {
+                if (count == result.length)
+                    result = Arrays.copyOf(result, count * 2);
+                result[count++] = minimum;
+                previous = minimum;
+            }
+        }
+
+        Arrays.sort(result, 0, count);
+        int unique = 0;
+        for (int i = 0; i < count; i += 1) {
+            if (unique == 0 || result[unique - 1] != result[i])
+                result[unique++] = result[i];
+        }
+        return Arrays.copyOf(result, unique);
+    }
+
+    // reverse complement of a (validated) lower case sequence
+    private static String reverseComplement(String sequence) {
+        char[] complement = new char[sequence.length()];
+        for (int i = 0; i < sequence.length(); i += 1) {
+            complement[sequence.length() - 1 - i] = "tgca".charAt(encode(sequence.charAt(i)));
+        }
+        return new String(complement);
+    }
+
+    private static int encode(char base) {
+        switch (base) {
+            case 'a':
+            case 'A':
+                return 0;
+            case 'c':
+            case 'C':
+                return 1;
+            case 'g':
+            case 'G':
+                return 2;
+            case 't':
+            case 'T':
+            case 'u':
+            case 'U':
+                return 3;
+            default:
+                return -1;
+        }
+    }
+
+    private static class Match {
+        private final long entryId;
+        private final int length;
+
+        Match(long entryId, int length) {
+            this.entryId = entryId;
+            this.length = length;
+        }
+    }
+}
@@ -1,49 +1,66 @@
 package org.jbei.ice.lib.search.blast;
 
-import com.opencsv.CSVReader;
-import com.opencsv.exceptions.CsvException;
 import org.apache.commons.lang3.StringUtils;
 import org.biojava.bio.seq.DNATools;
 import org.biojava.bio.seq.RNATools;
 import org.biojava.bio.symbol.IllegalSymbolException;
 import org.biojava.bio.symbol.SymbolList;
 import org.jbei.ice.lib.common.logging.Logger;
-import org.jbei.ice.lib.dto.entry.EntryType;
+import org.jbei.ice.lib.dto.ConfigurationKey;
 import org.jbei.ice.lib.dto.entry.PartData;
 import org.jbei.ice.lib.dto.search.BlastProgram;
 import org.jbei.ice.lib.dto.search.BlastQuery;
 import org.jbei.ice.lib.dto.search.SearchResult;
 import org.jbei.ice.lib.entry.HasEntry;
+import org.jbei.ice.lib.entry.sequence.IdenticalSequences;
+import org.jbei.ice.lib.executor.IceExecutorService;
+import org.jbei.ice.lib.utils.Utils;
 import org.jbei.ice.storage.DAOFactory;
+import org.jbei.ice.storage.ModelToInfoFactory;
 import org.jbei.ice.storage.hibernate.dao.SequenceDAO;
 import org.jbei.ice.storage.model.Entry;
 import org.jbei.ice.storage.model.Sequence;
 
 import java.io.IOException;
-import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import static org.jbei.ice.lib.utils.SequenceUtils.breakUpLines;
 
 /**
- * Standard blast database for sequences
+ * Standard blast database for sequences. The database is sharded (see {@link BlastShards}): a compaction formats
+ * all sequences into a base volume and each sequence change is formatted into a small delta volume or recorded as
+ * a tombstone, so a change does not require re-formatting all the sequences. Compaction runs in the background
+ * once enough delta volumes or tombstones accumulate
  *
  * @author Hector Plahar
  */
 public class StandardBlastDatabase extends BlastDatabase {
 
+    // maximum length of queries that are checked for exact matches before running blast
+    private static final int EXACT_MATCH_QUERY_LENGTH = 100;
+
+
     private static StandardBlastDatabase INSTANCE;
     private BlastPlus blastPlus;
     private BlastFastaFile blastFastaFile;
     private SequenceDAO sequenceDAO;
+    private final BlastShards shards;
+    private final AtomicBoolean compacting = new AtomicBoolean(false);
+    private final BlastResultCache<LinkedHashMap<String, SearchResult>> cache;
 
     private StandardBlastDatabase() {
         super("blast");
         blastPlus = new BlastPlus();
         sequenceDAO = DAOFactory.getSequenceDAO();
         blastFastaFile = new BlastFastaFile(indexPath);
+        shards = new BlastShards(indexPath, dbName);
+        cache = new BlastResultCache<>(getCacheSize(), StandardBlastDatabase::getResultsSize);
     }
 
     public static StandardBlastDatabase getInstance() {
@@ -52,22 +69,27 @@ public class StandardBlastDatabase extends BlastDatabase {
         return INSTANCE;
     }
 
-    private static String getSequenceFasta(Sequence sequence) {
+    private static String getSequenceFasta(Sequence sequence, int volume) {
+        Entry entry = sequence.getEntry();
+        return getSequenceFasta(entry.getId(), entry.getRecordType(), entry.getName(), entry.getPartNumber(),
+                sequence.getSequence(), volume);
+    }
+
+    private static String getSequenceFasta(long id, String recordType, String name, String pNumber, String temp,
+                                           int volume) {
         String sequenceString = "";
-        String temp = sequence.getSequence();
 
         if (temp != null) {
             SymbolList symL;
             try {
-                symL = DNATools.createDNA(sequence.getSequence().trim());
+                symL = DNATools.createDNA(temp.trim());
             } catch (IllegalSymbolException e1) {
                 // maybe it's rna?
                 try {
-                    symL = RNATools.createRNA(sequence.getSequence().trim());
+                    symL = RNATools.createRNA(temp.trim());
                 } catch (IllegalSymbolException e2) {
                     // skip this sequence
-                    Logger.debug("Invalid characters in sequence for " + sequence.getEntry().getId()
-                            + ". Skipped for indexing");
+                    Logger.debug("Invalid characters in sequence for " + id + ". Skipped for indexing");
                     Logger.debug(e2.toString());
                     return null;
                 }
@@ -79,13 +101,11 @@ public class StandardBlastDatabase extends BlastDatabase {
         if (StringUtils.isEmpty(sequenceString))
             return null;
 
-        long id = sequence.getEntry().getId();
         String idString = ">" + id;
-        idString += DELIMITER + sequence.getEntry().getRecordType();
-        String name = sequence.getEntry().getName() == null ? "None" : sequence.getEntry().getName();
-        idString += DELIMITER + name;
-        String pNumber = sequence.getEntry().getPartNumber();
+        idString += DELIMITER + recordType;
+        idString += DELIMITER + (name == null ? "None" : name);
         idString += DELIMITER + pNumber;
+        idString += DELIMITER + BlastHitCollector.VOLUME_PREFIX + volume;
         idString += "\n";
         return (idString + sequenceString + "\n");
     }
@@ -95,7 +115,11 @@ public class StandardBlastDatabase extends BlastDatabase {
     }
 
     /**
-     * Run a blast query using the following output format options
+     * Run a blast query. For nucleotide queries of up to 100 bases, the sequences that contain the query (on
+     * either strand) are found using the {@link SequenceKmerIndex} and ranked ahead of the blast hits, so that
+     * near matches found by blast are still returned. Sequences identical to a nucleotide query are found using
+     * the sequence hashes (see {@link IdenticalSequences}) and ranked first. Blast is run using the following output
+     * format options
      * <ul>
      * <li><code>stitle</code> - subject title</li>
      * <li><code>qstart</code> - query match start index</li>
@@ -114,81 +138,156 @@ public class StandardBlastDatabase extends BlastDatabase {
      * @throws BlastException if results of running blast is null
      */
     public HashMap<String, SearchResult> runBlast(BlastQuery query) throws BlastException {
+        boolean blastN = query.getBlastProgram() == null || query.getBlastProgram() == BlastProgram.BLAST_N;
+
+        // stored sequences identical to the query (or rotations of it if circular) are ranked first, followed by
+        // exact matches of short (e.g. primer) queries
+        LinkedHashMap<String, SearchResult> results = new LinkedHashMap<>();
+        if (blastN && query.getSequence() != null) {
+            results.putAll(getIdenticalSequences(query.getSequence(), query.isCircular()));
+
+            if (query.getSequence().trim().length() <= EXACT_MATCH_QUERY_LENGTH) {
+                SequenceKmerIndex kmerIndex = SequenceKmerIndex.getInstance();
+                HashMap<String, SearchResult> exactMatches = kmerIndex.search(query.getSequence());
+                if (exactMatches != null)
+                    exactMatches.forEach(results::putIfAbsent);
+            }
+        }
+
         List<String> options;
-        if (query.getBlastProgram() == null || query.getBlastProgram() == BlastProgram.BLAST_N)
+        if (blastN)
             options = Arrays.asList("-perc_identity", "70", "-outfmt",
                     "10 stitle qstart qend sstart send sstrand evalue bitscore score length nident");
         else
             options = Arrays.asList("-outfmt",
                     "10 stitle qstart qend sstart send sstrand evalue bitscore score length nident");
 
-        BlastSearch blastSearch = new BlastSearch(this.indexPath, this.dbName);
-        String result = blastSearch.run(query, options.toArray(new String[]{}));
-        if (result == null)
-            throw new BlastException("Exception running blast");
-        return processBlastOutput(result, query.getSequence().length());
+        // hits of repeated searches against the same database generation are cached. Only the entry ids and the
+        // scores are cached; the entry names and summaries are retrieved for each search so edits are reflected
+        String cacheKey = BlastResultCache.getKey(query, shards.getGeneration(), String.join(" ", options));
+        LinkedHashMap<String, SearchResult> blastResults = cache.get(cacheKey);
+        if (blastResults == null) {
+            // output is processed as it is read
+            BlastHitCollector collector = new BlastHitCollector(shards, query.getSequence().length());
+            BlastSearch blastSearch = new BlastSearch(this.indexPath, this.dbName);
+            if (!blastSearch.run(query, collector, options.toArray(new String[]{}))) {
+                if (!results.isEmpty()) {
+                    Logger.error("Exception running blast. Returning exact matches only");
+                    return results;
+                }
+                throw new BlastException("Exception running blast");
+            }
+
+            blastResults = copyResults(collector.getResults());
+            cache.put(cacheKey, blastResults);
+        }
+
+        LinkedHashMap<String, SearchResult> hits = copyResults(blastResults);
+        hits.keySet().removeAll(results.keySet());
+        setSummaries(hits.values());
+        results.putAll(hits);
+        return results;
+    }
+
+    // exact matches for the entire query found using the sequence hashes
+    private LinkedHashMap<String, SearchResult> getIdenticalSequences(String sequence, boolean circular) {
+        LinkedHashMap<String, SearchResult> results = new LinkedHashMap<>();
+        List<Long> entryIds = new IdenticalSequences().find(sequence, circular);
+        if (entryIds.isEmpty())
+            return results;
+
+        int queryLength = IdenticalSequences.normalize(sequence).length();
+        for (Entry entry : DAOFactory.getEntryDAO().getEntriesByIdSet(entryIds)) {
+            SearchResult searchResult = ModelToInfoFactory.createExactMatchResult(entry, queryLength);
+            results.put(Long.toString(entry.getId()), searchResult);
+        }
+        return results;
     }
 
     /**
-     * Processes the result of a blast search
+     * Adds the statistics for the cache of search results to the status
      *
-     * @param blastOutput result output from running blast on the command line
-     * @param queryLength length of query sequence
-     * @return mapping of entryId to search result object containing information about the blast search for that particular hit
+     * @param status blast execution status
      */
-    private LinkedHashMap<String, SearchResult> processBlastOutput(String blastOutput, int queryLength) {
-        LinkedHashMap<String, SearchResult> hashMap = new LinkedHashMap<>();
+    public void addCacheStatistics(BlastExecutionStatus status) {
+        status.addCache(cache.getCount(), cache.getHits(), cache.getMisses());
+    }
 
-        try (CSVReader reader = new CSVReader(new StringReader(blastOutput))) {
-            List<String[]> lines = reader.readAll();
-            reader.close();
+    // copies the hits (entry id, type and part number) and scores of (cached) results since callers modify them
+    private static LinkedHashMap<String, SearchResult> copyResults(LinkedHashMap<String, SearchResult> results) {
+        LinkedHashMap<String, SearchResult> copy = new LinkedHashMap<>();
+        for (Map.Entry<String, SearchResult> entry : results.entrySet()) {
+            SearchResult result = entry.getValue();
+            PartData info = new PartData(result.getEntryInfo().getType());
+            info.setId(result.getEntryInfo().getId());
+            info.setPartId(result.getEntryInfo().getPartId());
+
+            SearchResult resultCopy = new SearchResult();
+            resultCopy.setEntryInfo(info);
+            resultCopy.seteValue(result.geteValue());
+            resultCopy.setScore(result.getScore());
+            resultCopy.setAlignment(result.getAlignment());
+            resultCopy.setQueryLength(result.getQueryLength());
+            resultCopy.setNident(result.getNident());
+            copy.put(entry.getKey(), resultCopy);
+        }
+        return copy;
+    }
 
-            for (String[] line : lines) {
-                SearchResult info = parseBlastOutputLine(line);
-                if (info == null)
-                    continue;
+    // estimated memory used by search results, in bytes
+    private static long getResultsSize(LinkedHashMap<String, SearchResult> results) {
+        long size = 64;
+        for (SearchResult result : results.values()) {
+            PartData info = result.getEntryInfo();
+            size += 256 + 2 * (StringUtils.length(info.getPartId()) + StringUtils.length(result.geteValue())
+                    + StringUtils.length(result.getAlignment()));
+        }
+        return size;
+    }
 
-                info.setQueryLength(queryLength);
-                String idString = Long.toString(info.getEntryInfo().getId());
-                // if there is an existing record for same entry with a lower relative score then replace
-                hashMap.putIfAbsent(idString, info);
-            }
-        } catch (IOException | CsvException e) {
-            Logger.error(e);
-            return null;
+    /**
+     * @return bytes of search results each blast database may cache. The configured budget is split equally between
+     * the sequence and feature databases
+     */
+    static long getCacheSize() {
+        long megabytes;
+        try {
+            megabytes = Long.parseLong(Utils.getConfigValue(ConfigurationKey.BLAST_RESULT_CACHE_SIZE).trim());
+        } catch (NumberFormatException e) {
+            megabytes = Long.parseLong(ConfigurationKey.BLAST_RESULT_CACHE_SIZE.getDefaultValue());
+        }
+        return megabytes * 1024 * 1024 / 2;
+    }
+
+    // retrieves the current names and summaries of the entries in the results using a single query
+    private void setSummaries(Collection<SearchResult> results) {
+        if (results.isEmpty())
+            return;
+
+        Set<Long> entryIds = new HashSet<>();
+        for (SearchResult result : results) {
+            entryIds.add(result.getEntryInfo().getId());
         }
 
-        return hashMap;
+        Map<Long, String[]> summaries = DAOFactory.getEntryDAO().getEntrySummaries(entryIds);
+        for (SearchResult result : results) {
+            String[] summary = summaries.get(result.getEntryInfo().getId());
+            if (summary == null)
+                continue;
+            result.getEntryInfo().setName(summary[0]);
+            result.getEntryInfo().setShortDescription(summary[1]);
+        }
     }
 
     /**
-     * Parses a blast output that represents a single hit
-     *
-     * @param line blast output for hit
-     * @return object wrapper around details of the hit
+     * @return maximum number of entries returned for a blast search, applied once the results the user cannot
+     * read have been removed
      */
-    private SearchResult parseBlastOutputLine(String[] line) {
+    public static int getMaxHits() {
         try {
-            // extract part information
-            PartData view = new PartData(EntryType.nameToType(line[1]));
-            view.setId(Long.decode(line[0]));
-            view.setName(line[2]);
-            view.setPartId(line[3]);
-            String summary = DAOFactory.getEntryDAO().getEntrySummary(view.getId());
-            view.setShortDescription(summary);
-
-            //search result object
-            SearchResult searchResult = new SearchResult();
-            searchResult.setEntryInfo(view);
-            searchResult.seteValue(line[9]);
-            searchResult.setScore(Float.parseFloat(line[11].trim()));
-            searchResult.setAlignment(line[13]);
-            searchResult.setQueryLength(Integer.parseInt(line[12].trim()));
-            searchResult.setNident(Integer.parseInt(line[13].trim()));
-            return searchResult;
-        } catch (Exception e) {
-            Logger.error(e);
-            return null;
+            return Integer.parseInt(Utils.getConfigValue(ConfigurationKey.BLAST_MAX_HITS).trim());
+        } catch (NumberFormatException e) {
+            return Integer.parseInt(ConfigurationKey.BLAST_MAX_HITS.getDefaultValue());
         }
     }
 
@@ -205,107 +304,218 @@ public class StandardBlastDatabase extends BlastDatabase {
             return;
         }
 
-        // delete fasta file and create a new one with all sequences in database
-        blastFastaFile.createNew();
-        Iterable<String> iterable = () -> new AllSequencesStream(sequenceDAO);
-        blastFastaFile.write(iterable);
-        blastPlus.formatBlastDb(blastFastaFile, this.dbName);
+        compact();
     }
 
-    public void addSequence(String partId) {
-        Entry entry = new HasEntry().getEntry(partId);
-        if (entry == null) {
-            Logger.error("Could not retrieve entry with id " + partId + ". Sequence was not added to blast");
+    /**
+     * Formats all the sequences in the database into a new base volume, replacing the existing base and the delta
+     * volumes and tombstones created before the compaction started. Sequence changes made while compacting are
+     * added as delta volumes as usual. Does nothing if a compaction is already in progress
+     *
+     * @throws BlastException on exception formatting the base volume
+     */
+    public void compact() throws BlastException {
+        if (!compacting.compareAndSet(false, true)) {
+            Logger.info("Blast database compaction already in progress");
             return;
         }
 
-        Sequence sequence = sequenceDAO.getByEntry(entry);
-        final String blastFasta = getSequenceFasta(sequence);
-        if (blastFasta == null)
-            return;
+        try {
+            int volume = shards.nextVolume();
+            String baseName = shards.getBaseName(volume);
+            Logger.info("Compacting blast database into " + baseName);
+
+            // delete fasta file and create a new one with all sequences in database
+            blastFastaFile.createNew();
+            Iterable<String> iterable = () -> new AllSequencesStream(sequenceDAO, volume);
+            if (!blastFastaFile.write(iterable))
+                throw new BlastException("Could not write blast fasta file");
+            blastPlus.formatBlastDb(blastFastaFile, baseName);
+
+            for (String obsolete : shards.compacted(volume)) {
+                deleteVolumeFiles(obsolete);
+            }
+            deleteLegacyFiles();
+        } finally {
+            compacting.set(false);
+        }
+    }
 
-        blastFastaFile.write(() -> new Iterator<String>() {
-            private boolean called = false;
+    /**
+     * Applies a batch of sequence changes to the database. The current sequences of the created or updated
+     * entries are formatted into a single new delta volume, replacing any previous versions, and tombstones are
+     * recorded for deleted sequences (and entries without a valid sequence)
+     *
+     * @param changes part numbers of entries mapped to the change of their sequence
+     * @throws BlastException on exception formatting the delta volume
+     */
+    public void applyChanges(Map<String, Action> changes) throws BlastException {
+        int volume = shards.nextVolume();
+        StringBuilder fasta = new StringBuilder();
+        List<Long> added = new ArrayList<>();
+        List<Long> removed = new ArrayList<>();
+
+        for (Map.Entry<String, Action> change : changes.entrySet()) {
+            Entry entry = new HasEntry().getEntry(change.getKey());
+            if (entry == null) {
+                Logger.error("Could not retrieve entry with id " + change.getKey() + ". Blast database not updated");
+                continue;
+            }
 
-            @Override
-            public boolean hasNext() {
-                if (called)
-                    return false;
+            String blastFasta = null;
+            if (change.getValue() != Action.DELETE) {
+                Sequence sequence = sequenceDAO.getByEntry(entry);
+                if (sequence != null)
+                    blastFasta = getSequenceFasta(sequence, volume);
+            }
 
-                called = true;
-                return true;
+            if (blastFasta == null) {
+                removed.add(entry.getId());
+            } else {
+                fasta.append(blastFasta);
+                added.add(entry.getId());
             }
+        }
 
-            @Override
-            public String next() {
-                return blastFasta;
+        if (!added.isEmpty()) {
+            String volumeName = shards.getDeltaName(volume);
+            Path fastaPath = Paths.get(indexPath.toString(), volumeName + ".fasta");
+            try {
+                Files.write(fastaPath, fasta.toString().getBytes(StandardCharsets.UTF_8));
+                blastPlus.formatBlastDb(fastaPath, volumeName);
+                shards.addDelta(volume, added);
+            } catch (IOException | BlastException e) {
+                deleteVolumeFiles(volumeName);
+                throw e instanceof BlastException ? (BlastException) e : new BlastException(e);
+            } finally {
+                try {
+                    Files.deleteIfExists(fastaPath);
+                } catch (IOException e) {
+                    Logger.error(e);
+                }
             }
-        });
+        }
+
+        for (Long entryId : removed) {
+            shards.delete(entryId);
+        }
+
+        scheduleCompaction();
+    }
 
+    /**
+     * Adds the current sequence of the specified entry to the database in a new delta volume, replacing any
+     * previous version of the sequence
+     *
+     * @param partId part number of entry
+     */
+    public void addSequence(String partId) {
         try {
-            blastPlus.formatBlastDb(blastFastaFile, this.dbName);
+            applyChanges(Collections.singletonMap(partId, Action.CREATE));
         } catch (BlastException e) {
             Logger.error(e);
         }
     }
 
+    /**
+     * Removes the sequence of the specified entry from the database by recording a tombstone for it
+     *
+     * @param partId part number of entry
+     */
     public void removeSequence(String partId) {
         try {
-            blastFastaFile.delete(partId);
-            blastPlus.formatBlastDb(blastFastaFile, this.dbName);
-        } catch (IOException | BlastException e) {
+            applyChanges(Collections.singletonMap(partId, Action.DELETE));
+        } catch (BlastException e) {
             Logger.error(e);
         }
     }
 
     public void updateSequence(String partId) {
-        // remove and add
-        try {
-            blastFastaFile.delete(partId);
-        } catch (IOException e) {
-            Logger.error(e);
-            return;
-        }
+        // the new delta volume replaces any previous version
         addSequence(partId);
     }
 
+    // runs a compaction in the background if there are enough delta volumes or tombstones
+    private void scheduleCompaction() {
+        if (!shards.needsCompaction() || compacting.get())
+            return;
+
+        IceExecutorService.getInstance().runTask(new RebuildBlastIndexTask(Action.FORCE_BUILD, null));
+    }
+
     /**
      * Checks if a database exists for blast searches exists by checking for the existence of
-     * the blast database name (currently <code>ice</code>) with <code>.nsq</code> extension
+     * the blast alias database (currently <code>ice</code>) and its volumes
      *
      * @return true is a blast database is found, false otherwise
      */
     private boolean blastDatabaseExists() {
-        return Files.exists(Paths.get(indexPath.toString(), this.dbName + ".nsq"));
+        return shards.exists();
     }
 
+    // deletes the files (sequences, index and log) for a blast volume
+    private void deleteVolumeFiles(String volumeName) {
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(indexPath, volumeName + ".*")) {
+            for (Path path : stream) {
+                Files.deleteIfExists(path);
+            }
+        } catch (IOException e) {
+            Logger.error("Could not delete files for blast volume " + volumeName, e);
+        }
+    }
+
+    // deletes the files for the single volume database created before the database was sharded
+    private void deleteLegacyFiles() {
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(indexPath, dbName + ".n*")) {
+            for (Path path : stream) {
+                if (!path.equals(shards.getAliasPath()))
+                    Files.deleteIfExists(path);
+            }
+        } catch (IOException e) {
+            Logger.error("Could not delete legacy blast database files", e);
+        }
+    }
+
+    /**
+     * Streams the fasta records of all sequences, retrieving them in chunks ordered by entry id (keyset paging).
+     * Only the fields needed for the records are retrieved, so no sequence or entry objects are loaded into the session
+     */
     private static class AllSequencesStream implements Iterator<String> {
 
-        private int available;
-        private int currentOffset;
-        private SequenceDAO dao;
+        private static final int CHUNK_SIZE = 200;
+
+        private final SequenceDAO dao;
+        private final int volume;
+        private Iterator<Object[]> chunk = Collections.emptyIterator();
+        private long lastEntryId;
+        private boolean lastChunk;
         private String nextValue;
 
-        public AllSequencesStream(SequenceDAO sequenceDAO) {
+        public AllSequencesStream(SequenceDAO sequenceDAO, int volume) {
             dao = sequenceDAO;
-            available = dao.getSequenceCount();
+            this.volume = volume;
         }
 
         @Override
         public boolean hasNext() {
-            while (currentOffset < available) {
-                Sequence sequence = dao.getSequence(currentOffset++);
-                if (sequence == null || sequence.getEntry() == null)
-                    continue;
-
-                nextValue = getSequenceFasta(sequence);
-                if (nextValue == null)
+            while (true) {
+                if (!chunk.hasNext()) {
+                    if (lastChunk)
+                        return false;
+
+                    List<Object[]> results = dao.getBlastSequences(lastEntryId, CHUNK_SIZE);
+                    lastChunk = results.size() < CHUNK_SIZE;
+                    chunk = results.iterator();
                     continue;
+                }
 
-                return true;
+                Object[] result = chunk.next();
+                lastEntryId = (Long) result[0];
+                nextValue = getSequenceFasta(lastEntryId, (String) result[2], (String) result[3],
+                        (String) result[4], (String) result[1], volume);
+                if (nextValue != null)
+                    return true;
             }
-
-            return false;
         }
 
         @Override
@@ -0,0 +1,276 @@
+package org.jbei.ice.lib.utils;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Compact storage encoding for sequences and the original sequence files they were parsed from.
+ * <p>
+ * Sequences are packed at 2 bits per base when they only contain (mostly) <code>acgt</code>, or at 4 bits per
+ * base when they contain (mostly) IUPAC or RNA symbols. Symbols that are not in the packed alphabet (e.g. upper
+ * case letters, gaps) are stored separately as runs of a repeated symbol, so stretches of <code>n</code> in
+ * a 2 bit encoded sequence cost a few bytes. Sequences that do not pack well (e.g. proteins) are deflated.
+ * The length of the sequence is stored in the header and can be read without decoding the sequence.
+ * <p>
+ * Layout: <code>encoding (1 byte), length (varint)</code>, followed for the packed encodings by
+ * <code>run count (varint), [gap (varint), run length (varint), symbol (varint)]*, packed bases</code>,
+ * or for the deflated encoding by the deflated UTF-8 bytes.
+ */
+public class SequenceCodec {
+
+    private static final byte DEFLATED = 0;
+    private static final byte TWO_BIT = 2;
+    private static final byte FOUR_BIT = 4;
+
+    private static final char[] TWO_BIT_ALPHABET = "acgt".toCharArray();
+    private static final char[] FOUR_BIT_ALPHABET = "acgturyswkmbdhvn".toCharArray();
+    private static final byte[] TWO_BIT_CODES = codes(TWO_BIT_ALPHABET);
+    private static final byte[] FOUR_BIT_CODES = codes(FOUR_BIT_ALPHABET);
+
+    // estimated number of bytes to store a run of symbols that are not in the alphabet
+    private static final int RUN_SIZE = 4;
+
+    private SequenceCodec() {
+    }
+
+    /**
+     * Encodes a sequence
+     *
+     * @param sequence sequence to encode
+     * @return encoded sequence, or null if the sequence is null
+     */
+    public static byte[] encode(String sequence) {
+        if (sequence == null)
+            return null;
+
+        int length = sequence.length();
+        int twoBitSize = (length + 3) / 4 + countRuns(sequence, TWO_BIT_CODES) * RUN_SIZE;
+        int fourBitSize = (length + 1) / 2 + countRuns(sequence, FOUR_BIT_CODES) * RUN_SIZE;
+        if (twoBitSize <= fourBitSize && twoBitSize <= length)
+            return pack(sequence, TWO_BIT, TWO_BIT_CODES);
+        if (fourBitSize <= length)
+            return pack(sequence, FOUR_BIT, FOUR_BIT_CODES);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write(DEFLATED);
+        writeVarInt(out, length);
+        byte[] deflated = compress(sequence);
+        out.write(deflated, 0, deflated.length);
+        return out.toByteArray();
+    }
+
+    /**
+     * Decodes a sequence encoded with {@link #encode(String)}
+     *
+     * @param data encoded sequence
+     * @return decoded sequence, or null if the data is null
+     */
+    public static String decode(byte[] data) {
+        if (data == null)
+            return null;
+
+        int[] position = {1};
+        int length = readVarInt(data, position);
+        byte encoding = data[0];
+        if (encoding == DEFLATED)
+            return inflate(data, position[0], data.length - position[0]);
+
+        char[] alphabet;
+        switch (encoding) {
+            case TWO_BIT:
+                alphabet = TWO_BIT_ALPHABET;
+                break;
+
+            case FOUR_BIT:
+                alphabet = FOUR_BIT_ALPHABET;
+                break;
+
+            default:
+                throw new IllegalArgumentException("Unknown sequence encoding " + encoding);
+        }
+
+        // read runs of symbols that are not in the alphabet
+        int runCount = readVarInt(data, position);
+        int[] runs = new int[runCount * 3];
+        for (int i = 0; i < runs.length; i += 1)
+            runs[i] = readVarInt(data, position);
+
+        // unpack bases
+        char[] sequence = new char[length];
+        int bits = encoding;
+        int perByte = 8 / bits;
+        int mask = (1 << bits) - 1;
+        int offset = position[0];
+        for (int i = 0; i < length; i += 1) {
+            int shift = (perByte - 1 - i % perByte) * bits;
+            sequence[i] = alphabet[(data[offset + i / perByte] >> shift) & mask];
+        }
+
+        // and overwrite with runs
+        int index = 0;
+        for (int i = 0; i < runs.length; i += 3) {
+            index += runs[i];
+            int end = index + runs[i + 1];
+            char symbol = (char) runs[i + 2];
+            for (; index < end; index += 1)
+                sequence[index] = symbol;
+        }
+        return new String(sequence);
+    }
+
+    /**
+     * Retrieves the length of an encoded sequence without decoding it
+     *
+     * @param data encoded sequence
+     * @return length of the sequence, or 0 if the data is null
+     */
+    public static int getLength(byte[] data) {
+        if (data == null)
+            return 0;
+        return readVarInt(data, new int[]{1});
+    }
+
+    /**
+     * Deflates text, such as the contents of an original sequence file
+     *
+     * @param text text to compress
+     * @return deflated UTF-8 bytes of the text, or null if the text is null
+     */
+    public static byte[] compress(String text) {
+        if (text == null)
+            return null;
+
+        Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+        try {
+            deflater.setInput(text.getBytes(StandardCharsets.UTF_8));
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            while (!deflater.finished()) {
+                int count = deflater.deflate(buffer);
+                out.write(buffer, 0, count);
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    /**
+     * Inflates text compressed with {@link #compress(String)}
+     *
+     * @param data deflated text
+     * @return text, or null if the data is null
+     */
+    public static String decompress(byte[] data) {
+        if (data == null)
+            return null;
+        return inflate(data, 0, data.length);
+    }
+
+    private static String inflate(byte[] data, int offset, int length) {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(data, offset, length);
+            ByteArrayOutputStream out = new ByteArrayOutputStream(length * 4);
+            byte[] buffer = new byte[8192];
+            while (!inflater.finished()) {
+                int count = inflater.inflate(buffer);
+                if (count == 0 && !inflater.finished() && (inflater.needsInput() || inflater.needsDictionary()))
+                    throw new IllegalArgumentException("Truncated compressed data");
+                out.write(buffer, 0, count);
+            }
+            return new String(out.toByteArray(), StandardCharsets.UTF_8);
+        } catch (DataFormatException e) {
+            throw new IllegalArgumentException(e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    private static byte[] pack(String sequence, byte encoding, byte[] codes) {
+        int length = sequence.length();
+        ByteArrayOutputStream out = new ByteArrayOutputStream(length / 2 + 16);
+        out.write(encoding);
+        writeVarInt(out, length);
+
+        // runs of symbols that are not in the alphabet
+        writeVarInt(out, countRuns(sequence, codes));
+        int previousEnd = 0;
+        for (int i = 0; i < length; ) {
+            char c = sequence.charAt(i);
+            if (code(codes, c) >= 0) {
+                i += 1;
+                continue;
+            }
+
+            int end = i + 1;
+            while (end < length && sequence.charAt(end) == c)
+                end += 1;
+            writeVarInt(out, i - previousEnd);
+            writeVarInt(out, end - i);
+            writeVarInt(out, c);
+            previousEnd = end;
+            i = end;
+        }
+
+        // packed bases, most significant bits first. symbols not in the alphabet are packed as 0
+        int bits = encoding;
+        int perByte = 8 / bits;
+        for (int i = 0; i < length; i += perByte) {
+            int value = 0;
+            for (int j = 0; j < perByte; j += 1) {
+                int code = i + j < length ? code(codes, sequence.charAt(i + j)) : 0;
+                value = (value << bits) | Math.max(code, 0);
+            }
+            out.write(value);
+        }
+        return out.toByteArray();
+    }
+
+    private static int countRuns(String sequence, byte[] codes) {
+        int runs = 0;
+        char previous = 0;
+        for (int i = 0; i < sequence.length(); i += 1) {
+            char c = sequence.charAt(i);
+            if (code(codes, c) < 0 && (i == 0 || c != previous))
+                runs += 1;
+            previous = c;
+        }
+        return runs;
+    }
+
+    private static int code(byte[] codes, char c) {
+        return c < codes.length ? codes[c] : -1;
+    }
+
+    private static byte[] codes(char[] alphabet) {
+        byte[] codes = new byte[128];
+        Arrays.fill(codes, (byte) -1);
+        for (int i = 0; i < alphabet.length; i += 1)
+            codes[alphabet[i]] = (byte) i;
+        return codes;
+    }
+
+    private static void writeVarInt(ByteArrayOutputStream out, int value) {
+        while ((value & ~0x7F) != 0) {
+            out.write((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+
+    private static int readVarInt(byte[] data, int[] position) {
+        int value = 0;
+        for (int shift = 0; ; shift += 7) {
+            byte b = data[position[0]++];
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0)
+                return value;
+        }
+    }
+}
@@ -36,6 +36,68 @@ public class SequenceUtils {
         return calculateSequenceHash(reverseComplement(sequence));
     }
 
+    /**
+     * Calculate the SHA-1 hash of a circular sequence, which is the same for every rotation of the sequence
+     * on either strand. The sequence is normalized to the lexicographically smallest of the rotations of the
+     * sequence and of its reverse complement before hashing.
+     * <p/>
+     * Normalize by trimming and converting to lower case. If the reverse complement cannot be calculated
+     * (invalid symbols) then only the rotations of the sequence are considered.
+     *
+     * @param sequence sequence to hash.
+     * @return Hex digest of SHA-1 hash.
+     */
+    public static String calculateRotationHash(String sequence) {
+        String normalized = sequence.trim().toLowerCase();
+        String rotation = rotate(normalized, minimalRotation(normalized));
+        try {
+            String reverseComplement = reverseComplement(normalized).toLowerCase();
+            String reverseRotation = rotate(reverseComplement, minimalRotation(reverseComplement));
+            if (reverseRotation.compareTo(rotation) < 0)
+                rotation = reverseRotation;
+        } catch (UtilityException e) {
+            // forward strand only
+        }
+        return Utils.encryptSHA(rotation);
+    }
+
+    /**
+     * Determines the start of the lexicographically smallest rotation of the given sequence in linear time and
+     * constant space by comparing candidate starting positions and skipping those that cannot be smaller.
+     *
+     * @param sequence sequence
+     * @return index at which the smallest rotation of the sequence starts
+     */
+    public static int minimalRotation(String sequence) {
+        int length = sequence.length();
+        int i = 0;
+        int j = 1;
+        int k = 0;
+        while (i < length && j < length && k < length) {
+            char a = sequence.charAt((i + k) % length);
+            char b = sequence.charAt((j + k) % length);
+            if (a == b) {
+                k += 1;
+                continue;
+            }
+
+            if (a > b)
+                i += k + 1;
+            else
+                j += k + 1;
+            if (i == j)
+                j += 1;
+            k = 0;
+        }
+        return Math.min(i, j);
+    }
+
+    private static String rotate(String sequence, int start) {
+        if (start == 0)
+            return sequence;
+        return sequence.substring(start) + sequence.substring(0, start);
+    }
+
     /**
      * Calculate the reverse complement of the given DNA sequence.
      *
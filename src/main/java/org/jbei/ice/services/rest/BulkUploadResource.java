@@ -60,8 +60,8 @@ public class BulkUploadResource extends RestResource {
             @QueryParam("type") EntryType uploadType,
             @QueryParam("token") String token,
             @DefaultValue("8") @QueryParam("limit") int limit) {
-        requireUserId();
-        ArrayList<String> results = controller.getMatchingPartNumbersForLinks(uploadType, token, limit);
+        String userId = requireUserId();
+        ArrayList<String> results = controller.getMatchingPartNumbersForLinks(userId, uploadType, token, limit);
         return super.respond(results);
     }
 
@@ -21,6 +21,7 @@ import org.jbei.ice.lib.entry.attachment.Attachments;
 import org.jbei.ice.lib.entry.sequence.InputStreamWrapper;
 import org.jbei.ice.lib.entry.sequence.PartSequence;
 import org.jbei.ice.lib.entry.sequence.SequenceFormat;
+import org.jbei.ice.lib.entry.sequence.SequenceOutput;
 import org.jbei.ice.lib.entry.sequence.Sequences;
 import org.jbei.ice.lib.entry.sequence.analysis.TraceSequences;
 import org.jbei.ice.lib.net.RemoteEntries;
@@ -28,6 +29,7 @@ import org.jbei.ice.lib.net.RemoteSequence;
 import org.jbei.ice.lib.parsers.InvalidFormatParserException;
 import org.jbei.ice.lib.utils.Utils;
 import org.jbei.ice.storage.DAOFactory;
+import org.jbei.ice.storage.hibernate.HibernateUtil;
 import org.jbei.ice.storage.hibernate.dao.ShotgunSequenceDAO;
 import org.jbei.ice.storage.model.ShotgunSequence;
 import org.jbei.ice.storage.model.TraceSequence;
@@ -210,9 +212,23 @@ public class FileResource extends RestResource {
 
             return addHeaders(Response.ok(stream), wrapper.getName());
         } else {
-            InputStreamWrapper wrapper = new PartSequence(userId, partId).toFile(SequenceFormat.fromString(downloadType), true, true);
-            StreamingOutput stream = output -> IOUtils.copy(wrapper.getInputStream(), output);
-            return addHeaders(Response.ok(stream), wrapper.getName());
+            SequenceOutput sequenceOutput = new PartSequence(userId, partId).toStream(
+                    SequenceFormat.fromString(downloadType), true, true);
+            if (sequenceOutput == null)
+                return super.respond(Response.Status.NOT_FOUND);
+
+            // written after the request transaction has been committed
+            StreamingOutput stream = output -> {
+                try {
+                    HibernateUtil.beginTransaction();
+                    sequenceOutput.write(output);
+                    HibernateUtil.commitTransaction();
+                } catch (IOException | RuntimeException e) {
+                    HibernateUtil.rollbackTransaction();
+                    throw e;
+                }
+            };
+            return addHeaders(Response.ok(stream), sequenceOutput.getName());
         }
     }
 
@@ -1,5 +1,6 @@
 package org.jbei.ice.services.rest;
 
+import org.jbei.ice.lib.dto.entry.AutoCompleteFieldValues;
 import org.jbei.ice.lib.dto.entry.CustomEntryField;
 import org.jbei.ice.lib.dto.entry.CustomFields;
 import org.jbei.ice.lib.dto.entry.EntryType;
@@ -14,6 +15,27 @@ import javax.ws.rs.core.Response;
 @Path("/fields")
 public class PartFieldResource extends RestResource {
 
+    /**
+     * Retrieves values of the auto complete field that match the token
+     */
+    @GET
+    @Path("/autocomplete")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response getAutoCompleteValues(@QueryParam("field") String field,
+                                          @DefaultValue("") @QueryParam("token") String token,
+                                          @DefaultValue("8") @QueryParam("limit") int limit) {
+        String userId = requireUserId();
+        if (field == null || token == null)
+            throw new WebApplicationException(Response.Status.BAD_REQUEST);
+
+        try {
+            AutoCompleteFieldValues values = new AutoCompleteFieldValues(userId, field);
+            return super.respond(values.getMatchingValues(token, limit));
+        } catch (IllegalArgumentException e) {
+            throw new WebApplicationException(Response.Status.BAD_REQUEST);
+        }
+    }
+
     @POST
     @Path("/{partType}")
     @Produces(MediaType.APPLICATION_JSON)
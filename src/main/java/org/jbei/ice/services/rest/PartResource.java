@@ -393,6 +393,18 @@ public class PartResource extends RestResource {
         return super.respond(results);
     }
 
+    /**
+     * @return progress of the background rebuild of the trace alignments for the part
+     */
+    @GET
+    @Produces(MediaType.APPLICATION_JSON)
+    @Path("/{id}/traces/alignments")
+    public Response getTraceAlignmentStatus(@PathParam("id") final long partId) {
+        final String userId = requireUserId();
+        TraceSequences traceSequences = new TraceSequences();
+        return super.respond(traceSequences.getAlignmentStatus(userId, partId));
+    }
+
     @GET
     @Path("/{id}/traces/all")
     @Produces(MediaType.APPLICATION_OCTET_STREAM)
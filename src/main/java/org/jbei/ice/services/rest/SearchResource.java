@@ -10,6 +10,7 @@ import org.jbei.ice.lib.search.IndexBuildStatus;
 import org.jbei.ice.lib.search.SearchIndexes;
 import org.jbei.ice.lib.search.WebSearch;
 import org.jbei.ice.lib.shared.ColumnField;
+import org.jbei.ice.storage.hibernate.search.InvalidCursorException;
 
 import javax.ws.rs.*;
 import javax.ws.rs.core.MediaType;
@@ -39,8 +40,8 @@ public class SearchResource extends RestResource {
             @DefaultValue("") @QueryParam("token") String token,
             @DefaultValue("SELECTION_MARKERS") @QueryParam("field") String field,
             @DefaultValue("8") @QueryParam("limit") int limit) {
-        requireUserId();
-        AutoCompleteFieldValues values = new AutoCompleteFieldValues(field);
+        String userId = requireUserId();
+        AutoCompleteFieldValues values = new AutoCompleteFieldValues(userId, field);
         return super.respond(values.getMatchingValues(token, limit));
     }
 
@@ -70,8 +71,12 @@ public class SearchResource extends RestResource {
             requireWebPartner();
         }
 
-        final SearchResults results = controller.runSearch(userId, query);
-        return super.respond(Response.Status.OK, results);
+        try {
+            final SearchResults results = controller.runSearch(userId, query);
+            return super.respond(Response.Status.OK, results);
+        } catch (InvalidCursorException e) {
+            throw new WebApplicationException(Response.Status.BAD_REQUEST);
+        }
     }
 
     /**
@@ -83,6 +88,8 @@ public class SearchResource extends RestResource {
      * @param limit       result count upper limit
      * @param sort        result sort
      * @param asc         true if return results in ascending order, false otherwise
+     * @param cursor      cursor returned with the previous page of results. If specified, the page following
+     *                    the cursor is returned and the offset is ignored
      * @return wrapper around list of search results conforming to query params
      */
     @GET
@@ -92,7 +99,8 @@ public class SearchResource extends RestResource {
                            @DefaultValue("0") @QueryParam("offset") final int offset,
                            @DefaultValue("15") @QueryParam("limit") final int limit,
                            @DefaultValue("relevance") @QueryParam("sort") final String sort,
-                           @DefaultValue("false") @QueryParam("asc") final boolean asc) {
+                           @DefaultValue("false") @QueryParam("asc") final boolean asc,
+                           @QueryParam("cursor") final String cursor) {
         final String userId = getUserId();
         if (StringUtils.isEmpty(userId) && !searchWeb) {
             return super.respond(Response.Status.FORBIDDEN);
@@ -106,10 +114,15 @@ public class SearchResource extends RestResource {
         parameters.setStart(offset);
         parameters.setSortAscending(asc);
         parameters.setSortField(ColumnField.valueOf(sort.toUpperCase()));
+        parameters.setCursor(cursor);
 
         final List<EntryType> types = Arrays.asList(EntryType.values());
         query.setEntryTypes(types);
-        return super.respond(controller.runSearch(userId, query));
+        try {
+            return super.respond(controller.runSearch(userId, query));
+        } catch (InvalidCursorException e) {
+            throw new WebApplicationException(Response.Status.BAD_REQUEST);
+        }
     }
 
     /**
@@ -124,6 +137,26 @@ public class SearchResource extends RestResource {
         return super.respond(Response.Status.OK);
     }
 
+    /**
+     * Retrieve metrics for the queue of changes waiting to be applied to the lucene indexes
+     */
+    @GET
+    @Path("/indexes/lucene/queue")
+    public Response getLuceneIndexQueue() {
+        final String userId = requireUserId();
+        return super.respond(controller.getIndexQueueStatus(userId));
+    }
+
+    /**
+     * Retrieve metrics for the execution of blast searches
+     */
+    @GET
+    @Path("/indexes/blast/executions")
+    public Response getBlastExecutions() {
+        final String userId = requireUserId();
+        return super.respond(controller.getBlastExecutionStatus(userId));
+    }
+
     /**
      * Rebuild the blast database
      */
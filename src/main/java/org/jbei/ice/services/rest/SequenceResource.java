@@ -1,9 +1,11 @@
 package org.jbei.ice.services.rest;
 
+import org.apache.commons.lang3.StringUtils;
 import org.glassfish.jersey.media.multipart.FormDataContentDisposition;
 import org.glassfish.jersey.media.multipart.FormDataParam;
 import org.jbei.ice.lib.access.PermissionException;
 import org.jbei.ice.lib.common.logging.Logger;
+import org.jbei.ice.lib.dto.search.BlastQuery;
 import org.jbei.ice.lib.entry.sequence.Sequences;
 
 import javax.ws.rs.*;
@@ -38,6 +40,28 @@ public class SequenceResource extends RestResource {
         }
     }
 
+    /**
+     * Retrieves the entries (that the user can read) with a sequence identical to the query sequence. Does
+     * not run blast
+     *
+     * @param query    query containing the sequence
+     * @param circular whether the query sequence is circular
+     * @return list of entries with identical sequences
+     */
+    @POST
+    @Consumes(MediaType.APPLICATION_JSON)
+    @Produces(MediaType.APPLICATION_JSON)
+    @Path("identical")
+    public Response findIdentical(BlastQuery query,
+                                  @DefaultValue("false") @QueryParam("circular") boolean circular) {
+        String userId = getUserId();
+        if (query == null || StringUtils.isBlank(query.getSequence()))
+            throw new WebApplicationException("Query sequence is required", Response.Status.BAD_REQUEST);
+
+        Sequences controller = new Sequences(userId);
+        return super.respond(controller.findIdentical(query.getSequence(), circular));
+    }
+
     @GET
     @Consumes(MediaType.APPLICATION_JSON)
     @Produces(MediaType.APPLICATION_JSON)
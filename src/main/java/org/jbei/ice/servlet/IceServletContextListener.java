@@ -3,7 +3,9 @@ package org.jbei.ice.servlet;
 import org.hibernate.SessionFactory;
 import org.jbei.ice.ApplicationInitialize;
 import org.jbei.ice.lib.common.logging.Logger;
+import org.jbei.ice.lib.entry.sequence.analysis.TraceAlignmentTask;
 import org.jbei.ice.lib.executor.IceExecutorService;
+import org.jbei.ice.lib.search.blast.BlastUpdateScheduler;
 import org.jbei.ice.storage.hibernate.HibernateUtil;
 
 import javax.servlet.ServletContextEvent;
@@ -30,6 +32,8 @@ public class IceServletContextListener implements ServletContextListener {
 
         // shutdown executor service
         IceExecutorService.getInstance().stopService();
+        BlastUpdateScheduler.getInstance().stop();
+        TraceAlignmentTask.shutdown();
 
         closeSessionFactory(HibernateUtil.getSessionFactory());
 
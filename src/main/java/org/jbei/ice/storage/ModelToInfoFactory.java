@@ -4,16 +4,15 @@ import org.apache.commons.lang3.StringUtils;
 import org.jbei.ice.lib.account.AccountController;
 import org.jbei.ice.lib.common.logging.Logger;
 import org.jbei.ice.lib.dto.entry.*;
+import org.jbei.ice.lib.dto.search.SearchResult;
 import org.jbei.ice.lib.entry.EntryUtil;
+import org.jbei.ice.storage.hibernate.dao.EntryDAO;
 import org.jbei.ice.storage.hibernate.dao.SequenceDAO;
 import org.jbei.ice.storage.model.*;
 
 import java.text.DateFormat;
 import java.text.SimpleDateFormat;
-import java.util.ArrayList;
-import java.util.HashSet;
-import java.util.List;
-import java.util.Set;
+import java.util.*;
 
 /**
  * Factory for converting {@link Entry}s to a {@link org.jbei.ice.lib.dto.entry.PartData}
@@ -259,30 +258,11 @@ public class ModelToInfoFactory {
 
 
     public static PartData createTableView(long entryId, List<String> fields) {
-        Set<String> fieldsToProcess;
-        if (fields == null)
-            fieldsToProcess = new HashSet<>();
-        else
-            fieldsToProcess = new HashSet<>(fields);
-
-        fieldsToProcess.add("name");
-        fieldsToProcess.add("status");
-        fieldsToProcess.add("recordType");
-        fieldsToProcess.add("creation_time");
-        fieldsToProcess.add("short_description");
+        Set<String> fieldsToProcess = getTableViewFields(fields);
 
         // minimum set of values
         Entry entry = DAOFactory.getEntryDAO().get(entryId);
-        EntryType type = EntryType.nameToType(entry.getRecordType());
-        PartData view = new PartData(type);
-        view.setId(entry.getId());
-        view.setRecordId(entry.getRecordId());
-        view.setPartId(entry.getPartNumber());
-        view.setName(entry.getName());
-        view.setShortDescription(entry.getShortDescription());
-        view.setCreationTime(entry.getCreationTime().getTime());
-        view.setStatus(entry.getStatus());
-        view.setShortDescription(entry.getShortDescription());
+        PartData view = getTableViewCommon(entry);
 
         // has sample
         view.setHasSample(DAOFactory.getSampleDAO().hasSample(entry));
@@ -322,6 +302,133 @@ public class ModelToInfoFactory {
         return view;
     }
 
+    /**
+     * Bulk version of {@link #createTableView(long, List)}. Retrieves the entries, and whether they have samples,
+     * sequences and original sequences (as well as linked entries and parents, if requested)
+     * using a fixed number of queries irrespective of the number of entries.
+     *
+     * @param entryIds unique identifiers for entries whose table views are to be created
+     * @param fields   optional fields to include in addition to the minimum set of values
+     * @return list of table views in the same order as the ids. Ids for entries that cannot be found are skipped
+     */
+    public static List<PartData> createTableViews(List<Long> entryIds, List<String> fields) {
+        List<PartData> views = new ArrayList<>();
+        if (entryIds == null || entryIds.isEmpty())
+            return views;
+
+        Set<String> fieldsToProcess = getTableViewFields(fields);
+        EntryDAO entryDAO = DAOFactory.getEntryDAO();
+        SequenceDAO sequenceDAO = DAOFactory.getSequenceDAO();
+
+        Map<Long, Entry> entries = new HashMap<>();
+        for (Entry entry : entryDAO.getEntriesByIdSet(entryIds)) {
+            entries.put(entry.getId(), entry);
+        }
+
+        Set<Long> withSample = new HashSet<>(DAOFactory.getSampleDAO().getEntryIdsWithSamples(entryIds));
+        Set<Long> withSequence = new HashSet<>(sequenceDAO.getEntryIdsWithSequence(entryIds));
+        Set<Long> withOriginalSequence = new HashSet<>(sequenceDAO.getEntryIdsWithOriginalSequence(entryIds));
+
+        Map<Long, List<PartData>> linkedParts = new HashMap<>();
+        Map<Long, List<PartData>> parents = new HashMap<>();
+        if (fieldsToProcess.contains("links")) {
+            groupLinks(entryDAO.getLinkedEntries(entryIds), linkedParts);
+            groupLinks(entryDAO.getParents(entryIds), parents);
+        }
+
+        for (Long entryId : entryIds) {
+            Entry entry = entries.get(entryId);
+            if (entry == null)
+                continue;
+
+            PartData view = getTableViewCommon(entry);
+            view.setHasSample(withSample.contains(entryId));
+
+            Visibility visibility = Visibility.valueToEnum(entry.getVisibility());
+            if (visibility == Visibility.REMOTE) {
+                view.setHasSequence(entry.getLongDescriptionType().equalsIgnoreCase("sequence"));
+            } else {
+                view.setHasSequence(withSequence.contains(entryId));
+                view.setHasOriginalSequence(withOriginalSequence.contains(entryId));
+            }
+
+            if (fieldsToProcess.contains("alias")) {
+                view.setAlias(entry.getAlias());
+            }
+
+            if (fieldsToProcess.contains("links")) {
+                view.getLinkedParts().addAll(linkedParts.getOrDefault(entryId, Collections.emptyList()));
+                view.getParents().addAll(parents.getOrDefault(entryId, Collections.emptyList()));
+            }
+
+            views.add(view);
+        }
+
+        return views;
+    }
+
+    private static Set<String> getTableViewFields(List<String> fields) {
+        Set<String> fieldsToProcess;
+        if (fields == null)
+            fieldsToProcess = new HashSet<>();
+        else
+            fieldsToProcess = new HashSet<>(fields);
+
+        fieldsToProcess.add("name");
+        fieldsToProcess.add("status");
+        fieldsToProcess.add("recordType");
+        fieldsToProcess.add("creation_time");
+        fieldsToProcess.add("short_description");
+        return fieldsToProcess;
+    }
+
+    private static PartData getTableViewCommon(Entry entry) {
+        EntryType type = EntryType.nameToType(entry.getRecordType());
+        PartData view = new PartData(type);
+        view.setId(entry.getId());
+        view.setRecordId(entry.getRecordId());
+        view.setPartId(entry.getPartNumber());
+        view.setName(entry.getName());
+        view.setShortDescription(entry.getShortDescription());
+        view.setCreationTime(entry.getCreationTime().getTime());
+        view.setStatus(entry.getStatus());
+        return view;
+    }
+
+    // groups rows of the form [entryId, otherId, otherRecordType] by entry id
+    private static void groupLinks(List<Object[]> rows, Map<Long, List<PartData>> links) {
+        for (Object[] row : rows) {
+            PartData partData = new PartData(EntryType.nameToType((String) row[2]));
+            partData.setId((Long) row[1]);
+            links.computeIfAbsent((Long) row[0], k -> new ArrayList<>()).add(partData);
+        }
+    }
+
+    /**
+     * Creates a search result for an entry whose sequence contains the entire query (an exact match), in the
+     * same form as a blast hit
+     *
+     * @param entry       matching entry
+     * @param queryLength length of the query sequence
+     * @return search result for the match
+     */
+    public static SearchResult createExactMatchResult(Entry entry, int queryLength) {
+        PartData view = new PartData(EntryType.nameToType(entry.getRecordType()));
+        view.setId(entry.getId());
+        view.setName(entry.getName());
+        view.setPartId(entry.getPartNumber());
+        view.setShortDescription(entry.getShortDescription());
+
+        SearchResult searchResult = new SearchResult();
+        searchResult.setEntryInfo(view);
+        searchResult.seteValue("0.0");
+        searchResult.setScore(queryLength);
+        searchResult.setAlignment(Integer.toString(queryLength));
+        searchResult.setQueryLength(queryLength);
+        searchResult.setNident(queryLength);
+        return searchResult;
+    }
+
     public static PartData createTipView(Entry entry) {
         EntryType type = EntryType.nameToType(entry.getRecordType());
         if (type == null)
@@ -4,8 +4,13 @@ import org.hibernate.Session;
 import org.hibernate.SessionFactory;
 import org.hibernate.boot.registry.StandardServiceRegistryBuilder;
 import org.hibernate.cfg.Configuration;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventType;
 import org.hibernate.service.ServiceRegistry;
 import org.jbei.ice.lib.common.logging.Logger;
+import org.jbei.ice.storage.hibernate.search.AsyncIndexingBackend;
+import org.jbei.ice.storage.hibernate.search.SecurityFilterInvalidationListener;
 import org.jbei.ice.storage.model.*;
 
 /**
@@ -96,6 +101,9 @@ public class HibernateUtil {
                     configuration.setProperty("hibernate.hbm2ddl.auto", "update");
                     configuration.setProperty("hibernate.search.default.directory_provider",
                             "org.hibernate.search.store.impl.RAMDirectoryProvider");
+                    configuration.setProperty("hibernate.search.default.worker.backend",
+                            AsyncIndexingBackend.class.getName());
+                    configuration.setProperty("hibernate.search.default.worker.async.flush_before_read", "true");
                 } else {
                     configuration.configure();                                  // load base configuration
                     getConnectionProperties(configuration);
@@ -151,6 +159,7 @@ public class HibernateUtil {
                 configuration.addAnnotatedClass(SampleCreateModel.class);
 
                 sessionFactory = configuration.buildSessionFactory(serviceRegistry);
+                registerEventListeners(sessionFactory);
             } catch (Throwable e) {
                 e.printStackTrace();
                 throw new RuntimeException(e);
@@ -158,6 +167,26 @@ public class HibernateUtil {
         }
     }
 
+    /**
+     * Registers listeners for hibernate events that are not handled through annotations
+     *
+     * @param factory newly built session factory
+     */
+    private static void registerEventListeners(SessionFactory factory) {
+        EventListenerRegistry registry = ((SessionFactoryImplementor) factory).getServiceRegistry()
+                .getService(EventListenerRegistry.class);
+
+        // clears cached search security filter principals when permissions or groups change, when the changes are
+        // flushed (so they are visible within the same transaction) and again once the transaction completes
+        SecurityFilterInvalidationListener listener = new SecurityFilterInvalidationListener();
+        registry.appendListeners(EventType.POST_INSERT, listener);
+        registry.appendListeners(EventType.POST_UPDATE, listener);
+        registry.appendListeners(EventType.POST_DELETE, listener);
+        registry.appendListeners(EventType.POST_COLLECTION_RECREATE, listener);
+        registry.appendListeners(EventType.POST_COLLECTION_UPDATE, listener);
+        registry.appendListeners(EventType.POST_COLLECTION_REMOVE, listener);
+    }
+
     /**
      * Retrieve the {@link SessionFactory}.
      *
@@ -0,0 +1,94 @@
+package org.jbei.ice.storage.hibernate.bridge;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.lucene.document.Document;
+import org.hibernate.search.bridge.FieldBridge;
+import org.hibernate.search.bridge.LuceneOptions;
+import org.jbei.ice.lib.dto.entry.AutoCompleteField;
+import org.jbei.ice.storage.model.Entry;
+import org.jbei.ice.storage.model.Plasmid;
+import org.jbei.ice.storage.model.SelectionMarker;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Class bridge that indexes the values of the auto complete fields of an entry for substring lookups.
+ * <p>
+ * Each (comma separated) value is indexed in an auto complete field as the un-analyzed term
+ * <code>lowercase(key) SEPARATOR value</code>, where the key is each suffix of the value that starts with a letter
+ * or digit (e.g. "pub_001234", "001234" and "1234" for "JPUB_001234"). This allows case insensitive substring
+ * matching by seeking in the term dictionary, with the original value retrieved from the term itself. For values
+ * longer than {@link #MAX_SUBSTRING_LENGTH} only the suffixes that start a word are indexed, to bound the size of
+ * the index. Indexing every suffix results in roughly four times the terms (and index size) of indexing only
+ * the suffixes that start a word
+ */
+public class EntryAutoCompleteBridge implements FieldBridge {
+
+    public static final char SEPARATOR = '\u001f';
+    public static final int MAX_SUBSTRING_LENGTH = 64;
+
+    /**
+     * @param field auto complete field
+     * @return name of index field containing the values for the auto complete field
+     */
+    public static String indexField(AutoCompleteField field) {
+        return "autocomplete_" + field.name();
+    }
+
+    @Override
+    public void set(String name, Object value, Document document, LuceneOptions luceneOptions) {
+        if (value == null)
+            return;
+
+        Entry entry = (Entry) value;
+        addValues(AutoCompleteField.PART_NUMBER, entry.getPartNumber(), document, luceneOptions);
+        addValues(AutoCompleteField.NAME, entry.getName(), document, luceneOptions);
+        addValues(AutoCompleteField.ALIAS, entry.getAlias(), document, luceneOptions);
+
+        if (entry.getSelectionMarkers() != null) {
+            for (SelectionMarker marker : entry.getSelectionMarkers()) {
+                addValues(AutoCompleteField.SELECTION_MARKERS, marker.getName(), document, luceneOptions);
+            }
+        }
+
+        if (entry instanceof Plasmid) {
+            Plasmid plasmid = (Plasmid) entry;
+            addValues(AutoCompleteField.ORIGIN_OF_REPLICATION, plasmid.getOriginOfReplication(), document,
+                    luceneOptions);
+            addValues(AutoCompleteField.PROMOTERS, plasmid.getPromoters(), document, luceneOptions);
+            addValues(AutoCompleteField.REPLICATES_IN, plasmid.getReplicatesIn(), document, luceneOptions);
+        }
+    }
+
+    private void addValues(AutoCompleteField field, String values, Document document, LuceneOptions luceneOptions) {
+        if (StringUtils.isBlank(values))
+            return;
+
+        String fieldName = indexField(field);
+        for (String value : values.split(",")) {
+            value = value.trim();
+            if (value.isEmpty())
+                continue;
+
+            for (String key : getKeys(value.toLowerCase())) {
+                luceneOptions.addFieldToDocument(fieldName, key + SEPARATOR + value, document);
+            }
+        }
+    }
+
+    // value and its suffixes (e.g. "pbbr1 ori", "bbr1 ori", ..., "ori", "ri"), or only the suffixes that start a
+    // word (e.g. "pbbr1 ori" and "ori") for long values
+    private Set<String> getKeys(String value) {
+        Set<String> keys = new HashSet<>();
+        keys.add(value);
+        boolean substrings = value.length() <= MAX_SUBSTRING_LENGTH;
+        for (int i = 1; i < value.length(); i += 1) {
+            if (!Character.isLetterOrDigit(value.charAt(i)))
+                continue;
+            if (substrings || !Character.isLetterOrDigit(value.charAt(i - 1)))
+                keys.add(value.substring(i));
+        }
+        return keys;
+    }
+}
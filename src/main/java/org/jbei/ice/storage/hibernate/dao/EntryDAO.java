@@ -2,7 +2,6 @@ package org.jbei.ice.storage.hibernate.dao;
 
 import org.hibernate.HibernateException;
 import org.jbei.ice.lib.common.logging.Logger;
-import org.jbei.ice.lib.dto.entry.AutoCompleteField;
 import org.jbei.ice.lib.dto.entry.EntryType;
 import org.jbei.ice.lib.dto.entry.Visibility;
 import org.jbei.ice.lib.entry.EntryUtil;
@@ -45,48 +44,27 @@ public class EntryDAO extends HibernateRepository<Entry> {
         }
     }
 
-    public List<String> getMatchingPlasmidField(AutoCompleteField field, String token, int limit) {
-        String fieldString;
-        switch (field) {
-            case ORIGIN_OF_REPLICATION:
-            default:
-                fieldString = "originOfReplication";
-                break;
-
-            case PROMOTERS:
-                fieldString = "promoters";
-                break;
-
-            case REPLICATES_IN:
-                fieldString = "replicatesIn";
-                break;
-        }
-
-        try {
-            CriteriaQuery<String> query = getBuilder().createQuery(String.class);
-            Root<Plasmid> from = query.from(Plasmid.class);
-            query
-                    .select(from.get(fieldString))
-                    .where(getBuilder().like(getBuilder().lower(from.get(fieldString)), token.toLowerCase() + "%"));
-            return currentSession().createQuery(query).setMaxResults(limit).list();
-        } catch (HibernateException he) {
-            Logger.error(he);
-            throw new DAOException(he);
-        }
-    }
+    /**
+     * Retrieves the names and summaries (short descriptions) of the specified entries in a single query
+     *
+     * @param entryIds unique identifiers for entries
+     * @return mapping of entry id to an array of the form <code>[name, summary]</code> for the entries that exist
+     * @throws DAOException on hibernate exception
+     */
+    public Map<Long, String[]> getEntrySummaries(Collection<Long> entryIds) {
+        Map<Long, String[]> summaries = new HashMap<>();
+        if (entryIds == null || entryIds.isEmpty())
+            return summaries;
 
-    public List<String> getMatchingEntryPartNumbers(String token, int limit, Set<String> include) {
         try {
-            CriteriaQuery<String> query = getBuilder().createQuery(String.class);
+            CriteriaQuery<Object[]> query = getBuilder().createQuery(Object[].class);
             Root<Entry> from = query.from(Entry.class);
-
-            ArrayList<Predicate> predicates = new ArrayList<>();
-            predicates.add(getBuilder().like(getBuilder().lower(from.get("partNumber")), "%" + token.toLowerCase() + "%"));
-            if (include != null && !include.isEmpty()) {
-                predicates.add(from.get("recordType").in(include));
+            query.multiselect(from.get("id"), from.get("name"), from.get("shortDescription"))
+                    .where(from.get("id").in(entryIds));
+            for (Object[] result : currentSession().createQuery(query).list()) {
+                summaries.put((Long) result[0], new String[]{(String) result[1], (String) result[2]});
             }
-            query.select(from.get("partNumber")).distinct(true).where(predicates.toArray(new Predicate[0]));
-            return currentSession().createQuery(query).setMaxResults(limit).list();
+            return summaries;
         } catch (HibernateException he) {
             Logger.error(he);
             throw new DAOException(he);
@@ -713,6 +691,79 @@ public class EntryDAO extends HibernateRepository<Entry> {
         }
     }
 
+    /**
+     * Retrieves the parents of each of the specified entries in a single query. Each element of the returned
+     * list is an array of the form <code>[childId (Long), parentId (Long), parentRecordType (String)]</code>
+     *
+     * @param entryIds unique identifiers for the (child) entries whose parents are to be retrieved
+     * @return list of child to parent links
+     * @throws DAOException on hibernate exception
+     */
+    public List<Object[]> getParents(List<Long> entryIds) {
+        if (entryIds == null || entryIds.isEmpty())
+            return new ArrayList<>();
+
+        try {
+            CriteriaQuery<Object[]> query = getBuilder().createQuery(Object[].class);
+            Root<Entry> from = query.from(Entry.class);
+            Join<Entry, Entry> linked = from.join("linkedEntries");
+            query.multiselect(linked.get("id"), from.get("id"), from.get("recordType"))
+                    .where(linked.get("id").in(entryIds));
+            return currentSession().createQuery(query).list();
+        } catch (HibernateException he) {
+            Logger.error(he);
+            throw new DAOException(he);
+        }
+    }
+
+    /**
+     * Retrieves the linked entries (children) of each of the specified entries in a single query. Each element of
+     * the returned list is an array of the form <code>[entryId (Long), linkedId (Long), linkedRecordType (String)]</code>
+     *
+     * @param entryIds unique identifiers for the entries whose linked entries are to be retrieved
+     * @return list of entry to linked entry links
+     * @throws DAOException on hibernate exception
+     */
+    public List<Object[]> getLinkedEntries(List<Long> entryIds) {
+        if (entryIds == null || entryIds.isEmpty())
+            return new ArrayList<>();
+
+        try {
+            CriteriaQuery<Object[]> query = getBuilder().createQuery(Object[].class);
+            Root<Entry> from = query.from(Entry.class);
+            Join<Entry, Entry> linked = from.join("linkedEntries");
+            query.multiselect(from.get("id"), linked.get("id"), linked.get("recordType"))
+                    .where(from.get("id").in(entryIds));
+            return currentSession().createQuery(query).list();
+        } catch (HibernateException he) {
+            Logger.error(he);
+            throw new DAOException(he);
+        }
+    }
+
+    /**
+     * Retrieves the subset of the specified entry ids that are plasmids explicitly marked as not circular
+     *
+     * @param entryIds unique identifiers for entries to check
+     * @return list of entry ids (from the input list) for linear plasmids
+     * @throws DAOException on hibernate exception
+     */
+    public List<Long> getLinearPlasmidIds(List<Long> entryIds) {
+        if (entryIds == null || entryIds.isEmpty())
+            return new ArrayList<>();
+
+        try {
+            CriteriaQuery<Long> query = getBuilder().createQuery(Long.class);
+            Root<Plasmid> from = query.from(Plasmid.class);
+            query.select(from.get("id")).where(from.get("id").in(entryIds),
+                    getBuilder().isFalse(from.get("circular")));
+            return currentSession().createQuery(query).list();
+        } catch (HibernateException he) {
+            Logger.error(he);
+            throw new DAOException(he);
+        }
+    }
+
     public int getDeletedCount(String ownerUserId) {
         try {
             CriteriaQuery<Long> query = getBuilder().createQuery(Long.class);
@@ -6,8 +6,11 @@ import org.jbei.ice.lib.utils.SequenceUtils;
 import org.jbei.ice.storage.DAOException;
 import org.jbei.ice.storage.hibernate.HibernateRepository;
 import org.jbei.ice.storage.model.Feature;
+import org.jbei.ice.storage.model.FeatureCurationModel;
 
 import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Join;
+import javax.persistence.criteria.JoinType;
 import javax.persistence.criteria.Root;
 import java.util.HashMap;
 import java.util.List;
@@ -80,6 +83,34 @@ public class FeatureDAO extends HibernateRepository<Feature> {
         }
     }
 
+    /**
+     * Retrieves (in order of id) the fields of the features needed for the blast database, for features with an id
+     * greater than the specified id, without loading the feature objects. Each element of the returned list is an
+     * array of the form
+     * <code>[id (Long), name (String), genbankType (String), sequence (String), excluded (Boolean)]</code> where
+     * excluded is null for features that have not been curated
+     *
+     * @param afterId exclusive lower bound for the feature ids
+     * @param limit   maximum number of results
+     * @return list of feature fields
+     * @throws DAOException on hibernate exception
+     */
+    public List<Object[]> getBlastFeatures(long afterId, int limit) {
+        try {
+            CriteriaQuery<Object[]> query = getBuilder().createQuery(Object[].class);
+            Root<Feature> from = query.from(Feature.class);
+            Join<Feature, FeatureCurationModel> curation = from.join("curation", JoinType.LEFT);
+            query.multiselect(from.get("id"), from.get("name"), from.get("genbankType"), from.get("sequence"),
+                    curation.get("exclude"))
+                    .where(getBuilder().greaterThan(from.get("id"), afterId))
+                    .orderBy(getBuilder().asc(from.get("id")));
+            return currentSession().createQuery(query).setMaxResults(limit).setReadOnly(true).list();
+        } catch (HibernateException he) {
+            Logger.error(he);
+            throw new DAOException(he);
+        }
+    }
+
     public long getFeaturesGroupByCount() {
         try {
             CriteriaQuery<Long> query = getBuilder().createQuery(Long.class);
@@ -8,6 +8,7 @@ import org.jbei.ice.lib.dto.entry.Visibility;
 import org.jbei.ice.storage.DAOException;
 import org.jbei.ice.storage.DataModel;
 import org.jbei.ice.storage.hibernate.HibernateRepository;
+import org.jbei.ice.storage.hibernate.search.SecurityFilterPrincipals;
 import org.jbei.ice.storage.model.*;
 
 import javax.persistence.criteria.*;
@@ -137,7 +138,11 @@ public class PermissionDAO extends HibernateRepository<Permission> {
             predicates.add(getPredicate(from, "upload", upload));
 
             delete.where(predicates.toArray(new Predicate[predicates.size()]));
-            return currentSession().createQuery(delete).executeUpdate();
+            int count = currentSession().createQuery(delete).executeUpdate();
+
+            // bulk deletes bypass the hibernate event listeners
+            SecurityFilterPrincipals.invalidate(currentSession().getTransaction());
+            return count;
         } catch (HibernateException he) {
             Logger.error(he);
             throw new DAOException(he);
@@ -224,7 +229,9 @@ public class PermissionDAO extends HibernateRepository<Permission> {
         Query query = session.createQuery("delete " + Permission.class.getName() + " where folder = :folder");
         query.setParameter("folder", folder);
         try {
-            return query.executeUpdate();
+            int count = query.executeUpdate();
+            SecurityFilterPrincipals.invalidate(currentSession().getTransaction());
+            return count;
         } catch (HibernateException he) {
             Logger.error(he);
             throw new DAOException(he);
@@ -236,7 +243,9 @@ public class PermissionDAO extends HibernateRepository<Permission> {
         Query query = session.createQuery("delete " + Permission.class.getName() + " where group = :group");
         query.setParameter("group", group);
         try {
-            return query.executeUpdate();
+            int count = query.executeUpdate();
+            SecurityFilterPrincipals.invalidate(currentSession().getTransaction());
+            return count;
         } catch (HibernateException he) {
             Logger.error(he);
             throw new DAOException(he);
@@ -9,7 +9,9 @@ import org.jbei.ice.storage.model.Sample;
 import org.jbei.ice.storage.model.Storage;
 
 import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Join;
 import javax.persistence.criteria.Root;
+import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -30,6 +32,29 @@ public class SampleDAO extends HibernateRepository<Sample> {
         }
     }
 
+    /**
+     * Retrieves the subset of the specified entry ids that have at least one sample
+     *
+     * @param entryIds unique identifiers for entries to check
+     * @return list of entry ids (from the input list) that have samples
+     * @throws DAOException on hibernate exception
+     */
+    public List<Long> getEntryIdsWithSamples(List<Long> entryIds) {
+        if (entryIds == null || entryIds.isEmpty())
+            return new ArrayList<>();
+
+        try {
+            CriteriaQuery<Long> query = getBuilder().createQuery(Long.class);
+            Root<Sample> from = query.from(Sample.class);
+            Join<Sample, Entry> entry = from.join("entry");
+            query.select(entry.get("id")).where(entry.get("id").in(entryIds)).distinct(true);
+            return currentSession().createQuery(query).list();
+        } catch (HibernateException e) {
+            Logger.error(e);
+            throw new DAOException(e);
+        }
+    }
+
     public int getSampleCount(Entry entry) {
         try {
             CriteriaQuery<Long> query = getBuilder().createQuery(Long.class);
@@ -1,15 +1,8 @@
 package org.jbei.ice.storage.hibernate.dao;
 
-import org.hibernate.HibernateException;
-import org.jbei.ice.lib.common.logging.Logger;
-import org.jbei.ice.storage.DAOException;
 import org.jbei.ice.storage.hibernate.HibernateRepository;
 import org.jbei.ice.storage.model.SelectionMarker;
 
-import javax.persistence.criteria.CriteriaQuery;
-import javax.persistence.criteria.Root;
-import java.util.List;
-
 /**
  * @author Hector Plahar
  */
@@ -19,17 +12,4 @@ public class SelectionMarkerDAO extends HibernateRepository<SelectionMarker> {
     public SelectionMarker get(long id) {
         return super.get(SelectionMarker.class, id);
     }
-
-    public List<String> getMatchingSelectionMarkers(String token, int limit) {
-        try {
-            CriteriaQuery<String> query = getBuilder().createQuery(String.class);
-            Root<SelectionMarker> from = query.from(SelectionMarker.class);
-            query.where(getBuilder().like(getBuilder().lower(from.get("name")), "%" + token.toLowerCase() + "%"));
-            query.select(from.get("name")).distinct(true);
-            return currentSession().createQuery(query).setMaxResults(limit).list();
-        } catch (HibernateException he) {
-            Logger.error(he);
-            throw new DAOException(he);
-        }
-    }
 }
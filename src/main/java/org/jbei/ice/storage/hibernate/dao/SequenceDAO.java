@@ -1,19 +1,33 @@
 package org.jbei.ice.storage.hibernate.dao;
 
+import org.hibernate.Hibernate;
 import org.hibernate.HibernateException;
 import org.jbei.ice.lib.common.logging.Logger;
 import org.jbei.ice.lib.dto.entry.Visibility;
 import org.jbei.ice.lib.entry.sequence.SequenceFormat;
 import org.jbei.ice.lib.entry.sequence.SequenceUtil;
+import org.jbei.ice.lib.utils.SequenceCodec;
+import org.jbei.ice.lib.utils.Utils;
 import org.jbei.ice.storage.DAOException;
 import org.jbei.ice.storage.hibernate.HibernateRepository;
+import org.jbei.ice.storage.model.AnnotationLocation;
 import org.jbei.ice.storage.model.Entry;
+import org.jbei.ice.storage.model.Feature;
 import org.jbei.ice.storage.model.Sequence;
+import org.jbei.ice.storage.model.SequenceFeature;
+import org.jbei.ice.storage.model.SequenceFeatureAttribute;
 
 import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.CriteriaUpdate;
 import javax.persistence.criteria.Join;
+import javax.persistence.criteria.JoinType;
+import javax.persistence.criteria.Predicate;
 import javax.persistence.criteria.Root;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 /**
  * Manipulate {@link Sequence} and associated objects in the database.
@@ -62,12 +76,77 @@ public class SequenceDAO extends HibernateRepository<Sequence> {
         }
     }
 
+    /**
+     * Retrieves what a rendering (e.g. a GenBank file) of the sequence of the specified entry depends on, without
+     * loading the sequence. The version is the forward hash of the sequence combined with a hash of the contents
+     * of its features (including their locations and attributes), so it changes when a feature is edited in place
+     *
+     * @param entry entry associated with sequence
+     * @return container containing the version of the sequence if the entry has a sequence, empty otherwise
+     * @throws DAOException on hibernate exception
+     */
+    public Optional<String> getSequenceVersion(Entry entry) {
+        try {
+            CriteriaQuery<Object[]> query = getBuilder().createQuery(Object[].class);
+            Root<Sequence> from = query.from(Sequence.class);
+            query.multiselect(from.get("id"), from.get("fwdHash")).where(getBuilder().equal(from.get("entry"), entry));
+            Optional<Object[]> sequence = currentSession().createQuery(query).uniqueResultOptional();
+            if (!sequence.isPresent())
+                return Optional.empty();
+
+            long sequenceId = (Long) sequence.get()[0];
+            StringBuilder builder = new StringBuilder();
+
+            CriteriaQuery<Object[]> featureQuery = getBuilder().createQuery(Object[].class);
+            Root<SequenceFeature> sequenceFeature = featureQuery.from(SequenceFeature.class);
+            Join<SequenceFeature, Feature> feature = sequenceFeature.join("feature", JoinType.LEFT);
+            featureQuery.multiselect(sequenceFeature.get("id"), sequenceFeature.get("name"),
+                    sequenceFeature.get("genbankType"), sequenceFeature.get("strand"), sequenceFeature.get("uri"),
+                    sequenceFeature.get("annotationType"), feature.get("id"), feature.get("name"),
+                    feature.get("genbankType"), feature.get("uri"))
+                    .where(getBuilder().equal(sequenceFeature.get("sequence").get("id"), sequenceId))
+                    .orderBy(getBuilder().asc(sequenceFeature.get("id")));
+            appendRows(builder, currentSession().createQuery(featureQuery).list());
+
+            CriteriaQuery<Object[]> locationQuery = getBuilder().createQuery(Object[].class);
+            Root<AnnotationLocation> location = locationQuery.from(AnnotationLocation.class);
+            Join<AnnotationLocation, SequenceFeature> locationFeature = location.join("sequenceFeature");
+            locationQuery.multiselect(locationFeature.get("id"), location.get("id"), location.get("genbankStart"),
+                    location.get("end"), location.get("singleResidue"), location.get("inbetween"))
+                    .where(getBuilder().equal(locationFeature.get("sequence").get("id"), sequenceId))
+                    .orderBy(getBuilder().asc(location.get("id")));
+            appendRows(builder, currentSession().createQuery(locationQuery).list());
+
+            CriteriaQuery<Object[]> attributeQuery = getBuilder().createQuery(Object[].class);
+            Root<SequenceFeatureAttribute> attribute = attributeQuery.from(SequenceFeatureAttribute.class);
+            Join<SequenceFeatureAttribute, SequenceFeature> attributeFeature = attribute.join("sequenceFeature");
+            attributeQuery.multiselect(attributeFeature.get("id"), attribute.get("id"), attribute.get("key"),
+                    attribute.get("value"), attribute.get("quoted"))
+                    .where(getBuilder().equal(attributeFeature.get("sequence").get("id"), sequenceId))
+                    .orderBy(getBuilder().asc(attribute.get("id")));
+            appendRows(builder, currentSession().createQuery(attributeQuery).list());
+
+            return Optional.of(sequence.get()[1] + "-" + Utils.encryptSHA(builder.toString()));
+        } catch (HibernateException he) {
+            Logger.error(he);
+            throw new DAOException(he);
+        }
+    }
+
+    private static void appendRows(StringBuilder builder, List<Object[]> rows) {
+        builder.append(rows.size()).append('\n');
+        for (Object[] row : rows)
+            builder.append(Arrays.toString(row)).append('\n');
+    }
+
     public Optional<String> getSequenceString(Entry entry) {
         try {
-            CriteriaQuery<String> query = getBuilder().createQuery(String.class);
+            CriteriaQuery<Object[]> query = getBuilder().createQuery(Object[].class);
             Root<Sequence> from = query.from(Sequence.class);
-            query.select(from.get("sequence")).where(getBuilder().equal(from.get("entry"), entry));
-            return currentSession().createQuery(query).uniqueResultOptional();
+            query.multiselect(from.get("sequence"), from.get("packedSequence"))
+                    .where(getBuilder().equal(from.get("entry"), entry));
+            return currentSession().createQuery(query).uniqueResultOptional()
+                    .map(result -> toSequenceString(result[0], result[1]));
         } catch (HibernateException he) {
             Logger.error(he);
             throw new DAOException(he);
@@ -88,6 +167,29 @@ public class SequenceDAO extends HibernateRepository<Sequence> {
         }
     }
 
+    /**
+     * Retrieves the subset of the specified entry ids that have a sequence associated with them
+     *
+     * @param entryIds unique identifiers for entries to check
+     * @return list of entry ids (from the input list) that have a sequence
+     * @throws DAOException on hibernate exception
+     */
+    public List<Long> getEntryIdsWithSequence(List<Long> entryIds) {
+        if (entryIds == null || entryIds.isEmpty())
+            return new ArrayList<>();
+
+        try {
+            CriteriaQuery<Long> query = getBuilder().createQuery(Long.class);
+            Root<Sequence> from = query.from(Sequence.class);
+            Join<Sequence, Entry> entry = from.join("entry");
+            query.select(entry.get("id")).where(entry.get("id").in(entryIds)).distinct(true);
+            return currentSession().createQuery(query).list();
+        } catch (HibernateException he) {
+            Logger.error(he);
+            throw new DAOException(he);
+        }
+    }
+
     public String getSequenceFilename(Entry entry) {
         try {
             CriteriaQuery<String> query = getBuilder().createQuery(String.class);
@@ -113,9 +215,7 @@ public class SequenceDAO extends HibernateRepository<Sequence> {
             Root<Sequence> from = query.from(Sequence.class);
             Join<Sequence, Entry> entry = from.join("entry");
             query.select(getBuilder().countDistinct(from.get("id"))).where(
-                    getBuilder().equal(entry.get("id"), entryId),
-                    getBuilder().notEqual(from.get("sequenceUser"), ""),
-                    getBuilder().isNotNull(from.get("sequenceUser")));
+                    getBuilder().equal(entry.get("id"), entryId), hasOriginalSequence(from));
             return currentSession().createQuery(query).uniqueResult() > 0;
         } catch (HibernateException he) {
             Logger.error(he);
@@ -124,28 +224,51 @@ public class SequenceDAO extends HibernateRepository<Sequence> {
     }
 
     /**
-     * Enables retrieving sequences in the database without loading everything in memory
-     * <p/>
-     * Expected usage is
-     * <code>
-     * long count = getSequenceCount();
-     * int offset = 0;
-     * while( offset < count ) {
-     * Sequence sequence = dao.getSequence(offset);
-     * // do something with sequence
-     * }
-     * </code>
+     * Retrieves the subset of the specified entry ids that have the originally uploaded sequence file
+     * stored along with the sequence
+     *
+     * @param entryIds unique identifiers for entries to check
+     * @return list of entry ids (from the input list) that have an original sequence
+     * @throws DAOException on hibernate exception
+     */
+    public List<Long> getEntryIdsWithOriginalSequence(List<Long> entryIds) {
+        if (entryIds == null || entryIds.isEmpty())
+            return new ArrayList<>();
+
+        try {
+            CriteriaQuery<Long> query = getBuilder().createQuery(Long.class);
+            Root<Sequence> from = query.from(Sequence.class);
+            Join<Sequence, Entry> entry = from.join("entry");
+            query.select(entry.get("id")).where(
+                    entry.get("id").in(entryIds), hasOriginalSequence(from)).distinct(true);
+            return currentSession().createQuery(query).list();
+        } catch (HibernateException he) {
+            Logger.error(he);
+            throw new DAOException(he);
+        }
+    }
+
+    /**
+     * Retrieves (in entry id order) the sequence strings of visible entries with ids greater than the
+     * specified id, without loading the sequence objects. Each element of the returned list is an array of the
+     * form <code>[entryId (Long), sequence (String), recordType (String)]</code>
      *
-     * @return Sequence at the specified offset
-     * @throws DAOException on Hibernate Exception
+     * @param afterEntryId exclusive lower bound for the entry ids
+     * @param limit        maximum number of results
+     * @return list of sequence strings
+     * @throws DAOException on hibernate exception
      */
-    public Sequence getSequence(int offset) {
+    public List<Object[]> getSequenceStrings(long afterEntryId, int limit) {
         try {
-            CriteriaQuery<Sequence> query = getBuilder().createQuery(Sequence.class);
+            CriteriaQuery<Object[]> query = getBuilder().createQuery(Object[].class);
             Root<Sequence> from = query.from(Sequence.class);
             Join<Sequence, Entry> entry = from.join("entry");
-            query.where(getBuilder().equal(entry.get("visibility"), Visibility.OK.getValue()));
-            return currentSession().createQuery(query).setFirstResult(offset).setMaxResults(1).uniqueResult();
+            query.multiselect(entry.get("id"), from.get("sequence"), from.get("packedSequence"),
+                    entry.get("recordType")).where(
+                    getBuilder().greaterThan(entry.get("id"), afterEntryId),
+                    getBuilder().equal(entry.get("visibility"), Visibility.OK.getValue()))
+                    .orderBy(getBuilder().asc(entry.get("id")));
+            return toSequenceStrings(currentSession().createQuery(query).setMaxResults(limit).list(), 1);
         } catch (HibernateException he) {
             Logger.error(he);
             throw new DAOException(he);
@@ -153,22 +276,269 @@ public class SequenceDAO extends HibernateRepository<Sequence> {
     }
 
     /**
-     * @return number of sequences available for all valid (visibility=9) entry object
+     * Retrieves (in order of entry id) the fields of the sequences needed for the blast database, for visible
+     * entries with an id greater than the specified id, without loading the sequence or entry objects. Each element
+     * of the returned list is an array of the form
+     * <code>[entryId (Long), sequence (String), recordType (String), name (String), partNumber (String)]</code>
+     *
+     * @param afterEntryId exclusive lower bound for the entry ids
+     * @param limit        maximum number of results
+     * @return list of sequence fields
+     * @throws DAOException on hibernate exception
      */
-    public int getSequenceCount() {
+    public List<Object[]> getBlastSequences(long afterEntryId, int limit) {
         try {
-            CriteriaQuery<Long> query = getBuilder().createQuery(Long.class);
+            CriteriaQuery<Object[]> query = getBuilder().createQuery(Object[].class);
             Root<Sequence> from = query.from(Sequence.class);
             Join<Sequence, Entry> entry = from.join("entry");
-            query.select(getBuilder().countDistinct(from.get("id")));
-            query.where(getBuilder().equal(entry.get("visibility"), Visibility.OK.getValue()));
-            return currentSession().createQuery(query).uniqueResult().intValue();
+            query.multiselect(entry.get("id"), from.get("sequence"), from.get("packedSequence"),
+                    entry.get("recordType"), entry.get("name"), entry.get("partNumber")).where(
+                    getBuilder().greaterThan(entry.get("id"), afterEntryId),
+                    getBuilder().equal(entry.get("visibility"), Visibility.OK.getValue()))
+                    .orderBy(getBuilder().asc(entry.get("id")));
+            return toSequenceStrings(currentSession().createQuery(query).setMaxResults(limit).setReadOnly(true)
+                    .list(), 1);
         } catch (HibernateException he) {
             Logger.error(he);
             throw new DAOException(he);
         }
     }
 
+    /**
+     * Retrieves the visible entries with a sequence identical to the sequence with the specified hashes, using the
+     * (indexed) hash columns. A sequence is identical if its forward or reverse complement hash matches
+     * <code>hash</code>, or if its rotation hash matches <code>rotationHash</code>, in which case it is only
+     * identical if both sequences are circular. Each element of the returned list is an array of the form
+     * <code>[entryId (Long), fwdHash (String), revHash (String), recordType (String)]</code>
+     *
+     * @param hash         sha1 hash of the normalized sequence
+     * @param rotationHash rotation hash of the sequence, or null to only match linear sequences
+     * @return list of matching entries
+     * @throws DAOException on hibernate exception
+     */
+    public List<Object[]> getIdenticalSequenceEntries(String hash, String rotationHash) {
+        try {
+            CriteriaQuery<Object[]> query = getBuilder().createQuery(Object[].class);
+            Root<Sequence> from = query.from(Sequence.class);
+            Join<Sequence, Entry> entry = from.join("entry");
+            Predicate hashes = getBuilder().or(getBuilder().equal(from.get("fwdHash"), hash),
+                    getBuilder().equal(from.get("revHash"), hash));
+            if (rotationHash != null)
+                hashes = getBuilder().or(hashes, getBuilder().equal(from.get("rotationHash"), rotationHash));
+            query.multiselect(entry.get("id"), from.get("fwdHash"), from.get("revHash"), entry.get("recordType"))
+                    .where(hashes, getBuilder().equal(entry.get("visibility"), Visibility.OK.getValue()))
+                    .orderBy(getBuilder().asc(entry.get("id")));
+            return currentSession().createQuery(query).setReadOnly(true).list();
+        } catch (HibernateException he) {
+            Logger.error(he);
+            throw new DAOException(he);
+        }
+    }
+
+    /**
+     * Retrieves (in id order) the sequence strings of sequences that do not have a rotation hash and whose ids are
+     * greater than the specified id. Each element of the returned list is an array of the form
+     * <code>[sequenceId (Long), sequence (String)]</code>
+     *
+     * @param afterId exclusive lower bound for the sequence ids
+     * @param limit   maximum number of results
+     * @return list of sequence strings
+     * @throws DAOException on hibernate exception
+     */
+    public List<Object[]> getSequencesWithoutRotationHash(long afterId, int limit) {
+        try {
+            CriteriaQuery<Object[]> query = getBuilder().createQuery(Object[].class);
+            Root<Sequence> from = query.from(Sequence.class);
+            query.multiselect(from.get("id"), from.get("sequence"), from.get("packedSequence")).where(
+                    getBuilder().greaterThan(from.get("id"), afterId),
+                    getBuilder().isNull(from.get("rotationHash")))
+                    .orderBy(getBuilder().asc(from.get("id")));
+            return toSequenceStrings(currentSession().createQuery(query).setMaxResults(limit).setReadOnly(true)
+                    .list(), 1);
+        } catch (HibernateException he) {
+            Logger.error(he);
+            throw new DAOException(he);
+        }
+    }
+
+    /**
+     * Sets the rotation hash of a sequence without loading it
+     *
+     * @param sequenceId   unique identifier for sequence
+     * @param rotationHash rotation hash of the sequence
+     * @throws DAOException on hibernate exception
+     */
+    public void setRotationHash(long sequenceId, String rotationHash) {
+        try {
+            CriteriaUpdate<Sequence> update = getBuilder().createCriteriaUpdate(Sequence.class);
+            Root<Sequence> from = update.from(Sequence.class);
+            update.set(from.get("rotationHash"), rotationHash);
+            update.where(getBuilder().equal(from.get("id"), sequenceId));
+            currentSession().createQuery(update).executeUpdate();
+        } catch (HibernateException he) {
+            Logger.error(he);
+            throw new DAOException(he);
+        }
+    }
+
+    /**
+     * Retrieves (in id order) the sequences with ids greater than the specified id whose sequence or original
+     * sequence is stored as text, i.e. has not been packed. The sequence objects are not loaded; each element of
+     * the returned list is an array of the form
+     * <code>[id (Long), sequence (String), sequenceUser (String), fwdHash (String)]</code>
+     *
+     * @param afterId exclusive lower bound for the sequence ids
+     * @param limit   maximum number of results
+     * @return list of unpacked sequence values
+     * @throws DAOException on hibernate exception
+     */
+    public List<Object[]> getUnpackedSequences(long afterId, int limit) {
+        try {
+            CriteriaQuery<Object[]> query = getBuilder().createQuery(Object[].class);
+            Root<Sequence> from = query.from(Sequence.class);
+            query.multiselect(from.get("id"), from.get("sequence"), from.get("sequenceUser"), from.get("fwdHash"))
+                    .where(getBuilder().greaterThan(from.get("id"), afterId),
+                            getBuilder().or(getBuilder().isNotNull(from.get("sequence")),
+                                    getBuilder().and(getBuilder().isNotNull(from.get("sequenceUser")),
+                                            getBuilder().notEqual(from.get("sequenceUser"), ""))))
+                    .orderBy(getBuilder().asc(from.get("id")));
+            return currentSession().createQuery(query).setMaxResults(limit).list();
+        } catch (HibernateException he) {
+            Logger.error(he);
+            throw new DAOException(he);
+        }
+    }
+
+    /**
+     * Packs the text values retrieved with {@link #getUnpackedSequences(long, int)}. Only the sequence columns are
+     * written, and only if they have not changed since they were retrieved, so that concurrent updates to the
+     * sequence (or to other columns, e.g. the rotation hash) are not overwritten
+     *
+     * @param id           unique identifier for the sequence
+     * @param sequence     sequence text that was retrieved, or null if it is already packed
+     * @param sequenceUser original sequence text that was retrieved, or null/empty if there is none to pack
+     * @param fwdHash      forward hash that was retrieved with the sequence
+     * @return number of values that were packed
+     * @throws DAOException on hibernate exception
+     */
+    public int pack(long id, String sequence, String sequenceUser, String fwdHash) {
+        try {
+            int count = 0;
+            if (sequence != null) {
+                CriteriaUpdate<Sequence> update = getBuilder().createCriteriaUpdate(Sequence.class);
+                Root<Sequence> from = update.from(Sequence.class);
+                update.set(from.<byte[]>get("packedSequence"), SequenceCodec.encode(sequence));
+                update.set(from.<String>get("sequence"), (String) null);
+                update.where(getBuilder().equal(from.get("id"), id),
+                        getBuilder().isNotNull(from.get("sequence")),
+                        fwdHash == null ? getBuilder().isNull(from.get("fwdHash"))
+                                : getBuilder().equal(from.get("fwdHash"), fwdHash));
+                count += currentSession().createQuery(update).executeUpdate();
+            }
+
+            if (sequenceUser != null && !sequenceUser.isEmpty()) {
+                CriteriaUpdate<Sequence> update = getBuilder().createCriteriaUpdate(Sequence.class);
+                Root<Sequence> from = update.from(Sequence.class);
+                update.set(from.<byte[]>get("packedSequenceUser"), SequenceCodec.compress(sequenceUser));
+                update.set(from.<String>get("sequenceUser"), (String) null);
+                update.where(getBuilder().equal(from.get("id"), id),
+                        getBuilder().equal(from.get("sequenceUser"), sequenceUser));
+                count += currentSession().createQuery(update).executeUpdate();
+            }
+            return count;
+        } catch (HibernateException he) {
+            Logger.error(he);
+            throw new DAOException(he);
+        }
+    }
+
+    /**
+     * Removes a sequence (and its features) from the session once it is no longer needed so that sequences
+     * retrieved one after the other in the same session (e.g. for an export) do not accumulate in memory.
+     * Pending changes are flushed first.
+     * <p>
+     * Eviction cascades to the sequence's entry, so the entry (including any reference to it held by the caller)
+     * is detached as well and its lazy associations can no longer be loaded in this session
+     *
+     * @param sequence sequence to evict
+     * @throws DAOException on hibernate exception
+     */
+    public void evict(Sequence sequence) {
+        try {
+            currentSession().flush();
+
+            // features are not cascaded from the sequence features so are evicted separately
+            List<Feature> features = new ArrayList<>();
+            Set<SequenceFeature> sequenceFeatures = sequence.getSequenceFeatures();
+            if (sequenceFeatures != null && Hibernate.isInitialized(sequenceFeatures)) {
+                for (SequenceFeature sequenceFeature : sequenceFeatures) {
+                    if (sequenceFeature.getFeature() != null)
+                        features.add(sequenceFeature.getFeature());
+                }
+            }
+
+            currentSession().evict(sequence);
+            for (Feature feature : features)
+                currentSession().evict(feature);
+        } catch (HibernateException he) {
+            Logger.error(he);
+            throw new DAOException(he);
+        }
+    }
+
+    /**
+     * Retrieves the sequence strings of the specified entries without loading the sequence objects. Each element
+     * of the returned list is an array of the form <code>[entryId (Long), sequence (String), recordType (String)]</code>
+     *
+     * @param entryIds unique identifiers for entries whose sequences are to be retrieved
+     * @return list of sequence strings
+     * @throws DAOException on hibernate exception
+     */
+    public List<Object[]> getSequenceStrings(List<Long> entryIds) {
+        if (entryIds == null || entryIds.isEmpty())
+            return new ArrayList<>();
+
+        try {
+            CriteriaQuery<Object[]> query = getBuilder().createQuery(Object[].class);
+            Root<Sequence> from = query.from(Sequence.class);
+            Join<Sequence, Entry> entry = from.join("entry");
+            query.multiselect(entry.get("id"), from.get("sequence"), from.get("packedSequence"),
+                    entry.get("recordType")).where(entry.get("id").in(entryIds));
+            return toSequenceStrings(currentSession().createQuery(query).list(), 1);
+        } catch (HibernateException he) {
+            Logger.error(he);
+            throw new DAOException(he);
+        }
+    }
+
+    // original sequence is stored either as (legacy) text or packed
+    private Predicate hasOriginalSequence(Root<Sequence> from) {
+        return getBuilder().or(
+                getBuilder().and(getBuilder().isNotNull(from.get("sequenceUser")),
+                        getBuilder().notEqual(from.get("sequenceUser"), "")),
+                getBuilder().isNotNull(from.get("packedSequenceUser")));
+    }
+
+    private static String toSequenceString(Object sequence, Object packedSequence) {
+        if (sequence != null)
+            return (String) sequence;
+        return SequenceCodec.decode((byte[]) packedSequence);
+    }
+
+    // replaces the (text) sequence and packed sequence values at the specified index of each row with the
+    // sequence string
+    private static List<Object[]> toSequenceStrings(List<Object[]> rows, int index) {
+        List<Object[]> results = new ArrayList<>(rows.size());
+        for (Object[] row : rows) {
+            Object[] result = new Object[row.length - 1];
+            System.arraycopy(row, 0, result, 0, index);
+            result[index] = toSequenceString(row[index], row[index + 1]);
+            System.arraycopy(row, index + 2, result, index + 1, row.length - index - 2);
+            results.add(result);
+        }
+        return results;
+    }
+
     @Override
     public Sequence get(long id) {
         return super.get(Sequence.class, id);
@@ -10,6 +10,7 @@ import org.jbei.ice.storage.model.*;
 import javax.persistence.criteria.CriteriaQuery;
 import javax.persistence.criteria.Join;
 import javax.persistence.criteria.Root;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 
@@ -51,6 +52,35 @@ public class SequenceFeatureDAO extends HibernateRepository<SequenceFeature> {
         }
     }
 
+    /**
+     * Retrieves the range of strands on which each of the specified features is annotated, in a single query. Each
+     * element of the returned list is an array of the form
+     * <code>[featureId (Long), minimumStrand (Integer), maximumStrand (Integer)]</code>. Features without any
+     * annotations are not included
+     *
+     * @param featureIds unique identifiers for features
+     * @return list of feature strand ranges
+     * @throws DAOException on hibernate exception
+     */
+    public List<Object[]> getFeatureStrands(List<Long> featureIds) {
+        if (featureIds == null || featureIds.isEmpty())
+            return new ArrayList<>();
+
+        try {
+            CriteriaQuery<Object[]> query = getBuilder().createQuery(Object[].class);
+            Root<SequenceFeature> from = query.from(SequenceFeature.class);
+            Join<SequenceFeature, Feature> feature = from.join("feature");
+            query.multiselect(feature.get("id"), getBuilder().min(from.get("strand")),
+                    getBuilder().max(from.get("strand")))
+                    .where(feature.get("id").in(featureIds))
+                    .groupBy(feature.get("id"));
+            return currentSession().createQuery(query).list();
+        } catch (HibernateException he) {
+            Logger.error(he);
+            throw new DAOException(he);
+        }
+    }
+
     public int getFeatureCount(Entry entry) {
         try {
             CriteriaQuery<Long> query = getBuilder().createQuery(Long.class);
@@ -0,0 +1,92 @@
+package org.jbei.ice.storage.hibernate.search;
+
+import org.hibernate.search.backend.impl.LocalBackendQueueProcessor;
+import org.hibernate.search.backend.spi.Backend;
+import org.hibernate.search.backend.spi.BackendQueueProcessor;
+import org.hibernate.search.indexes.spi.IndexManager;
+import org.hibernate.search.spi.WorkerBuildContext;
+import org.jbei.ice.lib.search.IndexQueueStatus;
+
+import java.util.Properties;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Hibernate search backend that applies the index changes of committed transactions asynchronously, in batches,
+ * so requests do not wait on index commits. Enabled by setting
+ * <code>hibernate.search.default.worker.backend</code> to the name of this class. Supported (optional) settings,
+ * prefixed with <code>hibernate.search.default.</code>, are
+ * <ul>
+ * <li><code>worker.async.queue_size</code>: maximum number of queued transaction change sets (default 1000)</li>
+ * <li><code>worker.async.batch_size</code>: maximum number of change sets applied with one commit (default 100)</li>
+ * <li><code>worker.async.max_delay</code>: maximum time (ms) to wait for change sets to batch (default 100)</li>
+ * <li><code>worker.async.flush_before_read</code>: wait for queued changes to be applied before searching. Intended
+ * for tests (default false)</li>
+ * </ul>
+ */
+public class AsyncIndexingBackend implements Backend {
+
+    private static final String QUEUE_SIZE = "worker.async.queue_size";
+    private static final String BATCH_SIZE = "worker.async.batch_size";
+    private static final String MAX_DELAY = "worker.async.max_delay";
+    private static final String FLUSH_BEFORE_READ = "worker.async.flush_before_read";
+
+    private static final CopyOnWriteArrayList<BatchingIndexQueue> queues = new CopyOnWriteArrayList<>();
+    private static volatile boolean flushBeforeRead;
+
+    private int queueSize;
+    private int batchSize;
+    private long maxDelay;
+
+    @Override
+    public void initialize(Properties properties, WorkerBuildContext context) {
+        queueSize = Integer.parseInt(properties.getProperty(QUEUE_SIZE, "1000"));
+        batchSize = Integer.parseInt(properties.getProperty(BATCH_SIZE, "100"));
+        maxDelay = Long.parseLong(properties.getProperty(MAX_DELAY, "100"));
+        if (Boolean.parseBoolean(properties.getProperty(FLUSH_BEFORE_READ, "false")))
+            flushBeforeRead = true;
+    }
+
+    @Override
+    public BackendQueueProcessor createQueueProcessor(IndexManager indexManager, WorkerBuildContext context) {
+        BackendQueueProcessor local = new LocalBackendQueueProcessor(indexManager);
+        BatchingIndexQueue queue = new BatchingIndexQueue(indexManager.getIndexName(), local, queueSize, batchSize,
+                maxDelay) {
+            @Override
+            public void close() {
+                super.close();
+                queues.remove(this);
+            }
+        };
+        queues.add(queue);
+        return queue;
+    }
+
+    /**
+     * Blocks until all index changes queued before the call have been applied
+     */
+    public static void flush() {
+        for (BatchingIndexQueue queue : queues) {
+            queue.flush();
+        }
+    }
+
+    /**
+     * Flushes the queued index changes if configured to do so before reading from the index
+     */
+    public static void flushBeforeRead() {
+        if (flushBeforeRead)
+            flush();
+    }
+
+    /**
+     * @return status of the index queues. All values are 0 if asynchronous indexing is not enabled
+     */
+    public static IndexQueueStatus getStatus() {
+        IndexQueueStatus status = new IndexQueueStatus();
+        for (BatchingIndexQueue queue : queues) {
+            status.add(queue.getQueueDepth(), queue.getPending(), queue.getProcessedChangeSets(),
+                    queue.getProcessedWorks(), queue.getBatches(), queue.getLastBatchMillis(), queue.getFailedWorks());
+        }
+        return status;
+    }
+}
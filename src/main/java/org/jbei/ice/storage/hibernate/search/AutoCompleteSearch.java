@@ -0,0 +1,126 @@
+package org.jbei.ice.storage.hibernate.search;
+
+import org.apache.lucene.index.*;
+import org.apache.lucene.queries.TermsQuery;
+import org.apache.lucene.search.*;
+import org.apache.lucene.util.Bits;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.StringHelper;
+import org.hibernate.search.FullTextSession;
+import org.hibernate.search.Search;
+import org.hibernate.search.exception.SearchException;
+import org.hibernate.search.indexes.IndexReaderAccessor;
+import org.jbei.ice.lib.dto.entry.AutoCompleteField;
+import org.jbei.ice.storage.hibernate.HibernateUtil;
+import org.jbei.ice.storage.hibernate.bridge.EntryAutoCompleteBridge;
+import org.jbei.ice.storage.model.Entry;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Auto complete lookups using the values indexed by {@link EntryAutoCompleteBridge}. Matching values are
+ * found by seeking in the term dictionary of the entry index. Only the terms index (a prefix trie) is held in
+ * memory; the matching terms themselves are read from the segment files. Each value is only returned if at least
+ * one entry with that value is readable by the user
+ */
+public class AutoCompleteSearch {
+
+    /**
+     * Retrieves values of the auto complete field that contain the specified token. Only tokens starting a word are
+     * matched in values longer than {@link EntryAutoCompleteBridge#MAX_SUBSTRING_LENGTH}
+     *
+     * @param userId      identifier for account of user performing lookup
+     * @param field       auto complete field
+     * @param token       token to match (case insensitive)
+     * @param limit       maximum number of values to return
+     * @param recordTypes optional record types to restrict the matching entries to
+     * @return matching values in alphabetical order of the matched suffix
+     */
+    public List<String> getMatchingValues(String userId, AutoCompleteField field, String token, int limit,
+                                          Set<String> recordTypes) {
+        LinkedHashSet<String> results = new LinkedHashSet<>();
+        if (token == null || token.trim().isEmpty() || limit <= 0)
+            return new ArrayList<>(results);
+
+        BooleanQuery.Builder filter = new BooleanQuery.Builder();
+        filter.add(new MatchAllDocsQuery(), BooleanClause.Occur.FILTER);
+        SecurityFilterPrincipals principals = SecurityFilterPrincipals.get(userId);
+        if (!principals.isAdministrator())
+            filter.add(principals.getFilterQuery(), BooleanClause.Occur.FILTER);
+
+        if (recordTypes != null && !recordTypes.isEmpty()) {
+            List<BytesRef> types = new ArrayList<>(recordTypes.size());
+            for (String type : recordTypes) {
+                types.add(new BytesRef(type));
+            }
+            filter.add(new TermsQuery("recordType", types), BooleanClause.Occur.FILTER);
+        }
+
+        AsyncIndexingBackend.flushBeforeRead();
+        FullTextSession fullTextSession = Search.getFullTextSession(HibernateUtil.getSessionFactory().getCurrentSession());
+        IndexReaderAccessor readerAccessor = fullTextSession.getSearchFactory().getIndexReaderAccessor();
+        IndexReader reader = readerAccessor.open(Entry.class);
+        try {
+            String indexField = EntryAutoCompleteBridge.indexField(field);
+            Terms terms = MultiFields.getTerms(reader, indexField);
+            if (terms == null)
+                return new ArrayList<>(results);
+
+            IndexSearcher searcher = new IndexSearcher(reader);
+            Weight filterWeight = searcher.createNormalizedWeight(filter.build(), false);
+            BytesRef prefix = new BytesRef(token.trim().toLowerCase());
+            TermsEnum termsEnum = terms.iterator();
+            if (termsEnum.seekCeil(prefix) == TermsEnum.SeekStatus.END)
+                return new ArrayList<>(results);
+
+            BytesRef term = termsEnum.term();
+            while (term != null && StringHelper.startsWith(term, prefix) && results.size() < limit) {
+                String termString = term.utf8ToString();
+                String value = termString.substring(termString.indexOf(EntryAutoCompleteBridge.SEPARATOR) + 1);
+                if (!results.contains(value) && isReadable(searcher, filterWeight, new Term(indexField, term)))
+                    results.add(value);
+                term = termsEnum.next();
+            }
+            return new ArrayList<>(results);
+        } catch (IOException e) {
+            throw new SearchException("Unable to query Lucene index", e);
+        } finally {
+            readerAccessor.close(reader);
+        }
+    }
+
+    // checks if any (live) entry containing the term also matches the filter
+    private boolean isReadable(IndexSearcher searcher, Weight filterWeight, Term term) throws IOException {
+        for (LeafReaderContext leaf : searcher.getIndexReader().leaves()) {
+            PostingsEnum postings = leaf.reader().postings(term, PostingsEnum.NONE);
+            if (postings == null)
+                continue;
+
+            Scorer scorer = filterWeight.scorer(leaf);
+            if (scorer == null)
+                continue;
+
+            Bits liveDocs = leaf.reader().getLiveDocs();
+            DocIdSetIterator filterIterator = scorer.iterator();
+            int doc = postings.nextDoc();
+            while (doc != DocIdSetIterator.NO_MORE_DOCS) {
+                int filterDoc = filterIterator.docID() < doc ? filterIterator.advance(doc) : filterIterator.docID();
+                if (filterDoc == DocIdSetIterator.NO_MORE_DOCS)
+                    break;
+
+                if (filterDoc == doc) {
+                    if (liveDocs == null || liveDocs.get(doc))
+                        return true;
+                    doc = postings.nextDoc();
+                } else {
+                    doc = postings.advance(filterDoc);
+                }
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,265 @@
+package org.jbei.ice.storage.hibernate.search;
+
+import org.hibernate.search.backend.IndexingMonitor;
+import org.hibernate.search.backend.LuceneWork;
+import org.hibernate.search.backend.spi.BackendQueueProcessor;
+import org.jbei.ice.lib.common.logging.Logger;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Queue processor for a single index that applies the index work of committed transactions asynchronously.
+ * <p>
+ * Work is placed on a bounded queue (callers block when it is full) and a dedicated writer thread drains it,
+ * applying up to <code>batchSize</code> queued change sets with a single index commit. A change set waits at most
+ * <code>maxDelay</code> milliseconds for others to be batched with it. Stream work (e.g. from the mass indexer) is
+ * applied directly once the queue has been drained so it is not re-ordered with the queued work.
+ * <p>
+ * Changes that cannot be applied are retried a few times; if they still fail, the entities whose changes were lost
+ * are logged and counted as failed works (see {@link #getFailedWorks()}) so the index can be rebuilt
+ */
+class BatchingIndexQueue implements BackendQueueProcessor {
+
+    static final int MAX_ATTEMPTS = 3;
+    private static final long RETRY_DELAY = 1000;   // ms, multiplied by the number of failed attempts
+
+    private final String indexName;
+    private final BackendQueueProcessor delegate;
+    private final BlockingQueue<ChangeSet> queue;
+    private final int batchSize;
+    private final long maxDelay;
+    private final long retryDelay;
+    private final Thread writer;
+    private final Object lock = new Object();
+    private final AtomicLong processedChangeSets = new AtomicLong();
+    private final AtomicLong processedWorks = new AtomicLong();
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicLong failedWorks = new AtomicLong();
+    private volatile long lastBatchMillis;
+    private int pending;  // queued or being applied, guarded by lock
+    private volatile boolean closed;  // set while holding lock
+
+    BatchingIndexQueue(String indexName, BackendQueueProcessor delegate, int queueSize, int batchSize,
+                       long maxDelay) {
+        this(indexName, delegate, queueSize, batchSize, maxDelay, RETRY_DELAY);
+    }
+
+    BatchingIndexQueue(String indexName, BackendQueueProcessor delegate, int queueSize, int batchSize,
+                       long maxDelay, long retryDelay) {
+        this.indexName = indexName;
+        this.retryDelay = retryDelay;
+        this.delegate = delegate;
+        this.queue = new ArrayBlockingQueue<>(Math.max(1, queueSize));
+        this.batchSize = Math.max(1, batchSize);
+        this.maxDelay = Math.max(0, maxDelay);
+        this.writer = new Thread(this::drain, "lucene-index-writer-" + indexName);
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    @Override
+    public void applyWork(List<LuceneWork> workList, IndexingMonitor monitor) {
+        // checked with the lock held so work is either counted before close() waits for it or applied directly
+        boolean queued;
+        synchronized (lock) {
+            queued = !closed;
+            if (queued)
+                pending += 1;
+        }
+
+        if (!queued) {
+            delegate.applyWork(workList, monitor);
+            return;
+        }
+
+        try {
+            queue.put(new ChangeSet(workList, monitor));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            completed(1);
+            delegate.applyWork(workList, monitor);
+        }
+    }
+
+    @Override
+    public void applyStreamWork(LuceneWork singleOperation, IndexingMonitor monitor) {
+        flush();
+        delegate.applyStreamWork(singleOperation, monitor);
+    }
+
+    /**
+     * Blocks until all the work queued before this call has been applied to the index
+     */
+    void flush() {
+        synchronized (lock) {
+            try {
+                while (pending > 0) {
+                    lock.wait();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Stops accepting work (work applied after this call is applied directly) and waits for the queued work to be
+     * applied before closing the index
+     */
+    @Override
+    public void close() {
+        synchronized (lock) {
+            closed = true;
+        }
+        flush();
+        writer.interrupt();
+        delegate.close();
+    }
+
+    int getQueueDepth() {
+        return queue.size();
+    }
+
+    int getPending() {
+        synchronized (lock) {
+            return pending;
+        }
+    }
+
+    long getProcessedChangeSets() {
+        return processedChangeSets.get();
+    }
+
+    long getProcessedWorks() {
+        return processedWorks.get();
+    }
+
+    long getBatches() {
+        return batches.get();
+    }
+
+    /**
+     * @return number of index changes that could not be applied. The index must be rebuilt to include them
+     */
+    long getFailedWorks() {
+        return failedWorks.get();
+    }
+
+    long getLastBatchMillis() {
+        return lastBatchMillis;
+    }
+
+    String getIndexName() {
+        return indexName;
+    }
+
+    // runs until closed and all the queued work has been applied
+    private void drain() {
+        List<ChangeSet> batch = new ArrayList<>(batchSize);
+        while (!closed || !queue.isEmpty()) {
+            try {
+                batch.add(queue.take());
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(maxDelay);
+                while (batch.size() < batchSize) {
+                    long remaining = deadline - System.nanoTime();
+                    ChangeSet changeSet = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : queue.poll();
+                    if (changeSet == null)
+                        break;
+                    batch.add(changeSet);
+                }
+            } catch (InterruptedException e) {
+                // interrupted by close() once the queue has been drained; checked by the loop condition
+            }
+
+            if (!batch.isEmpty()) {
+                apply(batch);
+                completed(batch.size());
+                batch.clear();
+            }
+        }
+    }
+
+    // consecutive change sets with the same monitor are applied together, with a single commit
+    private void apply(List<ChangeSet> batch) {
+        long start = System.currentTimeMillis();
+        int index = 0;
+        while (index < batch.size()) {
+            IndexingMonitor monitor = batch.get(index).monitor;
+            List<LuceneWork> works = new ArrayList<>();
+            while (index < batch.size() && batch.get(index).monitor == monitor) {
+                works.addAll(batch.get(index).works);
+                index += 1;
+            }
+
+            applyWithRetry(works, monitor);
+        }
+        processedChangeSets.addAndGet(batch.size());
+        batches.incrementAndGet();
+        lastBatchMillis = System.currentTimeMillis() - start;
+    }
+
+    private void applyWithRetry(List<LuceneWork> works, IndexingMonitor monitor) {
+        for (int attempt = 1; ; attempt += 1) {
+            try {
+                delegate.applyWork(works, monitor);
+                processedWorks.addAndGet(works.size());
+                return;
+            } catch (RuntimeException e) {
+                if (attempt >= MAX_ATTEMPTS || !sleep(retryDelay * attempt)) {
+                    failedWorks.addAndGet(works.size());
+                    Logger.error("Could not apply " + works.size() + " index changes to " + indexName + " after "
+                            + attempt + " attempts. Rebuild the index to include changes for "
+                            + getEntities(works), e);
+                    return;
+                }
+                Logger.warn("Error applying " + works.size() + " index changes to " + indexName + ". Retrying: "
+                        + e.getMessage());
+            }
+        }
+    }
+
+    // waits before retrying. returns false if interrupted
+    private boolean sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+            return true;
+        } catch (InterruptedException e) {
+            return false;
+        }
+    }
+
+    // type and id of the entities affected by the works, for logging
+    private static String getEntities(List<LuceneWork> works) {
+        StringBuilder builder = new StringBuilder();
+        for (LuceneWork work : works) {
+            if (builder.length() > 0)
+                builder.append(", ");
+            builder.append(work.getEntityType() == null ? "?" : work.getEntityType().getName()).append("#")
+                    .append(work.getIdInString() == null ? "*" : work.getIdInString());
+        }
+        return builder.toString();
+    }
+
+    private void completed(int count) {
+        synchronized (lock) {
+            pending -= count;
+            if (pending == 0)
+                lock.notifyAll();
+        }
+    }
+
+    private static class ChangeSet {
+        private final List<LuceneWork> works;
+        private final IndexingMonitor monitor;
+
+        ChangeSet(List<LuceneWork> works, IndexingMonitor monitor) {
+            this.works = works;
+            this.monitor = monitor;
+        }
+    }
+}
@@ -2,15 +2,24 @@ package org.jbei.ice.storage.hibernate.search;
 
 import org.apache.commons.lang3.StringUtils;
 import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.LeafReader;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.MultiReader;
+import org.apache.lucene.queries.TermsQuery;
 import org.apache.lucene.search.*;
+import org.apache.lucene.uninverting.UninvertingReader;
+import org.apache.lucene.util.BytesRef;
 import org.hibernate.Session;
 import org.hibernate.search.FullTextQuery;
 import org.hibernate.search.FullTextSession;
 import org.hibernate.search.Search;
 import org.hibernate.search.engine.ProjectionConstants;
+import org.hibernate.search.exception.SearchException;
+import org.hibernate.search.indexes.IndexReaderAccessor;
 import org.hibernate.search.query.dsl.QueryBuilder;
 import org.hibernate.search.query.dsl.TermContext;
-import org.jbei.ice.lib.account.AccountController;
 import org.jbei.ice.lib.common.logging.Logger;
 import org.jbei.ice.lib.dto.entry.EntryType;
 import org.jbei.ice.lib.dto.entry.PartData;
@@ -19,16 +28,16 @@ import org.jbei.ice.lib.dto.search.FieldFilter;
 import org.jbei.ice.lib.dto.search.SearchQuery;
 import org.jbei.ice.lib.dto.search.SearchResult;
 import org.jbei.ice.lib.dto.search.SearchResults;
-import org.jbei.ice.lib.folder.Folders;
-import org.jbei.ice.lib.group.GroupController;
 import org.jbei.ice.lib.search.QueryType;
 import org.jbei.ice.lib.search.filter.SearchFieldFactory;
 import org.jbei.ice.lib.shared.BioSafetyOption;
 import org.jbei.ice.lib.shared.ColumnField;
 import org.jbei.ice.storage.ModelToInfoFactory;
 import org.jbei.ice.storage.hibernate.HibernateUtil;
+import org.jbei.ice.storage.hibernate.filter.EntryHasFilterFactory;
 import org.jbei.ice.storage.model.Entry;
 
+import java.io.IOException;
 import java.util.*;
 
 /**
@@ -39,6 +48,22 @@ import java.util.*;
  */
 public class HibernateSearch {
 
+    // stored fields retrieved for each search hit
+    private static final Set<String> HIT_FIELDS = new HashSet<>(Arrays.asList("id", "owner"));
+    private static final Set<String> ID_FIELD = Collections.singleton("id");
+
+    // sort and facet fields that are not indexed with doc values
+    private static final Map<String, UninvertingReader.Type> UNINVERTED_FIELDS = new HashMap<>();
+
+    static {
+        UNINVERTED_FIELDS.put("partNumber_forSort", UninvertingReader.Type.SORTED);
+        UNINVERTED_FIELDS.put("status", UninvertingReader.Type.SORTED);
+        UNINVERTED_FIELDS.put(SearchFacetCollector.BIO_SAFETY_LEVEL, UninvertingReader.Type.INTEGER);
+        for (String field : SearchFacetCollector.BOOLEAN_FIELDS) {
+            UNINVERTED_FIELDS.put(field, UninvertingReader.Type.SORTED);
+        }
+    }
+
     private HibernateSearch() {
     }
 
@@ -80,95 +105,38 @@ public class HibernateSearch {
     }
 
     public SearchResults executeSearchNoTerms(String userId, HashMap<String, SearchResult> blastResults, SearchQuery searchQuery) {
-        ArrayList<EntryType> entryTypes = searchQuery.getEntryTypes();
-        if (entryTypes == null || entryTypes.isEmpty()) {
-            entryTypes = new ArrayList<>(Arrays.asList(EntryType.values()));
-        }
-
         Session session = HibernateUtil.getSessionFactory().getCurrentSession();
-        int resultCount;
         FullTextSession fullTextSession = Search.getFullTextSession(session);
-        BooleanQuery.Builder builder = new BooleanQuery.Builder();
-        QueryBuilder qb = fullTextSession.getSearchFactory().buildQueryBuilder().forEntity(Entry.class).get();
-
-        ArrayList<Query> except = new ArrayList<>();
-        for (EntryType type : EntryType.values()) {
-            if (entryTypes.contains(type))
-                continue;
-
-            except.add(qb.keyword().onField("recordType").matching(type.getName()).createQuery());
-        }
-
-        // add terms for record types
-        Query[] queries = new Query[]{};
-        Query recordTypeQuery = qb.all().except(except.toArray(queries)).createQuery();
-        builder.add(recordTypeQuery, BooleanClause.Occur.FILTER);
-
-        // visibility
-        Query visibilityQuery = qb.keyword().onField("visibility").matching(Visibility.OK.getValue()).createQuery();
-        builder.add(visibilityQuery, BooleanClause.Occur.FILTER);
-
-        // bio safety level
-        BioSafetyOption option = searchQuery.getBioSafetyOption();
-        if (option != null) {
-            TermContext bslContext = qb.keyword();
-            Query biosafetyQuery =
-                    bslContext.onField("bioSafetyLevel").ignoreFieldBridge().matching(option.getIntValue()).createQuery();
-            builder.add(biosafetyQuery, BooleanClause.Occur.FILTER);
-        }
-
-        // check filter filters
-        if (searchQuery.getFieldFilters() != null && !searchQuery.getFieldFilters().isEmpty()) {
-            for (FieldFilter fieldFilter : searchQuery.getFieldFilters()) {
-                String searchField = SearchFieldFactory.searchFieldForEntryField(fieldFilter.getField());
-                if (StringUtils.isEmpty(searchField))
-                    continue;
-
-                Query filterQuery = qb.keyword().onField(searchField).matching(fieldFilter.getFilter()).createQuery();
-                builder.add(filterQuery, BooleanClause.Occur.MUST);
-            }
-        }
-
-        // check if there is a blast results
-        createBlastFilterQuery(fullTextSession, blastResults, builder);
-
-        // wrap Lucene query in a org.hibernate.Query
-        FullTextQuery fullTextQuery = fullTextSession.createFullTextQuery(builder.build(), Entry.class);
+        Query query = createNoTermsQuery(fullTextSession, blastResults, searchQuery);
 
         // get sorting values
-        Sort sort = getSort(searchQuery.getParameters().isSortAscending(), searchQuery.getParameters().getSortField());
-        fullTextQuery.setSort(sort);
-        fullTextQuery.setProjection(ProjectionConstants.ID, "owner");
+        SearchQuery.Parameters parameters = searchQuery.getParameters();
+        Sort sort = getSort(parameters.isSortAscending(), parameters.getSortField());
+        FieldDoc after = StringUtils.isEmpty(parameters.getCursor()) ? null : SearchCursor.decode(parameters.getCursor(), sort);
 
-        // enable security filter if needed
-        checkEnableSecurityFilter(userId, fullTextQuery);
-
-        // enable has attachment/sequence/sample (if needed)
-        checkEnableHasAttribute(fullTextQuery, searchQuery.getParameters());
-
-        // set paging params
-        fullTextQuery.setFirstResult(searchQuery.getParameters().getStart());
-        fullTextQuery.setMaxResults(searchQuery.getParameters().getRetrieveCount());
-
-        resultCount = fullTextQuery.getResultSize();
-        List<?> result = fullTextQuery.list();
+        // record types are restricted by the query
+        SearchHits hits = collectHits(fullTextSession, query, null, sort, userId, parameters, after,
+                parameters.getStart(), parameters.getRetrieveCount(), HIT_FIELDS, true);
+        int resultCount = hits.totalHits;
+        List<Object[]> result = hits.results;
 
         LinkedList<SearchResult> searchResults = new LinkedList<>();
+        Map<Long, PartData> tableViews = blastResults == null ? createTableViews(result, 1) : null;
 
-        // since we are using projection, result is an arraylist of objects
-        for (Object object : result) {
-            Object[] objects = (Object[]) object;
-            long entryId = (Long) objects[0];
+        for (Object[] objects : result) {
+            long entryId = (Long) objects[1];
             SearchResult searchResult;
             if (blastResults != null) {
                 searchResult = blastResults.get(Long.toString(entryId));
                 if (searchResult == null) // this should not really happen since we already filter
                     continue;
             } else {
+                PartData info = tableViews.get(entryId);
+                if (info == null)
+                    continue;
                 searchResult = new SearchResult();
                 searchResult.setScore(1f);
-                PartData info = ModelToInfoFactory.createTableView(entryId, null);
-                info.setOwner((String) objects[1]);
+                info.setOwner((String) objects[2]);
                 searchResult.setEntryInfo(info);
             }
 
@@ -179,37 +147,82 @@ public class HibernateSearch {
         SearchResults results = new SearchResults();
         results.setResultCount(resultCount);
         results.setResults(searchResults);
+        results.setCursor(hits.cursor);
+        results.setFacets(hits.facets);
 
         Logger.info(userId + ": obtained " + resultCount + " results for empty query");
         return results;
     }
 
+    /**
+     * Iterates over the ids of all the entries that match the search. The hits are collected in batches
+     * using search-after so each batch costs the same regardless of how far into the results it is.
+     * Intended for internal bulk consumers (e.g. exports and adding all search results to a folder); paging
+     * parameters in the query are ignored. Must be consumed within the current transaction
+     *
+     * @param userId       identifier for account of user performing search
+     * @param terms        search terms. If null or empty, the search is run using only the query filters
+     * @param searchQuery  search query
+     * @param blastResults optional blast results used to restrict the hits
+     * @param batchSize    number of hits collected per batch
+     * @return iterator over ids of matching entries, in the query sort order
+     */
+    public Iterator<Long> iterateEntryIds(String userId, HashMap<String, QueryType> terms, SearchQuery searchQuery,
+                                          HashMap<String, SearchResult> blastResults, int batchSize) {
+        Session session = HibernateUtil.getSessionFactory().getCurrentSession();
+        FullTextSession fullTextSession = Search.getFullTextSession(session);
+        Query query;
+        Class<?>[] classes;
+        if (terms == null || terms.isEmpty()) {
+            query = createNoTermsQuery(fullTextSession, blastResults, searchQuery);
+            classes = null;
+        } else {
+            query = createTermsQuery(fullTextSession, terms, searchQuery, blastResults);
+            classes = SearchFieldFactory.classesForTypes(searchQuery.getEntryTypes());
+        }
+
+        SearchQuery.Parameters parameters = searchQuery.getParameters();
+        Sort sort = getSort(parameters.isSortAscending(), parameters.getSortField());
+        return new EntryIdIterator(fullTextSession, query, classes, sort, userId, parameters, batchSize);
+    }
+
     /**
      * Intended to be called after running a blast search to filter the results. Blast search runs
      * on a fasta file which contains all the sequences. Hibernate search has a security filter for permissions
      * and is therefore used to filter out the blast results, as well as to filter based on the entry
      * attributes not handled by blast; such as "has sequence" and "bio-safety level"
+     * <p>
+     * The blast result ids are matched using a single term set query so the number of results is not limited by
+     * the maximum number of boolean clauses
      *
      * @param userId       identifier for account of user performing search
      * @param start        paging start
      * @param count        maximum number of results to return
-     * @param blastResults raw results of the blast search
+     * @param maxResults   maximum number of filtered results to retain
+     * @param blastResults raw results of the blast search. Results that are filtered out, or that exceed the
+     *                     maximum number of results once filtered, are removed
      * @return wrapper around list of filtered results
      */
-    public SearchResults filterBlastResults(String userId, int start, int count, SearchQuery searchQuery,
-                                            final HashMap<String, SearchResult> blastResults) {
+    public SearchResults filterBlastResults(String userId, int start, int count, int maxResults,
+                                            SearchQuery searchQuery, final HashMap<String, SearchResult> blastResults) {
         Session session = HibernateUtil.getSessionFactory().getCurrentSession();
         FullTextSession fullTextSession = Search.getFullTextSession(session);
 
         QueryBuilder qb = fullTextSession.getSearchFactory().buildQueryBuilder().forEntity(Entry.class).get();
-        Query query = qb.keyword().onField("visibility").matching(Visibility.OK.getValue()).createQuery();
-
-        // todo : there is a limit of 1024 boolean clauses so return only return top blast results
         BooleanQuery.Builder builder = new BooleanQuery.Builder();
-        builder.add(query, BooleanClause.Occur.FILTER);
+        createBlastFilterQuery(fullTextSession, blastResults, builder);
+
+        // bio-safety level
+        if (searchQuery.getBioSafetyOption() != null) {
+            TermContext levelContext = qb.keyword();
+            Query biosafetyQuery = levelContext.onField("bioSafetyLevel").ignoreFieldBridge()
+                    .matching(searchQuery.getBioSafetyOption().getValue()).createQuery();
+            builder.add(biosafetyQuery, BooleanClause.Occur.FILTER);
+        }
 
         // wrap Lucene query in a org.hibernate.Query
         Class<?>[] classes = SearchFieldFactory.classesForTypes(searchQuery.getEntryTypes());
+        AsyncIndexingBackend.flushBeforeRead();
         FullTextQuery fullTextQuery = fullTextSession.createFullTextQuery(builder.build(), classes);
 
         // enable security filter if an admin
@@ -218,52 +231,102 @@ public class HibernateSearch {
         // enable has attachment/sequence/sample (if needed)
         checkEnableHasAttribute(fullTextQuery, searchQuery.getParameters());
 
-        // bio-safety level
-        if (searchQuery.getBioSafetyOption() != null) {
-            TermContext levelContext = qb.keyword();
-            Query biosafetyQuery = levelContext.onField("bioSafetyLevel").ignoreFieldBridge()
-                    .matching(searchQuery.getBioSafetyOption().getValue()).createQuery();
-            builder.add(biosafetyQuery, BooleanClause.Occur.MUST);
-        }
-
         // execute search
-        fullTextQuery.setProjection("id");
+        fullTextQuery.setProjection(ProjectionConstants.ID);
 
         // list contains an object array with one Long object
         List<?> luceneResult = fullTextQuery.list();
-        HashSet<String> resultSet = new HashSet<>();
-
-        // page
+        HashSet<String> resultSet = new HashSet<>(luceneResult.size());
         for (Object object : luceneResult) {
             Long result = (Long) ((Object[]) object)[0];
             resultSet.add(result.toString());
         }
 
-        blastResults.keySet().removeIf(key -> !resultSet.contains(key));
+        blastResults.keySet().retainAll(resultSet);
 
-        SearchResult[] searchResults = new SearchResult[count];
-        int limit = Math.min((start + count), blastResults.size());
-        LinkedList<SearchResult> list = new LinkedList<>(Arrays.asList(blastResults.values().toArray(searchResults))
-                .subList(start, limit));
+        // limit applied after filtering so hits the user cannot read do not take the place of ones they can
+        Iterator<String> iterator = blastResults.keySet().iterator();
+        for (int i = 0; iterator.hasNext(); i += 1) {
+            iterator.next();
+            if (i >= maxResults)
+                iterator.remove();
+        }
 
+        // page (in blast result order)
         SearchResults results = new SearchResults();
         results.setResultCount(blastResults.size());
-        results.setResults(list);
+        int index = 0;
+        for (SearchResult searchResult : blastResults.values()) {
+            if (index >= start + count)
+                break;
+
+            if (index >= start)
+                results.getResults().add(searchResult);
+            index += 1;
+        }
         return results;
     }
 
-    @SuppressWarnings("unchecked")
     public SearchResults executeSearch(String userId, HashMap<String, QueryType> terms,
                                        SearchQuery searchQuery,
                                        HashMap<String, SearchResult> blastResults) {
         Session session = HibernateUtil.getSessionFactory().getCurrentSession();
         int resultCount;
         FullTextSession fullTextSession = Search.getFullTextSession(session);
-        BooleanQuery.Builder builder = new BooleanQuery.Builder();
 
         // get classes for search
-        HashSet<String> fields = new HashSet<>(SearchFieldFactory.entryFields(searchQuery.getEntryTypes()));
         Class<?>[] classes = SearchFieldFactory.classesForTypes(searchQuery.getEntryTypes());
+        Query query = createTermsQuery(fullTextSession, terms, searchQuery, blastResults);
+
+        // get sorting values
+        SearchQuery.Parameters parameters = searchQuery.getParameters();
+        Sort sort = getSort(parameters.isSortAscending(), parameters.getSortField());
+        FieldDoc after = StringUtils.isEmpty(parameters.getCursor()) ? null : SearchCursor.decode(parameters.getCursor(), sort);
+
+        // execute search (top hits, max score and total hit count are collected in a single pass)
+        SearchHits hits = collectHits(fullTextSession, query, classes, sort, userId.toLowerCase(), parameters, after,
+                parameters.getStart(), parameters.getRetrieveCount(), HIT_FIELDS, true);
+        resultCount = hits.totalHits;
+        float maxScore = hits.maxScore;
+        List<Object[]> result = hits.results;
+        Logger.info(userId + ": " + resultCount + " results for \"" + searchQuery.getQueryString() + "\"");
+
+        LinkedList<SearchResult> searchResults = new LinkedList<>();
+        Map<Long, PartData> tableViews = blastResults == null ? createTableViews(result, 1) : null;
+        for (Object[] objects : result) {
+            float score = (Float) objects[0];
+            Long entryId = (Long) objects[1];
+            SearchResult searchResult;
+            if (blastResults != null) {
+                searchResult = blastResults.get(Long.toString(entryId));
+                if (searchResult == null) // this should not really happen since we already filter
+                    continue;
+            } else {
+                PartData info = tableViews.get(entryId);
+                if (info == null)
+                    continue;
+                searchResult = new SearchResult();
+                searchResult.setScore(score);
+                info.setOwner((String) objects[2]);
+                searchResult.setEntryInfo(info);
+            }
+
+            searchResult.setMaxScore(maxScore);
+            searchResults.add(searchResult);
+        }
+
+        SearchResults results = new SearchResults();
+        results.setResultCount(resultCount);
+        results.setResults(searchResults);
+        results.setCursor(hits.cursor);
+        results.setFacets(hits.facets);
+        return results;
+    }
+
+    private Query createTermsQuery(FullTextSession fullTextSession, HashMap<String, QueryType> terms,
+                                   SearchQuery searchQuery, HashMap<String, SearchResult> blastResults) {
+        BooleanQuery.Builder builder = new BooleanQuery.Builder();
+        HashSet<String> fields = new HashSet<>(SearchFieldFactory.entryFields(searchQuery.getEntryTypes()));
 
         // generate queries for terms filtering stop words
         for (Map.Entry<String, QueryType> entry : terms.entrySet()) {
@@ -277,69 +340,180 @@ public class HibernateSearch {
 
         // check for blast search results filter
         createBlastFilterQuery(fullTextSession, blastResults, builder);
+        return builder.build();
+    }
 
-        // wrap Lucene query in a org.hibernate.Query
-        FullTextQuery fullTextQuery = fullTextSession.createFullTextQuery(builder.build(), classes);
+    private Query createNoTermsQuery(FullTextSession fullTextSession, HashMap<String, SearchResult> blastResults,
+                                     SearchQuery searchQuery) {
+        ArrayList<EntryType> entryTypes = searchQuery.getEntryTypes();
+        if (entryTypes == null || entryTypes.isEmpty()) {
+            entryTypes = new ArrayList<>(Arrays.asList(EntryType.values()));
+        }
+
+        BooleanQuery.Builder builder = new BooleanQuery.Builder();
+        QueryBuilder qb = fullTextSession.getSearchFactory().buildQueryBuilder().forEntity(Entry.class).get();
+
+        ArrayList<Query> except = new ArrayList<>();
+        for (EntryType type : EntryType.values()) {
+            if (entryTypes.contains(type))
+                continue;
 
-        // get max score
-        fullTextQuery.setFirstResult(0);
-        fullTextQuery.setMaxResults(1);
-        fullTextQuery.setProjection(FullTextQuery.SCORE);
-        List<?> result = fullTextQuery.list();
-        float maxScore = -1f;
-        if (result.size() == 1) {
-            maxScore = (Float) ((Object[]) (result.get(0)))[0];
+            except.add(qb.keyword().onField("recordType").matching(type.getName()).createQuery());
         }
-        // end get max score
 
-        // get sorting values
-        Sort sort = getSort(searchQuery.getParameters().isSortAscending(), searchQuery.getParameters().getSortField());
-        fullTextQuery.setSort(sort);
+        // add terms for record types
+        Query[] queries = new Query[]{};
+        Query recordTypeQuery = qb.all().except(except.toArray(queries)).createQuery();
+        builder.add(recordTypeQuery, BooleanClause.Occur.FILTER);
 
-        // projection (specified properties must be stored in the index @Field(store=Store.YES))
-        fullTextQuery.setProjection(FullTextQuery.SCORE, FullTextQuery.ID, "owner");
+        // visibility
+        Query visibilityQuery = qb.keyword().onField("visibility").matching(Visibility.OK.getValue()).createQuery();
+        builder.add(visibilityQuery, BooleanClause.Occur.FILTER);
 
-        // enable security filter if needed
-        checkEnableSecurityFilter(userId.toLowerCase(), fullTextQuery);
+        // bio safety level
+        BioSafetyOption option = searchQuery.getBioSafetyOption();
+        if (option != null) {
+            TermContext bslContext = qb.keyword();
+            Query biosafetyQuery =
+                    bslContext.onField("bioSafetyLevel").ignoreFieldBridge().matching(option.getIntValue()).createQuery();
+            builder.add(biosafetyQuery, BooleanClause.Occur.FILTER);
+        }
 
-        // check sample
-        checkEnableHasAttribute(fullTextQuery, searchQuery.getParameters());
+        // check filter filters
+        if (searchQuery.getFieldFilters() != null && !searchQuery.getFieldFilters().isEmpty()) {
+            for (FieldFilter fieldFilter : searchQuery.getFieldFilters()) {
+                String searchField = SearchFieldFactory.searchFieldForEntryField(fieldFilter.getField());
+                if (StringUtils.isEmpty(searchField))
+                    continue;
 
-        // set paging params
-        fullTextQuery.setFirstResult(searchQuery.getParameters().getStart());
-        fullTextQuery.setMaxResults(searchQuery.getParameters().getRetrieveCount());
+                Query filterQuery = qb.keyword().onField(searchField).matching(fieldFilter.getFilter()).createQuery();
+                builder.add(filterQuery, BooleanClause.Occur.MUST);
+            }
+        }
 
-        resultCount = fullTextQuery.getResultSize();
+        // check if there is a blast results
+        createBlastFilterQuery(fullTextSession, blastResults, builder);
+        return builder.build();
+    }
 
-        // execute search
-        result = fullTextQuery.list();
-        Logger.info(userId + ": " + resultCount + " results for \"" + searchQuery.getQueryString() + "\"");
+    /**
+     * Runs the query against the entry index collecting the requested page of top hits (sorted using the
+     * specified sort), the maximum score and the total hit count in a single collector pass. The class, security
+     * and has attribute filters are applied as non-scoring clauses so they restrict all of these consistently.
+     *
+     * @param fullTextSession session for the search
+     * @param query           query to run
+     * @param classes         entry classes to restrict the search to. All classes are searched if empty
+     * @param sort            sort for the hits
+     * @param userId          identifier for account of user performing search
+     * @param parameters      search parameters containing has attribute values
+     * @param after           optional hit to collect hits after (search-after paging). <code>start</code> is ignored
+     *                        when this is set
+     * @param start           offset of first hit to return
+     * @param count           maximum number of hits to return
+     * @param fields          stored fields to load for each hit
+     * @param countFacets     whether to also count the hits for each facet value
+     * @return hits for the requested page as <code>[score, id, owner]</code> arrays with the max score, total count,
+     * cursor for the next page and facet counts (if requested)
+     */
+    private SearchHits collectHits(FullTextSession fullTextSession, Query query, Class<?>[] classes, Sort sort,
+                                   String userId, SearchQuery.Parameters parameters, FieldDoc after, int start,
+                                   int count, Set<String> fields, boolean countFacets) {
+        BooleanQuery.Builder builder = new BooleanQuery.Builder();
+        builder.add(query, BooleanClause.Occur.MUST);
 
-        LinkedList<SearchResult> searchResults = new LinkedList<>();
-        for (Object[] objects : (Iterable<Object[]>) result) {
-            float score = (Float) objects[0];
-            Long entryId = (Long) objects[1];
-            SearchResult searchResult;
-            if (blastResults != null) {
-                searchResult = blastResults.get(Long.toString(entryId));
-                if (searchResult == null) // this should not really happen since we already filter
-                    continue;
-            } else {
-                searchResult = new SearchResult();
-                searchResult.setScore(score);
-                PartData info = ModelToInfoFactory.createTableView(entryId, null);
-                info.setOwner((String) objects[2]);
-                searchResult.setEntryInfo(info);
+        // entry types
+        if (classes != null && classes.length > 0) {
+            List<BytesRef> classNames = new ArrayList<>(classes.length);
+            for (Class<?> clazz : classes) {
+                classNames.add(new BytesRef(clazz.getName()));
             }
+            builder.add(new TermsQuery(ProjectionConstants.OBJECT_CLASS, classNames), BooleanClause.Occur.FILTER);
+        }
 
-            searchResult.setMaxScore(maxScore);
-            searchResults.add(searchResult);
+        // security
+        SecurityFilterPrincipals principals = SecurityFilterPrincipals.get(userId);
+        if (!principals.isAdministrator())
+            builder.add(principals.getFilterQuery(), BooleanClause.Occur.FILTER);
+
+        // has attachment/sequence/sample
+        List<String> hasAttributes = getHasAttributeTerms(parameters);
+        if (!hasAttributes.isEmpty()) {
+            EntryHasFilterFactory hasFilterFactory = new EntryHasFilterFactory();
+            hasFilterFactory.setField(new ArrayList<>(hasAttributes));
+            builder.add(hasFilterFactory.getFilter(), BooleanClause.Occur.FILTER);
         }
 
-        SearchResults results = new SearchResults();
-        results.setResultCount(resultCount);
-        results.setResults(searchResults);
-        return results;
+        AsyncIndexingBackend.flushBeforeRead();
+        IndexReaderAccessor readerAccessor = fullTextSession.getSearchFactory().getIndexReaderAccessor();
+        IndexReader reader = readerAccessor.open(Entry.class);
+        try {
+            IndexSearcher searcher = new IndexSearcher(uninvertSortFields(reader));
+            if (after != null)
+                start = 0;
+            int numHits = Math.max(1, Math.min(start + count, reader.maxDoc()));
+
+            // sort values are filled in for the search-after cursor
+            TopFieldCollector collector = TopFieldCollector.create(sort, numHits, after, true, true, true);
+            SearchFacetCollector facetCollector = countFacets ? new SearchFacetCollector() : null;
+            searcher.search(builder.build(), MultiCollector.wrap(collector, facetCollector));
+            TopDocs topDocs = collector.topDocs(start, count);
+
+            SearchHits hits = new SearchHits();
+            if (facetCollector != null)
+                hits.facets = facetCollector.getFacets();
+            hits.totalHits = collector.getTotalHits();
+            hits.maxScore = hits.totalHits == 0 ? -1f : topDocs.getMaxScore();
+            for (ScoreDoc scoreDoc : topDocs.scoreDocs) {
+                Document document = searcher.doc(scoreDoc.doc, fields);
+                Long id = Long.decode(document.get("id"));
+                hits.results.add(new Object[]{scoreDoc.score, id, document.get("owner")});
+            }
+
+            // a full page may be followed by more hits
+            if (count > 0 && topDocs.scoreDocs.length == count) {
+                hits.last = (FieldDoc) topDocs.scoreDocs[count - 1];
+                hits.cursor = SearchCursor.encode(hits.last);
+            }
+            return hits;
+        } catch (IOException e) {
+            throw new SearchException("Unable to query Lucene index", e);
+        } finally {
+            readerAccessor.close(reader);
+        }
+    }
+
+    /**
+     * Wraps the index segments so that fields used for sorting and facets that are not indexed with doc values
+     * can be read as doc values. Hibernate search does this automatically for its own sorted queries
+     */
+    private IndexReader uninvertSortFields(IndexReader reader) throws IOException {
+        List<LeafReaderContext> leaves = reader.leaves();
+        LeafReader[] readers = new LeafReader[leaves.size()];
+        for (int i = 0; i < leaves.size(); i += 1) {
+            readers[i] = new UninvertingReader(leaves.get(i).reader(), UNINVERTED_FIELDS);
+        }
+        return new MultiReader(readers, false);
+    }
+
+    /**
+     * Creates the table views for the entries in the projected search results using a fixed number of queries
+     *
+     * @param result  list of projection arrays returned by the full text query
+     * @param idIndex index of the entry id in each projection array
+     * @return map of entry id to table view
+     */
+    private Map<Long, PartData> createTableViews(List<?> result, int idIndex) {
+        List<Long> entryIds = new ArrayList<>(result.size());
+        for (Object object : result) {
+            entryIds.add((Long) ((Object[]) object)[idIndex]);
+        }
+
+        Map<Long, PartData> tableViews = new HashMap<>();
+        for (PartData view : ModelToInfoFactory.createTableViews(entryIds, null)) {
+            tableViews.put(view.getId(), view);
+        }
+        return tableViews;
     }
 
     private void generateQueriesForType(FullTextSession fullTextSession, HashSet<String> fields,
@@ -422,44 +596,46 @@ public class HibernateSearch {
         QueryBuilder qb = fullTextSession.getSearchFactory().buildQueryBuilder().forEntity(Entry.class).get();
         Query query = qb.keyword().onField("visibility").matching(Visibility.OK.getValue()).createQuery();
         builder.add(query, BooleanClause.Occur.FILTER);
+
+        // match any of the blast hit ids using a single (non-scoring) term set
+        List<BytesRef> ids = new ArrayList<>(blastResults.size());
         for (String id : blastResults.keySet()) {
-            Query filterQuery = qb.keyword().onField("id").matching(id).createQuery();
-            builder.add(filterQuery, BooleanClause.Occur.FILTER);
+            ids.add(new BytesRef(id));
         }
+        builder.add(new TermsQuery("id", ids), BooleanClause.Occur.FILTER);
     }
 
     /**
-     * Enables the security filter if the account does not have administrative privileges
+     * Enables the security filter if the account does not have administrative privileges.
+     * The principals for the account are cached and the resulting filter document sets are cached per index reader
+     * for each distinct set of principals
      *
      * @param userId        identifier for account which is checked for administrative privs
      * @param fullTextQuery search fulltextquery for which filter is enabled
      */
     private void checkEnableSecurityFilter(String userId, FullTextQuery fullTextQuery) {
-        Set<String> groupUUIDs = new HashSet<>();
-        Set<String> folderIds = new HashSet<>();
-
-        if (StringUtils.isEmpty(userId)) {
-            groupUUIDs.add(GroupController.PUBLIC_GROUP_UUID);
-        } else {
-            AccountController accountController = new AccountController();
-            if (accountController.isAdministrator(userId)) {
-                return;
-            }
-            groupUUIDs = new GroupController().retrieveAccountGroupUUIDs(userId);
-            folderIds = new Folders(userId).getCanReadFolderIds();
-        }
+        SecurityFilterPrincipals principals = SecurityFilterPrincipals.get(userId);
+        if (principals.isAdministrator())
+            return;
 
         fullTextQuery.enableFullTextFilter("security")
                 .setParameter("account", userId)
-                .setParameter("folderIds", folderIds)
-                .setParameter("groupUUids", groupUUIDs);
+                .setParameter("folderIds", principals.getFolderIds())
+                .setParameter("groupUUids", principals.getGroupUUIDs());
     }
 
     private void checkEnableHasAttribute(FullTextQuery fullTextQuery, SearchQuery.Parameters parameters) {
-        if (parameters == null)
+        ArrayList<String> terms = getHasAttributeTerms(parameters);
+        if (terms.isEmpty())
             return;
 
+        fullTextQuery.enableFullTextFilter("boolean").setParameter("field", terms);
+    }
+
+    private ArrayList<String> getHasAttributeTerms(SearchQuery.Parameters parameters) {
         ArrayList<String> terms = new ArrayList<>(3);
+        if (parameters == null)
+            return terms;
 
         if (parameters.getHasSample()) {
             terms.add("hasSample");
@@ -473,10 +649,66 @@ public class HibernateSearch {
             terms.add("hasSequence");
         }
 
-        if (terms.isEmpty())
-            return;
+        return terms;
+    }
 
-        fullTextQuery.enableFullTextFilter("boolean").setParameter("field", terms);
+    /**
+     * Hits collected by a single search pass
+     */
+    private static class SearchHits {
+        private int totalHits;
+        private float maxScore;
+        private FieldDoc last;
+        private String cursor;
+        private HashMap<String, HashMap<String, Long>> facets;
+        private final List<Object[]> results = new ArrayList<>();
+    }
+
+    /**
+     * Iterates over the entry ids of all search hits, collecting them a batch at a time
+     */
+    private class EntryIdIterator implements Iterator<Long> {
+
+        private final FullTextSession fullTextSession;
+        private final Query query;
+        private final Class<?>[] classes;
+        private final Sort sort;
+        private final String userId;
+        private final SearchQuery.Parameters parameters;
+        private final int batchSize;
+        private Iterator<Object[]> batch = Collections.emptyIterator();
+        private FieldDoc after;
+        private boolean exhausted;
+
+        EntryIdIterator(FullTextSession fullTextSession, Query query, Class<?>[] classes, Sort sort, String userId,
+                        SearchQuery.Parameters parameters, int batchSize) {
+            this.fullTextSession = fullTextSession;
+            this.query = query;
+            this.classes = classes;
+            this.sort = sort;
+            this.userId = userId;
+            this.parameters = parameters;
+            this.batchSize = Math.max(1, batchSize);
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (!batch.hasNext() && !exhausted) {
+                SearchHits hits = collectHits(fullTextSession, query, classes, sort, userId, parameters, after, 0,
+                        batchSize, ID_FIELD, false);
+                batch = hits.results.iterator();
+                after = hits.last;
+                exhausted = after == null;
+            }
+            return batch.hasNext();
+        }
+
+        @Override
+        public Long next() {
+            if (!hasNext())
+                throw new NoSuchElementException();
+            return (Long) batch.next()[1];
+        }
     }
 
     private static class SingletonHolder {
@@ -0,0 +1,19 @@
+package org.jbei.ice.storage.hibernate.search;
+
+/**
+ * Exception thrown when a search cursor supplied by a client cannot be decoded or does not match the sort
+ * of the search it is used with.
+ * When this is thrown a <code>400 - Bad Request</code> is typically sent back as response
+ */
+public class InvalidCursorException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    public InvalidCursorException(String message) {
+        super(message);
+    }
+
+    public InvalidCursorException(String message, Throwable throwable) {
+        super(message, throwable);
+    }
+}
@@ -0,0 +1,147 @@
+package org.jbei.ice.storage.hibernate.search;
+
+import org.apache.lucene.search.FieldDoc;
+import org.apache.lucene.search.Sort;
+import org.apache.lucene.search.SortField;
+import org.apache.lucene.util.BytesRef;
+
+import java.io.*;
+import java.util.Base64;
+
+/**
+ * Opaque search-after cursor. Encodes the sort values (and document number as the tie breaker) of the last hit
+ * on a page so the next page can be collected without collecting and sorting all the hits of the preceding pages.
+ * <p>
+ * Document numbers are specific to an index reader so if the index is modified between requests, hits with the same
+ * sort values as the cursor may be repeated or skipped
+ */
+final class SearchCursor {
+
+    private static final byte NULL = 0;
+    private static final byte FLOAT = 1;
+    private static final byte INT = 2;
+    private static final byte LONG = 3;
+    private static final byte DOUBLE = 4;
+    private static final byte BYTES = 5;
+
+    private SearchCursor() {
+    }
+
+    /**
+     * @param last last hit on a page. Must have been collected with sort fields filled
+     * @return url safe encoded cursor
+     */
+    static String encode(FieldDoc last) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeInt(last.doc);
+            out.writeFloat(last.score);
+            out.writeByte(last.fields.length);
+            for (Object field : last.fields) {
+                if (field == null) {
+                    out.writeByte(NULL);
+                } else if (field instanceof Float) {
+                    out.writeByte(FLOAT);
+                    out.writeFloat((Float) field);
+                } else if (field instanceof Integer) {
+                    out.writeByte(INT);
+                    out.writeInt((Integer) field);
+                } else if (field instanceof Long) {
+                    out.writeByte(LONG);
+                    out.writeLong((Long) field);
+                } else if (field instanceof Double) {
+                    out.writeByte(DOUBLE);
+                    out.writeDouble((Double) field);
+                } else if (field instanceof BytesRef) {
+                    BytesRef ref = (BytesRef) field;
+                    out.writeByte(BYTES);
+                    out.writeInt(ref.length);
+                    out.write(ref.bytes, ref.offset, ref.length);
+                } else {
+                    throw new IllegalArgumentException("Unsupported sort value " + field.getClass().getName());
+                }
+            }
+            out.flush();
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes.toByteArray());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * @param cursor encoded cursor
+     * @param sort   sort used for the search. Must be the same sort that was used when the cursor was created
+     * @return hit to search after
+     * @throws InvalidCursorException if the cursor is invalid or does not match the sort
+     */
+    static FieldDoc decode(String cursor, Sort sort) {
+        try {
+            ByteArrayInputStream bytes = new ByteArrayInputStream(Base64.getUrlDecoder().decode(cursor));
+            DataInputStream in = new DataInputStream(bytes);
+            int doc = in.readInt();
+            float score = in.readFloat();
+            int length = in.readByte();
+            if (length != sort.getSort().length)
+                throw new InvalidCursorException("Cursor does not match search sort");
+
+            Object[] fields = new Object[length];
+            for (int i = 0; i < length; i += 1) {
+                byte type = in.readByte();
+                switch (type) {
+                    case NULL:
+                        break;
+                    case FLOAT:
+                        fields[i] = in.readFloat();
+                        break;
+                    case INT:
+                        fields[i] = in.readInt();
+                        break;
+                    case LONG:
+                        fields[i] = in.readLong();
+                        break;
+                    case DOUBLE:
+                        fields[i] = in.readDouble();
+                        break;
+                    case BYTES:
+                        // length is checked against what is left so a forged cursor cannot allocate a large array
+                        int size = in.readInt();
+                        if (size < 0 || size > bytes.available())
+                            throw new InvalidCursorException("Invalid cursor");
+                        byte[] value = new byte[size];
+                        in.readFully(value);
+                        fields[i] = new BytesRef(value);
+                        break;
+                    default:
+                        throw new InvalidCursorException("Invalid cursor");
+                }
+
+                if (type != NULL && type != typeFor(sort.getSort()[i]))
+                    throw new InvalidCursorException("Cursor does not match search sort");
+            }
+            if (bytes.available() > 0)
+                throw new InvalidCursorException("Invalid cursor");
+            return new FieldDoc(doc, score, fields);
+        } catch (InvalidCursorException e) {
+            throw e;
+        } catch (IOException | RuntimeException e) {
+            throw new InvalidCursorException("Invalid cursor", e);
+        }
+    }
+
+    private static byte typeFor(SortField sortField) {
+        switch (sortField.getType()) {
+            case SCORE:
+            case FLOAT:
+                return FLOAT;
+            case INT:
+                return INT;
+            case LONG:
+                return LONG;
+            case DOUBLE:
+                return DOUBLE;
+            default:
+                return BYTES;
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package org.jbei.ice.storage.hibernate.search;
+
+import org.apache.lucene.index.DocValues;
+import org.apache.lucene.index.LeafReader;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.NumericDocValues;
+import org.apache.lucene.index.SortedDocValues;
+import org.apache.lucene.search.SimpleCollector;
+import org.apache.lucene.util.Bits;
+import org.apache.lucene.util.BytesRef;
+
+import java.io.IOException;
+import java.util.HashMap;
+
+/**
+ * Collects the number of hits for each value of the entry facet fields (record type, status, bio-safety level
+ * and the has sequence/sample/attachment properties). Intended to be used alongside the top hits collector so the
+ * counts are obtained in the same search pass. Values are read from doc values so the fields must either
+ * be indexed with doc values or be uninverted by the index reader
+ */
+class SearchFacetCollector extends SimpleCollector {
+
+    static final String[] TERM_FIELDS = {"recordType", "status"};
+    static final String[] BOOLEAN_FIELDS = {"hasSequence", "hasSample", "hasAttachment"};
+    static final String BIO_SAFETY_LEVEL = "bioSafetyLevel";
+
+    private static final BytesRef TRUE = new BytesRef("true");
+
+    // bio-safety levels are counted in an array covering the known levels (restricted = -1 up to 2)
+    private static final int MIN_LEVEL = -1;
+    private static final int MAX_LEVEL = 2;
+
+    private final HashMap<String, HashMap<String, Long>> facets = new HashMap<>();
+    private final SortedDocValues[] termValues = new SortedDocValues[TERM_FIELDS.length];
+    private final int[][] termCounts = new int[TERM_FIELDS.length][];
+    private final SortedDocValues[] booleanValues = new SortedDocValues[BOOLEAN_FIELDS.length];
+    private final int[] trueOrds = new int[BOOLEAN_FIELDS.length];
+    private final long[] trueCounts = new long[BOOLEAN_FIELDS.length];
+    private NumericDocValues levelValues;
+    private Bits levelDocs;
+    private final long[] levelCounts = new long[MAX_LEVEL - MIN_LEVEL + 1];
+    private final HashMap<Long, Long> otherLevelCounts = new HashMap<>();
+    private long hitCount;
+
+    SearchFacetCollector() {
+        for (String field : TERM_FIELDS) {
+            facets.put(field, new HashMap<>());
+        }
+    }
+
+    @Override
+    protected void doSetNextReader(LeafReaderContext context) throws IOException {
+        flushTermCounts();
+
+        LeafReader reader = context.reader();
+        for (int i = 0; i < TERM_FIELDS.length; i += 1) {
+            termValues[i] = DocValues.getSorted(reader, TERM_FIELDS[i]);
+            termCounts[i] = new int[termValues[i].getValueCount()];
+        }
+
+        for (int i = 0; i < BOOLEAN_FIELDS.length; i += 1) {
+            booleanValues[i] = DocValues.getSorted(reader, BOOLEAN_FIELDS[i]);
+            trueOrds[i] = booleanValues[i].lookupTerm(TRUE);
+        }
+
+        levelValues = DocValues.getNumeric(reader, BIO_SAFETY_LEVEL);
+        levelDocs = DocValues.getDocsWithField(reader, BIO_SAFETY_LEVEL);
+    }
+
+    @Override
+    public void collect(int doc) {
+        hitCount += 1;
+
+        for (int i = 0; i < TERM_FIELDS.length; i += 1) {
+            int ord = termValues[i].getOrd(doc);
+            if (ord >= 0)
+                termCounts[i][ord] += 1;
+        }
+
+        for (int i = 0; i < BOOLEAN_FIELDS.length; i += 1) {
+            if (trueOrds[i] >= 0 && booleanValues[i].getOrd(doc) == trueOrds[i])
+                trueCounts[i] += 1;
+        }
+
+        if (levelDocs.get(doc)) {
+            long level = levelValues.get(doc);
+            if (level >= MIN_LEVEL && level <= MAX_LEVEL)
+                levelCounts[(int) level - MIN_LEVEL] += 1;
+            else
+                otherLevelCounts.merge(level, 1L, Long::sum);
+        }
+    }
+
+    @Override
+    public boolean needsScores() {
+        return false;
+    }
+
+    /**
+     * @return mapping of facet field to the hit count for each of its values. Entries without a value for a
+     * field are not counted for that field. The has attribute fields have "true" and "false" values
+     */
+    HashMap<String, HashMap<String, Long>> getFacets() {
+        flushTermCounts();
+
+        for (int i = 0; i < BOOLEAN_FIELDS.length; i += 1) {
+            HashMap<String, Long> counts = new HashMap<>();
+            counts.put("true", trueCounts[i]);
+            counts.put("false", hitCount - trueCounts[i]);
+            facets.put(BOOLEAN_FIELDS[i], counts);
+        }
+
+        HashMap<String, Long> levels = new HashMap<>();
+        for (int i = 0; i < levelCounts.length; i += 1) {
+            if (levelCounts[i] > 0)
+                levels.put(Integer.toString(i + MIN_LEVEL), levelCounts[i]);
+        }
+        otherLevelCounts.forEach((level, count) -> levels.put(Long.toString(level), count));
+        facets.put(BIO_SAFETY_LEVEL, levels);
+        return facets;
+    }
+
+    // ordinals are specific to a segment so the counts are converted to values when done with a segment
+    private void flushTermCounts() {
+        for (int i = 0; i < TERM_FIELDS.length; i += 1) {
+            if (termCounts[i] == null)
+                continue;
+
+            HashMap<String, Long> counts = facets.get(TERM_FIELDS[i]);
+            for (int ord = 0; ord < termCounts[i].length; ord += 1) {
+                if (termCounts[i][ord] == 0)
+                    continue;
+                counts.merge(termValues[i].lookupOrd(ord).utf8ToString(), (long) termCounts[i][ord], Long::sum);
+            }
+            termCounts[i] = null;
+        }
+    }
+}
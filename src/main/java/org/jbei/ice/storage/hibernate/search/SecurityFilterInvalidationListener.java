@@ -0,0 +1,64 @@
+package org.jbei.ice.storage.hibernate.search;
+
+import org.hibernate.event.spi.*;
+import org.hibernate.persister.entity.EntityPersister;
+import org.jbei.ice.storage.model.Account;
+import org.jbei.ice.storage.model.Folder;
+import org.jbei.ice.storage.model.Group;
+import org.jbei.ice.storage.model.Permission;
+
+/**
+ * Hibernate event listener that clears the cached {@link SecurityFilterPrincipals} when entities that
+ * determine what an account can read (permissions, groups, group memberships, accounts and folders) are
+ * modified. The events are fired when the changes are flushed, so the cache is cleared then and again once the
+ * transaction completes (see {@link SecurityFilterPrincipals#invalidate(org.hibernate.Transaction)}).
+ * <p>
+ * Changes to entry permissions also re-index the affected entries, which in turn invalidates the cached
+ * security filter document sets, since those are cached per index reader.
+ */
+public class SecurityFilterInvalidationListener implements PostInsertEventListener, PostUpdateEventListener,
+        PostDeleteEventListener, PostCollectionRecreateEventListener, PostCollectionUpdateEventListener,
+        PostCollectionRemoveEventListener {
+
+    @Override
+    public void onPostInsert(PostInsertEvent event) {
+        invalidateIfAffected(event.getSession(), event.getEntity());
+    }
+
+    @Override
+    public void onPostUpdate(PostUpdateEvent event) {
+        invalidateIfAffected(event.getSession(), event.getEntity());
+    }
+
+    @Override
+    public void onPostDelete(PostDeleteEvent event) {
+        invalidateIfAffected(event.getSession(), event.getEntity());
+    }
+
+    @Override
+    public void onPostRecreateCollection(PostCollectionRecreateEvent event) {
+        invalidateIfAffected(event.getSession(), event.getAffectedOwnerOrNull());
+    }
+
+    @Override
+    public void onPostUpdateCollection(PostCollectionUpdateEvent event) {
+        invalidateIfAffected(event.getSession(), event.getAffectedOwnerOrNull());
+    }
+
+    @Override
+    public void onPostRemoveCollection(PostCollectionRemoveEvent event) {
+        invalidateIfAffected(event.getSession(), event.getAffectedOwnerOrNull());
+    }
+
+    @Override
+    public boolean requiresPostCommitHanding(EntityPersister persister) {
+        return false;
+    }
+
+    private void invalidateIfAffected(EventSource session, Object entity) {
+        if (entity instanceof Permission || entity instanceof Group || entity instanceof Account
+                || entity instanceof Folder) {
+            SecurityFilterPrincipals.invalidate(session.getTransaction());
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package org.jbei.ice.storage.hibernate.search;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.lucene.search.CachingWrapperQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.QueryCachingPolicy;
+import org.hibernate.Transaction;
+import org.jbei.ice.lib.account.AccountController;
+import org.jbei.ice.lib.folder.Folders;
+import org.jbei.ice.lib.group.GroupController;
+import org.jbei.ice.storage.hibernate.filter.EntrySecurityFilterFactory;
+
+import javax.transaction.Synchronization;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Principals (group uuids and folder ids) that the search security filter uses to determine which
+ * entries an account can read.
+ * <p>
+ * Resolving these requires multiple database queries so they are cached per account. Since the values are also used
+ * as the key for the cached security filter document sets, requests with the same principals re-use the cached
+ * document set of the current index reader. The cache is cleared whenever permissions, groups or accounts
+ * are modified and again when the modifying transaction completes (see {@link SecurityFilterInvalidationListener}),
+ * and entries also expire after a short period as a safety net
+ */
+public class SecurityFilterPrincipals {
+
+    private static final long EXPIRATION_MS = 60 * 1000;
+    static long expiration = EXPIRATION_MS;     // changed by tests
+    private static final SecurityFilterPrincipals PUBLIC = new SecurityFilterPrincipals(null, false,
+            Collections.singleton(GroupController.PUBLIC_GROUP_UUID), Collections.emptySet());
+    private static final ConcurrentHashMap<String, SecurityFilterPrincipals> cache = new ConcurrentHashMap<>();
+    private static final AtomicLong generation = new AtomicLong();
+    // transactions that invalidate the cache when they complete
+    private static final Set<Transaction> pending = Collections.synchronizedSet(
+            Collections.newSetFromMap(new WeakHashMap<>()));
+
+    private final String userId;
+    private final boolean administrator;
+    private final HashSet<String> groupUUIDs;
+    private final HashSet<String> folderIds;
+    private final long created;
+    private Query filterQuery;
+
+    private SecurityFilterPrincipals(String userId, boolean administrator, Set<String> groupUUIDs,
+                                     Set<String> folderIds) {
+        this.userId = userId;
+        this.administrator = administrator;
+        this.groupUUIDs = new HashSet<>(groupUUIDs);
+        this.folderIds = new HashSet<>(folderIds);
+        this.created = System.currentTimeMillis();
+    }
+
+    /**
+     * Retrieves the (possibly cached) principals for the specified user
+     *
+     * @param userId unique identifier for account of user performing search. If null or empty, only public access
+     *               is available
+     * @return principals for user
+     */
+    public static SecurityFilterPrincipals get(String userId) {
+        if (StringUtils.isEmpty(userId))
+            return PUBLIC;
+
+        SecurityFilterPrincipals principals = cache.get(userId);
+        if (principals != null && !principals.isExpired())
+            return principals;
+
+        // only cache if there were no modifications while principals were being resolved
+        long current = generation.get();
+        principals = resolve(userId);
+        if (generation.get() == current)
+            cache.put(userId, principals);
+        return principals;
+    }
+
+    /**
+     * Clears all cached principals. Called when any entity affecting the principals is modified
+     */
+    public static void invalidate() {
+        generation.incrementAndGet();
+        cache.clear();
+    }
+
+    /**
+     * Clears all cached principals now, so the modification is visible within the transaction making it, and again
+     * once the transaction completes, so that principals resolved by concurrent requests before the commit (or
+     * from changes that were rolled back) are not kept
+     *
+     * @param transaction transaction modifying an entity affecting the principals
+     */
+    public static void invalidate(Transaction transaction) {
+        invalidate();
+        if (transaction == null || !transaction.isActive() || !pending.add(transaction))
+            return;
+
+        transaction.registerSynchronization(new Synchronization() {
+            @Override
+            public void beforeCompletion() {
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                pending.remove(transaction);
+                invalidate();
+            }
+        });
+    }
+
+    private static SecurityFilterPrincipals resolve(String userId) {
+        if (new AccountController().isAdministrator(userId))
+            return new SecurityFilterPrincipals(userId, true, Collections.emptySet(), Collections.emptySet());
+
+        Set<String> groupUUIDs = new GroupController().retrieveAccountGroupUUIDs(userId);
+        Set<String> folderIds = new Folders(userId).getCanReadFolderIds();
+        return new SecurityFilterPrincipals(userId, false, groupUUIDs, folderIds);
+    }
+
+    /**
+     * Security filter query for these principals, used when searching the index directly. The matching documents
+     * are cached per index segment for as long as these principals are cached
+     *
+     * @return filter query
+     */
+    public synchronized Query getFilterQuery() {
+        if (filterQuery == null) {
+            EntrySecurityFilterFactory factory = new EntrySecurityFilterFactory();
+            factory.setAccount(userId);
+            factory.setGroupUUids(groupUUIDs);
+            factory.setFolderIds(folderIds);
+            filterQuery = new CachingWrapperQuery(factory.getFilter(), QueryCachingPolicy.ALWAYS_CACHE);
+        }
+        return filterQuery;
+    }
+
+    private boolean isExpired() {
+        return System.currentTimeMillis() - created > expiration;
+    }
+
+    public boolean isAdministrator() {
+        return administrator;
+    }
+
+    public HashSet<String> getGroupUUIDs() {
+        return groupUUIDs;
+    }
+
+    public HashSet<String> getFolderIds() {
+        return folderIds;
+    }
+}
@@ -11,6 +11,7 @@ import org.jbei.ice.lib.dto.entry.PartData;
 import org.jbei.ice.lib.dto.entry.Visibility;
 import org.jbei.ice.storage.DataModel;
 import org.jbei.ice.storage.ModelToInfoFactory;
+import org.jbei.ice.storage.hibernate.bridge.EntryAutoCompleteBridge;
 import org.jbei.ice.storage.hibernate.filter.EntryHasFilterFactory;
 import org.jbei.ice.storage.hibernate.filter.EntrySecurityFilterFactory;
 
@@ -69,8 +70,10 @@ import java.util.*;
 @Entity
 @Indexed(index = "Entry")
 @FullTextFilterDefs({
-        @FullTextFilterDef(name = "security", impl = EntrySecurityFilterFactory.class, cache = FilterCacheModeType.INSTANCE_ONLY),
-        @FullTextFilterDef(name = "boolean", impl = EntryHasFilterFactory.class, cache = FilterCacheModeType.INSTANCE_ONLY)
+        @FullTextFilterDef(name = "security", impl = EntrySecurityFilterFactory.class,
+                cache = FilterCacheModeType.INSTANCE_AND_DOCIDSETRESULTS),
+        @FullTextFilterDef(name = "boolean", impl = EntryHasFilterFactory.class,
+                cache = FilterCacheModeType.INSTANCE_AND_DOCIDSETRESULTS)
 })
 @AnalyzerDef(name = "customanalyzer",
         tokenizer = @TokenizerDef(factory = StandardTokenizerFactory.class),
@@ -81,6 +84,7 @@ import java.util.*;
                         @org.hibernate.search.annotations.Parameter(name = "replacement", value = " ")
                 })
         })
+@ClassBridge(name = "autocomplete", impl = EntryAutoCompleteBridge.class, analyze = Analyze.NO, norms = Norms.NO)
 @Table(name = "entries")
 @SequenceGenerator(name = "sequence", sequenceName = "entries_id_seq", allocationSize = 1)
 @Inheritance(strategy = InheritanceType.JOINED)
@@ -140,6 +144,7 @@ public class Entry implements DataModel {
     private String keywords;
 
     @Column(name = "status", length = 127)
+    @Field(analyze = Analyze.NO)
     private String status;
 
     @Column(name = "visibility")
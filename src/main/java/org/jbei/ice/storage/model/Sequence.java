@@ -5,6 +5,7 @@ import org.hibernate.search.annotations.Field;
 import org.hibernate.search.annotations.FieldBridge;
 import org.jbei.ice.lib.dto.entry.SequenceInfo;
 import org.jbei.ice.lib.entry.sequence.SequenceFormat;
+import org.jbei.ice.lib.utils.SequenceCodec;
 import org.jbei.ice.lib.utils.SequenceUtils;
 import org.jbei.ice.lib.utils.UtilityException;
 import org.jbei.ice.storage.DataModel;
@@ -21,18 +22,26 @@ import static javax.persistence.FetchType.LAZY;
  * Stores the unique sequence for an {@link Entry} object.
  * <p>
  * <ul>
- * <li><b>sequence: </b>Normalized (lower cased, trimmed) sequence for {@link Entry}.</li>
+ * <li><b>sequence: </b>Normalized (lower cased, trimmed) sequence for {@link Entry}. Stored packed (see
+ * {@link SequenceCodec}) and decoded on first access; sequences saved before packing was introduced are
+ * stored as text until they are packed by {@link org.jbei.ice.lib.entry.sequence.SequencePackingTask}.</li>
  * <li><b>sequenceUser: </b>Original sequence uploaded by the user. For example, the unparsed
  * genbank file, if that was the original upload. If the original upload does not exist, then this
- * field is the same as sequence.</li>
+ * field is the same as sequence. Stored compressed.</li>
  * <li><b>fwdHash, revHash: </b>sha1 hash of the normalized sequence for fast searches.</li>
+ * <li><b>rotationHash: </b>sha1 hash of the normalized sequence that is the same for all rotations of the
+ * sequence on either strand, for finding identical circular sequences.</li>
  * <li><b>sequenceFeatures: </b>{@link SequenceFeature} objects.</li>
  * </ul>
  *
  * @author Timothy Ham, Zinovii Dmytriv
  */
 @Entity
-@Table(name = "sequences")
+@Table(name = "sequences", indexes = {
+        @Index(name = "sequences_fwd_hash_idx", columnList = "fwd_hash"),
+        @Index(name = "sequences_rev_hash_idx", columnList = "rev_hash"),
+        @Index(name = "sequences_rotation_hash_idx", columnList = "rotation_hash")
+})
 @SequenceGenerator(name = "sequences_id", sequenceName = "sequences_id_seq", allocationSize = 1)
 public class Sequence implements DataModel {
 
@@ -45,6 +54,10 @@ public class Sequence implements DataModel {
     @Type(type = "org.hibernate.type.TextType")
     private String sequence;
 
+    @Column(name = "packed_sequence", length = Integer.MAX_VALUE)
+    @Type(type = "org.hibernate.type.BinaryType")
+    private byte[] packedSequence;
+
     @Column(name = "identifier")
     private String identifier;
 
@@ -54,12 +67,27 @@ public class Sequence implements DataModel {
     @Type(type = "org.hibernate.type.TextType")
     private String sequenceUser;
 
+    @Column(name = "packed_sequence_user", length = Integer.MAX_VALUE)
+    @Basic(fetch = LAZY)
+    @Type(type = "org.hibernate.type.BinaryType")
+    private byte[] packedSequenceUser;
+
+    // decoded packed values
+    @Transient
+    private String decodedSequence;
+
+    @Transient
+    private String decodedSequenceUser;
+
     @Column(name = "fwd_hash", length = 40)
     private String fwdHash;
 
     @Column(name = "rev_hash", length = 40)
     private String revHash;
 
+    @Column(name = "rotation_hash", length = 40)
+    private String rotationHash;
+
     @Column(name = "uri")
     private String uri;
 
@@ -89,8 +117,8 @@ public class Sequence implements DataModel {
     public Sequence(String sequence, String sequenceUser, String fwdHash, String revHash, Entry entry) {
         super();
 
-        this.sequence = sequence;
-        this.sequenceUser = sequenceUser;
+        packSequence(sequence);
+        setSequenceUser(sequenceUser);
         this.fwdHash = fwdHash;
         this.revHash = revHash;
         this.entry = entry;
@@ -106,26 +134,65 @@ public class Sequence implements DataModel {
     }
 
     public String getSequence() {
-        return sequence;
+        if (sequence != null || packedSequence == null)
+            return sequence;
+
+        if (decodedSequence == null)
+            decodedSequence = SequenceCodec.decode(packedSequence);
+        return decodedSequence;
+    }
+
+    /**
+     * @return length of the sequence. Does not decode a packed sequence
+     */
+    @XmlTransient
+    public int getLength() {
+        if (sequence != null)
+            return sequence.length();
+        return SequenceCodec.getLength(packedSequence);
     }
 
     public void setSequence(String sequence) {
-        this.sequence = sequence;
+        packSequence(sequence);
         setFwdHash(SequenceUtils.calculateSequenceHash(sequence));
         try {
             setRevHash(SequenceUtils.calculateReverseComplementSequenceHash(sequence));
         } catch (UtilityException e) {
             setRevHash("");
         }
+        setRotationHash(SequenceUtils.calculateRotationHash(sequence));
     }
 
     @XmlTransient
     public String getSequenceUser() {
-        return sequenceUser;
+        if (sequenceUser != null || packedSequenceUser == null)
+            return sequenceUser;
+
+        if (decodedSequenceUser == null)
+            decodedSequenceUser = SequenceCodec.decompress(packedSequenceUser);
+        return decodedSequenceUser;
     }
 
     public void setSequenceUser(String sequenceUser) {
-        this.sequenceUser = sequenceUser;
+        // empty values are stored as is so they can be distinguished from an original sequence
+        if (sequenceUser == null || sequenceUser.isEmpty()) {
+            this.sequenceUser = sequenceUser;
+            this.packedSequenceUser = null;
+        } else {
+            this.sequenceUser = null;
+            this.packedSequenceUser = SequenceCodec.compress(sequenceUser);
+        }
+        this.decodedSequenceUser = sequenceUser;
+    }
+
+    /**
+     * Packs the sequence and original sequence if they are stored as text. The hashes are not recalculated
+     */
+    public void pack() {
+        if (sequence != null)
+            packSequence(sequence);
+        if (sequenceUser != null)
+            setSequenceUser(sequenceUser);
     }
 
     @XmlTransient
@@ -146,6 +213,15 @@ public class Sequence implements DataModel {
         this.revHash = revHash;
     }
 
+    @XmlTransient
+    public String getRotationHash() {
+        return rotationHash;
+    }
+
+    public void setRotationHash(String rotationHash) {
+        this.rotationHash = rotationHash;
+    }
+
     @XmlTransient
     public Entry getEntry() {
         return entry;
@@ -206,6 +282,12 @@ public class Sequence implements DataModel {
         this.format = format;
     }
 
+    private void packSequence(String sequence) {
+        this.sequence = null;
+        this.packedSequence = SequenceCodec.encode(sequence);
+        this.decodedSequence = sequence;
+    }
+
     @Override
     public SequenceInfo toDataTransferObject() {
         SequenceInfo info = new SequenceInfo();
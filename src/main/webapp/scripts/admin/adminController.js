@@ -20,7 +20,10 @@ angular.module('ice.admin.controller', [])
             Util.get("rest/search/indexes/LUCENE/status", function (result) {
                 if (result.total === 0)
                     $interval.cancel(lucenePromise);
-                $scope.luceneRebuild = {done: result.done, total: result.total};
+                $scope.luceneRebuild = {
+                    done: result.done, total: result.total, rate: Math.round(result.documentsPerSecond),
+                    eta: result.etaSeconds
+                };
             }, {}, function (error) {
                 $interval.cancel(lucenePromise);
                 $scope.luceneRebuild = undefined;
@@ -14,7 +14,17 @@ adminService.factory('AdminSettings', function () {
         'PASSWORD_CHANGE_ALLOWED',
         'PART_NUMBER_PREFIX',
         'URI_PREFIX',
-        'BLAST_INSTALL_DIR'
+        'BLAST_INSTALL_DIR',
+        'BLAST_UPDATE_QUIET_PERIOD',
+        'BLAST_MAX_HITS',
+        'BLAST_MAX_CONCURRENT_SEARCHES',
+        'BLAST_MAX_QUEUED_SEARCHES',
+        'BLAST_SEARCH_TIMEOUT',
+        'BLAST_RESULT_CACHE_SIZE',
+        'LUCENE_INDEXER_THREADS',
+        'LUCENE_INDEXER_BATCH_SIZE',
+        'LUCENE_INDEXER_ID_FETCH_SIZE',
+        'LUCENE_INDEXER_CACHE_MODE'
         //'ADD_TO_CART_DEFAULT_SET_TO_LOCAL'
     ];
 
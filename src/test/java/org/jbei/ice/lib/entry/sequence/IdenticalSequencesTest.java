@@ -0,0 +1,76 @@
+package org.jbei.ice.lib.entry.sequence;
+
+import org.jbei.ice.lib.AccountCreator;
+import org.jbei.ice.lib.TestEntryCreator;
+import org.jbei.ice.lib.parsers.GeneralParser;
+import org.jbei.ice.lib.utils.SequenceUtils;
+import org.jbei.ice.storage.DAOFactory;
+import org.jbei.ice.storage.hibernate.HibernateRepositoryTest;
+import org.jbei.ice.storage.model.*;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Random;
+
+public class IdenticalSequencesTest extends HibernateRepositoryTest {
+
+    @Test
+    public void testCalculateRotationHash() throws Exception {
+        String sequence = "ttgacagctagctcagtcctaggtataatgctagc";
+        String hash = SequenceUtils.calculateRotationHash(sequence);
+        Assert.assertEquals(hash, SequenceUtils.calculateRotationHash(sequence.substring(7) + sequence.substring(0, 7)));
+        Assert.assertEquals(hash, SequenceUtils.calculateRotationHash(SequenceUtils.reverseComplement(sequence)));
+        Assert.assertEquals(hash, SequenceUtils.calculateRotationHash(" " + sequence.toUpperCase()));
+        Assert.assertNotEquals(hash, SequenceUtils.calculateRotationHash(sequence + "a"));
+        Assert.assertEquals(3, SequenceUtils.minimalRotation("cabaab"));
+        Assert.assertEquals(0, SequenceUtils.minimalRotation("aaaa"));
+    }
+
+    @Test
+    public void testFind() throws Exception {
+        Account account = AccountCreator.createTestAccount("IdenticalSequencesTest.testFind", false);
+        String sequence = randomSequence(500);
+        String rotated = sequence.substring(123) + sequence.substring(0, 123);
+
+        Plasmid circular = TestEntryCreator.createTestPlasmid(account);
+        createSequence(circular, rotated);
+        Plasmid linear = TestEntryCreator.createTestPlasmid(account);
+        linear.setCircular(false);
+        DAOFactory.getEntryDAO().update(linear);
+        createSequence(linear, rotated);
+        Strain strain = TestEntryCreator.createTestStrain(account);
+        createSequence(strain, SequenceUtils.reverseComplement(sequence));
+
+        IdenticalSequences identicalSequences = new IdenticalSequences();
+
+        // reverse complement is identical; rotations are only identical for circular sequences
+        Assert.assertEquals(Collections.singletonList(strain.getId()), identicalSequences.find(sequence, false));
+        Assert.assertEquals(Arrays.asList(circular.getId(), strain.getId()),
+                identicalSequences.find(">query\n" + sequence.toUpperCase(), true));
+        Assert.assertEquals(Arrays.asList(circular.getId(), linear.getId()), identicalSequences.find(rotated, false));
+        Assert.assertTrue(identicalSequences.find(sequence.substring(1), true).isEmpty());
+        Assert.assertTrue(identicalSequences.find("", true).isEmpty());
+
+        // other users cannot read the entries
+        Account other = AccountCreator.createTestAccount("IdenticalSequencesTest.testFindOther", false);
+        Assert.assertTrue(identicalSequences.findReadable(other.getEmail(), sequence, true).isEmpty());
+        Assert.assertEquals(2, identicalSequences.findReadable(account.getEmail(), sequence, true).size());
+    }
+
+    private static void createSequence(Entry entry, String sequenceString) {
+        Sequence sequence = SequenceUtil.dnaSequenceToSequence(GeneralParser.parse(sequenceString));
+        sequence.setEntry(entry);
+        DAOFactory.getSequenceDAO().create(sequence);
+    }
+
+    private static String randomSequence(int length) {
+        Random random = new Random();
+        StringBuilder builder = new StringBuilder(length);
+        for (int i = 0; i < length; i += 1) {
+            builder.append("acgt".charAt(random.nextInt(4)));
+        }
+        return builder.toString();
+    }
+}
@@ -1,5 +1,6 @@
 package org.jbei.ice.lib.entry.sequence;
 
+import org.apache.commons.io.IOUtils;
 import org.jbei.ice.lib.AccountCreator;
 import org.jbei.ice.lib.TestEntryCreator;
 import org.jbei.ice.lib.dto.DNAFeature;
@@ -8,13 +9,21 @@ import org.jbei.ice.lib.dto.FeaturedDNASequence;
 import org.jbei.ice.lib.dto.entry.EntryType;
 import org.jbei.ice.lib.dto.entry.SequenceInfo;
 import org.jbei.ice.lib.parsers.GeneralParser;
+import org.jbei.ice.storage.DAOFactory;
 import org.jbei.ice.storage.hibernate.HibernateRepositoryTest;
+import org.jbei.ice.storage.hibernate.HibernateUtil;
+import org.jbei.ice.storage.hibernate.dao.SequenceFeatureDAO;
 import org.jbei.ice.storage.model.Account;
+import org.jbei.ice.storage.model.SequenceFeature;
 import org.jbei.ice.storage.model.Strain;
 import org.junit.Assert;
 import org.junit.Test;
 
 import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 
 /**
@@ -72,6 +81,101 @@ public class PartSequenceTest extends HibernateRepositoryTest {
         SequenceInfo sequenceInfo = partSequence.parseSequenceFile(inputStream, "fasta.fa", false);
         Assert.assertNotNull(sequenceInfo);
         Assert.assertNotNull(sequenceInfo.getSequence());
+
+        // original is kept
+        InputStreamWrapper original = partSequence.toFile(SequenceFormat.ORIGINAL, true, false);
+        Assert.assertNotNull(original);
+        Assert.assertEquals("fasta.fa", original.getName());
+        try (InputStream stream = original.getInputStream()) {
+            Assert.assertEquals(fasta, IOUtils.toString(stream, StandardCharsets.UTF_8));
+        }
+
+        // empty files cannot be parsed
+        partSequence = new PartSequence(account.getEmail(), EntryType.PART);
+        try {
+            partSequence.parseSequenceFile(new ByteArrayInputStream(new byte[0]), "empty.fa", false);
+            Assert.fail("Parsed empty file");
+        } catch (IOException e) {
+            Assert.assertNull(partSequence.get());
+        }
+    }
+
+    @Test
+    public void testToStream() throws Exception {
+        Account account = AccountCreator.createTestAccount("PartSequenceTest.testToStream", false);
+        Strain strain = TestEntryCreator.createTestStrain(account);
+        PartSequence partSequence = new PartSequence(account.getEmail(), strain.getRecordId());
+        Assert.assertNull(partSequence.toStream(SequenceFormat.GENBANK, true, true));
+        Assert.assertNotNull(partSequence.parseSequenceFile(new ByteArrayInputStream(genbank.getBytes()),
+                "testFile.gb", false));
+
+        // sequence is written after the transaction it was retrieved in is committed
+        HibernateUtil.commitTransaction();
+        HibernateUtil.beginTransaction();
+        partSequence = new PartSequence(account.getEmail(), strain.getRecordId());
+
+        // original is used when available in the requested format
+        SequenceOutput output = partSequence.toStream(SequenceFormat.GENBANK, true, true);
+        Assert.assertNotNull(output);
+        Assert.assertEquals("testFile.gb", output.getName());
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        output.write(stream);
+        Assert.assertEquals(genbank, stream.toString(StandardCharsets.UTF_8.name()));
+
+        // generated; can be written more than once since sequence is retrieved for each write
+        output = partSequence.toStream(SequenceFormat.GENBANK, true, false);
+        Assert.assertEquals(strain.getPartNumber() + ".gb", output.getName());
+        stream = new ByteArrayOutputStream();
+        output.write(stream);
+        String generated = stream.toString(StandardCharsets.UTF_8.name());
+        Assert.assertTrue(generated.contains("/label=pTrc promoter"));
+        stream = new ByteArrayOutputStream();
+        output.write(stream);
+        Assert.assertEquals(generated, stream.toString(StandardCharsets.UTF_8.name()));
+
+        output = partSequence.toStream(SequenceFormat.FASTA, true, true);
+        Assert.assertEquals(strain.getPartNumber() + ".fa", output.getName());
+        stream = new ByteArrayOutputStream();
+        output.write(stream);
+        Assert.assertTrue(stream.toString(StandardCharsets.UTF_8.name()).startsWith(">" + strain.getPartNumber()
+                + System.lineSeparator() + "cgactgcacggtgcaccaat"));
+        InputStreamWrapper wrapper = partSequence.toFile(SequenceFormat.FASTA, true, true);
+        Assert.assertEquals(stream.toString(StandardCharsets.UTF_8.name()),
+                IOUtils.toString(wrapper.getInputStream(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testToStreamAfterFeatureEdit() throws Exception {
+        Account account = AccountCreator.createTestAccount("PartSequenceTest.testToStreamAfterFeatureEdit", false);
+        Strain strain = TestEntryCreator.createTestStrain(account);
+        PartSequence partSequence = new PartSequence(account.getEmail(), strain.getRecordId());
+        Assert.assertNotNull(partSequence.parseSequenceFile(new ByteArrayInputStream(genbank.getBytes()),
+                "testFile.gb", false));
+        HibernateUtil.commitTransaction();
+        HibernateUtil.beginTransaction();
+
+        partSequence = new PartSequence(account.getEmail(), strain.getRecordId());
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        partSequence.toStream(SequenceFormat.GENBANK, true, false).write(stream);
+        Assert.assertTrue(stream.toString(StandardCharsets.UTF_8.name()).contains("/label=pTrc promoter"));
+        HibernateUtil.commitTransaction();
+        HibernateUtil.beginTransaction();
+
+        // feature renamed in place; the number and identifiers of the features are unchanged
+        SequenceFeatureDAO sequenceFeatureDAO = DAOFactory.getSequenceFeatureDAO();
+        List<SequenceFeature> features = sequenceFeatureDAO.getEntrySequenceFeatures(strain);
+        Assert.assertEquals(1, features.size());
+        features.get(0).setName("renamed promoter");
+        sequenceFeatureDAO.update(features.get(0));
+        HibernateUtil.commitTransaction();
+        HibernateUtil.beginTransaction();
+
+        partSequence = new PartSequence(account.getEmail(), strain.getRecordId());
+        stream = new ByteArrayOutputStream();
+        partSequence.toStream(SequenceFormat.GENBANK, true, false).write(stream);
+        String generated = stream.toString(StandardCharsets.UTF_8.name());
+        Assert.assertTrue(generated.contains("/label=renamed promoter"));
+        Assert.assertFalse(generated.contains("/label=pTrc promoter"));
     }
 
     @Test
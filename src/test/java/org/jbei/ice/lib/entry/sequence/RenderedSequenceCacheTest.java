@@ -0,0 +1,102 @@
+package org.jbei.ice.lib.entry.sequence;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class RenderedSequenceCacheTest {
+
+    private Path directory;
+
+    @Before
+    public void setUp() throws Exception {
+        directory = Files.createTempDirectory("rendered-sequences");
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        FileUtils.deleteDirectory(directory.toFile());
+    }
+
+    @Test
+    public void testWrite() throws Exception {
+        RenderedSequenceCache cache = new RenderedSequenceCache(directory, 1024);
+        AtomicInteger renders = new AtomicInteger();
+        RenderedSequenceCache.Renderer renderer = outputStream -> {
+            renders.incrementAndGet();
+            outputStream.write("LOCUS".getBytes(StandardCharsets.UTF_8));
+        };
+
+        // rendered once
+        Assert.assertEquals("LOCUS", write(cache, 1, SequenceFormat.GENBANK, "v1", renderer));
+        Assert.assertEquals("LOCUS", write(cache, 1, SequenceFormat.GENBANK, "v1", renderer));
+        Assert.assertEquals(1, renders.get());
+        Assert.assertEquals(5, cache.size());
+
+        // new version or format is rendered again
+        write(cache, 1, SequenceFormat.GENBANK, "v2", renderer);
+        write(cache, 1, SequenceFormat.FASTA, "v2", renderer);
+        Assert.assertEquals(3, renders.get());
+
+        // renderings from a previous run are used
+        cache = new RenderedSequenceCache(directory, 1024);
+        Assert.assertEquals(15, cache.size());
+        write(cache, 1, SequenceFormat.FASTA, "v2", renderer);
+        Assert.assertEquals(3, renders.get());
+
+        cache.invalidate(1);
+        Assert.assertEquals(0, cache.size());
+        Assert.assertFalse(Files.exists(cache.getPath(1, SequenceFormat.FASTA, "v2")));
+        write(cache, 1, SequenceFormat.FASTA, "v2", renderer);
+        Assert.assertEquals(4, renders.get());
+
+        // failed renderings are not cached
+        try {
+            write(cache, 2, SequenceFormat.SBOL2, "v1", outputStream -> {
+                outputStream.write("partial".getBytes(StandardCharsets.UTF_8));
+                throw new IOException("Could not render");
+            });
+            Assert.fail("Rendering did not fail");
+        } catch (IOException e) {
+            Assert.assertEquals("Could not render", e.getMessage());
+        }
+        Assert.assertEquals(5, cache.size());
+    }
+
+    @Test
+    public void testEviction() throws Exception {
+        RenderedSequenceCache cache = new RenderedSequenceCache(directory, 25);
+        RenderedSequenceCache.Renderer renderer = outputStream -> outputStream.write(new byte[10]);
+        write(cache, 1, SequenceFormat.GENBANK, "v1", renderer);
+        write(cache, 2, SequenceFormat.GENBANK, "v1", renderer);
+        write(cache, 1, SequenceFormat.GENBANK, "v1", renderer);       // most recently used
+        write(cache, 3, SequenceFormat.GENBANK, "v1", renderer);
+
+        Assert.assertEquals(20, cache.size());
+        Assert.assertTrue(Files.exists(cache.getPath(1, SequenceFormat.GENBANK, "v1")));
+        Assert.assertFalse(Files.exists(cache.getPath(2, SequenceFormat.GENBANK, "v1")));
+        Assert.assertTrue(Files.exists(cache.getPath(3, SequenceFormat.GENBANK, "v1")));
+
+        // larger than the cache; kept until the next rendering is added
+        write(cache, 4, SequenceFormat.GENBANK, "v1", outputStream -> outputStream.write(new byte[30]));
+        Assert.assertEquals(30, cache.size());
+        write(cache, 5, SequenceFormat.GENBANK, "v1", renderer);
+        Assert.assertEquals(10, cache.size());
+    }
+
+    private String write(RenderedSequenceCache cache, long entryId, SequenceFormat format, String version,
+                         RenderedSequenceCache.Renderer renderer) throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        cache.write(entryId, format, version, renderer, outputStream);
+        return outputStream.toString(StandardCharsets.UTF_8.name());
+    }
+}
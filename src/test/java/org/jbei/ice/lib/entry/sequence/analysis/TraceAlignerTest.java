@@ -0,0 +1,67 @@
+package org.jbei.ice.lib.entry.sequence.analysis;
+
+import org.jbei.ice.lib.parsers.bl2seq.Bl2SeqResult;
+import org.jbei.ice.lib.utils.SequenceUtils;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Random;
+
+public class TraceAlignerTest {
+
+    private final TraceAligner aligner = new TraceAligner();
+
+    @Test
+    public void testAlignForward() {
+        String reference = randomSequence(new Random(1), 3000);
+        // trace with a mismatch, an insertion and a deletion
+        String trace = reference.substring(1000, 1200) + (reference.charAt(1200) == 'a' ? "c" : "a")
+                + reference.substring(1201, 1400) + "gg" + reference.substring(1400, 1600)
+                + reference.substring(1603, 1800);
+
+        Bl2SeqResult result = aligner.alignInProcess(reference, trace, false);
+        Assert.assertNotNull(result);
+        Assert.assertEquals(0, result.getOrientation());
+        Assert.assertEquals(1001, result.getQueryStart());
+        Assert.assertEquals(1800, result.getQueryEnd());
+        Assert.assertEquals(1, result.getSubjectStart());
+        Assert.assertEquals(trace.length(), result.getSubjectEnd());
+        Assert.assertEquals(reference.substring(1000, 1800), result.getQuerySequence().replace("-", ""));
+        Assert.assertEquals(trace, result.getSubjectSequence().replace("-", ""));
+        Assert.assertEquals(result.getQuerySequence().length(), result.getSubjectSequence().length());
+    }
+
+    @Test
+    public void testAlignReverseAcrossOrigin() throws Exception {
+        String reference = randomSequence(new Random(2), 2000);
+        String spanning = reference.substring(1700) + reference.substring(0, 300);
+        String trace = "nn" + SequenceUtils.reverseComplement(spanning);
+
+        // circular reference is aligned across the origin
+        Bl2SeqResult result = aligner.alignInProcess(reference, trace, true);
+        Assert.assertNotNull(result);
+        Assert.assertEquals(1, result.getOrientation());
+        Assert.assertEquals(1701, result.getQueryStart());
+        Assert.assertEquals(2300, result.getQueryEnd());
+        Assert.assertEquals(trace.length(), result.getSubjectStart());
+        Assert.assertEquals(3, result.getSubjectEnd());
+        Assert.assertEquals(spanning, result.getQuerySequence());
+        Assert.assertEquals(spanning, result.getSubjectSequence());
+
+        // linear reference only aligns up to the end
+        result = aligner.alignInProcess(reference, trace, false);
+        Assert.assertNotNull(result);
+        Assert.assertEquals(2000, Math.max(result.getQueryStart(), result.getQueryEnd()));
+
+        // unrelated sequence
+        Assert.assertNull(aligner.alignInProcess(reference, randomSequence(new Random(3), 500), true));
+    }
+
+    private static String randomSequence(Random random, int length) {
+        StringBuilder builder = new StringBuilder(length);
+        for (int i = 0; i < length; i += 1) {
+            builder.append("acgt".charAt(random.nextInt(4)));
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,102 @@
+package org.jbei.ice.lib.entry.sequence.analysis;
+
+import org.jbei.ice.lib.AccountCreator;
+import org.jbei.ice.lib.TestEntryCreator;
+import org.jbei.ice.lib.dto.entry.TraceAlignmentStatus;
+import org.jbei.ice.lib.entry.sequence.PartSequence;
+import org.jbei.ice.storage.DAOFactory;
+import org.jbei.ice.storage.hibernate.HibernateRepositoryTest;
+import org.jbei.ice.storage.model.*;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class TraceSequencesTest extends HibernateRepositoryTest {
+
+    private static final String SEQUENCE =
+            "cgactgcacggtgcaccaatgcttctggcgtcaggcagccatcggaagctgtggtatggctgtgcaggtcgtaaatcactgcataattcgtgtcgctcaa" +
+                    "ggcgcactcccgttctggataatgttttttgcgccgacatcataacggttctggcaaatattctgaaatgagctgttgacaattaatcatccg" +
+                    "gctcgtataatgtgtggaattgtgagcggataacaatttca";
+
+    @Test
+    public void testRebuildAllAlignments() throws Exception {
+        Account account = AccountCreator.createTestAccount("TraceSequencesTest.testRebuildAllAlignments", false);
+        Plasmid plasmid = TestEntryCreator.createTestPlasmid(account);
+        PartSequence partSequence = new PartSequence(account.getEmail(), plasmid.getRecordId());
+        Assert.assertNotNull(partSequence.parseSequenceFile(new ByteArrayInputStream(SEQUENCE.getBytes()),
+                "sequence.txt", false));
+        Sequence sequence = DAOFactory.getSequenceDAO().getByEntry(plasmid);
+        Assert.assertNotNull(sequence);
+
+        TraceSequence trace = DAOFactory.getTraceSequenceDAO().create(new TraceSequence(plasmid, "trace-file",
+                "trace.ab1", account.getEmail(), SEQUENCE.substring(20, 140), new Date()));
+
+        // no alignment yet
+        Assert.assertFalse(TraceSequences.isAligned(trace, sequence));
+        Map<Long, String> traces = new HashMap<>();
+        traces.put(trace.getId(), trace.getSequence());
+        TraceAlignmentTask task = new TraceAlignmentTask(plasmid.getId(), sequence.getSequence(),
+                sequence.getFwdHash(), false, traces);
+        task.execute();
+
+        trace = DAOFactory.getTraceSequenceDAO().get(trace.getId());
+        TraceSequenceAlignment alignment = trace.getTraceSequenceAlignment();
+        Assert.assertNotNull(alignment);
+        Assert.assertEquals(1, alignment.getStrand());
+        Assert.assertEquals(21, alignment.getQueryStart());
+        Assert.assertEquals(140, alignment.getQueryEnd());
+        Assert.assertTrue(TraceSequences.isAligned(trace, sequence));
+
+        TraceAlignmentStatus status = new TraceSequences().getAlignmentStatus(account.getEmail(), plasmid.getId());
+        Assert.assertEquals(1, status.getTotal());
+        Assert.assertEquals(1, status.getCompleted());
+        Assert.assertEquals(0, status.getFailed());
+
+        // alignment is up to date so a rebuild does not schedule another task
+        new TraceSequences().rebuildAllAlignments(plasmid);
+        Assert.assertEquals(1, TraceAlignmentTask.getStatus(plasmid.getId()).getCompleted());
+
+        // a newer task supersedes an older one, which does not save its alignments
+        TraceAlignmentTask older = new TraceAlignmentTask(plasmid.getId(), sequence.getSequence(), "older", false,
+                traces);
+        new TraceAlignmentTask(plasmid.getId(), sequence.getSequence(), sequence.getFwdHash(), false, traces);
+        older.execute();
+        trace = DAOFactory.getTraceSequenceDAO().get(trace.getId());
+        Assert.assertEquals(sequence.getFwdHash(), trace.getTraceSequenceAlignment().getSequenceHash());
+        Assert.assertEquals(0, TraceAlignmentTask.getStatus(plasmid.getId()).getCompleted());
+    }
+
+    @Test
+    public void testGetTraceSequences() throws Exception {
+        Account account = AccountCreator.createTestAccount("TraceSequencesTest.testGetTraceSequences", false);
+        Plasmid plasmid = TestEntryCreator.createTestPlasmid(account);
+        PartSequence partSequence = new PartSequence(account.getEmail(), plasmid.getRecordId());
+        Assert.assertNotNull(partSequence.parseSequenceFile(new ByteArrayInputStream(SEQUENCE.getBytes()),
+                "sequence.txt", false));
+        Sequence sequence = DAOFactory.getSequenceDAO().getByEntry(plasmid);
+        TraceSequence trace = DAOFactory.getTraceSequenceDAO().create(new TraceSequence(plasmid, "trace-file-2",
+                "trace.ab1", account.getEmail(), SEQUENCE.substring(20, 140), new Date()));
+
+        // alignment pending in the background is not redone (or superseded) when the traces are retrieved
+        Map<Long, String> traces = new HashMap<>();
+        traces.put(trace.getId(), trace.getSequence());
+        TraceAlignmentTask task = new TraceAlignmentTask(plasmid.getId(), sequence.getSequence(),
+                sequence.getFwdHash(), false, traces);
+        Assert.assertTrue(TraceAlignmentTask.isActive(plasmid.getId(), sequence.getFwdHash()));
+        Assert.assertFalse(TraceAlignmentTask.isActive(plasmid.getId(), "other"));
+
+        List<TraceSequence> result = new TraceSequences().getTraceSequences(plasmid);
+        Assert.assertEquals(1, result.size());
+        Assert.assertNull(result.get(0).getTraceSequenceAlignment());
+
+        task.execute();
+        Assert.assertEquals(1, TraceAlignmentTask.getStatus(plasmid.getId()).getCompleted());
+        result = new TraceSequences().getTraceSequences(plasmid);
+        Assert.assertTrue(TraceSequences.isAligned(result.get(0), sequence));
+    }
+}
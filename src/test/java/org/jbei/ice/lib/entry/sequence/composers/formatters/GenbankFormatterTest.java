@@ -0,0 +1,94 @@
+package org.jbei.ice.lib.entry.sequence.composers.formatters;
+
+import org.jbei.ice.storage.model.*;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Random;
+
+public class GenbankFormatterTest {
+
+    @Test
+    public void testFormat() throws Exception {
+        // same output as the BioJava writer
+        Random random = new Random(1);
+        for (int i = 0; i < 20; i += 1) {
+            Sequence sequence = createSequence(random, 1 + random.nextInt(2000), random.nextInt(20),
+                    i % 4 == 0 ? "acgtnrykmswbdhv-" : "acgt");
+            GenbankFormatter formatter = new GenbankFormatter(i % 3 == 0 ? "pLong" + i + "Name" : "p" + i);
+            formatter.setCircular(i % 2 == 0);
+            if (i % 5 == 0) {
+                formatter.setDescription("a description long enough to be wrapped over more than one line of "
+                        + "the genbank file for sequence " + i);
+                formatter.setIdentifier("ID" + i);
+                formatter.setDivision("BCT");
+            }
+            assertSameAsRichSequence(formatter, sequence);
+        }
+
+        // empty sequence is not written
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        new GenbankFormatter("empty").format(createSequence(random, 0, 0, "acgt"), stream);
+        Assert.assertEquals(0, stream.size());
+
+        // symbols not handled by the streaming path
+        Sequence sequence = createSequence(random, 100, 2, "acgt");
+        sequence.setSequence(sequence.getSequence() + "ACGTX");
+        assertSameAsRichSequence(new GenbankFormatter("upper"), sequence);
+    }
+
+    private void assertSameAsRichSequence(GenbankFormatter formatter, Sequence sequence) throws Exception {
+        ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        formatter.formatRichSequence(sequence, expected);
+        ByteArrayOutputStream actual = new ByteArrayOutputStream();
+        formatter.format(sequence, actual);
+        Assert.assertEquals(expected.toString(), actual.toString());
+    }
+
+    private Sequence createSequence(Random random, int length, int featureCount, String symbols) {
+        StringBuilder builder = new StringBuilder(length);
+        for (int i = 0; i < length; i += 1)
+            builder.append(symbols.charAt(random.nextInt(symbols.length())));
+        Sequence sequence = new Sequence();
+        sequence.setSequence(builder.toString());
+
+        String[] types = {"CDS", "promoter", "", "misc_feature", "terminator"};
+        String[][] attributes = {
+                {"note", "a short note"},
+                {"translation", "MKLVAAWRRSQKLAGHHIPPLDSSAKKLMNVAAWRRSQKLAGHHIPPLDSSAKKLMNVAAWRRSQKLAGHH*"},
+                {"codon_start", "1"},
+                {"gene", "  \"lacZ\"  "},
+                {"label", "skipped"},
+                {"", "skipped"},
+                {"empty", ""},
+                {"note", "a note with \"quotes\", a / slash and enough words that it has to be wrapped over "
+                        + "several lines of the file\nincluding a new line"},
+        };
+        for (int i = 0; i < featureCount; i += 1) {
+            String type = types[random.nextInt(types.length)];
+            String name = i % 7 == 0 ? "a long feature name that does not fit on a single line of a genbank file "
+                    + i : "feature" + i;
+            Feature feature = new Feature(name, "", "", type);
+            int strand = random.nextInt(3) - 1;
+            SequenceFeature sequenceFeature = new SequenceFeature(sequence, feature, strand, name, type, null);
+            int locations = 1 + random.nextInt(3);
+            for (int j = 0; j < locations; j += 1) {
+                int start = 1 + random.nextInt(length);
+                int end = random.nextInt(4) == 0 ? start : 1 + random.nextInt(length);
+                sequenceFeature.getAnnotationLocations().add(new AnnotationLocation(start, end, sequenceFeature));
+            }
+            for (int j = 0; j < attributes.length; j += 1) {
+                if (random.nextBoolean())
+                    continue;
+                SequenceFeatureAttribute attribute = new SequenceFeatureAttribute();
+                attribute.setKey(attributes[j][0]);
+                attribute.setValue(attributes[j][1]);
+                attribute.setSequenceFeature(sequenceFeature);
+                sequenceFeature.getSequenceFeatureAttributes().add(attribute);
+            }
+            sequence.getSequenceFeatures().add(sequenceFeature);
+        }
+        return sequence;
+    }
+}
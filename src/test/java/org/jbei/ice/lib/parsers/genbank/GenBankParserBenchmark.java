@@ -0,0 +1,62 @@
+package org.jbei.ice.lib.parsers.genbank;
+
+import org.apache.commons.io.IOUtils;
+import org.jbei.ice.lib.dto.FeaturedDNASequence;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of {@link GenBankParser} compared with {@link StreamingGenBankParser} for a generated GenBank file.
+ * Not run as part of the tests; run with
+ * <code>mvn test-compile exec:java -Dexec.mainClass=org.jbei.ice.lib.parsers.genbank.GenBankParserBenchmark
+ * -Dexec.classpathScope=test</code> (optionally with <code>-Dexec.args="-prof gc"</code> for allocation rates)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GenBankParserBenchmark {
+
+    @Param({"100000", "10000000"})
+    public int length;
+
+    private String genbank;
+
+    @Setup
+    public void setup() {
+        genbank = StreamingGenBankParserTest.createGenBank(length, Math.max(10, length / 1000), 1);
+    }
+
+    @Benchmark
+    public FeaturedDNASequence genBankParser() {
+        return new GenBankParser().parse(IOUtils.lineIterator(new StringReader(genbank)));
+    }
+
+    @Benchmark
+    public FeaturedDNASequence streamingParserLines() {
+        return new StreamingGenBankParser().parse(IOUtils.lineIterator(new StringReader(genbank)));
+    }
+
+    @Benchmark
+    public FeaturedDNASequence streamingParserReader() throws IOException {
+        return new StreamingGenBankParser().parse(new StringReader(genbank));
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length > 0) {
+            org.openjdk.jmh.Main.main(args);
+            return;
+        }
+
+        Options options = new OptionsBuilder().include(GenBankParserBenchmark.class.getSimpleName()).build();
+        new Runner(options).run();
+    }
+}
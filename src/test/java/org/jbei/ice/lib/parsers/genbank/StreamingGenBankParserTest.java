@@ -0,0 +1,151 @@
+package org.jbei.ice.lib.parsers.genbank;
+
+import org.apache.commons.io.IOUtils;
+import org.jbei.ice.lib.dto.DNAFeature;
+import org.jbei.ice.lib.dto.DNAFeatureLocation;
+import org.jbei.ice.lib.dto.DNAFeatureNote;
+import org.jbei.ice.lib.dto.FeaturedDNASequence;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.StringReader;
+import java.util.Random;
+
+public class StreamingGenBankParserTest {
+
+    private static final String quirks =
+            "LOCUS       pQuirk                    40 bp    DNA     circular\n" +
+                    "ACCESSION   pQuirk   2\n" +
+                    "REFERENCE   1\n" +
+                    "FEATURES             Location/Qualifiers\n" +
+                    "     misc_feature    complement(join(1..4,10..>12))\n" +
+                    "                     /note=\"a \"\"quoted\"\" note\\ with = sign\"\n" +
+                    "                     /gene=abc\n" +
+                    "                     continued over 1..2 lines\"\n" +
+                    "                     and more\n" +
+                    "     CDS             complement(<5..20)\n" +
+                    "                     /label=\n" +
+                    "                     /organism==x\n" +
+                    "                     /label=first\n" +
+                    "     rep_origin      order(M55673:1..5,7)\n" +
+                    "     gene            17\n" +
+                    "BASE COUNT       10 a     10 c     10 g     10 t\n" +
+                    "ORIGIN\n" +
+                    "        1 ACGTACGTAC GTACGTACGT\n" +
+                    "ACGTACGTACGTACGTACGT\n" +
+                    "//\n";
+
+    @Test
+    public void testParse() throws Exception {
+        assertSameAsGenBankParser(GenBankParserTest.genbank);
+        assertSameAsGenBankParser(GenBankParserTest.getGenbank2);
+        assertSameAsGenBankParser(quirks);
+        assertSameAsGenBankParser(FeaturesSectionTest.features2 + FeaturesSectionTest.features3);
+        assertSameAsGenBankParser(createGenBank(20000, 200, 1));
+
+        FeaturedDNASequence sequence = new StreamingGenBankParser().parse(new StringReader(quirks));
+        Assert.assertEquals("pQuirk", sequence.getName());
+        Assert.assertTrue(sequence.getIsCircular());
+        Assert.assertEquals("pQuirk 2", sequence.getIdentifier());
+        Assert.assertEquals(40, sequence.getSequence().length());
+        Assert.assertEquals(3, sequence.getFeatures().size());
+
+        DNAFeature feature = sequence.getFeatures().get(0);
+        Assert.assertEquals(-1, feature.getStrand());
+        Assert.assertEquals(10, feature.getLocations().get(0).getGenbankStart());
+        Assert.assertEquals("a \"quoted\" note  with", feature.getNotes().get(0).getValue());
+        Assert.assertEquals("abccontinued over 1..2 lines\"and more", feature.getNotes().get(1).getValue());
+        Assert.assertEquals("abc", feature.getName());
+    }
+
+    @Test
+    public void testLineTerminators() throws Exception {
+        StreamingGenBankParser parser = new StreamingGenBankParser();
+        FeaturedDNASequence expected = parser.parse(new StringReader(GenBankParserTest.genbank));
+        assertEquals(expected, parser.parse(new StringReader(GenBankParserTest.genbank.replace("\n", "\r\n"))));
+        assertEquals(expected, parser.parse(new StringReader(GenBankParserTest.genbank.replace("\n", "\r"))));
+    }
+
+    private void assertSameAsGenBankParser(String genbank) throws Exception {
+        FeaturedDNASequence expected = new GenBankParser().parse(IOUtils.lineIterator(new StringReader(genbank)));
+        assertEquals(expected, new StreamingGenBankParser().parse(IOUtils.lineIterator(new StringReader(genbank))));
+        assertEquals(expected, new StreamingGenBankParser().parse(new StringReader(genbank)));
+    }
+
+    private void assertEquals(FeaturedDNASequence expected, FeaturedDNASequence actual) {
+        Assert.assertEquals(expected.getName(), actual.getName());
+        Assert.assertEquals(expected.getIdentifier(), actual.getIdentifier());
+        Assert.assertEquals(expected.getIsCircular(), actual.getIsCircular());
+        Assert.assertEquals(expected.getSequence(), actual.getSequence());
+        Assert.assertEquals(expected.getFeatures().size(), actual.getFeatures().size());
+
+        for (int i = 0; i < expected.getFeatures().size(); i += 1) {
+            DNAFeature expectedFeature = expected.getFeatures().get(i);
+            DNAFeature actualFeature = actual.getFeatures().get(i);
+            Assert.assertEquals(expectedFeature.getType(), actualFeature.getType());
+            Assert.assertEquals(expectedFeature.getName(), actualFeature.getName());
+            Assert.assertEquals(expectedFeature.getStrand(), actualFeature.getStrand());
+
+            Assert.assertEquals(expectedFeature.getLocations().size(), actualFeature.getLocations().size());
+            for (int j = 0; j < expectedFeature.getLocations().size(); j += 1) {
+                DNAFeatureLocation expectedLocation = expectedFeature.getLocations().get(j);
+                DNAFeatureLocation actualLocation = actualFeature.getLocations().get(j);
+                Assert.assertEquals(expectedLocation.getGenbankStart(), actualLocation.getGenbankStart());
+                Assert.assertEquals(expectedLocation.getEnd(), actualLocation.getEnd());
+            }
+
+            Assert.assertEquals(expectedFeature.getNotes().size(), actualFeature.getNotes().size());
+            for (int j = 0; j < expectedFeature.getNotes().size(); j += 1) {
+                DNAFeatureNote expectedNote = expectedFeature.getNotes().get(j);
+                DNAFeatureNote actualNote = actualFeature.getNotes().get(j);
+                Assert.assertEquals(expectedNote.getName(), actualNote.getName());
+                Assert.assertEquals(expectedNote.getValue(), actualNote.getValue());
+                Assert.assertEquals(expectedNote.isQuoted(), actualNote.isQuoted());
+            }
+        }
+    }
+
+    /**
+     * Generates a GenBank file with a random sequence and features
+     *
+     * @param length       length of the sequence
+     * @param featureCount number of features
+     * @param seed         seed for random generator
+     * @return GenBank file
+     */
+    static String createGenBank(int length, int featureCount, long seed) {
+        Random random = new Random(seed);
+        StringBuilder builder = new StringBuilder();
+        builder.append("LOCUS       generated           ").append(length).append(" bp    DNA     circular\n");
+        builder.append("DEFINITION  generated sequence\n");
+        builder.append("ACCESSION   generated\n");
+        builder.append("FEATURES             Location/Qualifiers\n");
+        for (int i = 0; i < featureCount; i += 1) {
+            int start = 1 + random.nextInt(length - 100);
+            int end = start + random.nextInt(99);
+            String location = start + ".." + end;
+            if (i % 5 == 0)
+                location = "join(" + location + "," + (end + 1) + ".." + (end + 1) + ")";
+            if (i % 3 == 0)
+                location = "complement(" + location + ")";
+            builder.append("     CDS             ").append(location).append("\n");
+            builder.append("                     /label=\"feature ").append(i).append("\"\n");
+            builder.append("                     /note=\"note for feature ").append(i).append(" that is long\n");
+            builder.append("                     enough to be continued\"\n");
+        }
+
+        builder.append("ORIGIN\n");
+        char[] bases = {'a', 'c', 'g', 't'};
+        for (int i = 0; i < length; i += 60) {
+            builder.append(String.format("%9d", i + 1));
+            for (int j = i; j < Math.min(length, i + 60); j += 1) {
+                if ((j - i) % 10 == 0)
+                    builder.append(' ');
+                builder.append(bases[random.nextInt(4)]);
+            }
+            builder.append('\n');
+        }
+        builder.append("//\n");
+        return builder.toString();
+    }
+}
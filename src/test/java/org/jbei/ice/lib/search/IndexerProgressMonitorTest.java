@@ -0,0 +1,36 @@
+package org.jbei.ice.lib.search;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class IndexerProgressMonitorTest {
+
+    @Test
+    public void testGetStatus() throws Exception {
+        IndexerProgressMonitor monitor = IndexerProgressMonitor.getInstance();
+        Assert.assertTrue(monitor.indexingStarted());
+        Assert.assertFalse(monitor.indexingStarted());
+
+        monitor.addToTotalCount(100);
+        monitor.entitiesLoaded(30);
+        monitor.documentsBuilt(25);
+        Thread.sleep(20);
+        monitor.documentsAdded(20);
+
+        IndexBuildStatus status = monitor.getStatus();
+        Assert.assertEquals(20, status.getDone());
+        Assert.assertEquals(100, status.getTotal());
+        Assert.assertEquals(30, status.getEntitiesLoaded());
+        Assert.assertEquals(25, status.getDocumentsBuilt());
+        Assert.assertTrue(status.getDocumentsPerSecond() > 0);
+        Assert.assertTrue(status.getEtaSeconds() >= 0);
+
+        monitor.indexingCompleted();
+        status = monitor.getStatus();
+        Assert.assertEquals(0, status.getDone());
+        Assert.assertEquals(0, status.getTotal());
+        Assert.assertEquals(-1, status.getEtaSeconds());
+        Assert.assertTrue(monitor.indexingStarted());
+        monitor.indexingInterrupted();
+    }
+}
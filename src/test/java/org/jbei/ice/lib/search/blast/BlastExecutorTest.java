@@ -0,0 +1,95 @@
+package org.jbei.ice.lib.search.blast;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class BlastExecutorTest {
+
+    @Test
+    public void testAcquire() throws Exception {
+        BlastExecutor executor = new BlastExecutor(1, 1, 2000, 8);
+        Assert.assertEquals(8, executor.getThreadsPerSearch());
+
+        BlastExecutor.Permit permit = executor.acquire();
+        Assert.assertTrue(permit.getDeadline() > System.currentTimeMillis());
+
+        // second search waits for the slot
+        CountDownLatch acquired = new CountDownLatch(1);
+        AtomicReference<BlastExecutor.Permit> waiting = new AtomicReference<>();
+        Thread thread = new Thread(() -> {
+            try {
+                waiting.set(executor.acquire());
+                acquired.countDown();
+            } catch (BlastException e) {
+                Assert.fail(e.getMessage());
+            }
+        });
+        thread.start();
+        while (executor.getStatus().getQueued() == 0) {
+            Thread.sleep(5);
+        }
+
+        // third is rejected since the queue is full
+        try {
+            executor.acquire();
+            Assert.fail("Expected search to be rejected");
+        } catch (BlastException e) {
+            Assert.assertEquals(1, executor.getStatus().getRejected());
+        }
+
+        permit.completed();
+        permit.release();
+        acquired.await();
+        waiting.get().timedOut();
+        waiting.get().release();
+        thread.join();
+
+        BlastExecutionStatus status = executor.getStatus();
+        Assert.assertEquals(0, status.getRunning());
+        Assert.assertEquals(0, status.getQueued());
+        Assert.assertEquals(1, status.getCompleted());
+        Assert.assertEquals(1, status.getTimedOut());
+        Assert.assertEquals(1, status.getRejected());
+    }
+
+    @Test
+    public void testConfigure() throws Exception {
+        BlastExecutor executor = new BlastExecutor(1, 0, 2000, 8);
+        BlastExecutor.Permit task = executor.acquireForTask();
+
+        // slot is taken by the task and searches cannot wait
+        try {
+            executor.acquire();
+            Assert.fail("Expected search to be rejected");
+        } catch (BlastException e) {
+            Assert.assertEquals(1, executor.getStatus().getRejected());
+        }
+
+        // another slot is available once the settings change
+        executor.configure(2, 0, 2000);
+        Assert.assertEquals(2, executor.getStatus().getMaxConcurrent());
+        Assert.assertEquals(4, executor.getThreadsPerSearch());
+        BlastExecutor.Permit search = executor.acquire();
+        search.completed();
+        search.release();
+        task.release();
+
+        // and reduced again
+        executor.configure(1, 0, 2000);
+        BlastExecutor.Permit permit = executor.acquire();
+        try {
+            executor.acquire();
+            Assert.fail("Expected search to be rejected");
+        } catch (BlastException e) {
+            Assert.assertEquals(2, executor.getStatus().getRejected());
+        }
+        permit.release();
+
+        // tasks are not included in the search metrics
+        Assert.assertEquals(1, executor.getStatus().getCompleted());
+        Assert.assertEquals(0, executor.getStatus().getRunning());
+    }
+}
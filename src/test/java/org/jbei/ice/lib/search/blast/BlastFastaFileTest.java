@@ -0,0 +1,32 @@
+package org.jbei.ice.lib.search.blast;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+
+public class BlastFastaFileTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testWriteAndDelete() throws Exception {
+        BlastFastaFile file = new BlastFastaFile(folder.getRoot().toPath());
+        file.createNew();
+        Assert.assertTrue(file.write(Arrays.asList(">1,pUC,PLASMID,TEST_1\nacgt", ">2,part,PART,TEST_2\nggcc\naatt",
+                ">3,é,PART,TEST_3\ntttt")));
+        Assert.assertTrue(file.write(Collections.singletonList(">4,part,PART,TEST_4\ncccc")));
+
+        file.delete("TEST_2");
+        file.delete("TEST_5");
+        Assert.assertEquals(">1,pUC,PLASMID,TEST_1\nacgt\n>3,é,PART,TEST_3\ntttt\n>4,part,PART,TEST_4\ncccc\n",
+                new String(Files.readAllBytes(file.getFilePath()), StandardCharsets.UTF_8));
+        Assert.assertFalse(file.isLocked());
+    }
+}
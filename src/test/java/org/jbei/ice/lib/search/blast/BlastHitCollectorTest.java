@@ -0,0 +1,49 @@
+package org.jbei.ice.lib.search.blast;
+
+import org.jbei.ice.lib.dto.search.SearchResult;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+public class BlastHitCollectorTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testCollect() throws Exception {
+        BlastShards shards = new BlastShards(folder.getRoot().toPath(), "ice");
+        int base = shards.nextVolume();
+        shards.compacted(base);
+        int delta = shards.nextVolume();
+        shards.addDelta(delta, Collections.singletonList(3L));
+
+        BlastHitCollector collector = new BlastHitCollector(shards, 40);
+        String fields = ",1,40,101,140,plus,1e-15,75.2,40,40,40";
+
+        // name with delimiter
+        Assert.assertTrue(collector.test("1,PART,\"pUC, modified\",TEST_1,v" + base + fields));
+        // duplicate hit for entry
+        Assert.assertTrue(collector.test("1,PART,\"pUC, modified\",TEST_1,v" + base + ",1,20,1,20,plus,1e-5,30,20,20,20"));
+        // invalid line
+        Assert.assertTrue(collector.test("invalid"));
+        // outdated sequence of entry 3
+        Assert.assertTrue(collector.test("3,PLASMID,p3,TEST_3,v" + base + fields));
+        // legacy header without volume
+        Assert.assertTrue(collector.test("2,PLASMID,p2,TEST_2" + fields));
+        // current sequence of entry 3
+        Assert.assertTrue(collector.test("3,PLASMID,p3,TEST_3,v" + delta + fields));
+
+        Assert.assertEquals(Arrays.asList("1", "2", "3"), Arrays.asList(collector.getResults().keySet().toArray()));
+        SearchResult result = collector.getResults().get("1");
+        Assert.assertEquals("pUC, modified", result.getEntryInfo().getName());
+        Assert.assertEquals("TEST_1", result.getEntryInfo().getPartId());
+        Assert.assertEquals(40, result.getNident());
+        Assert.assertEquals(40, result.getQueryLength());
+        Assert.assertEquals("1e-15", result.geteValue());
+    }
+}
@@ -0,0 +1,49 @@
+package org.jbei.ice.lib.search.blast;
+
+import org.jbei.ice.lib.dto.search.BlastProgram;
+import org.jbei.ice.lib.dto.search.BlastQuery;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class BlastResultCacheTest {
+
+    @Test
+    public void testGetKey() {
+        BlastQuery query = new BlastQuery();
+        query.setSequence("ACGTACGTAC");
+        String key = BlastResultCache.getKey(query, 1L, "-perc_identity 70");
+
+        BlastQuery other = new BlastQuery();
+        other.setSequence("acgtacgtac\n");
+        other.setBlastProgram(BlastProgram.BLAST_N);
+        Assert.assertEquals(key, BlastResultCache.getKey(other, 1L, "-perc_identity 70"));
+
+        // generation, options and program are part of the key
+        Assert.assertNotEquals(key, BlastResultCache.getKey(query, 2L, "-perc_identity 70"));
+        Assert.assertNotEquals(key, BlastResultCache.getKey(query, 1L, "-perc_identity 100"));
+        other.setBlastProgram(BlastProgram.TBLAST_X);
+        Assert.assertNotEquals(key, BlastResultCache.getKey(other, 1L, "-perc_identity 70"));
+    }
+
+    @Test
+    public void testEviction() {
+        BlastResultCache<String> cache = new BlastResultCache<>(100, String::length);
+        cache.put("a", new String(new char[40]));
+        cache.put("b", new String(new char[40]));
+        Assert.assertNotNull(cache.get("a"));
+
+        // least recently used is evicted
+        cache.put("c", new String(new char[40]));
+        Assert.assertNull(cache.get("b"));
+        Assert.assertNotNull(cache.get("a"));
+        Assert.assertNotNull(cache.get("c"));
+        Assert.assertEquals(2, cache.getCount());
+        Assert.assertTrue(cache.getSize() <= 100);
+
+        // too large to cache
+        cache.put("d", new String(new char[200]));
+        Assert.assertNull(cache.get("d"));
+        Assert.assertEquals(3, cache.getHits());
+        Assert.assertEquals(2, cache.getMisses());
+    }
+}
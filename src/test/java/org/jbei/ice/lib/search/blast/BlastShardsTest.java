@@ -0,0 +1,63 @@
+package org.jbei.ice.lib.search.blast;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+public class BlastShardsTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testVolumes() throws Exception {
+        Path directory = folder.getRoot().toPath();
+        BlastShards shards = new BlastShards(directory, "ice");
+        Assert.assertFalse(shards.exists());
+
+        // base volume from compaction
+        int base = shards.nextVolume();
+        Assert.assertTrue(shards.compacted(base).isEmpty());
+        Assert.assertTrue(shards.exists());
+        Assert.assertTrue(shards.isCurrent(1L, base));
+
+        // update of entry 1 and deletion of entry 2
+        int delta = shards.nextVolume();
+        shards.addDelta(delta, Collections.singletonList(1L));
+        shards.delete(2L);
+        Assert.assertFalse(shards.isCurrent(1L, base));
+        Assert.assertTrue(shards.isCurrent(1L, delta));
+        Assert.assertFalse(shards.isCurrent(2L, base));
+        Assert.assertTrue(shards.isCurrent(3L, base));
+
+        String alias = new String(Files.readAllBytes(shards.getAliasPath()), StandardCharsets.UTF_8);
+        Assert.assertTrue(alias.contains("DBLIST ice_base_" + base + " ice_" + delta + "\n"));
+
+        // state is persisted
+        shards = new BlastShards(directory, "ice");
+        Assert.assertTrue(shards.isCurrent(1L, delta));
+        Assert.assertFalse(shards.isCurrent(2L, base));
+        Assert.assertEquals(Collections.singletonList(delta), shards.getDeltas());
+
+        // compaction started before a later change keeps that change
+        int compaction = shards.nextVolume();
+        int later = shards.nextVolume();
+        shards.addDelta(later, Arrays.asList(4L, 5L));
+        List<String> obsolete = shards.compacted(compaction);
+        Assert.assertEquals(Arrays.asList("ice_base_" + base, "ice_" + delta), obsolete);
+        Assert.assertEquals("ice_base_" + compaction, shards.getBase());
+        Assert.assertEquals(Collections.singletonList(later), shards.getDeltas());
+        Assert.assertTrue(shards.isCurrent(1L, compaction));
+        Assert.assertTrue(shards.isCurrent(2L, compaction));
+        Assert.assertFalse(shards.isCurrent(4L, compaction));
+        Assert.assertTrue(shards.isCurrent(4L, later));
+    }
+}
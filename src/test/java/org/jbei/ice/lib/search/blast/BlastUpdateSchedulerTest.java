@@ -0,0 +1,117 @@
+package org.jbei.ice.lib.search.blast;
+
+import org.jbei.ice.storage.hibernate.HibernateUtil;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+public class BlastUpdateSchedulerTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @BeforeClass
+    public static void init() {
+        // failures to apply changes are logged, which looks up the email settings
+        HibernateUtil.initializeMock();
+    }
+
+    @Test
+    public void testSchedule() throws Exception {
+        Path journal = folder.getRoot().toPath().resolve(BlastUpdateScheduler.JOURNAL_FILE_NAME);
+        List<Map<String, Action>> batches = new ArrayList<>();
+        AtomicBoolean fail = new AtomicBoolean(true);
+        BlastUpdateScheduler.ChangeApplier applier = changes -> {
+            synchronized (batches) {
+                batches.add(changes);
+            }
+            if (fail.get())
+                throw new BlastException("blast not available");
+        };
+
+        // changes before start are collected, but not applied or journaled
+        BlastUpdateScheduler scheduler = new BlastUpdateScheduler(journal, 50, applier);
+        scheduler.schedule(Action.CREATE, "1");
+        scheduler.schedule(Action.CREATE, "2");
+        scheduler.schedule(Action.DELETE, "1");
+        Assert.assertEquals(2, scheduler.getPendingCount());
+        Thread.sleep(100);
+        Assert.assertTrue(batches.isEmpty());
+        Assert.assertFalse(Files.exists(journal));
+
+        // journaled once started and survive a restart
+        scheduler.start();
+        waitForBatches(batches, 1);
+        scheduler.stop();
+        scheduler = new BlastUpdateScheduler(journal, 50, applier);
+        Assert.assertEquals(2, scheduler.getPendingCount());
+        scheduler.schedule(Action.UPDATE, "3");
+        scheduler.start();
+
+        // failed batch is retried. the journal is compacted while failing
+        int failed = batches.size();
+        for (int i = 0; i < 10; i += 1) {
+            scheduler.schedule(Action.UPDATE, "3");
+        }
+        waitForBatches(batches, failed + 1);
+        Assert.assertTrue(Files.readAllLines(journal).size() <= 2 * scheduler.getPendingCount());
+        fail.set(false);
+        for (int i = 0; i < 500 && scheduler.getPendingCount() > 0; i += 1) {
+            Thread.sleep(20);
+        }
+        scheduler.stop();
+
+        Map<String, Action> batch = batches.get(batches.size() - 1);
+        Assert.assertEquals(3, batch.size());
+        Assert.assertEquals(Action.DELETE, batch.get("1"));
+        Assert.assertEquals(Action.CREATE, batch.get("2"));
+        Assert.assertEquals(Action.UPDATE, batch.get("3"));
+        Assert.assertEquals(0, new BlastUpdateScheduler(journal, 50, applier).getPendingCount());
+    }
+
+    @Test
+    public void testMaxPending() throws Exception {
+        Path journal = folder.getRoot().toPath().resolve(BlastUpdateScheduler.JOURNAL_FILE_NAME);
+        List<Map<String, Action>> batches = new ArrayList<>();
+        BlastUpdateScheduler scheduler = new BlastUpdateScheduler(journal, 50, changes -> {
+            synchronized (batches) {
+                batches.add(changes);
+            }
+        });
+
+        // replaced by a rebuild once there are too many changes
+        for (int i = 0; i <= BlastUpdateScheduler.MAX_PENDING; i += 1) {
+            scheduler.schedule(Action.CREATE, Integer.toString(i));
+        }
+        Assert.assertEquals(1, scheduler.getPendingCount());
+        scheduler.schedule(Action.CREATE, "last");
+        scheduler.start();
+        waitForBatches(batches, 1);
+        scheduler.stop();
+
+        Map<String, Action> batch = batches.get(0);
+        Assert.assertEquals(2, batch.size());
+        Assert.assertEquals(Action.FORCE_BUILD, batch.get(BlastUpdateScheduler.REBUILD));
+        Assert.assertEquals(Action.CREATE, batch.get("last"));
+    }
+
+    private static void waitForBatches(List<Map<String, Action>> batches, int count) throws InterruptedException {
+        for (int i = 0; i < 500; i += 1) {
+            synchronized (batches) {
+                if (batches.size() >= count)
+                    return;
+            }
+            Thread.sleep(20);
+        }
+        Assert.fail("Changes were not applied");
+    }
+}
@@ -0,0 +1,115 @@
+package org.jbei.ice.lib.search.blast;
+
+import org.jbei.ice.lib.AccountCreator;
+import org.jbei.ice.lib.TestEntryCreator;
+import org.jbei.ice.lib.dto.search.SearchResult;
+import org.jbei.ice.lib.entry.sequence.PartSequence;
+import org.jbei.ice.lib.parsers.GeneralParser;
+import org.jbei.ice.storage.DAOFactory;
+import org.jbei.ice.storage.hibernate.HibernateRepositoryTest;
+import org.jbei.ice.storage.model.Account;
+import org.jbei.ice.storage.model.Plasmid;
+import org.jbei.ice.storage.model.Sequence;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Random;
+
+public class SequenceKmerIndexTest extends HibernateRepositoryTest {
+
+    @Test
+    public void testFindContaining() throws Exception {
+        Account account = AccountCreator.createTestAccount("SequenceKmerIndexTest.testFindContaining", false);
+        Random random = new Random(7);
+        String plasmidSequence = randomSequence(random, 400);
+        String partSequence = randomSequence(random, 300);
+
+        Plasmid plasmid = TestEntryCreator.createTestPlasmid(account);
+        new PartSequence(account.getEmail(), Long.toString(plasmid.getId()))
+                .save(GeneralParser.parse(plasmidSequence));
+        SequenceKmerIndex index = SequenceKmerIndex.getInstance();
+        index.build();
+        Assert.assertTrue(index.isReady());
+
+        // added after build
+        long partId = TestEntryCreator.createTestPart(account.getEmail());
+        PartSequence part = new PartSequence(account.getEmail(), Long.toString(partId));
+        part.save(GeneralParser.parse(partSequence));
+
+        // forward strand
+        List<Long> results = index.findContaining(plasmidSequence.substring(100, 125).toUpperCase());
+        Assert.assertNotNull(results);
+        Assert.assertTrue(results.contains(plasmid.getId()));
+        Assert.assertFalse(results.contains(partId));
+
+        // reverse strand
+        results = index.findContaining(reverseComplement(partSequence.substring(50, 80)));
+        Assert.assertTrue(results.contains(partId));
+        Assert.assertFalse(results.contains(plasmid.getId()));
+
+        // across the origin of the circular plasmid but not the linear part
+        String wrap = plasmidSequence.substring(390) + plasmidSequence.substring(0, 15);
+        Assert.assertTrue(index.findContaining(wrap).contains(plasmid.getId()));
+        wrap = partSequence.substring(290) + partSequence.substring(0, 15);
+        Assert.assertFalse(index.findContaining(wrap).contains(partId));
+
+        // not answerable using index
+        Assert.assertNull(index.findContaining(plasmidSequence.substring(0, SequenceKmerIndex.MIN_QUERY_LENGTH - 1)));
+        Assert.assertNull(index.findContaining(plasmidSequence.substring(0, 10) + "n" + plasmidSequence.substring(11)));
+
+        // results in blast form
+        HashMap<String, SearchResult> searchResults = index.search(partSequence.substring(0, 40));
+        SearchResult result = searchResults.get(Long.toString(partId));
+        Assert.assertNotNull(result);
+        Assert.assertEquals(40, result.getNident());
+        Assert.assertEquals(partId, result.getEntryInfo().getId());
+
+        // rna sequences (stored as is) are matched by their dna query
+        String rnaSequence = randomSequence(random, 200).replace('t', 'u');
+        long rnaId = TestEntryCreator.createTestPart(account.getEmail());
+        DAOFactory.getSequenceDAO().create(new Sequence(rnaSequence, null, "rna", "rna",
+                DAOFactory.getEntryDAO().get(rnaId)));
+        index.update(rnaId, rnaSequence, false);
+        Assert.assertTrue(index.findContaining(rnaSequence.substring(60, 90).replace('u', 't')).contains(rnaId));
+
+        // deleted
+        part.delete();
+        Assert.assertFalse(index.findContaining(partSequence.substring(50, 80)).contains(partId));
+    }
+
+    @Test
+    public void testMinimizers() {
+        Random random = new Random(11);
+        String sequence = randomSequence(random, 200);
+
+        // both strands have the same minimizers
+        Assert.assertArrayEquals(SequenceKmerIndex.minimizers(sequence, false),
+                SequenceKmerIndex.minimizers(reverseComplement(sequence), false));
+
+        // a sub-sequence only has minimizers of the sequence
+        int[] minimizers = SequenceKmerIndex.minimizers(sequence, false);
+        String query = sequence.substring(60, 60 + SequenceKmerIndex.MIN_QUERY_LENGTH);
+        for (int minimizer : SequenceKmerIndex.minimizers(query, false)) {
+            Assert.assertTrue(Arrays.binarySearch(minimizers, minimizer) >= 0);
+        }
+    }
+
+    private static String randomSequence(Random random, int length) {
+        StringBuilder builder = new StringBuilder(length);
+        for (int i = 0; i < length; i += 1) {
+            builder.append("acgt".charAt(random.nextInt(4)));
+        }
+        return builder.toString();
+    }
+
+    private static String reverseComplement(String sequence) {
+        StringBuilder builder = new StringBuilder(sequence.length());
+        for (int i = sequence.length() - 1; i >= 0; i -= 1) {
+            builder.append("tgca".charAt("acgt".indexOf(sequence.charAt(i))));
+        }
+        return builder.toString();
+    }
+}
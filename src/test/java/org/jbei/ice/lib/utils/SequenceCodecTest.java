@@ -0,0 +1,63 @@
+package org.jbei.ice.lib.utils;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Random;
+
+public class SequenceCodecTest {
+
+    @Test
+    public void testEncode() {
+        Assert.assertNull(SequenceCodec.encode(null));
+        Assert.assertNull(SequenceCodec.decode(null));
+        assertRoundTrip("");
+        assertRoundTrip("a");
+        assertRoundTrip("acgtacg");
+
+        // 2 bit with runs of other symbols
+        String sequence = createSequence("acgt", 10000, 1);
+        byte[] encoded = assertRoundTrip(sequence);
+        Assert.assertTrue(encoded.length < 2510);
+        String withRuns = "nnnn" + sequence.substring(0, 5000) + "nnnnnnnnnnNNNN-" + sequence.substring(5000) + "u";
+        encoded = assertRoundTrip(withRuns);
+        Assert.assertTrue(encoded.length < 2530);
+
+        // 4 bit for IUPAC and RNA
+        sequence = createSequence("acgurysn", 10000, 2);
+        encoded = assertRoundTrip(sequence);
+        Assert.assertTrue(encoded.length < 5010);
+        assertRoundTrip(sequence + "*" + sequence.toUpperCase().substring(0, 10));
+
+        // deflated for proteins
+        sequence = createSequence("ACDEFGHIKLMNPQRSTVWY", 10000, 3);
+        encoded = assertRoundTrip(sequence);
+        Assert.assertTrue(encoded.length < sequence.length());
+        assertRoundTrip("ACGT" + 'é' + "acgt");
+    }
+
+    @Test
+    public void testCompress() {
+        Assert.assertNull(SequenceCodec.compress(null));
+        Assert.assertNull(SequenceCodec.decompress(null));
+        Assert.assertEquals("", SequenceCodec.decompress(SequenceCodec.compress("")));
+
+        String text = "LOCUS       test    20 bp    DNA     linear\nORIGIN\n        1 acgtacgtac gtacgtacgt\n//\n";
+        Assert.assertEquals(text, SequenceCodec.decompress(SequenceCodec.compress(text)));
+    }
+
+    private byte[] assertRoundTrip(String sequence) {
+        byte[] encoded = SequenceCodec.encode(sequence);
+        Assert.assertEquals(sequence.length(), SequenceCodec.getLength(encoded));
+        Assert.assertEquals(sequence, SequenceCodec.decode(encoded));
+        return encoded;
+    }
+
+    private String createSequence(String alphabet, int length, long seed) {
+        Random random = new Random(seed);
+        StringBuilder builder = new StringBuilder(length);
+        for (int i = 0; i < length; i += 1)
+            builder.append(alphabet.charAt(random.nextInt(alphabet.length())));
+        return builder.toString();
+    }
+}
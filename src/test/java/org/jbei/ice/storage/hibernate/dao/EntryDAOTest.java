@@ -12,7 +12,9 @@ import org.junit.Assert;
 import org.junit.Test;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 import java.util.Random;
 
 /**
@@ -30,6 +32,19 @@ public class EntryDAOTest extends HibernateRepositoryTest {
         Assert.assertEquals("summary for test", summary);
     }
 
+    @Test
+    public void testGetEntrySummaries() throws Exception {
+        Account account = AccountCreator.createTestAccount("EntryDAOTest.testGetEntrySummaries", false);
+        long id1 = TestEntryCreator.createTestPart(account.getEmail());
+        long id2 = TestEntryCreator.createTestPart(account.getEmail());
+        Map<Long, String[]> summaries = entryDAO.getEntrySummaries(Arrays.asList(id1, id2, Long.MAX_VALUE));
+        Assert.assertEquals(2, summaries.size());
+        Assert.assertEquals(entryDAO.get(id1).getName(), summaries.get(id1)[0]);
+        Assert.assertEquals("summary for test", summaries.get(id1)[1]);
+        Assert.assertEquals("summary for test", summaries.get(id2)[1]);
+        Assert.assertTrue(entryDAO.getEntrySummaries(new ArrayList<>()).isEmpty());
+    }
+
 
     @Test
     public void testMatchingPlasmidField() throws Exception {
@@ -45,6 +60,31 @@ public class EntryDAOTest extends HibernateRepositoryTest {
         Assert.assertEquals(id, entry.getId());
     }
 
+    @Test
+    public void testGetParents() throws Exception {
+        Account account = AccountCreator.createTestAccount("EntryDAOTest.testGetParents", false);
+        Entry parent = entryDAO.get(TestEntryCreator.createTestPart(account.getEmail()));
+        Entry child = entryDAO.get(TestEntryCreator.createTestPart(account.getEmail()));
+        Entry other = entryDAO.get(TestEntryCreator.createTestPart(account.getEmail()));
+        parent.getLinkedEntries().add(child);
+        entryDAO.update(parent);
+
+        List<Long> ids = new ArrayList<>();
+        ids.add(child.getId());
+        ids.add(other.getId());
+        List<Object[]> parents = entryDAO.getParents(ids);
+        Assert.assertEquals(1, parents.size());
+        Assert.assertEquals(child.getId(), ((Long) parents.get(0)[0]).longValue());
+        Assert.assertEquals(parent.getId(), ((Long) parents.get(0)[1]).longValue());
+        Assert.assertEquals(EntryType.PART.getName(), parents.get(0)[2]);
+
+        ids.clear();
+        ids.add(parent.getId());
+        List<Object[]> linked = entryDAO.getLinkedEntries(ids);
+        Assert.assertEquals(1, linked.size());
+        Assert.assertEquals(child.getId(), ((Long) linked.get(0)[1]).longValue());
+    }
+
     @Test
     public void testGetByRecordId() throws Exception {
         Account account = AccountCreator.createTestAccount("testGetByRecordId", false);
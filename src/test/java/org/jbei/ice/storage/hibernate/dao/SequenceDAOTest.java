@@ -1,18 +1,25 @@
 package org.jbei.ice.storage.hibernate.dao;
 
+import org.hibernate.Session;
 import org.jbei.ice.lib.AccountCreator;
 import org.jbei.ice.lib.TestEntryCreator;
 import org.jbei.ice.lib.dto.FeaturedDNASequence;
 import org.jbei.ice.lib.entry.sequence.SequenceUtil;
 import org.jbei.ice.lib.parsers.GeneralParser;
 import org.jbei.ice.storage.hibernate.HibernateRepositoryTest;
+import org.jbei.ice.storage.hibernate.HibernateUtil;
 import org.jbei.ice.storage.model.Account;
+import org.jbei.ice.storage.model.Feature;
 import org.jbei.ice.storage.model.Plasmid;
 import org.jbei.ice.storage.model.Sequence;
+import org.jbei.ice.storage.model.SequenceFeature;
 import org.jbei.ice.storage.model.Strain;
 import org.junit.Assert;
 import org.junit.Test;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Optional;
 
 /**
@@ -196,6 +203,37 @@ public class SequenceDAOTest extends HibernateRepositoryTest {
         Assert.assertTrue(sequenceDAO.hasSequence(plasmid3.getId()));
     }
 
+    @Test
+    public void testGetEntryIdsWithSequence() throws Exception {
+        Account account = AccountCreator.createTestAccount("SequenceDAOTest.testGetEntryIdsWithSequence", false);
+        Plasmid plasmid1 = TestEntryCreator.createTestPlasmid(account);
+        Plasmid plasmid2 = TestEntryCreator.createTestPlasmid(account);
+        Plasmid plasmid3 = TestEntryCreator.createTestPlasmid(account);
+
+        // sequence with original for plasmid1
+        Sequence sequence = SequenceUtil.dnaSequenceToSequence(GeneralParser.parse(sequenceString));
+        sequence.setSequenceUser(sequenceString);
+        sequence.setEntry(plasmid1);
+        Assert.assertNotNull(sequenceDAO.create(sequence));
+
+        // sequence without original for plasmid3
+        sequence = SequenceUtil.dnaSequenceToSequence(GeneralParser.parse(sequenceString + "gc"));
+        sequence.setEntry(plasmid3);
+        Assert.assertNotNull(sequenceDAO.create(sequence));
+
+        List<Long> ids = Arrays.asList(plasmid1.getId(), plasmid2.getId(), plasmid3.getId());
+        List<Long> withSequence = sequenceDAO.getEntryIdsWithSequence(ids);
+        Assert.assertEquals(2, withSequence.size());
+        Assert.assertTrue(withSequence.contains(plasmid1.getId()));
+        Assert.assertTrue(withSequence.contains(plasmid3.getId()));
+
+        List<Long> withOriginal = sequenceDAO.getEntryIdsWithOriginalSequence(ids);
+        Assert.assertEquals(1, withOriginal.size());
+        Assert.assertEquals(plasmid1.getId(), withOriginal.get(0).longValue());
+
+        Assert.assertTrue(sequenceDAO.getEntryIdsWithSequence(new ArrayList<>()).isEmpty());
+    }
+
     @Test
     public void testGetSequenceFilename() throws Exception {
         Account account = AccountCreator.createTestAccount("SequenceDAOTest.testGetSequenceFilename", false);
@@ -248,67 +286,114 @@ public class SequenceDAOTest extends HibernateRepositoryTest {
     }
 
     @Test
-    public void testGetSequence() throws Exception {
-        Account account = AccountCreator.createTestAccount("SequenceDAOTest.testGetSequence", false);
+    public void testGetUnpackedSequences() throws Exception {
+        Account account = AccountCreator.createTestAccount("SequenceDAOTest.testGetUnpackedSequences", false);
         Plasmid plasmid = TestEntryCreator.createTestPlasmid(account);
-        Assert.assertNotNull(plasmid);
-
-        // parse sequence and associate with plasmid
         FeaturedDNASequence dnaSequence = GeneralParser.parse(sequenceString);
         Sequence sequence = SequenceUtil.dnaSequenceToSequence(dnaSequence);
         Assert.assertNotNull(sequence);
-
         sequence.setEntry(plasmid);
         sequence = sequenceDAO.create(sequence);
-        Assert.assertNotNull(sequence);
+        Assert.assertEquals(dnaSequence.getSequence().length(), sequence.getLength());
+        Assert.assertTrue(sequenceDAO.getUnpackedSequences(sequence.getId() - 1, 1).isEmpty());
+
+        // sequence saved as text before packing was introduced
+        Session session = HibernateUtil.getSessionFactory().getCurrentSession();
+        session.flush();
+        session.createNativeQuery("update sequences set sequence = :sequence, packed_sequence = null, "
+                + "sequence_user = :original where id = :id")
+                .setParameter("sequence", dnaSequence.getSequence())
+                .setParameter("original", sequenceString)
+                .setParameter("id", sequence.getId()).executeUpdate();
+        session.clear();
 
-        Assert.assertNotNull(sequenceDAO.getSequence(0));
+        Optional<String> result = sequenceDAO.getSequenceString(plasmid);
+        Assert.assertTrue(result.isPresent());
+        Assert.assertEquals(dnaSequence.getSequence(), result.get());
+        Assert.assertTrue(sequenceDAO.hasOriginalSequence(plasmid.getId()));
+
+        List<Object[]> unpacked = sequenceDAO.getUnpackedSequences(sequence.getId() - 1, 1);
+        Assert.assertEquals(1, unpacked.size());
+        Object[] values = unpacked.get(0);
+        Assert.assertEquals(sequence.getId(), values[0]);
+        Assert.assertEquals(dnaSequence.getSequence(), values[1]);
+        Assert.assertEquals(sequenceString, values[2]);
+
+        // not packed if the sequence changed since it was retrieved
+        Assert.assertEquals(0, sequenceDAO.pack(sequence.getId(), "atg", "other", "changed-hash"));
+        Assert.assertEquals(1, sequenceDAO.getUnpackedSequences(sequence.getId() - 1, 1).size());
+
+        Assert.assertEquals(2, sequenceDAO.pack(sequence.getId(), (String) values[1], (String) values[2],
+                (String) values[3]));
+        session.clear();
+
+        Assert.assertTrue(sequenceDAO.getUnpackedSequences(sequence.getId() - 1, 1).isEmpty());
+        Assert.assertEquals(dnaSequence.getSequence(), sequenceDAO.getSequenceString(plasmid).get());
+        Assert.assertTrue(sequenceDAO.hasOriginalSequence(plasmid.getId()));
+        sequence = sequenceDAO.get(sequence.getId());
+        Assert.assertEquals(dnaSequence.getSequence(), sequence.getSequence());
+        Assert.assertEquals(sequenceString, sequence.getSequenceUser());
+        Assert.assertEquals(dnaSequence.getSequence().length(), sequence.getLength());
     }
 
     @Test
-    public void testGetSequenceCount() throws Exception {
-        Account account = AccountCreator.createTestAccount("SequenceDAOTest.testGetSequenceCount", false);
+    public void testEvict() throws Exception {
+        Account account = AccountCreator.createTestAccount("SequenceDAOTest.testEvict", false);
         Plasmid plasmid = TestEntryCreator.createTestPlasmid(account);
-        Assert.assertNotNull(plasmid);
-
-        // parse sequence and associate with plasmid
         FeaturedDNASequence dnaSequence = GeneralParser.parse(sequenceString);
         Sequence sequence = SequenceUtil.dnaSequenceToSequence(dnaSequence);
-        Assert.assertNotNull(sequence);
         sequence.setEntry(plasmid);
         sequence = sequenceDAO.create(sequence);
-        Assert.assertNotNull(sequence);
+        Feature feature = new FeatureDAO().create(new Feature("evict", "", "gatgatgtgg", "misc_feature"));
+        new SequenceFeatureDAO().create(new SequenceFeature(sequence, feature, 1, "evict", "misc_feature",
+                null));
 
-        // create 3 additional sequences
-        Plasmid plasmid2 = TestEntryCreator.createTestPlasmid(account);
-        Assert.assertNotNull(plasmid2);
+        Session session = HibernateUtil.getSessionFactory().getCurrentSession();
+        session.flush();
+        session.clear();
 
-        dnaSequence = GeneralParser.parse(sequenceString + "a");
-        sequence = SequenceUtil.dnaSequenceToSequence(dnaSequence);
-        Assert.assertNotNull(sequence);
-        sequence.setEntry(plasmid2);
-        sequence = sequenceDAO.create(sequence);
-        Assert.assertNotNull(sequence);
+        Sequence result = sequenceDAO.getByEntry(plasmid);
+        List<Feature> features = new ArrayList<>();
+        for (SequenceFeature sequenceFeature : result.getSequenceFeatures())
+            features.add(sequenceFeature.getFeature());
+        Assert.assertEquals(1, features.size());
+
+        sequenceDAO.evict(result);
+        Assert.assertFalse(session.contains(result));
+        Assert.assertFalse(session.contains(result.getEntry()));
+        for (Feature evicted : features)
+            Assert.assertFalse(session.contains(evicted));
+    }
 
+    @Test
+    public void testGetBlastSequences() throws Exception {
+        Account account = AccountCreator.createTestAccount("SequenceDAOTest.testGetBlastSequences", false);
+        Plasmid plasmid1 = TestEntryCreator.createTestPlasmid(account);
+        Plasmid plasmid2 = TestEntryCreator.createTestPlasmid(account);
         Plasmid plasmid3 = TestEntryCreator.createTestPlasmid(account);
-        Assert.assertNotNull(plasmid3);
-        dnaSequence = GeneralParser.parse(sequenceString + "t");
-        sequence = SequenceUtil.dnaSequenceToSequence(dnaSequence);
-        Assert.assertNotNull(sequence);
-        sequence.setEntry(plasmid3);
-        sequence = sequenceDAO.create(sequence);
-        Assert.assertNotNull(sequence);
 
-        Plasmid plasmid4 = TestEntryCreator.createTestPlasmid(account);
-        Assert.assertNotNull(plasmid4);
-        dnaSequence = GeneralParser.parse(sequenceString + "c");
-        sequence = SequenceUtil.dnaSequenceToSequence(dnaSequence);
-        Assert.assertNotNull(sequence);
-        sequence.setEntry(plasmid4);
-        sequence = sequenceDAO.create(sequence);
-        Assert.assertNotNull(sequence);
-
-        Assert.assertTrue(sequenceDAO.getSequenceCount() >= 4);
+        Sequence sequence = SequenceUtil.dnaSequenceToSequence(GeneralParser.parse(sequenceString));
+        sequence.setEntry(plasmid1);
+        Assert.assertNotNull(sequenceDAO.create(sequence));
+        sequence = SequenceUtil.dnaSequenceToSequence(GeneralParser.parse(sequenceString + "gc"));
+        sequence.setEntry(plasmid3);
+        Assert.assertNotNull(sequenceDAO.create(sequence));
+
+        // first page
+        List<Object[]> results = sequenceDAO.getBlastSequences(plasmid1.getId() - 1, 1);
+        Assert.assertEquals(1, results.size());
+        Object[] result = results.get(0);
+        Assert.assertEquals(plasmid1.getId(), ((Long) result[0]).longValue());
+        Assert.assertEquals(plasmid1.getRecordType(), result[2]);
+        Assert.assertEquals(plasmid1.getName(), result[3]);
+        Assert.assertEquals(plasmid1.getPartNumber(), result[4]);
+
+        // next page skips entry without sequence
+        results = sequenceDAO.getBlastSequences(plasmid1.getId(), 1);
+        Assert.assertEquals(plasmid3.getId(), ((Long) results.get(0)[0]).longValue());
+        Assert.assertNotNull(results.get(0)[1]);
+        Assert.assertTrue(sequenceDAO.getBlastSequences(plasmid3.getId(), 1).isEmpty());
+        Assert.assertTrue(plasmid2.getId() < plasmid3.getId());
     }
 
 //    @Test
@@ -0,0 +1,91 @@
+package org.jbei.ice.storage.hibernate.search;
+
+import org.jbei.ice.lib.AccountCreator;
+import org.jbei.ice.lib.TestEntryCreator;
+import org.jbei.ice.lib.dto.entry.AutoCompleteField;
+import org.jbei.ice.lib.dto.entry.EntryType;
+import org.jbei.ice.lib.dto.entry.PartData;
+import org.jbei.ice.lib.dto.entry.PlasmidData;
+import org.jbei.ice.lib.entry.Entries;
+import org.jbei.ice.storage.DAOFactory;
+import org.jbei.ice.storage.hibernate.HibernateUtil;
+import org.jbei.ice.storage.model.Account;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.List;
+
+public class AutoCompleteSearchTest {
+
+    @Before
+    public void setUp() throws Exception {
+        HibernateUtil.initializeMock();
+        HibernateUtil.beginTransaction();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        HibernateUtil.commitTransaction();
+    }
+
+    @Test
+    public void testGetMatchingValues() throws Exception {
+        Account account = AccountCreator.createTestAccount("AutoCompleteSearchTest.testGetMatchingValues", false);
+        Account other = AccountCreator.createTestAccount("AutoCompleteSearchTest.testGetMatchingValuesOther", false);
+
+        PartData plasmid = new PartData(EntryType.PLASMID);
+        PlasmidData plasmidData = new PlasmidData();
+        plasmidData.setPromoters("pAutoLac, pAutoTrc");
+        plasmidData.setOriginOfReplication("Auto ColE1");
+        plasmid.setPlasmidData(plasmidData);
+        plasmid.setName("autoCompletePlasmid");
+        plasmid.setBioSafetyLevel(1);
+        plasmid.setShortDescription("auto complete");
+        plasmid = new Entries(account.getEmail()).create(plasmid);
+        long partId = TestEntryCreator.createTestPart(account.getEmail());
+        HibernateUtil.commitTransaction();   // commit triggers indexing
+
+        HibernateUtil.beginTransaction();
+        AutoCompleteSearch search = new AutoCompleteSearch();
+
+        // comma separated values are matched individually and case insensitive
+        List<String> results = search.getMatchingValues(account.getEmail(), AutoCompleteField.PROMOTERS, "PAUTOT", 8,
+                null);
+        Assert.assertEquals(Collections.singletonList("pAutoTrc"), results);
+        results = search.getMatchingValues(account.getEmail(), AutoCompleteField.PROMOTERS, "pauto", 8, null);
+        Assert.assertEquals(2, results.size());
+        results = search.getMatchingValues(account.getEmail(), AutoCompleteField.PROMOTERS, "pauto", 1, null);
+        Assert.assertEquals(1, results.size());
+
+        // words within value
+        results = search.getMatchingValues(account.getEmail(), AutoCompleteField.ORIGIN_OF_REPLICATION, "cole", 8,
+                null);
+        Assert.assertEquals(Collections.singletonList("Auto ColE1"), results);
+
+        // substrings within value
+        results = search.getMatchingValues(account.getEmail(), AutoCompleteField.PROMOTERS, "autotr", 8, null);
+        Assert.assertEquals(Collections.singletonList("pAutoTrc"), results);
+
+        // not readable by other account
+        results = search.getMatchingValues(other.getEmail(), AutoCompleteField.PROMOTERS, "pauto", 8, null);
+        Assert.assertTrue(results.isEmpty());
+
+        // part numbers restricted by record type
+        String plasmidNumber = DAOFactory.getEntryDAO().get(plasmid.getId()).getPartNumber();
+        String partNumber = DAOFactory.getEntryDAO().get(partId).getPartNumber();
+        results = search.getMatchingValues(account.getEmail(), AutoCompleteField.PART_NUMBER, partNumber, 8, null);
+        Assert.assertEquals(Collections.singletonList(partNumber), results);
+        String digits = partNumber.substring(partNumber.length() - 3);
+        results = search.getMatchingValues(account.getEmail(), AutoCompleteField.PART_NUMBER, digits, 100, null);
+        Assert.assertTrue(results.contains(partNumber));
+        results = search.getMatchingValues(account.getEmail(), AutoCompleteField.PART_NUMBER, partNumber, 8,
+                Collections.singleton(EntryType.PLASMID.getName()));
+        Assert.assertTrue(results.isEmpty());
+        results = search.getMatchingValues(account.getEmail(), AutoCompleteField.PART_NUMBER, plasmidNumber, 8,
+                Collections.singleton(EntryType.PLASMID.getName()));
+        Assert.assertEquals(Collections.singletonList(plasmidNumber), results);
+    }
+}
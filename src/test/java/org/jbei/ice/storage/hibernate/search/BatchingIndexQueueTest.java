@@ -0,0 +1,128 @@
+package org.jbei.ice.storage.hibernate.search;
+
+import org.hibernate.search.backend.IndexingMonitor;
+import org.hibernate.search.backend.LuceneWork;
+import org.hibernate.search.backend.PurgeAllLuceneWork;
+import org.hibernate.search.backend.spi.BackendQueueProcessor;
+import org.hibernate.search.spi.IndexedTypeIdentifier;
+import org.hibernate.search.spi.impl.PojoIndexedTypeIdentifier;
+import org.jbei.ice.storage.hibernate.HibernateUtil;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+public class BatchingIndexQueueTest {
+
+    @BeforeClass
+    public static void init() {
+        // errors applying work are logged, which looks up the email settings
+        HibernateUtil.initializeMock();
+    }
+
+    @Test
+    public void testApplyWork() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        RecordingProcessor delegate = new RecordingProcessor(release);
+        BatchingIndexQueue queue = new BatchingIndexQueue("test", delegate, 100, 10, 50);
+
+        // first change set blocks the writer, the rest queue up behind it
+        IndexedTypeIdentifier type = new PojoIndexedTypeIdentifier(BatchingIndexQueueTest.class);
+        for (int i = 0; i < 5; i += 1) {
+            queue.applyWork(Collections.singletonList(new PurgeAllLuceneWork(type)), null);
+        }
+        Assert.assertEquals(5, queue.getPending());
+
+        release.countDown();
+        queue.flush();
+        Assert.assertEquals(0, queue.getPending());
+        Assert.assertEquals(0, queue.getQueueDepth());
+        Assert.assertEquals(5, queue.getProcessedChangeSets());
+        Assert.assertEquals(5, queue.getProcessedWorks());
+
+        // change sets queued while the writer was busy are applied together
+        Assert.assertTrue(delegate.calls.size() < 5);
+        Assert.assertEquals(queue.getBatches(), delegate.calls.size());
+        int works = 0;
+        for (Integer count : delegate.calls) {
+            works += count;
+        }
+        Assert.assertEquals(5, works);
+
+        queue.close();
+        Assert.assertTrue(delegate.closed);
+    }
+
+    @Test
+    public void testRetryFailedWork() throws Exception {
+        CountDownLatch release = new CountDownLatch(0);
+        RecordingProcessor delegate = new RecordingProcessor(release);
+        delegate.failures = 1;
+        BatchingIndexQueue queue = new BatchingIndexQueue("test", delegate, 100, 10, 0, 1);
+
+        IndexedTypeIdentifier type = new PojoIndexedTypeIdentifier(BatchingIndexQueueTest.class);
+        queue.applyWork(Collections.singletonList(new PurgeAllLuceneWork(type)), null);
+        queue.flush();
+        Assert.assertEquals(1, queue.getProcessedWorks());
+        Assert.assertEquals(0, queue.getFailedWorks());
+
+        // gives up after the maximum number of attempts
+        delegate.failures = BatchingIndexQueue.MAX_ATTEMPTS;
+        queue.applyWork(Collections.singletonList(new PurgeAllLuceneWork(type)), null);
+        queue.flush();
+        Assert.assertEquals(1, queue.getProcessedWorks());
+        Assert.assertEquals(1, queue.getFailedWorks());
+        Assert.assertEquals(0, queue.getPending());
+
+        // work queued before closing is applied; work after closing is applied directly
+        queue.applyWork(Collections.singletonList(new PurgeAllLuceneWork(type)), null);
+        queue.close();
+        Assert.assertEquals(0, queue.getPending());
+        Assert.assertEquals(2, queue.getProcessedWorks());
+        int calls = delegate.calls.size();
+        queue.applyWork(Collections.singletonList(new PurgeAllLuceneWork(type)), null);
+        Assert.assertEquals(calls + 1, delegate.calls.size());
+        Assert.assertEquals(0, queue.getPending());
+    }
+
+    private static class RecordingProcessor implements BackendQueueProcessor {
+
+        private final CountDownLatch release;
+        private final List<Integer> calls = Collections.synchronizedList(new ArrayList<>());
+        private boolean closed;
+        private volatile int failures;   // number of calls to fail
+
+        RecordingProcessor(CountDownLatch release) {
+            this.release = release;
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+        }
+
+        @Override
+        public void applyWork(List<LuceneWork> workList, IndexingMonitor monitor) {
+            try {
+                release.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            if (failures > 0) {
+                failures -= 1;
+                throw new IllegalStateException("Failed to apply work");
+            }
+            calls.add(workList.size());
+        }
+
+        @Override
+        public void applyStreamWork(LuceneWork singleOperation, IndexingMonitor monitor) {
+            calls.add(1);
+        }
+    }
+}
@@ -0,0 +1,220 @@
+package org.jbei.ice.storage.hibernate.search;
+
+import org.jbei.ice.lib.AccountCreator;
+import org.jbei.ice.lib.TestEntryCreator;
+import org.jbei.ice.lib.dto.entry.EntryType;
+import org.jbei.ice.lib.dto.entry.PartData;
+import org.jbei.ice.lib.dto.entry.PlasmidData;
+import org.jbei.ice.lib.dto.search.SearchQuery;
+import org.jbei.ice.lib.dto.search.SearchResult;
+import org.jbei.ice.lib.dto.search.SearchResults;
+import org.jbei.ice.lib.entry.Entries;
+import org.jbei.ice.lib.search.QueryType;
+import org.jbei.ice.lib.shared.ColumnField;
+import org.jbei.ice.storage.hibernate.HibernateUtil;
+import org.jbei.ice.storage.model.Account;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.*;
+
+public class HibernateSearchTest {
+
+    @Before
+    public void setUp() throws Exception {
+        HibernateUtil.initializeMock();
+        HibernateUtil.beginTransaction();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        HibernateUtil.commitTransaction();
+    }
+
+    @Test
+    public void testFilterBlastResults() throws Exception {
+        Account account = AccountCreator.createTestAccount("HibernateSearchTest.testFilterBlastResults", false);
+        long id1 = TestEntryCreator.createTestPart(account.getEmail());
+        long id2 = TestEntryCreator.createTestPart(account.getEmail());
+        long id3 = TestEntryCreator.createTestPart(account.getEmail());
+        HibernateUtil.commitTransaction();   // commit triggers indexing
+
+        HibernateUtil.beginTransaction();
+
+        // more blast hits than the maximum number of boolean clauses
+        LinkedHashMap<String, SearchResult> blastResults = new LinkedHashMap<>();
+        blastResults.put(Long.toString(id3), new SearchResult());
+        for (int i = 0; i < 5000; i += 1) {
+            blastResults.put(Long.toString(id3 + 10000 + i), new SearchResult());
+        }
+        blastResults.put(Long.toString(id1), new SearchResult());
+        blastResults.put(Long.toString(id2), new SearchResult());
+
+        SearchQuery query = new SearchQuery();
+        SearchResults results = HibernateSearch.getInstance().filterBlastResults(account.getEmail(), 0, 2, 100,
+                query, blastResults);
+        Assert.assertNotNull(results);
+        Assert.assertEquals(3, results.getResultCount());
+        Assert.assertEquals(2, results.getResults().size());
+
+        // blast order is retained
+        Assert.assertSame(blastResults.get(Long.toString(id3)), results.getResults().get(0));
+        Assert.assertSame(blastResults.get(Long.toString(id1)), results.getResults().get(1));
+
+        // second page
+        results = HibernateSearch.getInstance().filterBlastResults(account.getEmail(), 2, 2, 100, query,
+                blastResults);
+        Assert.assertEquals(3, results.getResultCount());
+        Assert.assertEquals(1, results.getResults().size());
+        Assert.assertSame(blastResults.get(Long.toString(id2)), results.getResults().get(0));
+
+        // maximum number of results applied to the results that are visible
+        results = HibernateSearch.getInstance().filterBlastResults(account.getEmail(), 0, 10, 2, query,
+                blastResults);
+        Assert.assertEquals(2, results.getResultCount());
+        Assert.assertEquals(Arrays.asList(Long.toString(id3), Long.toString(id1)),
+                new ArrayList<>(blastResults.keySet()));
+    }
+
+    @Test
+    public void testExecuteSearch() throws Exception {
+        Account account = AccountCreator.createTestAccount("HibernateSearchTest.testExecuteSearch", false);
+        Account other = AccountCreator.createTestAccount("HibernateSearchTest.testExecuteSearchOther", false);
+        for (int i = 0; i < 3; i += 1) {
+            PartData data = new PartData(EntryType.PART);
+            data.setShortDescription("single pass " + i);
+            data.setName("singlePassPart");
+            data.setBioSafetyLevel(1);
+            new Entries(account.getEmail()).create(data);
+        }
+        HibernateUtil.commitTransaction();   // commit triggers indexing
+
+        HibernateUtil.beginTransaction();
+        HashMap<String, QueryType> terms = new HashMap<>();
+        terms.put("singlePassPart", QueryType.TERM);
+
+        SearchQuery query = new SearchQuery();
+        query.getParameters().setRetrieveCount(2);
+        SearchResults results = HibernateSearch.getInstance().executeSearch(account.getEmail(), terms, query, null);
+        Assert.assertEquals(3, results.getResultCount());
+        Assert.assertEquals(2, results.getResults().size());
+
+        // index changes are applied by the asynchronous backend (flushed before the search)
+        Assert.assertTrue(AsyncIndexingBackend.getStatus().getProcessedChangeSets() > 0);
+        Assert.assertEquals(0, AsyncIndexingBackend.getStatus().getPending());
+        SearchResult first = results.getResults().get(0);
+        Assert.assertTrue(first.getMaxScore() > 0);
+        Assert.assertEquals(first.getMaxScore(), first.getScore(), 0.0001);
+        Assert.assertEquals(account.getFullName(), first.getEntryInfo().getOwner());
+
+        // last page and sort on field without doc values
+        query.getParameters().setStart(2);
+        query.getParameters().setSortField(ColumnField.PART_ID);
+        results = HibernateSearch.getInstance().executeSearch(account.getEmail(), terms, query, null);
+        Assert.assertEquals(3, results.getResultCount());
+        Assert.assertEquals(1, results.getResults().size());
+
+        // security filter
+        query.getParameters().setStart(0);
+        results = HibernateSearch.getInstance().executeSearch(other.getEmail(), terms, query, null);
+        Assert.assertEquals(0, results.getResultCount());
+        Assert.assertTrue(results.getResults().isEmpty());
+    }
+
+    @Test
+    public void testSearchCursor() throws Exception {
+        Account account = AccountCreator.createTestAccount("HibernateSearchTest.testSearchCursor", false);
+        for (int i = 0; i < 5; i += 1) {
+            PartData data = new PartData(EntryType.PART);
+            data.setShortDescription("cursor " + i);
+            data.setName("cursorPagedPart");
+            data.setBioSafetyLevel(1);
+            new Entries(account.getEmail()).create(data);
+        }
+        HibernateUtil.commitTransaction();   // commit triggers indexing
+
+        HibernateUtil.beginTransaction();
+        HashMap<String, QueryType> terms = new HashMap<>();
+        terms.put("cursorPagedPart", QueryType.TERM);
+
+        for (ColumnField sortField : new ColumnField[]{ColumnField.RELEVANCE, ColumnField.PART_ID}) {
+            SearchQuery query = new SearchQuery();
+            query.getParameters().setSortField(sortField);
+            query.getParameters().setRetrieveCount(2);
+
+            List<Long> paged = new ArrayList<>();
+            SearchResults results;
+            do {
+                results = HibernateSearch.getInstance().executeSearch(account.getEmail(), terms, query, null);
+                Assert.assertEquals(5, results.getResultCount());
+                for (SearchResult result : results.getResults()) {
+                    paged.add(result.getEntryInfo().getId());
+                }
+                query.getParameters().setCursor(results.getCursor());
+            } while (results.getCursor() != null);
+            Assert.assertEquals(5, paged.size());
+            Assert.assertEquals(5, new HashSet<>(paged).size());
+
+            // streamed ids are in the same order
+            query.getParameters().setCursor(null);
+            Iterator<Long> iterator = HibernateSearch.getInstance().iterateEntryIds(account.getEmail(), terms,
+                    query, null, 3);
+            List<Long> streamed = new ArrayList<>();
+            iterator.forEachRemaining(streamed::add);
+            Assert.assertEquals(paged, streamed);
+        }
+
+        // cursor for a different sort is rejected
+        SearchQuery query = new SearchQuery();
+        query.getParameters().setRetrieveCount(2);
+        String cursor = HibernateSearch.getInstance().executeSearch(account.getEmail(), terms, query, null).getCursor();
+        query.getParameters().setSortField(ColumnField.PART_ID);
+        query.getParameters().setCursor(cursor);
+        try {
+            HibernateSearch.getInstance().executeSearch(account.getEmail(), terms, query, null);
+            Assert.fail("expected invalid cursor");
+        } catch (InvalidCursorException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testSearchFacets() throws Exception {
+        Account account = AccountCreator.createTestAccount("HibernateSearchTest.testSearchFacets", false);
+        String[] statuses = {"Complete", "Complete", "Planned", "Complete"};
+        int[] levels = {1, 1, 2, 1};
+        for (int i = 0; i < statuses.length; i += 1) {
+            PartData data = new PartData(i == 3 ? EntryType.PLASMID : EntryType.PART);
+            if (i == 3)
+                data.setPlasmidData(new PlasmidData());
+            data.setShortDescription("facet " + i);
+            data.setName("facetedEntry");
+            data.setStatus(statuses[i]);
+            data.setBioSafetyLevel(levels[i]);
+            new Entries(account.getEmail()).create(data);
+        }
+        HibernateUtil.commitTransaction();   // commit triggers indexing
+
+        HibernateUtil.beginTransaction();
+        HashMap<String, QueryType> terms = new HashMap<>();
+        terms.put("facetedEntry", QueryType.TERM);
+        SearchQuery query = new SearchQuery();
+        query.getParameters().setRetrieveCount(1);
+        SearchResults results = HibernateSearch.getInstance().executeSearch(account.getEmail(), terms, query, null);
+        Assert.assertEquals(4, results.getResultCount());
+
+        // counts are for all hits, not just the page
+        HashMap<String, HashMap<String, Long>> facets = results.getFacets();
+        Assert.assertNotNull(facets);
+        Assert.assertEquals(Long.valueOf(3), facets.get("recordType").get(EntryType.PART.getName()));
+        Assert.assertEquals(Long.valueOf(1), facets.get("recordType").get(EntryType.PLASMID.getName()));
+        Assert.assertEquals(Long.valueOf(3), facets.get("status").get("Complete"));
+        Assert.assertEquals(Long.valueOf(1), facets.get("status").get("Planned"));
+        Assert.assertEquals(Long.valueOf(3), facets.get("bioSafetyLevel").get("1"));
+        Assert.assertEquals(Long.valueOf(1), facets.get("bioSafetyLevel").get("2"));
+        Assert.assertEquals(Long.valueOf(0), facets.get("hasSequence").get("true"));
+        Assert.assertEquals(Long.valueOf(4), facets.get("hasSequence").get("false"));
+    }
+}
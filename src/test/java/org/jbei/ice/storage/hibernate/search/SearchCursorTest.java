@@ -0,0 +1,62 @@
+package org.jbei.ice.storage.hibernate.search;
+
+import org.apache.lucene.search.FieldDoc;
+import org.apache.lucene.search.Sort;
+import org.apache.lucene.search.SortField;
+import org.apache.lucene.util.BytesRef;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.util.Base64;
+
+public class SearchCursorTest {
+
+    private static final Sort SORT = new Sort(new SortField("name", SortField.Type.STRING),
+            new SortField("id", SortField.Type.INT));
+
+    @Test
+    public void testDecode() throws Exception {
+        FieldDoc last = new FieldDoc(12, 1.5f, new Object[]{new BytesRef("pUC19"), 12});
+        FieldDoc decoded = SearchCursor.decode(SearchCursor.encode(last), SORT);
+        Assert.assertEquals(12, decoded.doc);
+        Assert.assertEquals(new BytesRef("pUC19"), decoded.fields[0]);
+        Assert.assertEquals(12, decoded.fields[1]);
+
+        // forged length larger than the cursor
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(12);
+        out.writeFloat(1.5f);
+        out.writeByte(2);
+        out.writeByte(5);
+        out.writeInt(Integer.MAX_VALUE - 8);
+        assertInvalid(Base64.getUrlEncoder().encodeToString(bytes.toByteArray()));
+
+        // trailing bytes
+        assertInvalid(Base64.getUrlEncoder().encodeToString(concat(Base64.getUrlDecoder().decode(
+                SearchCursor.encode(last)), new byte[]{0})));
+
+        // truncated and malformed
+        String cursor = SearchCursor.encode(last);
+        assertInvalid(cursor.substring(0, cursor.length() - 4));
+        assertInvalid("not a cursor!");
+    }
+
+    private void assertInvalid(String cursor) {
+        try {
+            SearchCursor.decode(cursor, SORT);
+            Assert.fail("Decoded invalid cursor");
+        } catch (InvalidCursorException e) {
+            // expected
+        }
+    }
+
+    private byte[] concat(byte[] first, byte[] second) {
+        byte[] result = new byte[first.length + second.length];
+        System.arraycopy(first, 0, result, 0, first.length);
+        System.arraycopy(second, 0, result, first.length, second.length);
+        return result;
+    }
+}
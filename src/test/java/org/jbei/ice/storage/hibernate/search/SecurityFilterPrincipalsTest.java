@@ -0,0 +1,101 @@
+package org.jbei.ice.storage.hibernate.search;
+
+import org.jbei.ice.lib.AccountCreator;
+import org.jbei.ice.lib.dto.folder.FolderType;
+import org.jbei.ice.lib.dto.group.GroupType;
+import org.jbei.ice.storage.DAOFactory;
+import org.jbei.ice.storage.hibernate.HibernateRepositoryTest;
+import org.jbei.ice.storage.hibernate.HibernateUtil;
+import org.jbei.ice.storage.model.Account;
+import org.jbei.ice.storage.model.Folder;
+import org.jbei.ice.storage.model.Group;
+import org.jbei.ice.storage.model.Permission;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Date;
+import java.util.UUID;
+
+public class SecurityFilterPrincipalsTest extends HibernateRepositoryTest {
+
+    @After
+    public void resetExpiration() {
+        SecurityFilterPrincipals.expiration = 60 * 1000;
+    }
+
+    @Test
+    public void testGet() throws Exception {
+        Account account = AccountCreator.createTestAccount("SecurityFilterPrincipalsTest.testGet", false);
+        SecurityFilterPrincipals principals = SecurityFilterPrincipals.get(account.getEmail());
+        Assert.assertFalse(principals.isAdministrator());
+        Assert.assertSame(principals, SecurityFilterPrincipals.get(account.getEmail()));
+
+        // resolved again once expired
+        SecurityFilterPrincipals.expiration = -1;
+        Assert.assertNotSame(principals, SecurityFilterPrincipals.get(account.getEmail()));
+    }
+
+    @Test
+    public void testGroupMembershipChange() throws Exception {
+        Account account = AccountCreator.createTestAccount("SecurityFilterPrincipalsTest.testGroupMembership",
+                false);
+        Group group = new Group();
+        group.setUuid(UUID.randomUUID().toString());
+        group.setLabel("principals");
+        group.setDescription("principals test group");
+        group.setType(GroupType.PRIVATE);
+        group.setCreationTime(new Date());
+        group = DAOFactory.getGroupDAO().create(group);
+        Assert.assertFalse(SecurityFilterPrincipals.get(account.getEmail()).getGroupUUIDs()
+                .contains(group.getUuid()));
+
+        // cleared when the membership change is flushed
+        account.getGroups().add(group);
+        group.getMembers().add(account);
+        DAOFactory.getAccountDAO().update(account);
+        HibernateUtil.getSessionFactory().getCurrentSession().flush();
+        SecurityFilterPrincipals principals = SecurityFilterPrincipals.get(account.getEmail());
+        Assert.assertTrue(principals.getGroupUUIDs().contains(group.getUuid()));
+
+        // and again when the transaction completes, since concurrent requests could have cached the old membership
+        Assert.assertSame(principals, SecurityFilterPrincipals.get(account.getEmail()));
+        HibernateUtil.commitTransaction();
+        HibernateUtil.beginTransaction();
+        Assert.assertNotSame(principals, SecurityFilterPrincipals.get(account.getEmail()));
+
+        // removal
+        long groupId = group.getId();
+        account = DAOFactory.getAccountDAO().get(account.getId());
+        Assert.assertTrue(account.getGroups().removeIf(accountGroup -> accountGroup.getId() == groupId));
+        DAOFactory.getAccountDAO().update(account);
+        HibernateUtil.getSessionFactory().getCurrentSession().flush();
+        Assert.assertFalse(SecurityFilterPrincipals.get(account.getEmail()).getGroupUUIDs()
+                .contains(group.getUuid()));
+    }
+
+    @Test
+    public void testPermissionChange() throws Exception {
+        Account account = AccountCreator.createTestAccount("SecurityFilterPrincipalsTest.testPermissionChange",
+                false);
+        Folder folder = new Folder();
+        folder.setName("principals");
+        folder.setType(FolderType.PRIVATE);
+        folder.setOwnerEmail("owner");
+        folder = DAOFactory.getFolderDAO().create(folder);
+        String folderId = Long.toString(folder.getId());
+        Assert.assertFalse(SecurityFilterPrincipals.get(account.getEmail()).getFolderIds().contains(folderId));
+
+        Permission permission = new Permission();
+        permission.setAccount(account);
+        permission.setFolder(folder);
+        permission.setCanRead(true);
+        DAOFactory.getPermissionDAO().create(permission);
+        HibernateUtil.getSessionFactory().getCurrentSession().flush();
+        Assert.assertTrue(SecurityFilterPrincipals.get(account.getEmail()).getFolderIds().contains(folderId));
+
+        // bulk deletes
+        DAOFactory.getPermissionDAO().clearPermissions(folder);
+        Assert.assertFalse(SecurityFilterPrincipals.get(account.getEmail()).getFolderIds().contains(folderId));
+    }
+}